@@ -0,0 +1,65 @@
+package com.viladevcorp.hosteo.benchmarks;
+
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
+import com.viladevcorp.hosteo.repository.EventRepository;
+import com.viladevcorp.hosteo.service.WorkflowService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * State of an apartment after its last booking finished, from its tasks and the assignments of the
+ * booking. The event queries are answered from memory, so only the matching of the mandatory tasks
+ * with the assignments is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApartmentStateBenchmark {
+
+  @Param({"5", "50"})
+  private int tasks;
+
+  private WorkflowService workflowService;
+  private Apartment apartment;
+
+  @Setup
+  public void setup() {
+    Event event = Fixtures.finishedBooking(Stubs.login(), tasks);
+    apartment = event.getApartment();
+    EventRepository eventRepository =
+        Stubs.of(
+            EventRepository.class,
+            Map.of(
+                "existsEventByApartmentIdAndState",
+                args -> false,
+                "findFirstByCreatedByIdAndApartmentIdAndStateOrderByEndDateDesc",
+                args -> Optional.of(event)));
+    workflowService =
+        new WorkflowService(
+            eventRepository, null, null, Clock.systemUTC(), new SimpleMeterRegistry());
+  }
+
+  @Benchmark
+  public ApartmentState computeApartmentState() {
+    return workflowService.computeApartmentState(apartment);
+  }
+}
@@ -0,0 +1,124 @@
+package com.viladevcorp.hosteo.benchmarks;
+
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.User;
+import com.viladevcorp.hosteo.model.dto.ApartmentDto;
+import com.viladevcorp.hosteo.model.dto.AssignmentDto;
+import com.viladevcorp.hosteo.model.dto.EventDto;
+import com.viladevcorp.hosteo.model.dto.EventWithAssignmentsDto;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+
+/**
+ * Conversion of an event, one of its assignments, and the event with all of them to DTOs. And of a
+ * list of 10k events, with the explicit copies of the constructors and with the reflective copy
+ * they replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoBenchmark {
+
+  @Param({"5", "50"})
+  private int assignments;
+
+  private Event event;
+  private Assignment assignment;
+
+  @Setup
+  public void setup() {
+    User user = new User();
+    user.setId(UUID.randomUUID());
+    event = Fixtures.finishedBooking(user, assignments);
+    assignment = event.getAssignments().iterator().next();
+  }
+
+  @Benchmark
+  public EventDto eventDto() {
+    return new EventDto(event);
+  }
+
+  @Benchmark
+  public AssignmentDto assignmentDto() {
+    return new AssignmentDto(assignment);
+  }
+
+  @Benchmark
+  public EventWithAssignmentsDto eventWithAssignmentsDto() {
+    return new EventWithAssignmentsDto(event);
+  }
+
+  /** 10k events of 100 apartments. */
+  @State(Scope.Benchmark)
+  public static class EventList {
+
+    private static final int EVENTS = 10_000;
+    private static final int APARTMENTS = 100;
+
+    private List<Event> events;
+
+    @Setup
+    public void setup() {
+      User user = new User();
+      user.setId(UUID.randomUUID());
+      List<Apartment> apartments = new ArrayList<>();
+      for (int i = 0; i < APARTMENTS; i++) {
+        apartments.add(Fixtures.finishedBooking(user, 0).getApartment());
+      }
+      events = new ArrayList<>(EVENTS);
+      for (int i = 0; i < EVENTS; i++) {
+        Event booking = Fixtures.finishedBooking(user, 0);
+        booking.setApartment(apartments.get(i % APARTMENTS));
+        booking.setStartDate(booking.getStartDate().plus(i, ChronoUnit.DAYS));
+        booking.setEndDate(booking.getEndDate().plus(i, ChronoUnit.DAYS));
+        events.add(booking);
+      }
+    }
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public List<EventDto> eventDtoList(EventList list) {
+    List<EventDto> dtos = new ArrayList<>(list.events.size());
+    for (Event listed : list.events) {
+      dtos.add(new EventDto(listed));
+    }
+    return dtos;
+  }
+
+  // The copy of the constructors before the explicit field copies
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public List<EventDto> eventDtoListReflective(EventList list) {
+    List<EventDto> dtos = new ArrayList<>(list.events.size());
+    for (Event listed : list.events) {
+      EventDto dto = new EventDto();
+      BeanUtils.copyProperties(listed, dto, "apartment");
+      ApartmentDto apartment = new ApartmentDto();
+      BeanUtils.copyProperties(listed.getApartment(), apartment);
+      dto.setApartment(apartment);
+      dtos.add(dto);
+    }
+    return dtos;
+  }
+}
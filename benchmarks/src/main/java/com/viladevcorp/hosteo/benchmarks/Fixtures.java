@@ -0,0 +1,92 @@
+package com.viladevcorp.hosteo.benchmarks;
+
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.BaseEntity;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.Task;
+import com.viladevcorp.hosteo.model.User;
+import com.viladevcorp.hosteo.model.Worker;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
+import com.viladevcorp.hosteo.model.types.AssignmentState;
+import com.viladevcorp.hosteo.model.types.CategoryEnum;
+import com.viladevcorp.hosteo.model.types.EventSource;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.types.EventType;
+import com.viladevcorp.hosteo.model.types.Language;
+import com.viladevcorp.hosteo.model.types.TaskType;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/** A finished booking of an apartment with its tasks, and one assignment per task. */
+final class Fixtures {
+
+  private Fixtures() {}
+
+  static Event finishedBooking(User user, int tasks) {
+    Apartment apartment =
+        Apartment.builder()
+            .name("Apartment")
+            .airbnbId("Airbnb listing")
+            .state(ApartmentState.USED)
+            .visible(true)
+            .build();
+    setBase(apartment, user);
+    Worker worker = Worker.builder().name("Worker").language(Language.EN).salary(10).build();
+    setBase(worker, user);
+
+    Instant start = Instant.parse("2030-01-01T15:00:00Z");
+    Event event =
+        Event.builder()
+            .type(EventType.BOOKING)
+            .name("Booking")
+            .source(EventSource.AIRBNB)
+            .state(EventState.FINISHED)
+            .apartment(apartment)
+            .startDate(start)
+            .endDate(start.plus(2, ChronoUnit.DAYS))
+            .build();
+    setBase(event, user);
+
+    List<Task> apartmentTasks = new ArrayList<>();
+    Set<Assignment> assignments = new HashSet<>();
+    for (int i = 0; i < tasks; i++) {
+      Task task =
+          Task.builder()
+              .name("Task " + i)
+              .type(i % 3 == 0 ? TaskType.EXTRA : TaskType.MANDATORY)
+              .category(CategoryEnum.CLEANING)
+              .duration(60)
+              .apartment(apartment)
+              .steps(List.of("First step", "Second step", "Third step"))
+              .build();
+      setBase(task, user);
+      apartmentTasks.add(task);
+      Assignment assignment =
+          Assignment.builder()
+              .task(task)
+              .worker(worker)
+              .event(event)
+              .state(AssignmentState.FINISHED)
+              .startDate(event.getEndDate().plus(i, ChronoUnit.HOURS))
+              .endDate(event.getEndDate().plus(i + 1, ChronoUnit.HOURS))
+              .build();
+      setBase(assignment, user);
+      assignments.add(assignment);
+    }
+    apartment.setTasks(apartmentTasks);
+    event.setAssignments(assignments);
+    return event;
+  }
+
+  private static void setBase(BaseEntity entity, User user) {
+    entity.setId(UUID.randomUUID());
+    entity.setCreatedAt(Instant.now());
+    entity.setCreatedBy(user);
+  }
+}
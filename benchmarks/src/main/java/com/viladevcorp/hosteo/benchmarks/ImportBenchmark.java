@@ -0,0 +1,194 @@
+package com.viladevcorp.hosteo.benchmarks;
+
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.BaseEntity;
+import com.viladevcorp.hosteo.model.dto.ImportFileResultDto;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
+import com.viladevcorp.hosteo.repository.ApartmentRepository;
+import com.viladevcorp.hosteo.repository.AssignmentRepository;
+import com.viladevcorp.hosteo.repository.EventRepository;
+import com.viladevcorp.hosteo.repository.ImpBookingRepository;
+import com.viladevcorp.hosteo.service.ImportConflictService;
+import com.viladevcorp.hosteo.service.ImportService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads Airbnb and Booking.com import files with the import service: the CSV rows are parsed, their
+ * dates formatted and their conflicts found. The apartments are answered from memory and nothing is
+ * stored, so the time is the one of the service itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImportBenchmark {
+
+  private static final int APARTMENTS = 10;
+  private static final DateTimeFormatter AIRBNB_DATE = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+  private static final DateTimeFormatter BOOKING_DATE =
+      DateTimeFormatter.ofPattern("d MMMM yyyy", Locale.ENGLISH);
+
+  @Param({"100", "1000"})
+  private int rows;
+
+  private ImportService importService;
+  private byte[] airbnbFile;
+  private byte[] bookingFile;
+
+  @Setup
+  public void setup() {
+    Stubs.login();
+    Map<String, Apartment> apartments = new HashMap<>();
+    for (int i = 0; i < APARTMENTS; i++) {
+      Apartment apartment =
+          Apartment.builder()
+              .name("Apartment " + i)
+              .airbnbId("Airbnb listing " + i)
+              .bookingId("Booking property " + i)
+              .state(ApartmentState.READY)
+              .visible(true)
+              .build();
+      apartment.setId(UUID.randomUUID());
+      apartments.put(apartment.getAirbnbId(), apartment);
+      apartments.put(apartment.getBookingId(), apartment);
+    }
+    ApartmentRepository apartmentRepository =
+        Stubs.of(
+            ApartmentRepository.class,
+            Map.of(
+                "findByAirbnbIdAndCreatedById",
+                args -> Optional.ofNullable(apartments.get((String) args[0])),
+                "findByBookingIdAndCreatedById",
+                args -> Optional.ofNullable(apartments.get((String) args[0]))));
+    EventRepository eventRepository =
+        Stubs.of(EventRepository.class, Map.of("findEventsBetweenInApartments", args -> List.of()));
+    AssignmentRepository assignmentRepository =
+        Stubs.of(
+            AssignmentRepository.class,
+            Map.of("findAssignmentsBetweenInApartments", args -> List.of()));
+    ImpBookingRepository impBookingRepository =
+        Stubs.of(
+            ImpBookingRepository.class,
+            Map.of("getImpBookingsInRangeDateInApartments", args -> List.of()));
+    EntityManager entityManager =
+        Stubs.of(
+            EntityManager.class,
+            Map.of(
+                "persist",
+                args -> {
+                  ((BaseEntity) args[0]).setId(UUID.randomUUID());
+                  return null;
+                },
+                "flush",
+                args -> null,
+                "clear",
+                args -> null));
+    importService =
+        new ImportService(
+            impBookingRepository,
+            eventRepository,
+            assignmentRepository,
+            apartmentRepository,
+            null,
+            null,
+            new ImportConflictService(eventRepository, assignmentRepository, impBookingRepository),
+            entityManager,
+            new SimpleMeterRegistry());
+    airbnbFile = generateAirbnbFile();
+    bookingFile = generateBookingFile();
+  }
+
+  // One night stays, one after the other on each apartment, and some of them overlapping
+  private LocalDate startDate(int row) {
+    return LocalDate.of(2030, 1, 1).plusDays(2L * (row / APARTMENTS) - (row % 7 == 0 ? 1 : 0));
+  }
+
+  private byte[] generateAirbnbFile() {
+    StringBuilder csv =
+        new StringBuilder(
+            "Date,Type,Confirmation code,Booking date,Start date,End date,Nights,Guest,Listing,"
+                + "Details,Reference code,Currency,Amount,Service fee,Cleaning fee,Gross earnings,"
+                + "Occupancy taxes,Earnings year\n");
+    for (int i = 0; i < rows; i++) {
+      String start = startDate(i).format(AIRBNB_DATE);
+      String end = startDate(i).plusDays(1).format(AIRBNB_DATE);
+      csv.append(end)
+          .append(",Reservation,CODE")
+          .append(i)
+          .append(",")
+          .append(start)
+          .append(",")
+          .append(start)
+          .append(",")
+          .append(end)
+          .append(",1,Guest ")
+          .append(i)
+          .append(",Airbnb listing ")
+          .append(i % APARTMENTS)
+          .append(",,,EUR,58.20,1.80,0.00,60.00,7.00,\n");
+    }
+    return csv.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private byte[] generateBookingFile() {
+    StringBuilder csv =
+        new StringBuilder(
+            "Property name;Location;Booker name;Genius booker;Arrival;Departure;Booked on;Status;"
+                + "Total payment;Commission;Currency;Reservation number\n");
+    for (int i = 0; i < rows; i++) {
+      csv.append("Booking property ")
+          .append(i % APARTMENTS)
+          .append(";\"Street ")
+          .append(i)
+          .append("\nCity, Country\";Guest ")
+          .append(i)
+          .append(";No;")
+          .append(startDate(i).format(BOOKING_DATE))
+          .append(";")
+          .append(startDate(i).plusDays(1).format(BOOKING_DATE))
+          .append(";")
+          .append(startDate(i).minusDays(30).format(BOOKING_DATE))
+          .append(";")
+          .append(i % 20 == 0 ? "Cancelled" : "OK")
+          .append(";63,58;8,39;EUR;")
+          .append(5_000_000_000L + i)
+          .append("\n");
+    }
+    return csv.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public ImportFileResultDto importAirbnbFile() throws Exception {
+    return importService.importAirbnbBookings(new ByteArrayInputStream(airbnbFile));
+  }
+
+  @Benchmark
+  public ImportFileResultDto importBookingFile() throws Exception {
+    return importService.importBookingBookings(new ByteArrayInputStream(bookingFile));
+  }
+}
@@ -0,0 +1,93 @@
+package com.viladevcorp.hosteo.benchmarks;
+
+import com.viladevcorp.hosteo.model.Address;
+import com.viladevcorp.hosteo.model.Conflict;
+import com.viladevcorp.hosteo.model.User;
+import com.viladevcorp.hosteo.model.dto.EventDto;
+import com.viladevcorp.hosteo.model.jsonconverters.AddressJsonConverter;
+import com.viladevcorp.hosteo.model.jsonconverters.ConflictJsonConverter;
+import com.viladevcorp.hosteo.model.jsonconverters.StepsJsonConverter;
+import com.viladevcorp.hosteo.model.types.ConflictType;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Writing and reading the JSON columns: the apartment address, task steps and import conflicts. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonConverterBenchmark {
+
+  private final AddressJsonConverter addressConverter = new AddressJsonConverter();
+  private final StepsJsonConverter stepsConverter = new StepsJsonConverter();
+  private final ConflictJsonConverter conflictConverter = new ConflictJsonConverter();
+
+  private Address address;
+  private String addressJson;
+  private List<String> steps;
+  private String stepsJson;
+  private Conflict conflict;
+  private String conflictJson;
+
+  @Setup
+  public void setup() {
+    address = new Address("2B", "30", "Obchodná", "Bratislava", "Slovakia", "81106");
+    addressJson = addressConverter.convertToDatabaseColumn(address);
+    steps =
+        List.of(
+            "Open the windows",
+            "Change the sheets and the towels",
+            "Clean the kitchen and the bathroom",
+            "Vacuum and mop the floors",
+            "Take out the rubbish");
+    stepsJson = stepsConverter.convertToDatabaseColumn(steps);
+    User user = new User();
+    user.setId(UUID.randomUUID());
+    conflict =
+        new Conflict(ConflictType.EVENT_CONFLICT, new EventDto(Fixtures.finishedBooking(user, 0)));
+    conflictJson = conflictConverter.convertToDatabaseColumn(conflict);
+  }
+
+  @Benchmark
+  public String writeAddress() {
+    return addressConverter.convertToDatabaseColumn(address);
+  }
+
+  @Benchmark
+  public Address readAddress() {
+    return addressConverter.convertToEntityAttribute(addressJson);
+  }
+
+  @Benchmark
+  public String writeSteps() {
+    return stepsConverter.convertToDatabaseColumn(steps);
+  }
+
+  @Benchmark
+  public List<String> readSteps() {
+    return stepsConverter.convertToEntityAttribute(stepsJson);
+  }
+
+  @Benchmark
+  public String writeConflict() {
+    return conflictConverter.convertToDatabaseColumn(conflict);
+  }
+
+  @Benchmark
+  public Conflict readConflict() {
+    return conflictConverter.convertToEntityAttribute(conflictJson);
+  }
+}
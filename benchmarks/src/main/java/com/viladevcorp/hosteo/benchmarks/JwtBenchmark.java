@@ -0,0 +1,95 @@
+package com.viladevcorp.hosteo.benchmarks;
+
+import com.viladevcorp.hosteo.auth.JwtCache;
+import com.viladevcorp.hosteo.auth.JwtResult;
+import com.viladevcorp.hosteo.auth.JwtUtils;
+import com.viladevcorp.hosteo.model.User;
+import com.viladevcorp.hosteo.model.UserSession;
+import com.viladevcorp.hosteo.repository.UserRepository;
+import com.viladevcorp.hosteo.repository.UserSessionRepository;
+import com.viladevcorp.hosteo.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Generation of a token, and its validation with the signature verified (the first request of a
+ * token, after evicting its session from the cache) and read from the cache. The user and the
+ * session are answered from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+  private static final long EXPIRATION_SECONDS = 3600;
+
+  private JwtUtils jwtUtils;
+  private User user;
+  private UUID sessionId;
+  private String token;
+
+  @Setup
+  public void setup() throws Exception {
+    user = new User();
+    user.setId(UUID.randomUUID());
+    user.setUsername("benchmark");
+    user.setEmail("benchmark@hosteo.com");
+    user.setValidated(true);
+    UserSession session = new UserSession();
+    sessionId = UUID.randomUUID();
+    session.setId(sessionId);
+    session.setUser(user);
+
+    JwtCache jwtCache = new JwtCache(Clock.systemUTC());
+    ReflectionTestUtils.setField(jwtCache, "ttlSeconds", 60L);
+    ReflectionTestUtils.setField(jwtCache, "maxSize", 10_000);
+    jwtUtils =
+        new JwtUtils(
+            new CustomUserDetailsService(
+                Stubs.of(UserRepository.class, Map.of("findByUsername", args -> user))),
+            Stubs.of(
+                UserSessionRepository.class,
+                Map.of("findByIdAndDeletedAtIsNull", args -> Optional.of(session))),
+            jwtCache,
+            new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "benchmarksecret");
+    ReflectionTestUtils.setField(jwtUtils, "expirationTime", EXPIRATION_SECONDS * 1000);
+    token = generateToken().getJwt();
+  }
+
+  @Benchmark
+  public JwtResult generateToken() {
+    return jwtUtils.generateToken(
+        user.getId(), user.getUsername(), user.getEmail(), EXPIRATION_SECONDS, false, sessionId);
+  }
+
+  @Benchmark
+  public Authentication validateToken() throws Exception {
+    jwtUtils.evictSession(sessionId);
+    return jwtUtils.validateToken(token);
+  }
+
+  @Benchmark
+  public Authentication validateCachedToken() throws Exception {
+    return jwtUtils.validateToken(token);
+  }
+}
@@ -0,0 +1,56 @@
+package com.viladevcorp.hosteo.benchmarks;
+
+import com.viladevcorp.hosteo.model.User;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Stand-ins for the repositories and the logged user, so the services run without a database and
+ * only their in-memory work is measured.
+ */
+final class Stubs {
+
+  private Stubs() {}
+
+  // Implements the interface answering the given methods by name, the rest fail
+  static <T> T of(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+    return type.cast(
+        Proxy.newProxyInstance(
+            type.getClassLoader(),
+            new Class<?>[] {type},
+            (proxy, method, args) -> {
+              Function<Object[], Object> answer = answers.get(method.getName());
+              if (answer != null) {
+                return answer.apply(args);
+              }
+              return switch (method.getName()) {
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> type.getSimpleName() + " stub";
+                default ->
+                    throw new UnsupportedOperationException(
+                        type.getSimpleName() + "." + method.getName() + " is not stubbed");
+              };
+            }));
+  }
+
+  // Shared by every thread, the benchmark threads are not the ones of the setup
+  static User login() {
+    User user = new User();
+    user.setId(UUID.randomUUID());
+    user.setUsername("benchmark");
+    user.setEmail("benchmark@hosteo.com");
+    user.setValidated(true);
+    SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new UsernamePasswordAuthenticationToken(user, null, Set.<GrantedAuthority>of()));
+    return user;
+  }
+}
@@ -0,0 +1,110 @@
+package com.viladevcorp.hosteo.benchmarks.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies and responses of each endpoint during the measured part of a load test. The latencies
+ * are kept in microseconds in HDR histograms, so the percentiles are exact to 3 digits whatever the
+ * number of requests.
+ */
+class LoadReport {
+
+  private static final long MAX_LATENCY_MICROS = Duration.ofMinutes(5).toNanos() / 1000;
+
+  private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+  private static final class Endpoint {
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    // Responses by status, the errors of the client (timeouts, refused connections) as 0
+    private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+  }
+
+  void record(String endpoint, long latencyNanos, int status) {
+    Endpoint recorded = endpoints.computeIfAbsent(endpoint, name -> new Endpoint());
+    recorded.latencies.recordValue(Math.min(latencyNanos / 1000, MAX_LATENCY_MICROS));
+    recorded.statuses.computeIfAbsent(status, code -> new LongAdder()).increment();
+  }
+
+  // Prints a table of the endpoints and writes them as JSON, with the settings of the run
+  void write(Duration measured, Map<String, Object> settings, File file) throws IOException {
+    List<Map<String, Object>> results = new ArrayList<>();
+    Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+    long totalErrors = 0;
+    for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+      Histogram latencies = entry.getValue().latencies;
+      total.add(latencies);
+      Map<String, Long> statuses = new TreeMap<>();
+      long errors = 0;
+      for (Map.Entry<Integer, LongAdder> status : entry.getValue().statuses.entrySet()) {
+        statuses.put(String.valueOf(status.getKey()), status.getValue().sum());
+        if (status.getKey() < 200 || status.getKey() >= 300) {
+          errors += status.getValue().sum();
+        }
+      }
+      totalErrors += errors;
+      Map<String, Object> result = summary(entry.getKey(), latencies, errors, measured);
+      result.put("statuses", statuses);
+      results.add(result);
+    }
+    results.add(summary("TOTAL", total, totalErrors, measured));
+
+    System.out.printf(
+        "%-40s %9s %7s %9s %9s %9s %9s %9s%n",
+        "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p90 ms", "p99 ms", "Max ms");
+    for (Map<String, Object> result : results) {
+      System.out.printf(
+          "%-40s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+          result.get("endpoint"),
+          result.get("requests"),
+          result.get("errors"),
+          result.get("throughput"),
+          result.get("p50"),
+          result.get("p90"),
+          result.get("p99"),
+          result.get("max"));
+    }
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("settings", settings);
+    report.put("measuredSeconds", measured.toSeconds());
+    report.put("endpoints", results);
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+    System.out.println("Results written to " + file);
+  }
+
+  private static Map<String, Object> summary(
+      String endpoint, Histogram latencies, long errors, Duration measured) {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("endpoint", endpoint);
+    result.put("requests", latencies.getTotalCount());
+    result.put("errors", errors);
+    result.put("throughput", latencies.getTotalCount() * 1000.0 / measured.toMillis());
+    result.put("p50", millis(latencies.getValueAtPercentile(50)));
+    result.put("p90", millis(latencies.getValueAtPercentile(90)));
+    result.put("p99", millis(latencies.getValueAtPercentile(99)));
+    result.put("max", millis(latencies.getMaxValue()));
+    return result;
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+}
@@ -0,0 +1,47 @@
+package com.viladevcorp.hosteo.benchmarks.load;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Settings of the data generator and the load test, read from system properties (given to Maven
+ * with -D). The defaults match the load database of the docker-compose file and the load profile of
+ * the API.
+ */
+final class LoadSettings {
+
+  static final String TENANT_PASSWORD = "loadtest";
+
+  private LoadSettings() {}
+
+  // Username of the tenant with the given number, from 1
+  static String tenantUsername(int tenant) {
+    return "loadtest" + tenant;
+  }
+
+  static String string(String name, String defaultValue) {
+    return System.getProperty(name, defaultValue);
+  }
+
+  static int integer(String name, int defaultValue) {
+    return Integer.parseInt(string(name, String.valueOf(defaultValue)));
+  }
+
+  static long longValue(String name, long defaultValue) {
+    return Long.parseLong(string(name, String.valueOf(defaultValue)));
+  }
+
+  // In seconds
+  static Duration duration(String name, int defaultSeconds) {
+    return Duration.ofSeconds(integer(name, defaultSeconds));
+  }
+
+  static Connection connect() throws SQLException {
+    return DriverManager.getConnection(
+        string("db.url", "jdbc:postgresql://localhost:5438/hosteo-load"),
+        string("db.username", "user"),
+        string("db.password", "password"));
+  }
+}
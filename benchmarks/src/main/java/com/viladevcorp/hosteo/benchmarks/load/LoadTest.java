@@ -0,0 +1,409 @@
+package com.viladevcorp.hosteo.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays the mix of requests of the users against a running API, with the tenants of {@link
+ * TenantDataGenerator}: event and assignment searches, event reads and creations, the check-ins and
+ * check-outs of the apartments, the bulk finishing of their assignments, the weekly scheduler and
+ * Airbnb imports. It prints the p50/p90/p99 latency and the throughput of each endpoint and writes
+ * them as JSON.
+ *
+ * <p>By default each thread sends its next request when the previous one is answered. With a rate
+ * the requests are sent on a schedule, and their latency is measured from when they were due, so a
+ * slow response also counts for the requests it delayed.
+ */
+public class LoadTest {
+
+  private static final DateTimeFormatter AIRBNB_DATE = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+  private static final DateTimeFormatter SCHEDULER_DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+  private static final String AIRBNB_HEADER =
+      "Date,Type,Confirmation code,Booking date,Start date,End date,Nights,Guest,Listing,Details,"
+          + "Reference code,Currency,Amount,Service fee,Cleaning fee,Gross earnings,"
+          + "Occupancy taxes,Earnings year\n";
+  private static final int IMPORT_ROWS = 20;
+  private static final int BULK_SIZE = 10;
+  private static final String DEFAULT_MIX =
+      "searchEvents:30,searchAssignments:15,getEvent:15,createEvent:10,eventState:15,"
+          + "assignmentsState:10,scheduler:5,importAirbnb:5";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final HttpClient client =
+      HttpClient.newBuilder()
+          .version(HttpClient.Version.HTTP_1_1)
+          .connectTimeout(Duration.ofSeconds(10))
+          .build();
+  private final LoadReport report = new LoadReport();
+  private final String baseUrl;
+  private final List<Tenant> tenants;
+  private final List<String> operations = new ArrayList<>();
+  private final List<Integer> cumulativeWeights = new ArrayList<>();
+  private final LocalDate today = LocalDate.now();
+
+  private volatile boolean measuring;
+  private volatile boolean running = true;
+
+  LoadTest(String baseUrl, List<Tenant> tenants, String mix) {
+    this.baseUrl = baseUrl;
+    this.tenants = tenants;
+    int total = 0;
+    for (String entry : mix.split(",")) {
+      String[] operation = entry.trim().split(":");
+      total += Integer.parseInt(operation[1]);
+      operations.add(operation[0]);
+      cumulativeWeights.add(total);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, Object> settings = new LinkedHashMap<>();
+    settings.put("url", LoadSettings.string("load.url", "http://localhost:8080"));
+    settings.put("tenants", LoadSettings.integer("load.tenants", 1));
+    settings.put("threads", LoadSettings.integer("load.threads", 16));
+    settings.put("warmupSeconds", LoadSettings.duration("load.warmup", 30).toSeconds());
+    settings.put("durationSeconds", LoadSettings.duration("load.duration", 120).toSeconds());
+    settings.put("rate", LoadSettings.integer("load.rate", 0));
+    settings.put("mix", LoadSettings.string("load.mix", DEFAULT_MIX));
+    settings.put("seed", LoadSettings.longValue("load.seed", 42));
+
+    List<Tenant> tenants = new ArrayList<>();
+    try (Connection connection = LoadSettings.connect()) {
+      for (int i = 1; i <= (int) settings.get("tenants"); i++) {
+        tenants.add(Tenant.load(connection, LoadSettings.tenantUsername(i), 1000));
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("The tenants could not be read from the database", e);
+    }
+    LoadTest loadTest =
+        new LoadTest((String) settings.get("url"), tenants, (String) settings.get("mix"));
+    for (Tenant tenant : tenants) {
+      loadTest.login(tenant);
+    }
+    Duration measured =
+        loadTest.run(
+            (int) settings.get("threads"),
+            Duration.ofSeconds((long) settings.get("warmupSeconds")),
+            Duration.ofSeconds((long) settings.get("durationSeconds")),
+            (int) settings.get("rate"),
+            (long) settings.get("seed"));
+    loadTest.report.write(
+        measured,
+        settings,
+        new File(LoadSettings.string("load.result", "target/load-result.json")));
+  }
+
+  // Runs the threads for the warmup and the measurement, and returns the time measured
+  Duration run(int threads, Duration warmup, Duration duration, int rate, long seed)
+      throws InterruptedException {
+    // Nanoseconds between the requests of a thread, 0 to send them one after the other
+    long interval = rate > 0 ? 1_000_000_000L * threads / rate : 0;
+    List<Thread> workers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      Tenant tenant = tenants.get(i % tenants.size());
+      Random random = new Random(seed + i);
+      // Spread over the interval, so the threads do not send together
+      long offset = interval * i / threads;
+      Thread worker = new Thread(() -> work(tenant, random, interval, offset), "load-" + i);
+      worker.start();
+      workers.add(worker);
+    }
+    System.out.printf("Warming up for %d s%n", warmup.toSeconds());
+    Thread.sleep(warmup.toMillis());
+    measuring = true;
+    long start = System.nanoTime();
+    System.out.printf("Measuring for %d s%n", duration.toSeconds());
+    Thread.sleep(duration.toMillis());
+    measuring = false;
+    Duration measured = Duration.ofNanos(System.nanoTime() - start);
+    running = false;
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    return measured;
+  }
+
+  private void work(Tenant tenant, Random random, long interval, long offset) {
+    long due = System.nanoTime() + offset;
+    while (running) {
+      if (interval > 0) {
+        LockSupport.parkNanos(due - System.nanoTime());
+      } else {
+        due = System.nanoTime();
+      }
+      String operation = pickOperation(random);
+      try {
+        switch (operation) {
+          case "searchEvents" -> searchEvents(tenant, random, due);
+          case "searchAssignments" -> searchAssignments(tenant, random, due);
+          case "getEvent" -> getEvent(tenant, random, due);
+          case "createEvent" -> createEvent(tenant, random, due);
+          case "eventState" -> moveEventState(tenant, due);
+          case "assignmentsState" -> finishAssignments(tenant, random, due);
+          case "scheduler" -> getScheduler(tenant, random, due);
+          case "importAirbnb" -> importAirbnb(tenant, random, due);
+          default -> throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      due += interval;
+    }
+  }
+
+  private String pickOperation(Random random) {
+    int value = random.nextInt(cumulativeWeights.get(cumulativeWeights.size() - 1));
+    for (int i = 0; i < operations.size(); i++) {
+      if (value < cumulativeWeights.get(i)) {
+        return operations.get(i);
+      }
+    }
+    throw new IllegalStateException();
+  }
+
+  private void searchEvents(Tenant tenant, Random random, long due) throws InterruptedException {
+    // A month of the calendar, of all the apartments or of one
+    LocalDate from = today.minusDays(90).plusDays(random.nextInt(270));
+    Map<String, Object> form = new LinkedHashMap<>();
+    if (random.nextBoolean()) {
+      form.put("apartmentIds", List.of(pickApartment(tenant, random).id));
+    }
+    form.put("startDate", from.atStartOfDay().toInstant(ZoneOffset.UTC).toString());
+    form.put("endDate", from.plusDays(30).atStartOfDay().toInstant(ZoneOffset.UTC).toString());
+    form.put("pageNumber", 0);
+    form.put("pageSize", 20);
+    send(tenant, "POST", "/api/event/search", "POST /api/event/search", json(form), due);
+  }
+
+  private void searchAssignments(Tenant tenant, Random random, long due)
+      throws InterruptedException {
+    Map<String, Object> form = new LinkedHashMap<>();
+    if (random.nextBoolean()) {
+      form.put("state", "PENDING");
+    }
+    if (random.nextInt(4) == 0) {
+      form.put("taskName", "clean");
+    }
+    form.put("pageNumber", 0);
+    form.put("pageSize", 20);
+    send(tenant, "POST", "/api/assignment/search", "POST /api/assignment/search", json(form), due);
+  }
+
+  private void getEvent(Tenant tenant, Random random, long due) throws InterruptedException {
+    UUID id = tenant.eventIds.get(random.nextInt(tenant.eventIds.size()));
+    send(tenant, "GET", "/api/event/" + id, "GET /api/event/{id}", null, due);
+  }
+
+  // Two nights after the events of an apartment, so it is available
+  private void createEvent(Tenant tenant, Random random, long due) throws InterruptedException {
+    Tenant.Apartment apartment = pickApartment(tenant, random);
+    LocalDate day = apartment.freeDay.getAndUpdate(free -> free.plusDays(3));
+    Map<String, Object> form = new LinkedHashMap<>();
+    form.put("apartmentId", apartment.id);
+    form.put("startDate", day.atTime(15, 0).toInstant(ZoneOffset.UTC).toString());
+    form.put("endDate", day.plusDays(2).atTime(11, 0).toInstant(ZoneOffset.UTC).toString());
+    form.put("name", "Load test guest");
+    form.put("type", "BOOKING");
+    send(tenant, "POST", "/api/event", "POST /api/event", json(form), due);
+  }
+
+  // Checks in the next guest of an idle apartment, or checks out the one in it. The local state
+  // moves even if the request fails, so the apartment does not get stuck
+  private void moveEventState(Tenant tenant, long due) throws InterruptedException {
+    Tenant.Apartment apartment = tenant.idleApartments.poll();
+    // The apartments without more events are left out
+    if (apartment == null || apartment.next >= apartment.openEvents.size()) {
+      return;
+    }
+    try {
+      UUID eventId = apartment.openEvents.get(apartment.next);
+      String state = apartment.inProgress ? "FINISHED" : "IN_PROGRESS";
+      send(
+          tenant,
+          "PATCH",
+          "/api/event/" + eventId + "/state/" + state,
+          "PATCH /api/event/{id}/state/" + state,
+          null,
+          due);
+      if (apartment.inProgress) {
+        tenant.assignmentsToFinish.addAll(apartment.assignments.get(eventId));
+        apartment.next++;
+      }
+      apartment.inProgress = !apartment.inProgress;
+    } finally {
+      tenant.idleApartments.add(apartment);
+    }
+  }
+
+  // The assignments of the checked out guests, or of a future one if there are none
+  private void finishAssignments(Tenant tenant, Random random, long due)
+      throws InterruptedException {
+    List<UUID> ids = new ArrayList<>();
+    UUID id;
+    while (ids.size() < BULK_SIZE && (id = tenant.assignmentsToFinish.poll()) != null) {
+      ids.add(id);
+    }
+    if (ids.isEmpty()) {
+      Tenant.Apartment apartment = pickApartment(tenant, random);
+      if (apartment.openEvents.isEmpty()) {
+        return;
+      }
+      ids.addAll(
+          apartment.assignments.get(
+              apartment.openEvents.get(random.nextInt(apartment.openEvents.size()))));
+    }
+    send(
+        tenant,
+        "PATCH",
+        "/api/assignments/state/FINISHED",
+        "PATCH /api/assignments/state/{state}",
+        json(ids),
+        due);
+  }
+
+  // The week of every apartment, from a day of the last month or the next one
+  private void getScheduler(Tenant tenant, Random random, long due) throws InterruptedException {
+    LocalDate startDate = today.minusDays(30).plusDays(random.nextInt(60));
+    send(
+        tenant,
+        "GET",
+        "/api/scheduler/" + startDate.format(SCHEDULER_DATE),
+        "GET /api/scheduler/{startDateStr}",
+        null,
+        due);
+  }
+
+  // Uploads a file with bookings after the events of the apartments, and discards it
+  private void importAirbnb(Tenant tenant, Random random, long due) throws InterruptedException {
+    StringBuilder file = new StringBuilder(AIRBNB_HEADER);
+    for (int i = 0; i < IMPORT_ROWS; i++) {
+      Tenant.Apartment apartment = pickApartment(tenant, random);
+      LocalDate start = apartment.freeDay.get().plusDays(random.nextInt(60));
+      LocalDate end = start.plusDays(1 + random.nextInt(5));
+      file.append(end.format(AIRBNB_DATE))
+          .append(",Reservation,LOAD")
+          .append(random.nextInt(1_000_000))
+          .append(',')
+          .append(start.minusDays(30).format(AIRBNB_DATE))
+          .append(',')
+          .append(start.format(AIRBNB_DATE))
+          .append(',')
+          .append(end.format(AIRBNB_DATE))
+          .append(',')
+          .append(end.toEpochDay() - start.toEpochDay())
+          .append(",Load test guest,")
+          .append(apartment.airbnbId)
+          .append(",,,EUR,100.00,3.00,0.00,103.00,7.00,\n");
+    }
+    String boundary = "----hosteo-load-" + random.nextLong();
+    byte[] body =
+        ("--"
+                + boundary
+                + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"airbnb.csv\""
+                + "\r\nContent-Type: text/csv\r\n\r\n"
+                + file
+                + "\r\n--"
+                + boundary
+                + "--\r\n")
+            .getBytes(StandardCharsets.UTF_8);
+    send(
+        request("/api/event/import/airbnb", tenant)
+            .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build(),
+        "POST /api/event/import/airbnb",
+        due);
+    send(
+        tenant, "DELETE", "/api/event/import", "DELETE /api/event/import", null, System.nanoTime());
+  }
+
+  private Tenant.Apartment pickApartment(Tenant tenant, Random random) {
+    return tenant.apartments.get(random.nextInt(tenant.apartments.size()));
+  }
+
+  private void send(
+      Tenant tenant, String method, String path, String endpoint, String body, long due)
+      throws InterruptedException {
+    HttpRequest.Builder request = request(path, tenant);
+    if (body != null) {
+      request.header("Content-Type", "application/json");
+    }
+    request.method(
+        method,
+        body == null
+            ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofString(body));
+    send(request.build(), endpoint, due);
+  }
+
+  // Records the latency since the request was due, and its status (0 if it got no response)
+  private void send(HttpRequest request, String endpoint, long due) throws InterruptedException {
+    int status;
+    try {
+      status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    } catch (IOException e) {
+      status = 0;
+    }
+    if (measuring) {
+      report.record(endpoint, System.nanoTime() - due, status);
+    }
+  }
+
+  private HttpRequest.Builder request(String path, Tenant tenant) {
+    return HttpRequest.newBuilder(URI.create(baseUrl + path))
+        .timeout(Duration.ofSeconds(30))
+        .header("Authorization", "Bearer " + tenant.token);
+  }
+
+  void login(Tenant tenant) throws IOException, InterruptedException {
+    HttpResponse<String> response =
+        client.send(
+            HttpRequest.newBuilder(URI.create(baseUrl + "/api/public/login"))
+                .header("Content-Type", "application/json")
+                .POST(
+                    HttpRequest.BodyPublishers.ofString(
+                        json(
+                            Map.of(
+                                "username",
+                                tenant.username,
+                                "password",
+                                LoadSettings.TENANT_PASSWORD))))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() != 200) {
+      throw new IllegalStateException(
+          "Login of " + tenant.username + " failed with status " + response.statusCode());
+    }
+    JsonNode result = objectMapper.readTree(response.body());
+    tenant.token = result.path("data").path("authToken").asText();
+  }
+
+  private String json(Object value) {
+    try {
+      return objectMapper.writeValueAsString(value);
+    } catch (IOException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.viladevcorp.hosteo.benchmarks.load;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Data of a generated tenant the load test works on, read from the database when it starts, and
+ * what the test changes of it.
+ */
+class Tenant {
+
+  final String username;
+  final List<Apartment> apartments = new ArrayList<>();
+  // A sample of the events, to be read
+  final List<UUID> eventIds = new ArrayList<>();
+  // Apartments whose timeline is not being moved by a thread
+  final ConcurrentLinkedQueue<Apartment> idleApartments = new ConcurrentLinkedQueue<>();
+  // Assignments of the events finished by the test, to be finished
+  final ConcurrentLinkedQueue<UUID> assignmentsToFinish = new ConcurrentLinkedQueue<>();
+
+  volatile String token;
+
+  static final class Apartment {
+    final UUID id;
+    final String airbnbId;
+    // Events not finished, in order, the first may be in progress
+    final List<UUID> openEvents = new ArrayList<>();
+    final Map<UUID, List<UUID>> assignments = new HashMap<>();
+    // First day free of events, the created ones are put from it
+    final AtomicReference<LocalDate> freeDay;
+    int next;
+    boolean inProgress;
+
+    Apartment(UUID id, String airbnbId, LocalDate freeDay) {
+      this.id = id;
+      this.airbnbId = airbnbId;
+      this.freeDay = new AtomicReference<>(freeDay);
+    }
+  }
+
+  Tenant(String username) {
+    this.username = username;
+  }
+
+  static Tenant load(Connection connection, String username, int eventSample) throws SQLException {
+    Tenant tenant = new Tenant(username);
+    Map<UUID, Apartment> apartments = new HashMap<>();
+    try (PreparedStatement statement =
+        connection.prepareStatement(
+            "SELECT a.id, a.airbnb_id, max(e.end_date) FROM apartments a"
+                + " JOIN users u ON u.id = a.created_by"
+                + " LEFT JOIN events e ON e.apartment_id = a.id"
+                + " WHERE u.username = ? GROUP BY a.id, a.airbnb_id ORDER BY a.airbnb_id")) {
+      statement.setString(1, username);
+      try (ResultSet result = statement.executeQuery()) {
+        while (result.next()) {
+          Timestamp lastEnd = result.getTimestamp(3);
+          LocalDate freeDay =
+              (lastEnd == null ? LocalDate.now() : lastEnd.toLocalDateTime().toLocalDate())
+                  .plusDays(30);
+          Apartment apartment =
+              new Apartment(result.getObject(1, UUID.class), result.getString(2), freeDay);
+          tenant.apartments.add(apartment);
+          apartments.put(apartment.id, apartment);
+        }
+      }
+    }
+    if (tenant.apartments.isEmpty()) {
+      throw new IllegalStateException(
+          "No data for " + username + ", generate it first with TenantDataGenerator");
+    }
+
+    try (PreparedStatement statement =
+        connection.prepareStatement(
+            "SELECT e.apartment_id, e.id, e.state, a.id FROM events e"
+                + " JOIN users u ON u.id = e.created_by"
+                + " LEFT JOIN assignments a ON a.event_id = e.id AND a.state = 'PENDING'"
+                + " WHERE u.username = ? AND e.state <> 'FINISHED'"
+                + " ORDER BY e.apartment_id, e.start_date")) {
+      statement.setString(1, username);
+      try (ResultSet result = statement.executeQuery()) {
+        while (result.next()) {
+          Apartment apartment = apartments.get(result.getObject(1, UUID.class));
+          UUID eventId = result.getObject(2, UUID.class);
+          List<UUID> assignments = apartment.assignments.get(eventId);
+          if (assignments == null) {
+            assignments = new ArrayList<>();
+            apartment.assignments.put(eventId, assignments);
+            apartment.openEvents.add(eventId);
+            if (apartment.openEvents.size() == 1) {
+              apartment.inProgress = "IN_PROGRESS".equals(result.getString(3));
+            }
+          }
+          UUID assignmentId = result.getObject(4, UUID.class);
+          if (assignmentId != null) {
+            assignments.add(assignmentId);
+          }
+        }
+      }
+    }
+
+    try (PreparedStatement statement =
+        connection.prepareStatement(
+            "SELECT e.id FROM events e JOIN users u ON u.id = e.created_by"
+                + " WHERE u.username = ? ORDER BY md5(e.id::text) LIMIT ?")) {
+      statement.setString(1, username);
+      statement.setInt(2, eventSample);
+      try (ResultSet result = statement.executeQuery()) {
+        while (result.next()) {
+          tenant.eventIds.add(result.getObject(1, UUID.class));
+        }
+      }
+    }
+    tenant.idleApartments.addAll(tenant.apartments);
+    return tenant;
+  }
+}
@@ -0,0 +1,445 @@
+package com.viladevcorp.hosteo.benchmarks.load;
+
+import com.viladevcorp.hosteo.model.Address;
+import com.viladevcorp.hosteo.model.jsonconverters.AddressJsonConverter;
+import com.viladevcorp.hosteo.model.jsonconverters.StepsJsonConverter;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
+import com.viladevcorp.hosteo.model.types.AssignmentState;
+import com.viladevcorp.hosteo.model.types.CategoryEnum;
+import com.viladevcorp.hosteo.model.types.EventSource;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.types.EventType;
+import com.viladevcorp.hosteo.model.types.Language;
+import com.viladevcorp.hosteo.model.types.TaskType;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Fills a database with tenants shaped like the real ones: apartments with their tasks, workers,
+ * and years of bookings (with some maintenance and personal use) up to some months ahead, each
+ * booking with the assignments of the mandatory tasks of its apartment. The past is finished and
+ * the future pending, so the data passes the state validations of the API.
+ *
+ * <p>The tenants are the users loadtest1, loadtest2... (password loadtest), their previous data is
+ * replaced. The rows are written with COPY, and the same seed and date give the same data. The API
+ * keeps in-memory indexes and counts of the data, so it is started (or restarted) after.
+ */
+public class TenantDataGenerator {
+
+  private static final LocalTime CHECKIN_TIME = LocalTime.of(15, 0);
+  private static final LocalTime CHECKOUT_TIME = LocalTime.of(11, 0);
+  private static final int FUTURE_DAYS = 180;
+  // Each tenant task: name, category, minutes, type. The first ones are done after every booking
+  private static final Object[][] TASKS = {
+    {"Cleaning", CategoryEnum.CLEANING, 120, TaskType.MANDATORY},
+    {"Change linens", CategoryEnum.CLEANING, 30, TaskType.MANDATORY},
+    {"Restock amenities", CategoryEnum.MAINTENANCE, 20, TaskType.MANDATORY},
+    {"Check appliances", CategoryEnum.INSPECTION, 15, TaskType.EXTRA},
+    {"Deep cleaning", CategoryEnum.CLEANING, 240, TaskType.EXTRA},
+    {"Window cleaning", CategoryEnum.CLEANING, 60, TaskType.EXTRA},
+    {"Boiler revision", CategoryEnum.REPAIR, 90, TaskType.EXTRA},
+    {"Garden", CategoryEnum.OTHER, 45, TaskType.EXTRA}
+  };
+  private static final String[] FIRST_NAMES = {
+    "Ana", "Luis", "Marta", "Jordi", "Laura", "Pablo", "Elena", "David", "Sara", "Iker", "Nuria",
+    "Carlos"
+  };
+  private static final String[] LAST_NAMES = {
+    "García", "Martínez", "López", "Sánchez", "Pérez", "Gómez", "Vila", "Ruiz", "Díaz", "Serra"
+  };
+  private static final String[] CITIES = {"Barcelona", "Madrid", "Valencia", "Sevilla", "Málaga"};
+  private static final Language[] LANGUAGES = {
+    Language.ES, Language.EN, Language.FR, Language.DE, Language.IT
+  };
+
+  private final AddressJsonConverter addressConverter = new AddressJsonConverter();
+  private final StepsJsonConverter stepsConverter = new StepsJsonConverter();
+  private final String passwordHash =
+      new BCryptPasswordEncoder().encode(LoadSettings.TENANT_PASSWORD);
+
+  private final int apartments;
+  private final int tasks;
+  private final int workers;
+  private final int years;
+  private final long seed;
+  private final LocalDate today;
+  // The API reads and writes the timestamps in the time zone of its JVM
+  private final ZoneId zone = ZoneId.systemDefault();
+  private final Instant now;
+
+  private Random random;
+
+  public TenantDataGenerator(
+      int apartments, int tasks, int workers, int years, long seed, LocalDate today) {
+    this.apartments = apartments;
+    this.tasks = tasks;
+    this.workers = workers;
+    this.years = years;
+    this.seed = seed;
+    this.today = today;
+    this.now = LocalDateTime.of(today, LocalTime.NOON).toInstant(ZoneOffset.UTC);
+  }
+
+  public static void main(String[] args) throws SQLException {
+    int tenants = LoadSettings.integer("datagen.tenants", 1);
+    TenantDataGenerator generator =
+        new TenantDataGenerator(
+            LoadSettings.integer("datagen.apartments", 50),
+            LoadSettings.integer("datagen.tasks", 5),
+            LoadSettings.integer("datagen.workers", 15),
+            LoadSettings.integer("datagen.years", 3),
+            LoadSettings.longValue("datagen.seed", 42),
+            LocalDate.parse(LoadSettings.string("datagen.date", LocalDate.now().toString())));
+    try (Connection connection = LoadSettings.connect()) {
+      connection.setAutoCommit(false);
+      for (int tenant = 1; tenant <= tenants; tenant++) {
+        long start = System.nanoTime();
+        Counts counts = generator.generate(connection, tenant);
+        connection.commit();
+        System.out.printf(
+            "%s: %d apartments, %d tasks, %d workers, %d events, %d assignments in %d ms%n",
+            LoadSettings.tenantUsername(tenant),
+            counts.apartments,
+            counts.tasks,
+            counts.workers,
+            counts.events,
+            counts.assignments,
+            (System.nanoTime() - start) / 1_000_000);
+      }
+    }
+  }
+
+  static final class Counts {
+    long apartments;
+    long tasks;
+    long workers;
+    long events;
+    long assignments;
+  }
+
+  private record GeneratedTask(UUID id, int duration, boolean mandatory) {}
+
+  private record GeneratedBooking(UUID id, int apartment, Instant endDate, boolean finished) {}
+
+  public Counts generate(Connection connection, int tenant) throws SQLException {
+    // The data of a tenant does not depend on how many are generated
+    random = new Random(seed * 31 + tenant);
+    UUID userId = replaceUser(connection, tenant);
+    PGConnection pgConnection = connection.unwrap(PGConnection.class);
+    Counts counts = new Counts();
+
+    List<UUID> workerIds = new ArrayList<>();
+    try (Copy copy =
+        new Copy(
+            pgConnection,
+            "workers (id, name, language, salary, visible, created_at, created_by)")) {
+      for (int i = 1; i <= workers; i++) {
+        UUID id = nextUuid();
+        workerIds.add(id);
+        copy.row(
+            id,
+            pick(FIRST_NAMES) + " " + pick(LAST_NAMES) + " " + tenant + "-" + i,
+            pick(LANGUAGES),
+            1200 + random.nextInt(800),
+            random.nextInt(10) > 0,
+            timestamp(now),
+            userId);
+      }
+      counts.workers = copy.finish();
+    }
+
+    List<UUID> apartmentIds = new ArrayList<>();
+    try (Copy copy =
+        new Copy(
+            pgConnection,
+            "apartments (id, name, airbnb_id, booking_id, address, state, visible, created_at,"
+                + " created_by)")) {
+      for (int i = 0; i < apartments; i++) {
+        apartmentIds.add(nextUuid());
+        String city = pick(CITIES);
+        copy.row(
+            apartmentIds.get(i),
+            "Apartment " + tenant + "-" + (i + 1) + " " + city,
+            "air-" + tenant + "-" + (i + 1),
+            "bk-" + tenant + "-" + (i + 1),
+            addressConverter.convertToDatabaseColumn(
+                new Address(
+                    String.valueOf(1 + random.nextInt(8)) + (char) ('A' + random.nextInt(4)),
+                    String.valueOf(1 + random.nextInt(200)),
+                    "Calle " + pick(LAST_NAMES),
+                    city,
+                    "Spain",
+                    String.valueOf(8000 + random.nextInt(40000)))),
+            ApartmentState.READY,
+            true,
+            timestamp(now),
+            userId);
+      }
+      counts.apartments = copy.finish();
+    }
+
+    List<List<GeneratedTask>> apartmentTasks = new ArrayList<>();
+    try (Copy taskCopy =
+        new Copy(
+            pgConnection,
+            "tasks (id, name, category, duration, apartment_id, steps, type, created_at,"
+                + " created_by)")) {
+      for (int i = 1; i <= apartments; i++) {
+        UUID apartmentId = apartmentIds.get(i - 1);
+        List<GeneratedTask> generatedTasks = new ArrayList<>();
+        for (int j = 0; j < tasks; j++) {
+          Object[] task = TASKS[j % TASKS.length];
+          String name =
+              j < TASKS.length ? (String) task[0] : task[0] + " " + (j / TASKS.length + 1);
+          GeneratedTask generatedTask =
+              new GeneratedTask(nextUuid(), (int) task[2], task[3] == TaskType.MANDATORY);
+          generatedTasks.add(generatedTask);
+          taskCopy.row(
+              generatedTask.id(),
+              name,
+              task[1],
+              generatedTask.duration(),
+              apartmentId,
+              stepsConverter.convertToDatabaseColumn(
+                  List.of(name + ": prepare", name + ": do", name + ": check")),
+              task[3],
+              timestamp(now),
+              userId);
+        }
+        apartmentTasks.add(generatedTasks);
+      }
+      counts.tasks = taskCopy.finish();
+    }
+
+    // A connection copies into one table at a time, the assignments are copied after the events
+    List<UUID> occupiedIds = new ArrayList<>();
+    List<GeneratedBooking> bookings = new ArrayList<>();
+    try (Copy copy =
+        new Copy(
+            pgConnection,
+            "events (id, type, name, source, state, apartment_id, start_date, end_date,"
+                + " created_at, created_by)")) {
+      for (int i = 0; i < apartments; i++) {
+        if (generateTimeline(copy, bookings, i, apartmentIds.get(i), userId)) {
+          occupiedIds.add(apartmentIds.get(i));
+        }
+      }
+      counts.events = copy.finish();
+    }
+
+    // The mandatory tasks are done one after the other from the check-out
+    try (Copy copy =
+        new Copy(
+            pgConnection,
+            "assignments (id, task_id, worker_id, start_date, end_date, state, event_id,"
+                + " created_at, created_by)")) {
+      for (GeneratedBooking booking : bookings) {
+        Instant taskStart = booking.endDate();
+        for (GeneratedTask task : apartmentTasks.get(booking.apartment())) {
+          if (!task.mandatory()) {
+            continue;
+          }
+          Instant taskEnd = taskStart.plus(task.duration(), ChronoUnit.MINUTES);
+          copy.row(
+              nextUuid(),
+              task.id(),
+              workerIds.get(random.nextInt(workerIds.size())),
+              timestamp(taskStart),
+              timestamp(taskEnd),
+              booking.finished() ? AssignmentState.FINISHED : AssignmentState.PENDING,
+              booking.id(),
+              timestamp(now),
+              userId);
+          taskStart = taskEnd;
+        }
+      }
+      counts.assignments = copy.finish();
+    }
+
+    // The apartments with a booking in progress
+    try (PreparedStatement statement =
+        connection.prepareStatement("UPDATE apartments SET state = ? WHERE id = ANY (?)")) {
+      statement.setString(1, ApartmentState.OCCUPIED.name());
+      statement.setArray(2, connection.createArrayOf("uuid", occupiedIds.toArray()));
+      statement.executeUpdate();
+    }
+
+    return counts;
+  }
+
+  // Events one after the other from some years ago until some months ahead, the bookings are
+  // added to the list. Returns whether one is in progress
+  private boolean generateTimeline(
+      Copy copy, List<GeneratedBooking> bookings, int apartment, UUID apartmentId, UUID userId)
+      throws SQLException {
+    boolean occupied = false;
+    LocalDate day = today.minusYears(years).plusDays(random.nextInt(5));
+    LocalDate end = today.plusDays(FUTURE_DAYS);
+    while (day.isBefore(end)) {
+      int nights = 1 + random.nextInt(7);
+      Instant startDate = day.atTime(CHECKIN_TIME).toInstant(ZoneOffset.UTC);
+      Instant endDate = day.plusDays(nights).atTime(CHECKOUT_TIME).toInstant(ZoneOffset.UTC);
+      EventState state =
+          endDate.isBefore(now)
+              ? EventState.FINISHED
+              : startDate.isBefore(now) ? EventState.IN_PROGRESS : EventState.PENDING;
+      if (state.isInProgress()) {
+        occupied = true;
+      }
+      int kind = random.nextInt(20);
+      EventType type =
+          kind == 0
+              ? EventType.MAINTENANCE
+              : kind == 1 ? EventType.PERSONAL_USE : EventType.BOOKING;
+      UUID eventId = nextUuid();
+      copy.row(
+          eventId,
+          type,
+          type == EventType.BOOKING
+              ? pick(FIRST_NAMES) + " " + pick(LAST_NAMES)
+              : type == EventType.MAINTENANCE ? "Maintenance" : "Personal use",
+          type == EventType.BOOKING ? pick(EventSource.values()) : EventSource.NONE,
+          state,
+          apartmentId,
+          timestamp(startDate),
+          timestamp(endDate),
+          timestamp(now),
+          userId);
+      if (type == EventType.BOOKING) {
+        bookings.add(new GeneratedBooking(eventId, apartment, endDate, state.isFinished()));
+      }
+      day = day.plusDays(nights + random.nextInt(5));
+    }
+    return occupied;
+  }
+
+  // Creates the validated user of the tenant, or removes the data it has
+  private UUID replaceUser(Connection connection, int tenant) throws SQLException {
+    String username = LoadSettings.tenantUsername(tenant);
+    UUID userId = null;
+    try (PreparedStatement statement =
+        connection.prepareStatement("SELECT id FROM users WHERE username = ?")) {
+      statement.setString(1, username);
+      try (ResultSet result = statement.executeQuery()) {
+        if (result.next()) {
+          userId = result.getObject(1, UUID.class);
+        }
+      }
+    }
+    if (userId == null) {
+      userId = UUID.randomUUID();
+      try (PreparedStatement statement =
+          connection.prepareStatement(
+              "INSERT INTO users (id, email, username, password, validated, created_at)"
+                  + " VALUES (?, ?, ?, ?, TRUE, now())")) {
+        statement.setObject(1, userId);
+        statement.setString(2, username + "@hosteo.local");
+        statement.setString(3, username);
+        statement.setString(4, passwordHash);
+        statement.executeUpdate();
+      }
+      return userId;
+    }
+    for (String table :
+        List.of(
+            "assignments",
+            "imp_bookings",
+            "events",
+            "tasks",
+            "templates",
+            "workers",
+            "apartments")) {
+      try (PreparedStatement statement =
+          connection.prepareStatement("DELETE FROM " + table + " WHERE created_by = ?")) {
+        statement.setObject(1, userId);
+        statement.executeUpdate();
+      }
+    }
+    try (PreparedStatement statement =
+        connection.prepareStatement("DELETE FROM event_alerts WHERE user_id = ?")) {
+      statement.setObject(1, userId);
+      statement.executeUpdate();
+    }
+    return userId;
+  }
+
+  private UUID nextUuid() {
+    // Version 4 and IETF variant bits, as the random ones
+    return new UUID(
+        (random.nextLong() & ~0xF000L) | 0x4000L,
+        (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+  }
+
+  private <T> T pick(T[] values) {
+    return values[random.nextInt(values.length)];
+  }
+
+  private LocalDateTime timestamp(Instant instant) {
+    return LocalDateTime.ofInstant(instant, zone);
+  }
+
+  /** Rows of a COPY in CSV, sent in chunks. */
+  private static final class Copy implements AutoCloseable {
+
+    private static final int CHUNK = 1 << 16;
+
+    private final CopyIn copyIn;
+    private final StringBuilder buffer = new StringBuilder(CHUNK + 1024);
+
+    Copy(PGConnection connection, String table) throws SQLException {
+      copyIn = connection.getCopyAPI().copyIn("COPY " + table + " FROM STDIN WITH (FORMAT csv)");
+    }
+
+    void row(Object... values) throws SQLException {
+      for (int i = 0; i < values.length; i++) {
+        if (i > 0) {
+          buffer.append(',');
+        }
+        // Unquoted empty values are NULL
+        if (values[i] != null) {
+          buffer.append('"').append(values[i].toString().replace("\"", "\"\"")).append('"');
+        }
+      }
+      buffer.append('\n');
+      if (buffer.length() > CHUNK) {
+        flush();
+      }
+    }
+
+    // Rows copied
+    long finish() throws SQLException {
+      flush();
+      return copyIn.endCopy();
+    }
+
+    private void flush() throws SQLException {
+      byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+      copyIn.writeToCopy(bytes, 0, bytes.length);
+      buffer.setLength(0);
+    }
+
+    @Override
+    public void close() throws SQLException {
+      if (copyIn.isActive()) {
+        copyIn.cancelCopy();
+      }
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.viladevcorp.hosteo;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.Task;
+import com.viladevcorp.hosteo.model.Template;
+import com.viladevcorp.hosteo.model.Worker;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Second-level cache of the reference data: apartments with their tasks, tasks, templates and
+ * workers, read far more often than written. The regions are created here in an in-process Caffeine
+ * JCache manager, bounded in size and expiring entries some time after they are written. Their
+ * statistics are enabled, see {@link com.viladevcorp.hosteo.service.EntityCacheStatistics}.
+ *
+ * <p>Entries are keyed by the entity id, and the owner of a cached entity is checked after reading
+ * it (see {@link com.viladevcorp.hosteo.repository.TenantRepository#findCachedById}).
+ */
+@Configuration
+public class EntityCacheConfig {
+
+  public static final List<String> REGIONS =
+      List.of(
+          Apartment.class.getName(),
+          Apartment.class.getName() + ".tasks",
+          Task.class.getName(),
+          Template.class.getName(),
+          Worker.class.getName());
+
+  // Each application context gets its own manager, the provider shares them by URI
+  private static final AtomicInteger MANAGER_SEQUENCE = new AtomicInteger();
+
+  @Value("${cache.entities.max-size}")
+  private long maxSize;
+
+  @Value("${cache.entities.ttl-seconds}")
+  private long ttlSeconds;
+
+  @Bean(destroyMethod = "close")
+  public CacheManager entityCacheManager() {
+    CacheManager cacheManager =
+        Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+            .getCacheManager(
+                URI.create("hosteo-entities-" + MANAGER_SEQUENCE.incrementAndGet()),
+                getClass().getClassLoader(),
+                new Properties());
+    for (String region : REGIONS) {
+      CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+      configuration.setMaximumSize(OptionalLong.of(maxSize));
+      configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+      configuration.setStatisticsEnabled(true);
+      cacheManager.createCache(region, configuration);
+    }
+    return cacheManager;
+  }
+
+  // Hibernate uses the regions of this manager, and fails on start if one is missing
+  @Bean
+  public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+    return properties -> {
+      properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+      properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+    };
+  }
+}
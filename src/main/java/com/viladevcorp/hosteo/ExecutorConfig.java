@@ -0,0 +1,55 @@
+package com.viladevcorp.hosteo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+  @Value("${import.job.pool-size}")
+  private int importJobPoolSize;
+
+  @Value("${import.job.queue-capacity}")
+  private int importJobQueueCapacity;
+
+  // Bounded pool for the import jobs. When the queue is full new jobs are rejected
+  @Bean
+  public ThreadPoolTaskExecutor importJobExecutor(Environment environment) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(importJobPoolSize);
+    executor.setMaxPoolSize(importJobPoolSize);
+    executor.setQueueCapacity(importJobQueueCapacity);
+    executor.setThreadNamePrefix("import-job-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(60);
+    useVirtualThreads(executor, environment);
+    return executor;
+  }
+
+  // Single thread for the refresh of the alert feeds. Pending refreshes are merged by the
+  // AlertMaterializer, so there is at most one task queued
+  @Bean
+  public ThreadPoolTaskExecutor alertExecutor(Environment environment) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setQueueCapacity(1);
+    executor.setThreadNamePrefix("alert-refresh-");
+    useVirtualThreads(executor, environment);
+    return executor;
+  }
+
+  // With spring.threads.virtual.enabled on Java 21 the pools run their tasks on virtual threads, as
+  // the requests and the scheduled tasks do. They still bound how many tasks run and are queued
+  private static void useVirtualThreads(ThreadPoolTaskExecutor executor, Environment environment) {
+    if (Threading.VIRTUAL.isActive(environment)) {
+      executor.setThreadFactory(
+          new VirtualThreadTaskExecutor(executor.getThreadNamePrefix()).getVirtualThreadFactory());
+    }
+  }
+}
@@ -1,12 +1,18 @@
 package com.viladevcorp.hosteo;
 
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.util.ClassUtils;
 
 import com.viladevcorp.hosteo.auth.AuditorAwareImpl;
 import com.viladevcorp.hosteo.model.User;
+import com.viladevcorp.hosteo.repository.RequestStatementInspector;
 
 import java.time.Clock;
 
@@ -23,4 +29,26 @@ public class PersistenceConfig {
   public Clock clock() {
     return Clock.systemUTC();
   }
+
+  // Statements are counted per request. An inspector already configured (as an instance, a class or
+  // a class name) still runs after the count
+  @Bean
+  public HibernatePropertiesCustomizer statementInspectorCustomizer() {
+    return properties ->
+        properties.put(
+            AvailableSettings.STATEMENT_INSPECTOR,
+            new RequestStatementInspector(
+                toStatementInspector(properties.get(AvailableSettings.STATEMENT_INSPECTOR))));
+  }
+
+  private static StatementInspector toStatementInspector(Object configured) {
+    if (configured == null || configured instanceof StatementInspector) {
+      return (StatementInspector) configured;
+    }
+    Class<?> type =
+        configured instanceof Class<?> configuredClass
+            ? configuredClass
+            : ClassUtils.resolveClassName(configured.toString(), null);
+    return (StatementInspector) BeanUtils.instantiateClass(type);
+  }
 }
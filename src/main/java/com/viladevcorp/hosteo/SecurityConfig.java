@@ -1,6 +1,7 @@
 package com.viladevcorp.hosteo;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -35,8 +36,15 @@ public class SecurityConfig {
   public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
     http.addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
         .authorizeHttpRequests(
+            // The actuator endpoints are only matched on the management port (management.server.port)
             requests ->
-                requests.requestMatchers("api/public/**").permitAll().anyRequest().authenticated());
+                requests
+                    .requestMatchers("api/public/**")
+                    .permitAll()
+                    .requestMatchers(EndpointRequest.to("health", "prometheus"))
+                    .permitAll()
+                    .anyRequest()
+                    .authenticated());
     http.csrf(csrf -> csrf.disable());
     return http.build();
   }
@@ -0,0 +1,169 @@
+package com.viladevcorp.hosteo.auth;
+
+import io.jsonwebtoken.Claims;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded cache of the validated tokens, keyed by the SHA-256 hash of the token. An entry keeps the
+ * verified claims and the user, so the signature of a token is verified and its user and session
+ * are loaded once, until the entry expires (after the TTL, and never after the token). The sessions
+ * closed by the AuthService are evicted at once. The TTL bounds the time a session closed out of it
+ * (another instance, the database) is still accepted.
+ */
+@Component
+public class JwtCache {
+
+  private final Clock clock;
+
+  // Access ordered, so the least recently used entry is dropped when it is full
+  private final Map<String, CachedJwt> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  // Every request reads the cache. A lock rather than synchronized, as on Java 21 a virtual thread
+  // waiting for a monitor also blocks its carrier thread
+  private final ReentrantLock lock = new ReentrantLock();
+
+  // Bumped on every eviction, so a token validated concurrently with it is not cached (its session
+  // could have been read before being closed)
+  private long generation;
+
+  @Value("${auth.jwt.cache.ttl-seconds}")
+  private long ttlSeconds;
+
+  @Value("${auth.jwt.cache.max-size}")
+  private int maxSize;
+
+  @Autowired
+  public JwtCache(Clock clock) {
+    this.clock = clock;
+  }
+
+  public record CachedJwt(
+      Claims claims, UserDetails userDetails, UUID sessionId, Instant expiresAt) {}
+
+  public static String hash(String token) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return Base64.getEncoder()
+          .encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  public CachedJwt get(String tokenHash) {
+    lock.lock();
+    try {
+      CachedJwt cached = entries.get(tokenHash);
+      if (cached != null && !cached.expiresAt().isAfter(Instant.now(clock))) {
+        entries.remove(tokenHash);
+        return null;
+      }
+      return cached;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getGeneration() {
+    lock.lock();
+    try {
+      return generation;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Caches the token if there has been no eviction since the given generation
+  public CachedJwt put(
+      String tokenHash,
+      Claims claims,
+      UserDetails userDetails,
+      UUID sessionId,
+      long validationGeneration) {
+    Instant expiresAt = Instant.now(clock).plusSeconds(ttlSeconds);
+    Instant tokenExpiration = claims.getExpiration().toInstant();
+    if (tokenExpiration.isBefore(expiresAt)) {
+      expiresAt = tokenExpiration;
+    }
+    CachedJwt cached = new CachedJwt(claims, userDetails, sessionId, expiresAt);
+    lock.lock();
+    try {
+      if (validationGeneration != generation) {
+        return cached;
+      }
+      entries.put(tokenHash, cached);
+      if (entries.size() > maxSize) {
+        Iterator<CachedJwt> eldest = entries.values().iterator();
+        eldest.next();
+        eldest.remove();
+      }
+      return cached;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Evicted now and again after commit, as a concurrent validation can read the session before
+  // the change is committed
+  public void evictSession(UUID sessionId) {
+    evictSessionNow(sessionId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              evictSessionNow(sessionId);
+            }
+          });
+    }
+  }
+
+  public void evictUser(String username) {
+    evictUserNow(username);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              evictUserNow(username);
+            }
+          });
+    }
+  }
+
+  private void evictSessionNow(UUID sessionId) {
+    lock.lock();
+    try {
+      generation++;
+      entries.values().removeIf(cached -> cached.sessionId().equals(sessionId));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void evictUserNow(String username) {
+    lock.lock();
+    try {
+      generation++;
+      entries.values().removeIf(cached -> cached.userDetails().getUsername().equals(username));
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -36,7 +36,9 @@ public class JwtFilter extends OncePerRequestFilter {
       throws ServletException, IOException {
     log.info("Request: {} ", request.getRequestURI());
     ObjectMapper objectMapper = new ObjectMapper();
-    if (!request.getRequestURI().matches("/api/public/.*")) {
+    // The health and metrics endpoints are read by the monitoring, without a user, on the management
+    // port. The API port does not serve them
+    if (!request.getRequestURI().matches("/api/public/.*|/actuator/(health|prometheus)")) {
       String authHeader = request.getHeader("Authorization");
       if (authHeader == null) {
         ApiResponse<Void> apiResponse =
@@ -61,6 +63,8 @@ public class JwtFilter extends OncePerRequestFilter {
         return;
       }
       try {
+        // The principal is the user of the token, so the tenant is resolved once per request and
+        // services read its id from the security context (AuthUtils.getUserId)
         Authentication authToken = jwtUtils.validateToken(authHeaderParts[1]);
         SecurityContextHolder.getContext().setAuthentication(authToken);
       } catch (InvalidJwtException e) {
@@ -16,8 +16,11 @@ import org.springframework.stereotype.Component;
 
 import com.viladevcorp.hosteo.exceptions.InvalidJwtException;
 import com.viladevcorp.hosteo.service.CustomUserDetailsService;
+import com.viladevcorp.hosteo.utils.ServiceUtils;
 
 import io.jsonwebtoken.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Component
 public class JwtUtils {
@@ -31,11 +34,22 @@ public class JwtUtils {
 
   private final UserSessionRepository sessionRepository;
 
+  private final JwtCache jwtCache;
+
+  private final MeterRegistry meterRegistry;
+
+  public static final String VALIDATION_TIMER = "hosteo.auth.token.validation";
+
   @Autowired
   public JwtUtils(
-      CustomUserDetailsService customUserDetailsService, UserSessionRepository sessionRepository) {
+      CustomUserDetailsService customUserDetailsService,
+      UserSessionRepository sessionRepository,
+      JwtCache jwtCache,
+      MeterRegistry meterRegistry) {
     this.customUserDetailsService = customUserDetailsService;
     this.sessionRepository = sessionRepository;
+    this.jwtCache = jwtCache;
+    this.meterRegistry = meterRegistry;
   }
 
   public JwtResult generateToken(
@@ -61,25 +75,59 @@ public class JwtUtils {
         expirationDate);
   }
 
-  public boolean isExpired(String token) {
-    return Jwts.parser()
-        .setSigningKey(jwtSecret)
-        .parseClaimsJws(token)
-        .getBody()
-        .getExpiration()
-        .before(new Date());
-  }
-
   public Claims extractClaims(String token) {
     return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody();
   }
 
   public Authentication validateToken(String token) throws InvalidJwtException {
+    JwtCache.CachedJwt validated = validate(token);
+    UsernamePasswordAuthenticationToken authToken =
+        new UsernamePasswordAuthenticationToken(
+            validated.userDetails(), null, Set.<GrantedAuthority>of());
+    authToken.setDetails(validated.sessionId().toString());
+    return authToken;
+  }
+
+  public Claims validateTokenClaims(String token) throws InvalidJwtException {
+    return validate(token).claims();
+  }
+
+  // Hooks to reject at once the tokens of the closed sessions
+  public void evictSession(UUID sessionId) {
+    jwtCache.evictSession(sessionId);
+  }
+
+  public void evictUser(String username) {
+    jwtCache.evictUser(username);
+  }
+
+  // Timed by outcome: read from the cache, verified or invalid
+  private JwtCache.CachedJwt validate(String token) throws InvalidJwtException {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "invalid";
     try {
-      if (isExpired(token)) {
-        throw new InvalidJwtException("Token expired");
+      String tokenHash = JwtCache.hash(token);
+      JwtCache.CachedJwt cached = jwtCache.get(tokenHash);
+      if (cached != null) {
+        outcome = "cached";
+        return cached;
       }
+      JwtCache.CachedJwt verified = verify(token, tokenHash);
+      outcome = "verified";
+      return verified;
+    } finally {
+      sample.stop(meterRegistry.timer(VALIDATION_TIMER, ServiceUtils.OUTCOME_TAG, outcome));
+    }
+  }
+
+  private JwtCache.CachedJwt verify(String token, String tokenHash) throws InvalidJwtException {
+    long generation = jwtCache.getGeneration();
+    try {
+      // The signature is verified once, parsing fails if the token is expired
       Claims claims = extractClaims(token);
+      if (claims.getExpiration().before(new Date())) {
+        throw new InvalidJwtException("Token expired");
+      }
       String username = claims.get("username", String.class);
       if (username == null) {
         throw new InvalidJwtException("Invalid token");
@@ -88,16 +136,13 @@ public class JwtUtils {
       if (userDetails == null) {
         throw new InvalidJwtException("Invalid token");
       }
-      UsernamePasswordAuthenticationToken authToken =
-          new UsernamePasswordAuthenticationToken(userDetails, null, Set.<GrantedAuthority>of());
-      String sessionId = claims.get("sessionId", String.class);
+      UUID sessionId = UUID.fromString(claims.get("sessionId", String.class));
       UserSession userSession =
-          sessionRepository.findByIdAndDeletedAtIsNull(UUID.fromString(sessionId)).orElse(null);
+          sessionRepository.findByIdAndDeletedAtIsNull(sessionId).orElse(null);
       if (userSession == null) {
         throw new InvalidJwtException("Invalid token");
       }
-      authToken.setDetails(claims.get("sessionId", String.class));
-      return authToken;
+      return jwtCache.put(tokenHash, claims, userDetails, sessionId, generation);
     } catch (Exception e) {
       throw new InvalidJwtException("Invalid token");
     }
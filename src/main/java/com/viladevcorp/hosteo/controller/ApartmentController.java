@@ -93,13 +93,10 @@ public class ApartmentController {
   public ResponseEntity<ApiResponse<Page<ApartmentDto>>> searchApartments(
       @RequestBody ApartmentSearchForm form) {
     log.info("[ApartmentController.searchApartments] - Searching apartments");
-    List<Apartment> apartments = apartmentService.findApartments(form);
+    List<ApartmentDto> apartments = apartmentService.findApartments(form);
     PageMetadata pageMetadata = apartmentService.getApartmentsMetadata(form);
     Page<ApartmentDto> page =
-        new Page<>(
-            apartments.stream().map(ApartmentDto::new).toList(),
-            pageMetadata.getTotalPages(),
-            pageMetadata.getTotalRows());
+        new Page<>(apartments, pageMetadata.getTotalPages(), pageMetadata.getTotalRows());
     log.info("[ApartmentController.searchApartments] - Found {} apartments", apartments.size());
     return ResponseEntity.ok().body(new ApiResponse<>(page));
   }
@@ -3,6 +3,7 @@ package com.viladevcorp.hosteo.controller;
 import com.viladevcorp.hosteo.exceptions.*;
 import com.viladevcorp.hosteo.model.Assignment;
 import com.viladevcorp.hosteo.model.Page;
+import com.viladevcorp.hosteo.model.PageCursor;
 import com.viladevcorp.hosteo.model.PageMetadata;
 import com.viladevcorp.hosteo.model.dto.AssignmentDto;
 import com.viladevcorp.hosteo.model.dto.AssignmentUpdateError;
@@ -153,16 +154,17 @@ public class AssignmentController {
 
   @PostMapping("/assignment/search")
   public ResponseEntity<ApiResponse<Page<AssignmentDto>>> searchAssignments(
-      @RequestBody AssignmentSearchForm form) {
+      @RequestBody AssignmentSearchForm form) throws InvalidCursorException {
     log.info("[AssignmentController.searchAssignments] - Searching assignments");
 
-    List<Assignment> assignments = assignmentService.findAssignments(form);
-    PageMetadata pageMetadata = assignmentService.getAssignmentsMetadata(form);
+    List<AssignmentDto> assignments = assignmentService.findAssignments(form);
+    PageMetadata pageMetadata =
+        form.isIncludeTotal() ? assignmentService.getAssignmentsMetadata(form) : null;
     Page<AssignmentDto> page =
         new Page<>(
-            assignments.stream().map(AssignmentDto::new).toList(),
-            pageMetadata.getTotalPages(),
-            pageMetadata.getTotalRows());
+            assignments,
+            pageMetadata,
+            PageCursor.next(assignments, form.getPageSize(), AssignmentDto::getStartDate));
 
     log.info("[AssignmentController.searchAssignments] - Found {} assignments", assignments.size());
     return ResponseEntity.ok().body(new ApiResponse<>(page));
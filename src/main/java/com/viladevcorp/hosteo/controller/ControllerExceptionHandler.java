@@ -8,8 +8,10 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import com.viladevcorp.hosteo.exceptions.EmptyFormFieldsException;
+import com.viladevcorp.hosteo.exceptions.InvalidCursorException;
 import com.viladevcorp.hosteo.exceptions.NotAllowedResourceException;
 import com.viladevcorp.hosteo.utils.ApiResponse;
+import com.viladevcorp.hosteo.utils.CodeErrors;
 
 @ControllerAdvice
 public class ControllerExceptionHandler {
@@ -27,6 +29,12 @@ public class ControllerExceptionHandler {
         .body(new ApiResponse<>(null, errorMessage));
   }
 
+  @ExceptionHandler(value = InvalidCursorException.class)
+  public ResponseEntity<ApiResponse<?>> invalidCursor(Exception e) {
+    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+        .body(new ApiResponse<>(CodeErrors.INVALID_CURSOR, e.getMessage()));
+  }
+
   @ExceptionHandler(value = NotAllowedResourceException.class)
   public ResponseEntity<ApiResponse<?>> notAllowedResourceError(Exception e) {
     String errorMessage =
@@ -4,6 +4,7 @@ import com.viladevcorp.hosteo.exceptions.*;
 import com.viladevcorp.hosteo.model.Event;
 import com.viladevcorp.hosteo.model.ImpBooking;
 import com.viladevcorp.hosteo.model.Page;
+import com.viladevcorp.hosteo.model.PageCursor;
 import com.viladevcorp.hosteo.model.PageMetadata;
 import com.viladevcorp.hosteo.model.dto.*;
 import com.viladevcorp.hosteo.model.forms.EventCreateForm;
@@ -11,12 +12,13 @@ import com.viladevcorp.hosteo.model.forms.EventSearchForm;
 import com.viladevcorp.hosteo.model.forms.EventUpdateForm;
 import com.viladevcorp.hosteo.model.types.EventState;
 import com.viladevcorp.hosteo.service.EventService;
+import com.viladevcorp.hosteo.service.ImportJobService;
 import com.viladevcorp.hosteo.service.ImportService;
 import com.viladevcorp.hosteo.utils.ApiResponse;
 import com.viladevcorp.hosteo.utils.CodeErrors;
 import com.viladevcorp.hosteo.utils.ValidationUtils;
 import jakarta.validation.Valid;
-import java.io.File;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -25,6 +27,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
@@ -39,10 +42,14 @@ public class EventController {
 
   private final ImportService importService;
 
+  private final ImportJobService importJobService;
+
   @Autowired
-  public EventController(EventService eventService, ImportService importService) {
+  public EventController(
+      EventService eventService, ImportService importService, ImportJobService importJobService) {
     this.eventService = eventService;
     this.importService = importService;
+    this.importJobService = importJobService;
   }
 
   @PostMapping("/event")
@@ -191,16 +198,14 @@ public class EventController {
 
   @PostMapping("/event/search")
   public ResponseEntity<ApiResponse<Page<EventDto>>> searchEvents(
-      @RequestBody EventSearchForm form) {
+      @RequestBody EventSearchForm form) throws InvalidCursorException {
     log.info("[EventController.searchEvents] - Searching events");
 
-    List<Event> events = eventService.findEvents(form);
-    PageMetadata pageMetadata = eventService.getEventsMetadata(form);
+    List<EventDto> events = eventService.findEvents(form);
+    PageMetadata pageMetadata = form.isIncludeTotal() ? eventService.getEventsMetadata(form) : null;
     Page<EventDto> page =
         new Page<>(
-            events.stream().map(EventDto::new).toList(),
-            pageMetadata.getTotalPages(),
-            pageMetadata.getTotalRows());
+            events, pageMetadata, PageCursor.next(events, form.getPageSize(), EventDto::getStartDate));
 
     log.info("[EventController.searchEvents] - Found {} events", events.size());
     return ResponseEntity.ok().body(new ApiResponse<>(page));
@@ -248,72 +253,68 @@ public class EventController {
   }
 
   @PostMapping(value = "event/import/airbnb", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-  public ResponseEntity<ApiResponse<List<ImpBookingDto>>> importAirbnbEvents(
+  public ResponseEntity<ApiResponse<ImportFileResultDto>> importAirbnbEvents(
       @RequestParam("file") MultipartFile multipartFile) {
     log.info("[EventController.importAirbnbEvents] - Importing Airbnb events");
-    List<ImpBooking> importedEvents;
-    File tempFile = null;
-    try {
-      tempFile = File.createTempFile("uploaded", ".csv");
-      multipartFile.transferTo(tempFile);
-      importedEvents = importService.importAirbnbBookings(tempFile);
+    ImportFileResultDto result;
+    try (InputStream importStream = multipartFile.getInputStream()) {
+      result = importService.importAirbnbBookings(importStream);
       log.info(
-          "[EventController.importAirbnbEvents] - Imported {} Airbnb events",
-          importedEvents.size());
+          "[EventController.importAirbnbEvents] - Imported {} Airbnb events, {} with conflicts",
+          result.getImportedCount(),
+          result.getConflictCount());
     } catch (Exception e) {
       log.error(
           "[EventController.importAirbnbEvents] - Error importing Airbnb events: {}",
           e.getMessage());
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
           .body(new ApiResponse<>(null, "Error importing Airbnb events: " + e.getMessage()));
-    } finally {
-      if (tempFile != null && tempFile.exists()) {
-        tempFile.delete();
-      }
     }
-    return ResponseEntity.ok()
-        .body(new ApiResponse<>(importedEvents.stream().map(ImpBookingDto::new).toList()));
+    return ResponseEntity.ok().body(new ApiResponse<>(result));
   }
 
   @PostMapping(value = "event/import/event", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-  public ResponseEntity<ApiResponse<List<ImpBookingDto>>> importEventEvents(
+  public ResponseEntity<ApiResponse<ImportFileResultDto>> importEventEvents(
       @RequestParam("file") MultipartFile multipartFile) {
     log.info("[EventController.importEventEvents] - Importing Event events");
-    List<ImpBooking> importedEvents;
-    File tempFile = null;
-    try {
-      tempFile = File.createTempFile("uploaded", ".csv");
-      tempFile.deleteOnExit();
-      multipartFile.transferTo(tempFile);
-      importedEvents = importService.importBookingBookings(tempFile);
+    ImportFileResultDto result;
+    try (InputStream importStream = multipartFile.getInputStream()) {
+      result = importService.importBookingBookings(importStream);
       log.info(
-          "[EventController.importEventEvents] - Imported {} Event events", importedEvents.size());
+          "[EventController.importEventEvents] - Imported {} Event events, {} with conflicts",
+          result.getImportedCount(),
+          result.getConflictCount());
     } catch (Exception e) {
       log.error(
           "[EventController.importEventEvents] - Error importing Event events: {}", e.getMessage());
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
           .body(new ApiResponse<>(null, "Error importing Event events: " + e.getMessage()));
-    } finally {
-      if (tempFile != null && tempFile.exists()) {
-        tempFile.delete();
-      }
     }
-    return ResponseEntity.ok()
-        .body(new ApiResponse<>(importedEvents.stream().map(ImpBookingDto::new).toList()));
+    return ResponseEntity.ok().body(new ApiResponse<>(result));
   }
 
   @PostMapping(value = "event/import/execute")
-  public ResponseEntity<ApiResponse<ImportResultDto>> executeImport() {
-    log.info("[EventController.executeImport] - Executing event import");
+  public ResponseEntity<ApiResponse<ImportJobDto>> executeImport() {
+    log.info("[EventController.executeImport] - Submitting event import job");
     try {
       if (!importService.existsImportInProgress()) {
         log.info("[EventController.executeImport] - No import in progress found");
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
             .body(new ApiResponse<>(null, "No import in progress found"));
       }
-      ImportResultDto result = importService.executeImportBookings();
-      log.info("[EventController.executeImport] - Event import executed successfully");
-      return ResponseEntity.ok().body(new ApiResponse<>(result));
+      ImportJobDto job = importJobService.submitImportJob();
+      log.info("[EventController.executeImport] - Event import job {} submitted", job.getId());
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body(new ApiResponse<>(job));
+    } catch (ImportJobInProgressException e) {
+      log.info("[EventController.executeImport] - {}", e.getMessage());
+      return ResponseEntity.status(HttpStatus.CONFLICT)
+          .body(new ApiResponse<>(CodeErrors.IMPORT_JOB_IN_PROGRESS, e.getMessage()));
+    } catch (TaskRejectedException e) {
+      log.error("[EventController.executeImport] - Import job queue is full");
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .body(
+              new ApiResponse<>(
+                  CodeErrors.IMPORT_JOB_QUEUE_FULL, "Too many imports running, try again later"));
     } catch (Exception e) {
       log.error(
           "[EventController.executeImport] - Error executing event import: {}", e.getMessage());
@@ -322,6 +323,18 @@ public class EventController {
     }
   }
 
+  @GetMapping("/event/import/job/{id}")
+  public ResponseEntity<ApiResponse<ImportJobDto>> getImportJob(@PathVariable UUID id) {
+    log.info("[EventController.getImportJob] - Fetching import job with id: {}", id);
+    try {
+      ImportJobDto job = importJobService.getImportJob(id);
+      return ResponseEntity.ok().body(new ApiResponse<>(job));
+    } catch (InstanceNotFoundException e) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND)
+          .body(new ApiResponse<>(null, e.getMessage()));
+    }
+  }
+
   @DeleteMapping("/event/import")
   public ResponseEntity<Void> deleteUserImportData() {
     log.info("[EventController.deleteUserImportData] - Deleting user import data");
@@ -0,0 +1,106 @@
+package com.viladevcorp.hosteo.controller;
+
+import com.viladevcorp.hosteo.repository.RequestStatementInspector;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Counts the statements run by each request (see {@link RequestStatementInspector}), including the
+ * ones of the authentication. The count is returned in a header, recorded by endpoint in the
+ * metrics, and a warning is logged when it is over the budget of the endpoint (see {@link
+ * StatementBudgetProperties}), so the lazy loads and queries per row added to an endpoint are
+ * noticed.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StatementBudgetFilter extends OncePerRequestFilter {
+
+  public static final String HEADER = "X-Statement-Count";
+  public static final String STATEMENTS_SUMMARY = "hosteo.http.statements";
+  public static final String OVER_BUDGET_COUNTER = "hosteo.http.statements.over.budget";
+
+  private final StatementBudgetProperties budgetProperties;
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public StatementBudgetFilter(
+      StatementBudgetProperties budgetProperties, MeterRegistry meterRegistry) {
+    this.budgetProperties = budgetProperties;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    RequestStatementInspector.start();
+    StatementCountResponse countResponse = new StatementCountResponse(response);
+    int statements;
+    try {
+      filterChain.doFilter(request, countResponse);
+    } finally {
+      statements = RequestStatementInspector.stop();
+    }
+    countResponse.writeCount(statements);
+
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+    meterRegistry
+        .summary(STATEMENTS_SUMMARY, "method", request.getMethod(), "uri", uri)
+        .record(statements);
+    String endpoint = request.getMethod() + " " + uri;
+    int budget = budgetProperties.getBudget(endpoint);
+    if (statements > budget) {
+      meterRegistry
+          .counter(OVER_BUDGET_COUNTER, "method", request.getMethod(), "uri", uri)
+          .increment();
+      log.warn(
+          "[StatementBudgetFilter.doFilterInternal] - {} ran {} statements, over its budget of {}",
+          endpoint,
+          statements,
+          budget);
+    }
+  }
+
+  // The body is usually written before the request ends, so the count up to then is set in the
+  // header right before it
+  private static class StatementCountResponse extends HttpServletResponseWrapper {
+
+    StatementCountResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      writeCount(RequestStatementInspector.current());
+      return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      writeCount(RequestStatementInspector.current());
+      return super.getWriter();
+    }
+
+    void writeCount(int statements) {
+      if (!isCommitted()) {
+        setIntHeader(HEADER, statements);
+      }
+    }
+  }
+}
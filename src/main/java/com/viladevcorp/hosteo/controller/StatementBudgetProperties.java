@@ -0,0 +1,27 @@
+package com.viladevcorp.hosteo.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maximum number of statements a request should run, by endpoint ("METHOD /uri/{pattern}", as
+ * mapped in the controllers), or the default one for the endpoints not listed.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "statements.budget")
+public class StatementBudgetProperties {
+
+  private int defaultMax;
+
+  private Map<String, Integer> endpoints = new HashMap<>();
+
+  public int getBudget(String endpoint) {
+    return endpoints.getOrDefault(endpoint, defaultMax);
+  }
+}
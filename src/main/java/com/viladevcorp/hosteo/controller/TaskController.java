@@ -1,6 +1,8 @@
 package com.viladevcorp.hosteo.controller;
 
+import com.viladevcorp.hosteo.exceptions.InvalidCursorException;
 import com.viladevcorp.hosteo.model.Page;
+import com.viladevcorp.hosteo.model.PageCursor;
 import com.viladevcorp.hosteo.model.PageMetadata;
 import com.viladevcorp.hosteo.model.Task;
 import com.viladevcorp.hosteo.model.dto.TaskDto;
@@ -96,16 +98,19 @@ public class TaskController {
   }
 
   @PostMapping("/task/search")
-  public ResponseEntity<ApiResponse<Page<TaskDto>>> searchTasks(@RequestBody TaskSearchForm form) {
+  public ResponseEntity<ApiResponse<Page<TaskDto>>> searchTasks(@RequestBody TaskSearchForm form)
+      throws InvalidCursorException {
     log.info("[TaskController.searchTasks] - Searching tasks");
 
-    List<Task> tasks = taskService.findTasks(form);
-    PageMetadata pageMetadata = taskService.getTasksMetadata(form);
+    List<TaskDto> tasks = taskService.findTasks(form);
+    PageMetadata pageMetadata = form.isIncludeTotal() ? taskService.getTasksMetadata(form) : null;
     Page<TaskDto> page =
         new Page<>(
-            tasks.stream().map(TaskDto::new).toList(),
-            pageMetadata.getTotalPages(),
-            pageMetadata.getTotalRows());
+            tasks,
+            pageMetadata,
+            form.isRanked()
+                ? null
+                : PageCursor.next(tasks, form.getPageSize(), TaskDto::getCreatedAt));
 
     log.info("[TaskController.searchTasks] - Found {} tasks", tasks.size());
     return ResponseEntity.ok().body(new ApiResponse<>(page));
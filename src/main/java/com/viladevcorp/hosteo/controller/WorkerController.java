@@ -92,11 +92,11 @@ public class WorkerController {
   public ResponseEntity<ApiResponse<Page<WorkerDto>>> searchWorkers(
       @RequestBody WorkerSearchForm form) {
     log.info("[WorkerController.searchWorkers] - Searching workers");
-    List<Worker> workers = workerService.findWorkers(form);
+    List<WorkerDto> workers = workerService.findWorkers(form);
     PageMetadata pageMetadata = workerService.getWorkersMetadata(form);
     Page<WorkerDto> page =
         new Page<>(
-            workers.stream().map(WorkerDto::new).toList(),
+            workers,
             pageMetadata.getTotalPages(),
             pageMetadata.getTotalRows());
     log.info("[WorkerController.searchWorkers] - Found {} workers", workers.size());
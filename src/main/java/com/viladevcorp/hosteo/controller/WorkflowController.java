@@ -1,13 +1,16 @@
 package com.viladevcorp.hosteo.controller;
 
 import com.viladevcorp.hosteo.model.SchedulerInfo;
+import com.viladevcorp.hosteo.model.dto.AlertDto;
+import com.viladevcorp.hosteo.service.AlertService;
 import com.viladevcorp.hosteo.service.WorkflowService;
 import com.viladevcorp.hosteo.utils.ApiResponse;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import javax.management.InstanceNotFoundException;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -23,30 +26,42 @@ import org.springframework.web.bind.annotation.RestController;
 public class WorkflowController {
 
   private final WorkflowService workflowService;
+  private final AlertService alertService;
 
   @Autowired
-  public WorkflowController(WorkflowService workflowService) {
+  public WorkflowController(WorkflowService workflowService, AlertService alertService) {
     this.workflowService = workflowService;
+    this.alertService = alertService;
   }
 
-  //  @GetMapping("/scheduler/{startDateStr}")
-  //  public ResponseEntity<ApiResponse<SchedulerInfo>> getSchedulerInfo(
-  //      @PathVariable String startDateStr) {
-  //    log.info(
-  //        "[WorkflowController.getSchedulerInfo] - Getting scheduler info for date: {}",
-  //        startDateStr);
-  //    // We use a date formatter
-  //    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-  //    Instant startDate =
-  //        LocalDate.parse(startDateStr, formatter).atStartOfDay().toInstant(ZoneOffset.UTC);
-  //    Instant endDate = startDate.plusSeconds(7 * 24 * 60 * 60); // One week later
-  //    try {
-  //      SchedulerInfo info = workflowService.getSchedulerInfo(startDate, endDate);
-  //      log.info("[WorkflowController.getSchedulerInfo] - Scheduler info retrieved successfully");
-  //      return ResponseEntity.ok().body(new ApiResponse<>(info));
-  //    } catch (InstanceNotFoundException e) {
-  //      return ResponseEntity.status(HttpStatus.NOT_FOUND)
-  //          .body(new ApiResponse<>(null, e.getMessage()));
-  //    }
-  //  }
+  @GetMapping("/scheduler/{startDateStr}")
+  public ResponseEntity<ApiResponse<SchedulerInfo>> getSchedulerInfo(
+      @PathVariable String startDateStr) {
+    log.info(
+        "[WorkflowController.getSchedulerInfo] - Getting scheduler info for date: {}",
+        startDateStr);
+    // We use a date formatter
+    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    Instant startDate;
+    try {
+      startDate = LocalDate.parse(startDateStr, formatter).atStartOfDay().toInstant(ZoneOffset.UTC);
+    } catch (DateTimeParseException e) {
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+          .body(new ApiResponse<>(null, e.getMessage()));
+    }
+    Instant endDate = startDate.plusSeconds(7 * 24 * 60 * 60); // One week later
+    SchedulerInfo info = workflowService.getSchedulerInfo(startDate, endDate);
+    log.info("[WorkflowController.getSchedulerInfo] - Scheduler info retrieved successfully");
+    return ResponseEntity.ok().body(new ApiResponse<>(info));
+  }
+
+  // Read from the feed kept by the AlertMaterializer, it can be some seconds behind the last
+  // changes
+  @GetMapping("/alerts")
+  public ResponseEntity<ApiResponse<List<AlertDto>>> getAlerts() {
+    log.info("[WorkflowController.getAlerts] - Getting alerts");
+    List<AlertDto> alerts = alertService.getAlerts();
+    log.info("[WorkflowController.getAlerts] - Found {} alerts", alerts.size());
+    return ResponseEntity.ok().body(new ApiResponse<>(alerts));
+  }
 }
@@ -0,0 +1,10 @@
+package com.viladevcorp.hosteo.exceptions;
+
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+public class ImportJobInProgressException extends Exception {
+  public ImportJobInProgressException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,10 @@
+package com.viladevcorp.hosteo.exceptions;
+
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+public class InvalidCursorException extends Exception {
+  public InvalidCursorException(String message) {
+    super(message);
+  }
+}
@@ -10,6 +10,7 @@ import jakarta.persistence.*;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.viladevcorp.hosteo.model.jsonconverters.AddressJsonConverter;
+import com.viladevcorp.hosteo.model.listeners.EntityChangeListener;
 import com.viladevcorp.hosteo.model.types.ApartmentState;
 
 import jakarta.validation.constraints.NotBlank;
@@ -20,10 +21,15 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
 @Entity
+@EntityListeners(EntityChangeListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "apartments")
 @Getter
 @Setter
@@ -61,6 +67,7 @@ public class Apartment extends BaseEntity {
   private Set<Event> events = new HashSet<>();
 
   @OneToMany(mappedBy = "apartment", cascade = CascadeType.ALL, orphanRemoval = true)
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
   @Builder.Default
   private List<Task> tasks = new ArrayList<>();
 
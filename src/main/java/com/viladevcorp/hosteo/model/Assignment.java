@@ -3,13 +3,18 @@ package com.viladevcorp.hosteo.model;
 import java.time.Instant;
 
 import com.viladevcorp.hosteo.model.dto.AssignmentDto;
+import com.viladevcorp.hosteo.model.listeners.EntityChangeListener;
 import com.viladevcorp.hosteo.model.types.AssignmentState;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
@@ -21,6 +26,15 @@ import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 
 @Entity
+// Assignment with the task (and its apartment) and the worker, everything its DTO reads
+@NamedEntityGraph(
+    name = Assignment.DETAIL_GRAPH,
+    attributeNodes = {
+      @NamedAttributeNode(value = "task", subgraph = "task"),
+      @NamedAttributeNode("worker")
+    },
+    subgraphs = @NamedSubgraph(name = "task", attributeNodes = @NamedAttributeNode("apartment")))
+@EntityListeners(EntityChangeListener.class)
 @Table(name = "assignments")
 @Getter
 @Setter
@@ -28,6 +42,8 @@ import lombok.experimental.SuperBuilder;
 @SuperBuilder
 public class Assignment extends BaseEntity {
 
+  public static final String DETAIL_GRAPH = "Assignment.detail";
+
   @NotNull
   @ManyToOne(optional = false)
   private Task task;
@@ -10,12 +10,14 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import jakarta.persistence.EntityListeners;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -37,12 +39,18 @@ public abstract class BaseEntity {
 
   @CreatedDate private Instant createdAt;
 
-  @ManyToOne
+  // Lazy, only its id is read, which does not load the user. It also keeps the entities read from
+  // the second-level cache from loading it
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "createdBy")
   @CreatedBy
   @JsonIgnore
   private User createdBy;
 
+  // Value the search counts group the entity by, as it was loaded or last written. Set by the
+  // SearchCountService, which moves the entity out of it when it is updated
+  @Transient @JsonIgnore private Object searchCountBucket;
+
   public boolean equals(Object obj) {
     if (this == obj) {
       return true;
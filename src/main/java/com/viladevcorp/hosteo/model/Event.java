@@ -1,6 +1,7 @@
 package com.viladevcorp.hosteo.model;
 
 import com.viladevcorp.hosteo.model.dto.EventDto;
+import com.viladevcorp.hosteo.model.listeners.EntityChangeListener;
 import com.viladevcorp.hosteo.model.types.EventSource;
 import com.viladevcorp.hosteo.model.types.EventState;
 import com.viladevcorp.hosteo.model.types.EventType;
@@ -17,6 +18,26 @@ import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
+// Event detail: the apartment and the assignments with their task and worker, read with the event
+// instead of one select per association. The tasks of the apartment are left out: fetched with the
+// assignments each one would be added to the list once per assignment. They are read in a second
+// select, or from the second-level cache
+@NamedEntityGraph(
+    name = Event.DETAIL_GRAPH,
+    attributeNodes = {
+      @NamedAttributeNode("apartment"),
+      @NamedAttributeNode(value = "assignments", subgraph = "assignments")
+    },
+    subgraphs = {
+      @NamedSubgraph(
+          name = "assignments",
+          attributeNodes = {
+            @NamedAttributeNode(value = "task", subgraph = "task"),
+            @NamedAttributeNode("worker")
+          }),
+      @NamedSubgraph(name = "task", attributeNodes = @NamedAttributeNode("apartment"))
+    })
+@EntityListeners(EntityChangeListener.class)
 @Table(name = "events")
 @Getter
 @Setter
@@ -25,6 +46,8 @@ import java.util.Set;
 @AllArgsConstructor
 public class Event extends BaseEntity {
 
+  public static final String DETAIL_GRAPH = "Event.detail";
+
   @Enumerated(EnumType.STRING)
   @Column(nullable = false)
   private EventType type;
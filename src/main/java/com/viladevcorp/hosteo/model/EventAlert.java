@@ -0,0 +1,58 @@
+package com.viladevcorp.hosteo.model;
+
+import com.viladevcorp.hosteo.model.types.Alert;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+// Row of the alert feed of a user. It is written by the AlertService, out of any request, so it is
+// not audited
+@Entity
+@Table(name = "event_alerts")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EventAlert {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.UUID)
+  private UUID id;
+
+  // Without foreign key, see V4__AddEventAlerts.sql
+  @NotNull
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "event_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+  private Event event;
+
+  @NotNull
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @OnDelete(action = OnDeleteAction.CASCADE)
+  @JoinColumn(name = "user_id")
+  private User user;
+
+  @NotNull
+  @Column(nullable = false)
+  @Enumerated(EnumType.STRING)
+  private Alert alert;
+
+  // Copied from the event, so the feed is sorted with the index
+  @NotNull
+  @Column(nullable = false)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Instant startDate;
+
+  @NotNull
+  @Column(nullable = false)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Instant computedAt;
+}
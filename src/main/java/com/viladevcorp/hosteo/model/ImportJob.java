@@ -0,0 +1,43 @@
+package com.viladevcorp.hosteo.model;
+
+import com.viladevcorp.hosteo.model.types.ImportJobState;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+import lombok.Setter;
+
+// Execution of the imported bookings of a user. Kept in memory by the ImportJobService, progress is
+// updated by the worker thread and read by the polling requests
+@Getter
+public class ImportJob {
+
+  private final UUID id = UUID.randomUUID();
+  private final UUID userId;
+  private final Instant createdAt;
+
+  @Setter private volatile ImportJobState state = ImportJobState.QUEUED;
+  @Setter private volatile Instant startedAt;
+  @Setter private volatile Instant finishedAt;
+  @Setter private volatile int total;
+  @Setter private volatile String error;
+
+  private final AtomicInteger processed = new AtomicInteger();
+  private final AtomicInteger imported = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+
+  public ImportJob(UUID userId, Instant createdAt) {
+    this.userId = userId;
+    this.createdAt = createdAt;
+  }
+
+  public void addImported() {
+    imported.incrementAndGet();
+    processed.incrementAndGet();
+  }
+
+  public void addFailed() {
+    failed.incrementAndGet();
+    processed.incrementAndGet();
+  }
+}
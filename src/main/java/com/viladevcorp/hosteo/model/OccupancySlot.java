@@ -0,0 +1,17 @@
+package com.viladevcorp.hosteo.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class OccupancySlot {
+
+  private UUID id;
+  private UUID apartmentId;
+  private Instant startDate;
+  private Instant endDate;
+}
@@ -11,12 +11,24 @@ import lombok.Setter;
 @NoArgsConstructor
 public class Page<T> {
   private List<T> content;
-  private int totalPages;
-  private long totalRows;
+  // Null when the total is not requested
+  private Integer totalPages;
+  private Long totalRows;
+  // Cursor of the next page, null in the last one
+  private String nextCursor;
 
   public Page(List<T> content, int totalPages, long totalRows) {
     this.content = content;
     this.totalPages = totalPages;
     this.totalRows = totalRows;
   }
+
+  public Page(List<T> content, PageMetadata pageMetadata, String nextCursor) {
+    this.content = content;
+    if (pageMetadata != null) {
+      this.totalPages = pageMetadata.getTotalPages();
+      this.totalRows = pageMetadata.getTotalRows();
+    }
+    this.nextCursor = nextCursor;
+  }
 }
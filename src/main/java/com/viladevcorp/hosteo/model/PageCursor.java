@@ -0,0 +1,60 @@
+package com.viladevcorp.hosteo.model;
+
+import com.viladevcorp.hosteo.exceptions.InvalidCursorException;
+import com.viladevcorp.hosteo.model.dto.BaseEntityDto;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Position of the last row of a page in a keyset pagination: the value of the sort column and the
+ * id, which breaks the ties. The next page starts right after it, so it costs the same whatever its
+ * depth. It is sent to the clients as an opaque string.
+ */
+@Getter
+@AllArgsConstructor
+public class PageCursor {
+
+  private static final String SEPARATOR = "|";
+
+  private Instant position;
+  private UUID id;
+
+  public String encode() {
+    String value = position + SEPARATOR + id;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  // Null when there is no cursor, the first page
+  public static PageCursor decode(String cursor) throws InvalidCursorException {
+    if (cursor == null || cursor.isEmpty()) {
+      return null;
+    }
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separatorIndex = value.indexOf(SEPARATOR);
+      return new PageCursor(
+          Instant.parse(value.substring(0, separatorIndex)),
+          UUID.fromString(value.substring(separatorIndex + 1)));
+    } catch (RuntimeException e) {
+      throw new InvalidCursorException("Invalid page cursor: " + cursor);
+    }
+  }
+
+  // Cursor of the page after the results, null if they are the last ones
+  public static <T extends BaseEntityDto> String next(
+      List<T> results, int pageSize, Function<T, Instant> position) {
+    if (pageSize <= 0 || results.size() < pageSize) {
+      return null;
+    }
+    T last = results.get(results.size() - 1);
+    return new PageCursor(position.apply(last), last.getId()).encode();
+  }
+}
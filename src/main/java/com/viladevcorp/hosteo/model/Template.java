@@ -4,12 +4,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.viladevcorp.hosteo.model.jsonconverters.StepsJsonConverter;
+import com.viladevcorp.hosteo.model.listeners.EntityChangeListener;
 import com.viladevcorp.hosteo.model.types.CategoryEnum;
 import com.viladevcorp.hosteo.model.types.TaskType;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Table;
@@ -19,8 +22,13 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@EntityListeners(EntityChangeListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "templates")
 @Getter
 @Setter
@@ -0,0 +1,36 @@
+package com.viladevcorp.hosteo.model.dto;
+
+import com.viladevcorp.hosteo.model.types.Alert;
+import com.viladevcorp.hosteo.model.types.EventState;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Entry of the alert feed, read with the event and the apartment in the same query
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertDto {
+
+  private UUID eventId;
+
+  private String eventName;
+
+  private EventState eventState;
+
+  private Instant startDate;
+
+  private Instant endDate;
+
+  private UUID apartmentId;
+
+  private String apartmentName;
+
+  private Alert alert;
+
+  private Instant computedAt;
+}
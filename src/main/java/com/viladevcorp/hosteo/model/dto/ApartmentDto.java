@@ -2,10 +2,11 @@ package com.viladevcorp.hosteo.model.dto;
 
 import com.viladevcorp.hosteo.model.*;
 import com.viladevcorp.hosteo.model.types.ApartmentState;
+import java.time.Instant;
+import java.util.UUID;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.beans.BeanUtils;
 
 @Getter
 @Setter
@@ -13,10 +14,34 @@ import org.springframework.beans.BeanUtils;
 public class ApartmentDto extends BaseEntityDto {
 
   public ApartmentDto(Apartment apartment) {
+    super(apartment);
     if (apartment == null) {
       return;
     }
-    BeanUtils.copyProperties(apartment, this);
+    this.name = apartment.getName();
+    this.airbnbId = apartment.getAirbnbId();
+    this.bookingId = apartment.getBookingId();
+    this.address = apartment.getAddress();
+    this.state = apartment.getState();
+    this.visible = apartment.isVisible();
+  }
+
+  public ApartmentDto(
+      UUID id,
+      Instant createdAt,
+      String name,
+      String airbnbId,
+      String bookingId,
+      Address address,
+      ApartmentState state,
+      boolean visible) {
+    super(id, createdAt);
+    this.name = name;
+    this.airbnbId = airbnbId;
+    this.bookingId = bookingId;
+    this.address = address;
+    this.state = state;
+    this.visible = visible;
   }
 
   private String name;
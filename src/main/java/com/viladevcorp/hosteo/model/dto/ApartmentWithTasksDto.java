@@ -5,7 +5,6 @@ import com.viladevcorp.hosteo.model.types.ApartmentState;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.beans.BeanUtils;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -17,10 +16,16 @@ import java.util.List;
 public class ApartmentWithTasksDto extends BaseEntityDto {
 
   public ApartmentWithTasksDto(Apartment apartment) {
+    super(apartment);
     if (apartment == null) {
       return;
     }
-    BeanUtils.copyProperties(apartment, this, "tasks");
+    this.name = apartment.getName();
+    this.airbnbId = apartment.getAirbnbId();
+    this.bookingId = apartment.getBookingId();
+    this.address = apartment.getAddress();
+    this.state = apartment.getState();
+    this.visible = apartment.isVisible();
     this.tasks =
         apartment.getTasks().stream()
             .sorted(Comparator.comparing(Task::getCreatedAt))
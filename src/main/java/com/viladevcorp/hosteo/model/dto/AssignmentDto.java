@@ -1,12 +1,17 @@
 package com.viladevcorp.hosteo.model.dto;
 
+import com.viladevcorp.hosteo.model.Address;
 import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
 import com.viladevcorp.hosteo.model.types.AssignmentState;
+import com.viladevcorp.hosteo.model.types.CategoryEnum;
+import com.viladevcorp.hosteo.model.types.Language;
 import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.beans.BeanUtils;
 
 @Getter
 @Setter
@@ -14,14 +19,72 @@ import org.springframework.beans.BeanUtils;
 public class AssignmentDto extends BaseEntityDto {
 
   public AssignmentDto(Assignment assignment) {
+    super(assignment);
     if (assignment == null) {
       return;
     }
-    BeanUtils.copyProperties(assignment, this, "task", "worker");
+    this.startDate = assignment.getStartDate();
+    this.endDate = assignment.getEndDate();
+    this.state = assignment.getState();
     this.task = new TaskWithApartmentDto(assignment.getTask());
     this.worker = new WorkerDto(assignment.getWorker());
   }
 
+  // Projection of the search, with the columns of the task, its apartment (if any) and the worker
+  public AssignmentDto(
+      UUID id,
+      Instant createdAt,
+      Instant startDate,
+      Instant endDate,
+      AssignmentState state,
+      UUID taskId,
+      Instant taskCreatedAt,
+      String taskName,
+      CategoryEnum taskCategory,
+      int taskDuration,
+      List<String> taskSteps,
+      UUID apartmentId,
+      Instant apartmentCreatedAt,
+      String apartmentName,
+      String apartmentAirbnbId,
+      String apartmentBookingId,
+      Address apartmentAddress,
+      ApartmentState apartmentState,
+      Boolean apartmentVisible,
+      UUID workerId,
+      Instant workerCreatedAt,
+      String workerName,
+      Language workerLanguage,
+      double workerSalary,
+      boolean workerVisible) {
+    super(id, createdAt);
+    this.startDate = startDate;
+    this.endDate = endDate;
+    this.state = state;
+    this.task =
+        new TaskWithApartmentDto(
+            taskId,
+            taskCreatedAt,
+            taskName,
+            taskCategory,
+            taskDuration,
+            taskSteps,
+            apartmentId == null
+                ? null
+                : new ApartmentDto(
+                    apartmentId,
+                    apartmentCreatedAt,
+                    apartmentName,
+                    apartmentAirbnbId,
+                    apartmentBookingId,
+                    apartmentAddress,
+                    apartmentState,
+                    apartmentVisible));
+    this.worker =
+        new WorkerDto(
+            workerId, workerCreatedAt, workerName, workerLanguage, workerSalary, workerVisible);
+  }
+
   private TaskWithApartmentDto task;
 
   private Instant startDate;
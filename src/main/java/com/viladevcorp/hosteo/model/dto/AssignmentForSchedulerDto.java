@@ -0,0 +1,23 @@
+package com.viladevcorp.hosteo.model.dto;
+
+import com.viladevcorp.hosteo.model.Assignment;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class AssignmentForSchedulerDto extends AssignmentDto {
+
+  public AssignmentForSchedulerDto(
+      Assignment assignment, SimpleEventSchedulerDto prevEvent, SimpleEventSchedulerDto nextEvent) {
+    super(assignment);
+    this.prevEvent = prevEvent;
+    this.nextEvent = nextEvent;
+  }
+
+  private SimpleEventSchedulerDto prevEvent;
+
+  private SimpleEventSchedulerDto nextEvent;
+}
@@ -31,6 +31,12 @@ public class BaseEntityDto {
     return this.id.equals(other.id);
   }
 
+  // Used by the projections of the searches
+  public BaseEntityDto(UUID id, Instant createdAt) {
+    this.id = id;
+    this.createdAt = createdAt;
+  }
+
   public BaseEntityDto(BaseEntity baseEntity) {
     if (baseEntity == null) {
       return;
@@ -1,15 +1,17 @@
 package com.viladevcorp.hosteo.model.dto;
 
+import com.viladevcorp.hosteo.model.Address;
 import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
 import com.viladevcorp.hosteo.model.types.EventSource;
 import com.viladevcorp.hosteo.model.types.EventState;
 import com.viladevcorp.hosteo.model.types.EventType;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.beans.BeanUtils;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.util.UUID;
 
 @Getter
 @Setter
@@ -20,16 +22,58 @@ public class EventDto extends BaseEntityDto {
     private EventSource source;
     private EventState state;
     private ApartmentDto apartment;
-    private LocalDateTime startDate;
-    private LocalDateTime endDate;
+    private Instant startDate;
+    private Instant endDate;
 
     public EventDto(Event event) {
+        super(event);
         if (event == null) {
             return;
         }
-        BeanUtils.copyProperties(event, this, "apartment");
+        this.type = event.getType();
+        this.source = event.getSource();
+        this.state = event.getState();
+        this.startDate = event.getStartDate();
+        this.endDate = event.getEndDate();
         if (event.getApartment() != null) {
             this.apartment = new ApartmentDto(event.getApartment());
         }
     }
+
+    // Projection of the search, with the columns of the apartment (if any)
+    public EventDto(
+            UUID id,
+            Instant createdAt,
+            EventType type,
+            EventSource source,
+            EventState state,
+            Instant startDate,
+            Instant endDate,
+            UUID apartmentId,
+            Instant apartmentCreatedAt,
+            String apartmentName,
+            String apartmentAirbnbId,
+            String apartmentBookingId,
+            Address apartmentAddress,
+            ApartmentState apartmentState,
+            Boolean apartmentVisible) {
+        super(id, createdAt);
+        this.type = type;
+        this.source = source;
+        this.state = state;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        if (apartmentId != null) {
+            this.apartment =
+                    new ApartmentDto(
+                            apartmentId,
+                            apartmentCreatedAt,
+                            apartmentName,
+                            apartmentAirbnbId,
+                            apartmentBookingId,
+                            apartmentAddress,
+                            apartmentState,
+                            apartmentVisible);
+        }
+    }
 }
@@ -3,14 +3,16 @@ package com.viladevcorp.hosteo.model.dto;
 import com.viladevcorp.hosteo.model.Event;
 import com.viladevcorp.hosteo.model.types.Alert;
 import com.viladevcorp.hosteo.model.types.EventSource;
+import com.viladevcorp.hosteo.model.types.EventState;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import com.viladevcorp.hosteo.model.types.EventType;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.beans.BeanUtils;
 
 @Getter
 @Setter
@@ -18,10 +20,19 @@ import org.springframework.beans.BeanUtils;
 public class EventSchedulerDto extends BaseEntityDto {
 
   public EventSchedulerDto(Event event, Alert alert) {
+    super(event);
     if (event == null) {
       return;
     }
-    BeanUtils.copyProperties(event, this);
+    // Shadows the id of the base class, both are set
+    this.id = event.getId();
+    this.type = event.getType();
+    this.startDate = event.getStartDate();
+    this.endDate = event.getEndDate();
+    this.name = event.getName();
+    this.source = event.getSource();
+    this.state = event.getState();
+    this.apartment = new ApartmentDto(event.getApartment());
     this.alert = alert;
   }
 
@@ -37,5 +48,22 @@ public class EventSchedulerDto extends BaseEntityDto {
 
   private EventSource source;
 
+  private EventState state;
+
+  private ApartmentDto apartment;
+
   private Alert alert;
+
+  private SimpleEventSchedulerDto prevEvent;
+
+  private SimpleEventSchedulerDto nextEvent;
+
+  private List<TaskDto> assignedTasks = new ArrayList<>();
+
+  private List<TaskDto> unassignedTasks = new ArrayList<>();
+
+  private boolean hasUnfinishedTasks;
+
+  // The next pending event of an apartment that is already ready, no alert is raised for it
+  private boolean apartmentReady;
 }
@@ -11,7 +11,6 @@ import java.util.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.beans.BeanUtils;
 
 @Getter
 @Setter
@@ -19,23 +18,23 @@ import org.springframework.beans.BeanUtils;
 public class EventWithAssignmentsDto extends BaseEntityDto {
 
   public EventWithAssignmentsDto(Event event) {
+    super(event);
     if (event == null) {
       return;
     }
-    BeanUtils.copyProperties(event, this, "apartment", "assignments");
+    this.startDate = event.getStartDate();
+    this.endDate = event.getEndDate();
+    this.name = event.getName();
+    this.state = event.getState();
+    this.source = event.getSource();
     this.apartment = new ApartmentWithTasksDto(event.getApartment());
 
-    List<AssignmentDto> assignmentsDto = new ArrayList<>();
-    event
-        .getAssignments()
-        .forEach(
-            assignment -> {
-              this.assignments.add(new AssignmentDto(assignment));
-            });
-    this.assignments =
-        this.assignments.stream()
-            .sorted(Comparator.comparing(AssignmentDto::getStartDate).reversed())
-            .toList();
+    List<AssignmentDto> assignmentsDto = new ArrayList<>(event.getAssignments().size());
+    for (Assignment assignment : event.getAssignments()) {
+      assignmentsDto.add(new AssignmentDto(assignment));
+    }
+    assignmentsDto.sort(Comparator.comparing(AssignmentDto::getStartDate).reversed());
+    this.assignments = assignmentsDto;
   }
 
   private ApartmentWithTasksDto apartment;
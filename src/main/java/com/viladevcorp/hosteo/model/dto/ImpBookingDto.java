@@ -9,7 +9,6 @@ import java.time.Instant;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.beans.BeanUtils;
 
 @Getter
 @Setter
@@ -17,10 +16,15 @@ import org.springframework.beans.BeanUtils;
 public class ImpBookingDto extends BaseEntityDto {
 
   public ImpBookingDto(ImpBooking booking) {
+    super(booking);
     if (booking == null) {
       return;
     }
-    BeanUtils.copyProperties(booking, this, "apartment", "conflict");
+    this.startDate = booking.getStartDate();
+    this.endDate = booking.getEndDate();
+    this.name = booking.getName();
+    this.source = booking.getSource();
+    this.creationError = booking.getCreationError();
     this.apartment = new ApartmentDto(booking.getApartment());
     this.conflict = booking.getConflict();
   }
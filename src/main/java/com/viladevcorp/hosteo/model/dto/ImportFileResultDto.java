@@ -0,0 +1,19 @@
+package com.viladevcorp.hosteo.model.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImportFileResultDto {
+
+  public ImportFileResultDto(int importedCount, int conflictCount) {
+    this.importedCount = importedCount;
+    this.conflictCount = conflictCount;
+  }
+
+  private int importedCount;
+  private int conflictCount;
+}
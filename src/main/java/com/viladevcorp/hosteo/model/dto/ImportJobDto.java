@@ -0,0 +1,47 @@
+package com.viladevcorp.hosteo.model.dto;
+
+import com.viladevcorp.hosteo.model.ImportJob;
+import com.viladevcorp.hosteo.model.types.ImportJobState;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImportJobDto {
+
+  public ImportJobDto(ImportJob job, Instant now) {
+    this.id = job.getId();
+    this.state = job.getState();
+    this.total = job.getTotal();
+    this.processed = job.getProcessed().get();
+    this.imported = job.getImported().get();
+    this.failed = job.getFailed().get();
+    this.createdAt = job.getCreatedAt();
+    this.startedAt = job.getStartedAt();
+    this.finishedAt = job.getFinishedAt();
+    this.error = job.getError();
+    if (startedAt != null) {
+      Instant end = finishedAt == null ? now : finishedAt;
+      long elapsedMillis = Math.max(Duration.between(startedAt, end).toMillis(), 1);
+      this.throughput = processed * 1000.0 / elapsedMillis;
+    }
+  }
+
+  private UUID id;
+  private ImportJobState state;
+  private int total;
+  private int processed;
+  private int imported;
+  private int failed;
+  // Processed bookings per second
+  private double throughput;
+  private Instant createdAt;
+  private Instant startedAt;
+  private Instant finishedAt;
+  private String error;
+}
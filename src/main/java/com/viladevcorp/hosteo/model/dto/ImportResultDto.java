@@ -5,7 +5,6 @@ import com.viladevcorp.hosteo.model.types.ApartmentState;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.beans.BeanUtils;
 
 @Getter
 @Setter
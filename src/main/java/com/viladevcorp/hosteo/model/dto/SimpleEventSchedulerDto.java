@@ -0,0 +1,42 @@
+package com.viladevcorp.hosteo.model.dto;
+
+import com.viladevcorp.hosteo.model.types.Alert;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.types.EventType;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Event linked from another one in the scheduler, without its own links and tasks
+@Getter
+@Setter
+@NoArgsConstructor
+public class SimpleEventSchedulerDto extends BaseEntityDto {
+
+  public SimpleEventSchedulerDto(EventSchedulerDto event) {
+    if (event == null) {
+      return;
+    }
+    this.id = event.getId();
+    this.createdAt = event.getCreatedAt();
+    this.name = event.getName();
+    this.type = event.getType();
+    this.state = event.getState();
+    this.startDate = event.getStartDate();
+    this.endDate = event.getEndDate();
+    this.alert = event.getAlert();
+  }
+
+  private String name;
+
+  private EventType type;
+
+  private EventState state;
+
+  private Instant startDate;
+
+  private Instant endDate;
+
+  private Alert alert;
+}
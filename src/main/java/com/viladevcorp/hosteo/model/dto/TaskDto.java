@@ -2,12 +2,13 @@ package com.viladevcorp.hosteo.model.dto;
 
 import com.viladevcorp.hosteo.model.Task;
 import com.viladevcorp.hosteo.model.types.CategoryEnum;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.beans.BeanUtils;
 
 @Getter
 @Setter
@@ -15,10 +16,28 @@ import org.springframework.beans.BeanUtils;
 public class TaskDto extends BaseEntityDto {
 
   public TaskDto(Task task) {
+    super(task);
     if (task == null) {
       return;
     }
-    BeanUtils.copyProperties(task, this, "apartment");
+    this.name = task.getName();
+    this.category = task.getCategory();
+    this.duration = task.getDuration();
+    this.steps = task.getSteps();
+  }
+
+  public TaskDto(
+      UUID id,
+      Instant createdAt,
+      String name,
+      CategoryEnum category,
+      int duration,
+      List<String> steps) {
+    super(id, createdAt);
+    this.name = name;
+    this.category = category;
+    this.duration = duration;
+    this.steps = steps;
   }
 
   private String name;
@@ -2,12 +2,13 @@ package com.viladevcorp.hosteo.model.dto;
 
 import com.viladevcorp.hosteo.model.Task;
 import com.viladevcorp.hosteo.model.types.CategoryEnum;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.beans.BeanUtils;
 
 @Getter
 @Setter
@@ -15,15 +16,35 @@ import org.springframework.beans.BeanUtils;
 public class TaskWithApartmentDto extends BaseEntityDto {
 
   public TaskWithApartmentDto(Task task) {
+    super(task);
     if (task == null) {
       return;
     }
-    BeanUtils.copyProperties(task, this, "apartment");
+    this.name = task.getName();
+    this.category = task.getCategory();
+    this.duration = task.getDuration();
+    this.steps = task.getSteps();
     if (task.getApartment() != null) {
       this.apartment = new ApartmentDto(task.getApartment());
     }
   }
 
+  public TaskWithApartmentDto(
+      UUID id,
+      Instant createdAt,
+      String name,
+      CategoryEnum category,
+      int duration,
+      List<String> steps,
+      ApartmentDto apartment) {
+    super(id, createdAt);
+    this.name = name;
+    this.category = category;
+    this.duration = duration;
+    this.steps = steps;
+    this.apartment = apartment;
+  }
+
   private String name;
 
   private CategoryEnum category;
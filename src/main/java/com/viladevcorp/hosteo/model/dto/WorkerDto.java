@@ -3,10 +3,11 @@ package com.viladevcorp.hosteo.model.dto;
 import com.viladevcorp.hosteo.model.Worker;
 import com.viladevcorp.hosteo.model.types.Language;
 import com.viladevcorp.hosteo.model.types.WorkerState;
+import java.time.Instant;
+import java.util.UUID;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.beans.BeanUtils;
 
 @Getter
 @Setter
@@ -14,10 +15,23 @@ import org.springframework.beans.BeanUtils;
 public class WorkerDto extends BaseEntityDto {
 
   public WorkerDto(Worker worker) {
+    super(worker);
     if (worker == null) {
       return;
     }
-    BeanUtils.copyProperties(worker, this);
+    this.name = worker.getName();
+    this.language = worker.getLanguage();
+    this.salary = worker.getSalary();
+    this.visible = worker.isVisible();
+  }
+
+  public WorkerDto(
+      UUID id, Instant createdAt, String name, Language language, double salary, boolean visible) {
+    super(id, createdAt);
+    this.name = name;
+    this.language = language;
+    this.salary = salary;
+    this.visible = visible;
   }
 
   private String name;
@@ -15,6 +15,8 @@ public class ApartmentSearchForm {
 
   private String name;
   private Set<ApartmentState> states;
+  // Sorts the results by the similarity of their name to the searched one
+  private boolean ranked;
   private int pageNumber;
   private int pageSize;
 }
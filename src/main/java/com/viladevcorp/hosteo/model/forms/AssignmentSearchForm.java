@@ -18,4 +18,9 @@ public class AssignmentSearchForm {
   private int pageNumber;
 
   private int pageSize;
+
+  // Cursor of the page to get, it replaces the page number
+  private String cursor;
+
+  private boolean includeTotal = true;
 }
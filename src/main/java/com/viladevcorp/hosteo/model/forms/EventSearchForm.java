@@ -19,4 +19,7 @@ public class EventSearchForm {
   private Instant endDate;
   private int pageNumber = -1;
   private int pageSize;
+  // Cursor of the page to get, it replaces the page number
+  private String cursor;
+  private boolean includeTotal = true;
 }
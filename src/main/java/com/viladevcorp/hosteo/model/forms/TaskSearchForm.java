@@ -15,6 +15,10 @@ public class TaskSearchForm {
 
   private String name;
 
+  // Sorts the results by the similarity of their name to the searched one. They are paged by
+  // number, not by cursor
+  private boolean ranked;
+
   private UUID apartmentId;
 
   private TaskType type;
@@ -22,4 +26,9 @@ public class TaskSearchForm {
   private int pageNumber;
 
   private int pageSize;
+
+  // Cursor of the page to get, it replaces the page number
+  private String cursor;
+
+  private boolean includeTotal = true;
 }
@@ -11,6 +11,9 @@ public class TemplateSearchForm {
 
   private String name;
 
+  // Sorts the results by the similarity of their name to the searched one
+  private boolean ranked;
+
   private int pageNumber;
 
   private int pageSize;
@@ -12,6 +12,8 @@ public class WorkerSearchForm {
 
   private String name;
   private Boolean visible;
+  // Sorts the results by the similarity of their name to the searched one
+  private boolean ranked;
   private int pageNumber;
   private int pageSize;
 }
@@ -0,0 +1,193 @@
+package com.viladevcorp.hosteo.model.listeners;
+
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.BaseEntity;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.Task;
+import com.viladevcorp.hosteo.model.Template;
+import com.viladevcorp.hosteo.model.Worker;
+import com.viladevcorp.hosteo.service.AlertMaterializer;
+import com.viladevcorp.hosteo.service.ApartmentStateService;
+import com.viladevcorp.hosteo.service.ScheduleIndexService;
+import com.viladevcorp.hosteo.service.SearchCountService;
+import com.viladevcorp.hosteo.utils.AuthUtils;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.PreRemove;
+import java.util.UUID;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the changes of the entities to the services that keep data derived from them: the
+ * occupancy index ({@link ScheduleIndexService}), the state of the apartments ({@link
+ * ApartmentStateService}), the alert feeds ({@link AlertMaterializer}) and the search counts
+ * ({@link SearchCountService}).
+ *
+ * <p>Hibernate creates the listeners while building the EntityManagerFactory, before those services
+ * exist, so they are resolved lazily on each change.
+ */
+@Component
+public class EntityChangeListener {
+
+  private final ObjectProvider<ScheduleIndexService> scheduleIndexServiceProvider;
+  private final ObjectProvider<ApartmentStateService> apartmentStateServiceProvider;
+  private final ObjectProvider<AlertMaterializer> alertMaterializerProvider;
+  private final ObjectProvider<SearchCountService> searchCountServiceProvider;
+
+  @Autowired
+  public EntityChangeListener(
+      ObjectProvider<ScheduleIndexService> scheduleIndexServiceProvider,
+      ObjectProvider<ApartmentStateService> apartmentStateServiceProvider,
+      ObjectProvider<AlertMaterializer> alertMaterializerProvider,
+      ObjectProvider<SearchCountService> searchCountServiceProvider) {
+    this.scheduleIndexServiceProvider = scheduleIndexServiceProvider;
+    this.apartmentStateServiceProvider = apartmentStateServiceProvider;
+    this.alertMaterializerProvider = alertMaterializerProvider;
+    this.searchCountServiceProvider = searchCountServiceProvider;
+  }
+
+  @PostLoad
+  public void onLoad(Object entity) {
+    SearchCountService searchCountService = searchCountServiceProvider.getIfAvailable();
+    if (searchCountService != null) {
+      searchCountService.onEntityLoaded(entity);
+    }
+  }
+
+  @PostPersist
+  public void onPersist(Object entity) {
+    onSave(entity);
+    SearchCountService searchCountService = searchCountServiceProvider.getIfAvailable();
+    if (searchCountService != null) {
+      searchCountService.onEntityInserted(entity, getUserId(entity));
+    }
+  }
+
+  @PostUpdate
+  public void onUpdate(Object entity) {
+    onSave(entity);
+    SearchCountService searchCountService = searchCountServiceProvider.getIfAvailable();
+    if (searchCountService != null) {
+      searchCountService.onEntityUpdated(entity, getUserId(entity));
+    }
+  }
+
+  // The assignments of a worker are removed with it by ON DELETE CASCADE, so the apartments they
+  // occupy are looked up before
+  @PreRemove
+  public void onRemoving(Object entity) {
+    if (!(entity instanceof Worker worker)) {
+      return;
+    }
+    ScheduleIndexService scheduleIndexService = scheduleIndexServiceProvider.getIfAvailable();
+    if (scheduleIndexService != null) {
+      scheduleIndexService.onWorkerRemoved(worker.getId());
+    }
+    ApartmentStateService apartmentStateService = apartmentStateServiceProvider.getIfAvailable();
+    if (apartmentStateService != null) {
+      apartmentStateService.onWorkerRemoved(worker.getId());
+    }
+  }
+
+  @PostRemove
+  public void onRemove(Object entity) {
+    ScheduleIndexService scheduleIndexService = scheduleIndexServiceProvider.getIfAvailable();
+    if (scheduleIndexService != null) {
+      if (entity instanceof Event event) {
+        scheduleIndexService.onEventRemoved(event.getId(), apartmentIdOf(event));
+      } else if (entity instanceof Assignment assignment) {
+        scheduleIndexService.onAssignmentRemoved(assignment.getId(), apartmentIdOf(assignment));
+      } else if (entity instanceof Apartment apartment) {
+        scheduleIndexService.onApartmentRemoved(apartment.getId());
+      } else if (entity instanceof Task task) {
+        scheduleIndexService.onTaskRemoved(apartmentIdOf(task));
+      }
+    }
+    ApartmentStateService apartmentStateService = apartmentStateServiceProvider.getIfAvailable();
+    if (apartmentStateService != null) {
+      if (entity instanceof Event event) {
+        apartmentStateService.onEventRemoved(event.getId(), apartmentIdOf(event));
+      } else if (entity instanceof Assignment assignment) {
+        apartmentStateService.onAssignmentRemoved(assignment.getId(), apartmentIdOf(assignment));
+      } else if (entity instanceof Apartment apartment) {
+        apartmentStateService.onApartmentRemoved(apartment.getId());
+      } else if (entity instanceof Task task) {
+        apartmentStateService.onTaskRemoved(task.getId(), apartmentIdOf(task));
+      }
+    }
+    onUserDataChanged(entity);
+    SearchCountService searchCountService = searchCountServiceProvider.getIfAvailable();
+    if (searchCountService != null) {
+      searchCountService.onEntityRemoved(entity, getUserId(entity));
+    }
+  }
+
+  private void onSave(Object entity) {
+    ScheduleIndexService scheduleIndexService = scheduleIndexServiceProvider.getIfAvailable();
+    if (scheduleIndexService != null) {
+      if (entity instanceof Event event) {
+        scheduleIndexService.onEventSaved(
+            event.getId(), apartmentIdOf(event), event.getStartDate(), event.getEndDate());
+      } else if (entity instanceof Assignment assignment) {
+        scheduleIndexService.onAssignmentSaved(
+            assignment.getId(),
+            apartmentIdOf(assignment),
+            assignment.getStartDate(),
+            assignment.getEndDate());
+      }
+    }
+    ApartmentStateService apartmentStateService = apartmentStateServiceProvider.getIfAvailable();
+    if (apartmentStateService != null) {
+      if (entity instanceof Event event) {
+        apartmentStateService.onEventSaved(
+            event.getId(), apartmentIdOf(event), event.getState(), event.getEndDate());
+      } else if (entity instanceof Assignment assignment) {
+        apartmentStateService.onAssignmentSaved(
+            assignment.getId(),
+            apartmentIdOf(assignment),
+            assignment.getEvent() == null ? null : assignment.getEvent().getId(),
+            assignment.getTask() == null ? null : assignment.getTask().getId(),
+            assignment.getState());
+      } else if (entity instanceof Task task) {
+        apartmentStateService.onTaskSaved(task.getId(), apartmentIdOf(task), task.getType());
+      }
+    }
+    onUserDataChanged(entity);
+  }
+
+  // The templates do not take part in the alerts
+  private void onUserDataChanged(Object entity) {
+    AlertMaterializer alertMaterializer = alertMaterializerProvider.getIfAvailable();
+    if (alertMaterializer != null && !(entity instanceof Template)) {
+      alertMaterializer.onUserDataChanged(getUserId(entity));
+    }
+  }
+
+  // The scheduled jobs change entities without a logged user
+  private UUID getUserId(Object entity) {
+    BaseEntity baseEntity = (BaseEntity) entity;
+    return baseEntity.getCreatedBy() != null
+        ? baseEntity.getCreatedBy().getId()
+        : AuthUtils.getUserId();
+  }
+
+  private UUID apartmentIdOf(Event event) {
+    return event.getApartment() == null ? null : event.getApartment().getId();
+  }
+
+  private UUID apartmentIdOf(Task task) {
+    return task.getApartment() == null ? null : task.getApartment().getId();
+  }
+
+  private UUID apartmentIdOf(Assignment assignment) {
+    if (assignment.getTask() == null || assignment.getTask().getApartment() == null) {
+      return null;
+    }
+    return apartmentIdOf(assignment.getTask());
+  }
+}
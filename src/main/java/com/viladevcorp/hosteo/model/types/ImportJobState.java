@@ -0,0 +1,12 @@
+package com.viladevcorp.hosteo.model.types;
+
+public enum ImportJobState {
+  QUEUED,
+  RUNNING,
+  FINISHED,
+  FAILED;
+
+  public boolean isDone() {
+    return this == FINISHED || this == FAILED;
+  }
+}
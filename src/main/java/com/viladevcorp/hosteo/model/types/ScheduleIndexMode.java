@@ -0,0 +1,10 @@
+package com.viladevcorp.hosteo.model.types;
+
+public enum ScheduleIndexMode {
+  // Conflicts are answered by the in-memory occupancy index
+  MEMORY,
+  // Conflicts are answered by the events/assignments queries (index disabled)
+  DATABASE,
+  // Both are evaluated, the query result is returned and mismatches are logged
+  VERIFY
+}
@@ -1,6 +1,7 @@
 package com.viladevcorp.hosteo.repository;
 
 import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.dto.ApartmentDto;
 import com.viladevcorp.hosteo.model.types.ApartmentState;
 import com.viladevcorp.hosteo.model.types.TaskType;
 import org.springframework.data.domain.Pageable;
@@ -15,25 +16,51 @@ import java.util.Set;
 import java.util.UUID;
 
 @Repository
-public interface ApartmentRepository extends EntityRepository<Apartment> {
+public interface ApartmentRepository extends TenantRepository<Apartment> {
 
   @Query(
-      "SELECT a FROM Apartment a WHERE a.createdBy.username = :username AND (:visible is null OR a.visible = :visible) "
+      "SELECT new com.viladevcorp.hosteo.model.dto.ApartmentDto(a.id, a.createdAt, a.name, "
+          + "a.airbnbId, a.bookingId, a.address, a.state, a.visible) "
+          + "FROM Apartment a WHERE a.createdBy.id = :userId "
+          + "AND (:visible is null OR a.visible = :visible) "
           + "AND (:name is null OR lower(a.name) like :name) AND (:states is null OR a.state IN :states) ORDER BY a.visible DESC, a.createdAt DESC ")
-  List<Apartment> advancedSearch(
-      String username, String name, Set<ApartmentState> states, Boolean visible, Pageable pageable);
+  List<ApartmentDto> advancedSearch(
+      UUID userId, String name, Set<ApartmentState> states, Boolean visible, Pageable pageable);
 
+  // Same filters as advancedSearch with a name, sorted by the trigram similarity of the name to the
+  // term
   @Query(
-      "SELECT COUNT(a) FROM Apartment a WHERE a.createdBy.username = :username AND (:visible is null OR a.visible = :visible) "
+      "SELECT new com.viladevcorp.hosteo.model.dto.ApartmentDto(a.id, a.createdAt, a.name, "
+          + "a.airbnbId, a.bookingId, a.address, a.state, a.visible) "
+          + "FROM Apartment a WHERE a.createdBy.id = :userId "
+          + "AND (:visible is null OR a.visible = :visible) "
+          + "AND lower(a.name) like :name AND (:states is null OR a.state IN :states) "
+          + "ORDER BY function('similarity', lower(a.name), :term) DESC, a.visible DESC, a.createdAt DESC")
+  List<ApartmentDto> rankedSearch(
+      UUID userId,
+      String name,
+      String term,
+      Set<ApartmentState> states,
+      Boolean visible,
+      Pageable pageable);
+
+  @Query(
+      "SELECT COUNT(a) "
+          + "FROM Apartment a WHERE a.createdBy.id = :userId AND (:visible is null OR a.visible = :visible) "
           + "AND (:name is null OR lower(a.name) like :name) AND (:states is null OR a.state IN :states)")
-  int advancedCount(String username, String name, Set<ApartmentState> states, Boolean visible);
+  int advancedCount(UUID userId, String name, Set<ApartmentState> states, Boolean visible);
 
   @Query(
-      "SELECT a FROM Apartment a LEFT JOIN FETCH a.tasks t WHERE a.id = :id AND a.createdBy.username = :username")
+      "SELECT a FROM Apartment a LEFT JOIN FETCH a.tasks t WHERE a.id = :id AND a.createdBy.id = :userId")
   Optional<Apartment> findById(
-      @Param("id") @NonNull UUID id, @Param("username") @NonNull String username);
+      @Param("id") @NonNull UUID id, @Param("userId") @NonNull UUID userId);
 
-  Optional<Apartment> findByAirbnbIdAndCreatedByUsername(String airbnbId, String username);
+  Optional<Apartment> findByAirbnbIdAndCreatedById(String airbnbId, UUID userId);
 
-  Optional<Apartment> findByBookingIdAndCreatedByUsername(String bookingId, String username);
+  Optional<Apartment> findByBookingIdAndCreatedById(String bookingId, UUID userId);
+
+  @Query(
+      "SELECT a.state, COUNT(a) "
+          + "FROM Apartment a WHERE a.createdBy.id = :userId GROUP BY a.state")
+  List<Object[]> countByState(@Param("userId") UUID userId);
 }
@@ -1,81 +1,173 @@
 package com.viladevcorp.hosteo.repository;
 
 import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.dto.AssignmentDto;
+import com.viladevcorp.hosteo.model.OccupancySlot;
 import com.viladevcorp.hosteo.model.types.AssignmentState;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 
 @Repository
-public interface AssignmentRepository extends EntityRepository<Assignment> {
+public interface AssignmentRepository extends TenantRepository<Assignment> {
 
   @Query(
-      "SELECT a FROM Assignment a WHERE a.createdBy.username = :username "
-          + "AND (:taskName IS NULL OR LOWER(a.task.name) LIKE :taskName) "
+      "SELECT new com.viladevcorp.hosteo.model.dto.AssignmentDto(a.id, a.createdAt, a.startDate, "
+          + "a.endDate, a.state, t.id, t.createdAt, t.name, t.category, t.duration, t.steps, "
+          + "ap.id, ap.createdAt, ap.name, ap.airbnbId, ap.bookingId, ap.address, ap.state, "
+          + "ap.visible, w.id, w.createdAt, w.name, w.language, w.salary, w.visible) "
+          + "FROM Assignment a JOIN a.task t LEFT JOIN t.apartment ap JOIN a.worker w "
+          + "WHERE a.createdBy.id = :userId "
+          + "AND (:taskName IS NULL OR LOWER(t.name) LIKE :taskName) "
           + "AND (:state IS NULL OR a.state = :state) "
-          + "ORDER BY a.startDate DESC")
-  List<Assignment> advancedSearch(
-      @Param("username") String username,
+          + "AND (CAST(:cursorDate AS TIMESTAMP) IS NULL OR (a.startDate <= :cursorDate "
+          + "AND (a.startDate < :cursorDate OR a.id < :cursorId))) "
+          + "ORDER BY a.startDate DESC, a.id DESC")
+  List<AssignmentDto> advancedSearch(
+      @Param("userId") UUID userId,
       @Param("taskName") String taskName,
       @Param("state") AssignmentState state,
+      @Param("cursorDate") Instant cursorDate,
+      @Param("cursorId") UUID cursorId,
       Pageable pageable);
 
   @Query(
-      "SELECT COUNT(a) FROM Assignment a WHERE a.createdBy.username = :username "
+      "SELECT COUNT(a) FROM Assignment a WHERE a.createdBy.id = :userId "
           + "AND (:taskName IS NULL OR LOWER(a.task.name) LIKE :taskName) "
           + "AND (:state IS NULL OR a.state = :state)")
   int advancedCount(
-      @Param("username") String username,
+      @Param("userId") UUID userId,
       @Param("taskName") String taskName,
       @Param("state") AssignmentState state);
 
+  @EntityGraph(Assignment.DETAIL_GRAPH)
+  @Query("SELECT a FROM Assignment a WHERE a.id = :id AND a.createdBy.id = :userId")
+  Optional<Assignment> findDetailById(@Param("id") UUID id, @Param("userId") UUID userId);
+
   @Query(
-      "SELECT a FROM Assignment a WHERE a.task.id = :taskId AND a.createdBy.username = :username")
-  Set<Assignment> findByTaskIdAndCreatedByUsername(UUID taskId, String username);
+      "SELECT a FROM Assignment a WHERE a.task.id = :taskId AND a.createdBy.id = :userId")
+  Set<Assignment> findByTaskIdAndCreatedById(UUID taskId, UUID userId);
 
   @Query(
       value =
           "SELECT a FROM Assignment a "
-              + "WHERE a.createdBy.username = :username "
+              + "WHERE a.createdBy.id = :userId "
               + "AND a.task.apartment.id = :apartmentId "
               + "AND a.startDate < :endDate "
               + "AND a.endDate > :startDate "
               + "AND (:excludeAssignmentId IS NULL OR a.id != :excludeAssignmentId) ")
   List<Assignment> findAssignmentsBetween(
-      String username,
+      UUID userId,
       UUID apartmentId,
       Instant startDate,
       Instant endDate,
       UUID excludeAssignmentId);
 
+  @Query(
+      value =
+          "SELECT a FROM Assignment a "
+              + "JOIN FETCH a.task JOIN FETCH a.worker LEFT JOIN FETCH a.event "
+              + "WHERE a.createdBy.id = :userId "
+              + "AND a.task.apartment.id IN :apartmentIds "
+              + "AND a.startDate < :endDate "
+              + "AND a.endDate > :startDate "
+              + "ORDER BY a.startDate ASC")
+  List<Assignment> findAssignmentsBetweenInApartments(
+      UUID userId, Set<UUID> apartmentIds, Instant startDate, Instant endDate);
+
+  @Query(
+      "SELECT new com.viladevcorp.hosteo.model.OccupancySlot(a.id, a.task.apartment.id, a.startDate, a.endDate) "
+          + "FROM Assignment a WHERE a.task.apartment.id = :apartmentId AND a.endDate > :from")
+  List<OccupancySlot> findOccupancyByApartmentId(
+      @Param("apartmentId") UUID apartmentId, @Param("from") Instant from);
+
+  @Query("SELECT DISTINCT a.task.apartment.id FROM Assignment a WHERE a.worker.id = :workerId")
+  Set<UUID> findApartmentIdsByWorkerId(@Param("workerId") UUID workerId);
+
+  @Query("SELECT a FROM Assignment a JOIN FETCH a.task WHERE a.event.id = :eventId")
+  List<Assignment> findByEventIdWithTask(@Param("eventId") UUID eventId);
+
   @Query(
       value =
           "SELECT CASE WHEN COUNT(a) > 0 THEN true ELSE false END FROM Assignment a "
-              + "WHERE a.createdBy.username = :username "
+              + "WHERE a.createdBy.id = :userId "
               + "AND a.worker.id = :workerId "
               + "AND a.worker.visible = true "
               + "AND a.startDate < :endDate "
               + "AND a.endDate > :startDate "
               + "AND (:excludeAssignmentId IS NULL OR a.id != :excludeAssignmentId) ")
   boolean checkWorkerAvailability(
-      String username, UUID workerId, Instant startDate, Instant endDate, UUID excludeAssignmentId);
+      UUID userId, UUID workerId, Instant startDate, Instant endDate, UUID excludeAssignmentId);
 
   @Query(
-      "SELECT a FROM Assignment a WHERE a.createdBy.username = :username "
+      "SELECT a FROM Assignment a WHERE a.createdBy.id = :userId "
           + "AND (:apartmentId IS NULL OR a.task.apartment.id = :apartmentId) "
           + "AND (:state IS NULL OR a.state = :state) AND (CAST(:startDate AS TIMESTAMP) IS NULL OR a.startDate >= :startDate) "
           + "AND (CAST(:endDate AS TIMESTAMP) IS NULL OR a.startDate < :endDate)")
   Set<Assignment> findByApartmentAndStateAndDateRange(
-      String username, UUID apartmentId, AssignmentState state, Instant startDate, Instant endDate);
+      UUID userId, UUID apartmentId, AssignmentState state, Instant startDate, Instant endDate);
 
   @Query(
-      "SELECT a FROM Assignment a WHERE a.createdBy.username = :username  "
+      "SELECT a FROM Assignment a WHERE a.createdBy.id = :userId  "
           + "AND a.id IN :ids ORDER BY a.startDate ASC ")
-  List<Assignment> findInIdsAndCreatedByUsername(Set<UUID> ids, String username);
+  List<Assignment> findInIdsAndCreatedById(Set<UUID> ids, UUID userId);
+
+  @Query(
+      "SELECT a FROM Assignment a "
+          + "JOIN FETCH a.task t JOIN FETCH t.apartment JOIN FETCH a.worker LEFT JOIN FETCH a.event "
+          + "WHERE a.createdBy.id = :userId AND a.id IN :ids ORDER BY a.startDate ASC")
+  List<Assignment> findInIdsWithDetails(Set<UUID> ids, UUID userId);
+
+  @Query(
+      "SELECT a FROM Assignment a WHERE a.createdBy.id = :userId "
+          + "AND a.event.id IN :eventIds")
+  List<Assignment> findByEventIds(Set<UUID> eventIds, UUID userId);
+
+  @Query(
+      value =
+          "SELECT a FROM Assignment a "
+              + "WHERE a.createdBy.id = :userId "
+              + "AND a.worker.id IN :workerIds "
+              + "AND a.worker.visible = true "
+              + "AND a.startDate < :endDate "
+              + "AND a.endDate > :startDate")
+  List<Assignment> findWorkersAssignmentsBetween(
+      UUID userId, Set<UUID> workerIds, Instant startDate, Instant endDate);
+
+  @Query(
+      "SELECT a FROM Assignment a "
+          + "JOIN FETCH a.task t JOIN FETCH t.apartment JOIN FETCH a.worker JOIN FETCH a.event e "
+          + "WHERE a.createdBy.id = :userId AND e.id IN :eventIds")
+  List<Assignment> findByEventIdsWithDetails(
+      @Param("userId") UUID userId, @Param("eventIds") Set<UUID> eventIds);
+
+  // Assignments of the given events and the ones in the date range. The details are fetched with
+  // an entity graph, so the event filter is on the event_id column and not on the joined events
+  @EntityGraph(attributePaths = {"task", "task.apartment", "worker", "event"})
+  @Query(
+      "SELECT a FROM Assignment a WHERE a.createdBy.id = :userId "
+          + "AND (a.event.id IN :eventIds OR (a.endDate >= :startDate AND a.startDate < :endDate)) "
+          + "ORDER BY a.startDate ASC")
+  List<Assignment> findByEventIdsOrBetween(
+      @Param("userId") UUID userId,
+      @Param("eventIds") Set<UUID> eventIds,
+      @Param("startDate") Instant startDate,
+      @Param("endDate") Instant endDate);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE Assignment a SET a.state = :state WHERE a.id IN :ids")
+  int updateStateInIds(@Param("ids") Set<UUID> ids, @Param("state") AssignmentState state);
+
+  @Query(
+      "SELECT a.state, COUNT(a) FROM Assignment a WHERE a.createdBy.id = :userId GROUP BY a.state")
+  List<Object[]> countByState(@Param("userId") UUID userId);
 }
@@ -0,0 +1,28 @@
+package com.viladevcorp.hosteo.repository;
+
+import com.viladevcorp.hosteo.model.EventAlert;
+import com.viladevcorp.hosteo.model.dto.AlertDto;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface EventAlertRepository extends JpaRepository<EventAlert, UUID> {
+
+  // Uses idx_event_alerts_user_id_start_date
+  @Query(
+      "SELECT new com.viladevcorp.hosteo.model.dto.AlertDto(e.id, e.name, e.state, e.startDate, e.endDate, "
+          + "ap.id, ap.name, a.alert, a.computedAt) "
+          + "FROM EventAlert a JOIN a.event e JOIN e.apartment ap "
+          + "WHERE a.user.id = :userId ORDER BY a.startDate ASC")
+  List<AlertDto> findFeed(@Param("userId") UUID userId);
+
+  @Query("SELECT DISTINCT a.user.id FROM EventAlert a")
+  List<UUID> findUserIds();
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM EventAlert a WHERE a.user.id = :userId")
+  int deleteByUserId(@Param("userId") UUID userId);
+}
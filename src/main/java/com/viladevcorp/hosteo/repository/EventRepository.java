@@ -1,10 +1,13 @@
 package com.viladevcorp.hosteo.repository;
 
 import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.dto.EventDto;
+import com.viladevcorp.hosteo.model.OccupancySlot;
 import com.viladevcorp.hosteo.model.types.EventState;
 import com.viladevcorp.hosteo.model.types.EventType;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -16,38 +19,45 @@ import java.util.Set;
 import java.util.UUID;
 
 @Repository
-public interface EventRepository extends EntityRepository<Event> {
+public interface EventRepository extends TenantRepository<Event> {
 
   @Query(
       value =
-          "SELECT b FROM Event b "
-              + "WHERE b.createdBy.username = :username "
-              + "AND (:apartmentName IS NULL OR LOWER(b.apartment.name) LIKE :apartmentName) "
+          "SELECT new com.viladevcorp.hosteo.model.dto.EventDto(b.id, b.createdAt, b.type, "
+              + "b.source, b.state, b.startDate, b.endDate, ap.id, ap.createdAt, ap.name, "
+              + "ap.airbnbId, ap.bookingId, ap.address, ap.state, ap.visible) "
+              + "FROM Event b LEFT JOIN b.apartment ap "
+              + "WHERE b.createdBy.id = :userId "
+              + "AND (:apartmentName IS NULL OR LOWER(ap.name) LIKE :apartmentName) "
               + "AND (:states IS NULL OR b.state IN :states) "
-              + "AND (:types IS NULL OR b.type IN :type) "
+              + "AND (:types IS NULL OR b.type IN :types) "
               + "AND (CAST(:startDate AS TIMESTAMP) IS NULL OR b.endDate >= :startDate) "
               + "AND (CAST(:endDate AS TIMESTAMP) IS NULL OR b.startDate < :endDate) "
-              + "ORDER BY b.startDate DESC")
-  List<Event> advancedSearch(
-      @Param("username") String username,
+              + "AND (CAST(:cursorDate AS TIMESTAMP) IS NULL OR (b.startDate <= :cursorDate "
+              + "AND (b.startDate < :cursorDate OR b.id < :cursorId))) "
+              + "ORDER BY b.startDate DESC, b.id DESC")
+  List<EventDto> advancedSearch(
+      @Param("userId") UUID userId,
       @Param("apartmentName") String apartmentName,
       @Param("states") Set<EventState> states,
       @Param("types") Set<EventType> types,
       @Param("startDate") Instant startDate,
       @Param("endDate") Instant endDate,
+      @Param("cursorDate") Instant cursorDate,
+      @Param("cursorId") UUID cursorId,
       Pageable pageable);
 
   @Query(
       value =
           "SELECT COUNT(b) FROM Event b "
-              + "WHERE b.createdBy.username = :username "
+              + "WHERE b.createdBy.id = :userId "
               + "AND (:apartmentName IS NULL OR LOWER(b.apartment.name) LIKE :apartmentName) "
               + "AND (:states IS NULL OR b.state IN :states) "
               + "AND (:types IS NULL OR b.type IN :types) "
               + "AND (CAST(:startDate AS TIMESTAMP) IS NULL OR b.endDate >= :startDate) "
               + "AND (CAST(:endDate AS TIMESTAMP) IS NULL OR b.startDate < :endDate) ")
   int advancedCount(
-      @Param("username") String username,
+      @Param("userId") UUID userId,
       @Param("apartmentName") String apartmentName,
       @Param("states") Set<EventState> states,
       @Param("types") Set<EventType> types,
@@ -57,24 +67,41 @@ public interface EventRepository extends EntityRepository<Event> {
   @Query(
       value =
           "SELECT b FROM Event b "
-              + "WHERE b.createdBy.username = :username  "
+              + "WHERE b.createdBy.id = :userId  "
               + "AND b.apartment.id = :apartmentId "
               + "AND b.startDate < :endDate "
               + "AND b.endDate > :startDate "
               + "AND (:excludeEventId IS NULL OR b.id != :excludeEventId) "
               + "ORDER BY b.startDate ASC")
   List<Event> findEventsBetween(
-      String username, UUID apartmentId, Instant startDate, Instant endDate, UUID excludeEventId);
+      UUID userId, UUID apartmentId, Instant startDate, Instant endDate, UUID excludeEventId);
+
+  @Query(
+      value =
+          "SELECT b FROM Event b "
+              + "WHERE b.createdBy.id = :userId "
+              + "AND b.apartment.id IN :apartmentIds "
+              + "AND b.startDate < :endDate "
+              + "AND b.endDate > :startDate "
+              + "ORDER BY b.startDate ASC")
+  List<Event> findEventsBetweenInApartments(
+      UUID userId, Set<UUID> apartmentIds, Instant startDate, Instant endDate);
+
+  @Query(
+      "SELECT new com.viladevcorp.hosteo.model.OccupancySlot(b.id, b.apartment.id, b.startDate, b.endDate) "
+          + "FROM Event b WHERE b.apartment.id = :apartmentId AND b.endDate > :from")
+  List<OccupancySlot> findOccupancyByApartmentId(
+      @Param("apartmentId") UUID apartmentId, @Param("from") Instant from);
 
   boolean existsEventByApartmentIdAndState(UUID apartmentId, EventState stateF);
 
-  Optional<Event> findFirstEventByCreatedByUsernameAndApartmentIdAndStateOrderByEndDateDesc(
-      @Param("username") String username,
+  Optional<Event> findFirstEventByCreatedByIdAndApartmentIdAndStateOrderByEndDateDesc(
+      @Param("userId") UUID userId,
       @Param("apartmentId") UUID apartmentId,
       @Param("state") EventState state);
 
-  Optional<Event> findFirstEventByCreatedByUsernameAndApartmentIdAndStateOrderByEndDateAsc(
-      @Param("username") String username,
+  Optional<Event> findFirstEventByCreatedByIdAndApartmentIdAndStateOrderByEndDateAsc(
+      @Param("userId") UUID userId,
       @Param("apartmentId") UUID apartmentId,
       @Param("state") EventState state);
 
@@ -104,27 +131,94 @@ public interface EventRepository extends EntityRepository<Event> {
   @Query(
       value =
           "SELECT b FROM Event b "
-              + "WHERE b.createdBy.username = :username "
+              + "WHERE b.createdBy.id = :userId "
               + "AND (CAST(:startDate AS TIMESTAMP) IS NULL OR b.endDate >= :startDate) "
               + "AND (CAST(:endDate AS TIMESTAMP) IS NULL OR b.startDate < :endDate) "
               + "ORDER BY b.startDate ASC")
   List<Event> findEventsByDateRange(
-      @Param("username") String username,
+      @Param("userId") UUID userId,
       @Param("startDate") Instant startDate,
       @Param("endDate") Instant endDate);
 
-  @Query(
-      value =
-          "SELECT b FROM Event b LEFT JOIN FETCH b.assignments WHERE b.id = :id AND b.createdBy.username = :username")
+  @EntityGraph(Event.DETAIL_GRAPH)
+  @Query("SELECT b FROM Event b WHERE b.id = :id AND b.createdBy.id = :userId")
   Optional<Event> findEventByIdWithAssignments(
-      @Param("id") UUID id, @Param("username") String username);
+      @Param("id") UUID id, @Param("userId") UUID userId);
 
   @Query(
-      "SELECT b FROM Event b WHERE b.id IN :ids AND b.createdBy.username = :username ORDER BY b.startDate ASC")
-  List<Event> findInIdsAndCreatedByUsername(
-      @Param("ids") Set<UUID> ids, @Param("username") String username);
+      "SELECT b FROM Event b WHERE b.id IN :ids AND b.createdBy.id = :userId ORDER BY b.startDate ASC")
+  List<Event> findInIdsAndCreatedById(
+      @Param("ids") Set<UUID> ids, @Param("userId") UUID userId);
+
+  @Query(
+      "SELECT b FROM Event b WHERE b.createdBy.id = :userId "
+          + "AND b.apartment.id IN :apartmentIds ORDER BY b.startDate ASC")
+  List<Event> findInApartments(
+      @Param("userId") UUID userId, @Param("apartmentIds") Set<UUID> apartmentIds);
+
+  // Whole timeline of the apartments of the given events
+  @Query(
+      "SELECT b FROM Event b WHERE b.createdBy.id = :userId "
+          + "AND b.apartment.id IN (SELECT e.apartment.id FROM Event e WHERE e.id IN :ids) "
+          + "ORDER BY b.startDate ASC")
+  List<Event> findApartmentTimelinesOfIds(
+      @Param("ids") Set<UUID> ids, @Param("userId") UUID userId);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE Event b SET b.state = :state WHERE b.id IN :ids")
+  int updateStateInIds(@Param("ids") Set<UUID> ids, @Param("state") EventState state);
+
+  @EntityGraph(attributePaths = {"assignments"})
+  Optional<Event> findFirstByCreatedByIdAndApartmentIdAndStateOrderByEndDateDesc(
+      UUID userId, UUID apartmentId, EventState state);
 
   @EntityGraph(attributePaths = {"assignments"})
-  Optional<Event> findFirstByCreatedByUsernameAndApartmentIdAndStateOrderByEndDateDesc(
-      String username, UUID apartmentId, EventState state);
+  Optional<Event> findFirstByApartmentIdAndStateOrderByEndDateDesc(
+      UUID apartmentId, EventState state);
+
+  @Query(
+      "SELECT MIN(b.startDate) FROM Event b WHERE b.createdBy.id = :userId "
+          + "AND b.state = :state AND b.startDate < :endDate")
+  Instant findFirstStartDateWithStateBefore(
+      @Param("userId") UUID userId,
+      @Param("state") EventState state,
+      @Param("endDate") Instant endDate);
+
+  @Query(
+      "SELECT b FROM Event b JOIN FETCH b.apartment WHERE b.createdBy.id = :userId "
+          + "AND b.endDate >= :startDate AND b.startDate < :endDate ORDER BY b.startDate ASC")
+  List<Event> findEventsBetweenWithApartment(
+      @Param("userId") UUID userId,
+      @Param("startDate") Instant startDate,
+      @Param("endDate") Instant endDate);
+
+  // For each apartment, the last event that ends before the date
+  @Query(
+      "SELECT b FROM Event b JOIN FETCH b.apartment WHERE b.createdBy.id = :userId "
+          + "AND b.startDate = (SELECT MAX(p.startDate) FROM Event p "
+          + "WHERE p.apartment = b.apartment AND p.endDate < :date)")
+  List<Event> findLastEventsEndingBefore(
+      @Param("userId") UUID userId, @Param("date") Instant date);
+
+  // For each apartment, the first event that starts on or after the date
+  @Query(
+      "SELECT b FROM Event b JOIN FETCH b.apartment WHERE b.createdBy.id = :userId "
+          + "AND b.startDate = (SELECT MIN(n.startDate) FROM Event n "
+          + "WHERE n.apartment = b.apartment AND n.startDate >= :date)")
+  List<Event> findFirstEventsStartingFrom(
+      @Param("userId") UUID userId, @Param("date") Instant date);
+
+  @Query(
+      "SELECT DISTINCT e.createdBy.id FROM Event e "
+          + "WHERE e.state = :state AND e.startDate < :endDate")
+  List<UUID> findUserIdsWithStateBefore(
+      @Param("state") EventState state, @Param("endDate") Instant endDate);
+
+  @Query("SELECT e.id FROM Event e WHERE e.apartment.id = :apartmentId AND e.state = :state")
+  List<UUID> findIdsByApartmentIdAndState(
+      @Param("apartmentId") UUID apartmentId, @Param("state") EventState state);
+
+  // Counts of the search metadata, see SearchCountService
+  @Query("SELECT b.state, COUNT(b) FROM Event b WHERE b.createdBy.id = :userId GROUP BY b.state")
+  List<Object[]> countByState(@Param("userId") UUID userId);
 }
@@ -2,38 +2,61 @@ package com.viladevcorp.hosteo.repository;
 
 import com.viladevcorp.hosteo.model.ImpBooking;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
-public interface ImpBookingRepository extends EntityRepository<ImpBooking> {
+public interface ImpBookingRepository extends TenantRepository<ImpBooking> {
 
   @Query(
       value =
           "SELECT b FROM ImpBooking b "
-              + "WHERE b.createdBy.username = :username "
+              + "WHERE b.createdBy.id = :userId "
               + "ORDER BY b.startDate ASC")
-  List<ImpBooking> getUserImpBookings(@Param("username") String username, Pageable pageable);
+  List<ImpBooking> getUserImpBookings(@Param("userId") UUID userId, Pageable pageable);
 
   @Query(
       "SELECT b FROM ImpBooking b "
-          + "WHERE b.createdBy.username = :username "
+          + "WHERE b.createdBy.id = :userId "
           + "AND b.apartment.id = :apartmentId "
           + "AND b.startDate <= :endDate "
           + "AND b.endDate >= :startDate "
           + "AND (:excludeBookingId IS NULL OR b.id <> :excludeBookingId) ")
   List<ImpBooking> getImpBookingsInRangeDate(
-      String username, UUID apartmentId, Instant endDate, Instant startDate, UUID excludeBookingId);
+      UUID userId, UUID apartmentId, Instant endDate, Instant startDate, UUID excludeBookingId);
 
-  @Query(value = "SELECT count(b) FROM ImpBooking b " + "WHERE b.createdBy.username = :username ")
-  int countUserImpBookings(@Param("username") String username);
+  @Query(
+      "SELECT b FROM ImpBooking b "
+          + "WHERE b.createdBy.id = :userId "
+          + "AND b.apartment.id IN :apartmentIds "
+          + "AND b.startDate <= :endDate "
+          + "AND b.endDate >= :startDate "
+          + "ORDER BY b.createdAt ASC")
+  List<ImpBooking> getImpBookingsInRangeDateInApartments(
+      UUID userId, Set<UUID> apartmentIds, Instant endDate, Instant startDate);
+
+  @Query(value = "SELECT count(b) FROM ImpBooking b " + "WHERE b.createdBy.id = :userId ")
+  int countUserImpBookings(@Param("userId") UUID userId);
+
+  boolean existsByCreatedById(UUID userId);
+
+  List<ImpBooking> findByNameAndCreatedById(String name, UUID userId);
 
-  boolean existsByCreatedByUsername(String username);
+  // Bulk deletes, in one statement instead of a select and a delete per booking
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM ImpBooking b WHERE b.createdBy.id = :userId AND b.id IN :ids")
+  int deleteByIdsAndCreatedById(
+      @Param("ids") Collection<UUID> ids, @Param("userId") UUID userId);
 
-  List<ImpBooking> findByNameAndCreatedByUsername(String name, String username);
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM ImpBooking b WHERE b.createdBy.id = :userId")
+  int deleteByCreatedById(@Param("userId") UUID userId);
 }
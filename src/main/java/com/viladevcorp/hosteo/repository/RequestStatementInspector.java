@@ -0,0 +1,44 @@
+package com.viladevcorp.hosteo.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the statements Hibernate prepares in the current thread while a count is started (for each
+ * request, by {@link com.viladevcorp.hosteo.controller.StatementBudgetFilter}). It does not change
+ * the statements, and passes them to the inspector it was configured with, if any.
+ */
+public class RequestStatementInspector implements StatementInspector {
+
+  private static final ThreadLocal<int[]> count = new ThreadLocal<>();
+
+  private final StatementInspector delegate;
+
+  public RequestStatementInspector(StatementInspector delegate) {
+    this.delegate = delegate;
+  }
+
+  public static void start() {
+    count.set(new int[1]);
+  }
+
+  // Statements counted since the start, or 0 if not started
+  public static int current() {
+    int[] current = count.get();
+    return current == null ? 0 : current[0];
+  }
+
+  public static int stop() {
+    int statements = current();
+    count.remove();
+    return statements;
+  }
+
+  @Override
+  public String inspect(String sql) {
+    int[] current = count.get();
+    if (current != null) {
+      current[0]++;
+    }
+    return delegate == null ? sql : delegate.inspect(sql);
+  }
+}
@@ -1,6 +1,8 @@
 package com.viladevcorp.hosteo.repository;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import com.viladevcorp.hosteo.model.types.TaskType;
@@ -11,25 +13,67 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.viladevcorp.hosteo.model.Task;
+import com.viladevcorp.hosteo.model.dto.TaskDto;
 
 @Repository
-public interface TaskRepository extends EntityRepository<Task> {
+public interface TaskRepository extends TenantRepository<Task> {
 
   @Query(
-      "SELECT t FROM Task t WHERE t.createdBy.username = :username "
+      "SELECT new com.viladevcorp.hosteo.model.dto.TaskDto(t.id, t.createdAt, t.name, t.category, "
+          + "t.duration, t.steps) "
+          + "FROM Task t WHERE t.createdBy.id = :userId "
           + "AND (:name IS NULL OR LOWER(t.name) LIKE :name) "
           + "AND (:type IS NULL OR t.type = :type) "
-          + "ORDER BY t.createdAt DESC")
-  List<Task> advancedSearch(
-      @Param("username") String username,
+          + "AND (CAST(:cursorDate AS TIMESTAMP) IS NULL OR (t.createdAt <= :cursorDate "
+          + "AND (t.createdAt < :cursorDate OR t.id < :cursorId))) "
+          + "ORDER BY t.createdAt DESC, t.id DESC")
+  List<TaskDto> advancedSearch(
+      @Param("userId") UUID userId,
       @Param("name") String name,
       @Param("type") TaskType type,
+      @Param("cursorDate") Instant cursorDate,
+      @Param("cursorId") UUID cursorId,
       Pageable pageable);
 
+  // Same filters as advancedSearch with a name, sorted by the trigram similarity of the name to the
+  // term
   @Query(
-      "SELECT COUNT(t) FROM Task t WHERE t.createdBy.username = :username "
+      "SELECT new com.viladevcorp.hosteo.model.dto.TaskDto(t.id, t.createdAt, t.name, t.category, "
+          + "t.duration, t.steps) "
+          + "FROM Task t WHERE t.createdBy.id = :userId "
+          + "AND LOWER(t.name) LIKE :name "
+          + "AND (:type IS NULL OR t.type = :type) "
+          + "ORDER BY FUNCTION('similarity', LOWER(t.name), :term) DESC, t.createdAt DESC, t.id DESC")
+  List<TaskDto> rankedSearch(
+      @Param("userId") UUID userId,
+      @Param("name") String name,
+      @Param("term") String term,
+      @Param("type") TaskType type,
+      Pageable pageable);
+
+  @Query(
+      "SELECT COUNT(t) "
+          + "FROM Task t WHERE t.createdBy.id = :userId "
           + "AND (:name IS NULL OR LOWER(t.name) LIKE :name) "
           + "AND (:type IS NULL OR t.type = :type) ")
   int advancedCount(
-      @Param("username") String username, @Param("name") String name, @Param("type") TaskType type);
+      @Param("userId") UUID userId, @Param("name") String name, @Param("type") TaskType type);
+
+  @Query(
+      "SELECT t FROM Task t WHERE t.createdBy.id = :userId "
+          + "AND t.type = :type AND t.apartment.id IN :apartmentIds")
+  List<Task> findByApartmentIdsAndType(
+      @Param("userId") UUID userId,
+      @Param("apartmentIds") Set<UUID> apartmentIds,
+      @Param("type") TaskType type);
+
+  @Query(
+      "SELECT t FROM Task t LEFT JOIN FETCH t.apartment WHERE t.createdBy.id = :userId "
+          + "AND t.type = :type AND NOT EXISTS (SELECT a FROM Assignment a WHERE a.task = t)")
+  List<Task> findNotAssignedWithType(
+      @Param("userId") UUID userId, @Param("type") TaskType type);
+
+  @Query("SELECT t.type, COUNT(t) "
+          + "FROM Task t WHERE t.createdBy.id = :userId GROUP BY t.type")
+  List<Object[]> countByType(@Param("userId") UUID userId);
 }
@@ -7,19 +7,33 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.UUID;
 
 @Repository
-public interface TemplateRepository extends EntityRepository<Template> {
+public interface TemplateRepository extends TenantRepository<Template> {
 
   @Query(
-      "SELECT t FROM Template t WHERE t.createdBy.username = :username "
+      "SELECT t FROM Template t WHERE t.createdBy.id = :userId "
           + "AND (:name IS NULL OR LOWER(t.name) LIKE :name) "
           + "ORDER BY t.createdAt DESC")
   List<Template> advancedSearch(
-      @Param("username") String username, @Param("name") String name, Pageable pageable);
+      @Param("userId") UUID userId, @Param("name") String name, Pageable pageable);
 
+  // Same filters as advancedSearch with a name, sorted by the trigram similarity of the name to the
+  // term
   @Query(
-      "SELECT COUNT(t) FROM Template t WHERE t.createdBy.username = :username "
+      "SELECT t FROM Template t WHERE t.createdBy.id = :userId AND LOWER(t.name) LIKE :name "
+          + "ORDER BY FUNCTION('similarity', LOWER(t.name), :term) DESC, t.createdAt DESC")
+  List<Template> rankedSearch(
+      @Param("userId") UUID userId,
+      @Param("name") String name,
+      @Param("term") String term,
+      Pageable pageable);
+
+  @Query(
+      "SELECT COUNT(t) FROM Template t WHERE t.createdBy.id = :userId "
           + "AND (:name IS NULL OR LOWER(t.name) LIKE :name) ")
-  int advancedCount(@Param("username") String username, @Param("name") String name);
+  int advancedCount(@Param("userId") UUID userId, @Param("name") String name);
+
+  long countByCreatedById(UUID userId);
 }
@@ -0,0 +1,35 @@
+package com.viladevcorp.hosteo.repository;
+
+import com.viladevcorp.hosteo.model.BaseEntity;
+
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Repository of entities owned by a user. Queries filter by the id of the creator, which is the
+ * created_by column of the table, so they do not need to join the users table.
+ */
+@NoRepositoryBean
+public interface TenantRepository<T extends BaseEntity> extends EntityRepository<T> {
+
+  /**
+   * Finds an entity by its ID and the ID of its creator. The `#{#entityName}` expression is a
+   * Spring Data JPA feature that gets replaced with the actual entity name at runtime.
+   */
+  @Query("SELECT e FROM #{#entityName} e WHERE e.id = :id AND e.createdBy.id = :userId")
+  Optional<T> findById(@Param("id") UUID id, @Param("userId") UUID userId);
+
+  /**
+   * Finds an entity by its ID through the persistence context and the second-level cache, and
+   * checks it belongs to the user. Cached entries are keyed by the ID alone, a random UUID never
+   * shared between users, so the check on the creator is what keeps the lookups tenant-safe.
+   */
+  default Optional<T> findCachedById(UUID id, UUID userId) {
+    return findById(id)
+        .filter(
+            entity -> entity.getCreatedBy() != null && entity.getCreatedBy().getId().equals(userId));
+  }
+}
@@ -5,6 +5,9 @@ import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.viladevcorp.hosteo.model.UserSession;
@@ -14,7 +17,13 @@ public interface UserSessionRepository extends JpaRepository<UserSession, UUID>
 
   Optional<UserSession> findByIdAndDeletedAtIsNull(UUID id);
 
-  void deleteByUserId(UUID userId);
+  // Bulk deletes, in one statement instead of a select and a delete per session
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM UserSession s WHERE s.user.id = :userId")
+  int deleteByUserId(@Param("userId") UUID userId);
 
-  void deleteByUserIdAndCreatedAtBefore(UUID userId, Instant createdAt);
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM UserSession s WHERE s.user.id = :userId AND s.createdAt < :createdAt")
+  int deleteByUserIdAndCreatedAtBefore(
+      @Param("userId") UUID userId, @Param("createdAt") Instant createdAt);
 }
@@ -1,24 +1,47 @@
 package com.viladevcorp.hosteo.repository;
 
 import com.viladevcorp.hosteo.model.Worker;
+import com.viladevcorp.hosteo.model.dto.WorkerDto;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.UUID;
 
 @Repository
-public interface WorkerRepository extends EntityRepository<Worker> {
+public interface WorkerRepository extends TenantRepository<Worker> {
 
   @Query(
-      "SELECT w FROM Worker w WHERE w.createdBy.username = :username AND (:visible is null OR w.visible = :visible) "
-          + " AND (:name is null OR lower(w.name) like :name) "
+      "SELECT new com.viladevcorp.hosteo.model.dto.WorkerDto(w.id, w.createdAt, w.name, w.language, "
+          + "w.salary, w.visible) "
+          + "FROM Worker w WHERE w.createdBy.id = :userId "
+          + "AND (:visible is null OR w.visible = :visible) "
+          + "AND (:name is null OR lower(w.name) like :name) "
           + "ORDER BY w.visible DESC, w.createdAt DESC")
-  List<Worker> advancedSearch(String username, String name, Boolean visible, Pageable pageable);
+  List<WorkerDto> advancedSearch(UUID userId, String name, Boolean visible, Pageable pageable);
+
+  // Same filters as advancedSearch with a name, sorted by the trigram similarity of the name to the
+  // term
+  @Query(
+      "SELECT new com.viladevcorp.hosteo.model.dto.WorkerDto(w.id, w.createdAt, w.name, w.language, "
+          + "w.salary, w.visible) "
+          + "FROM Worker w WHERE w.createdBy.id = :userId "
+          + "AND (:visible is null OR w.visible = :visible) "
+          + "AND lower(w.name) like :name "
+          + "ORDER BY function('similarity', lower(w.name), :term) DESC, w.visible DESC, w.createdAt DESC")
+  List<WorkerDto> rankedSearch(
+      UUID userId, String name, String term, Boolean visible, Pageable pageable);
 
   @Query(
-      "SELECT COUNT(w) FROM Worker w WHERE w.createdBy.username = :username "
+      "SELECT COUNT(w) "
+          + "FROM Worker w WHERE w.createdBy.id = :userId "
           + "AND (:visible is null OR w.visible = :visible) "
           + "AND (:name is null OR lower(w.name) like :name)")
-  int advancedCount(String username, String name, Boolean visible);
+  int advancedCount(UUID userId, String name, Boolean visible);
+
+  @Query(
+      "SELECT w.visible, COUNT(w) "
+          + "FROM Worker w WHERE w.createdBy.id = :userId GROUP BY w.visible")
+  List<Object[]> countByVisible(UUID userId);
 }
@@ -0,0 +1,135 @@
+package com.viladevcorp.hosteo.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the alert feed of the users up to date in the background. The users whose events,
+ * assignments or tasks change are reported by {@link
+ * com.viladevcorp.hosteo.model.listeners.EntityChangeListener} (and by the services, for the bulk
+ * updates), and their feeds are rebuilt after commit. A periodic tick rebuilds the feeds of the
+ * users with events near the alert limits, as they move with the time.
+ */
+@Slf4j
+@Service
+public class AlertMaterializer {
+
+  private final AlertService alertService;
+  private final ThreadPoolTaskExecutor alertExecutor;
+
+  // Users waiting for a refresh. Several changes of a user before the refresh are merged in one
+  private final Set<UUID> pendingUserIds = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+  @Autowired
+  public AlertMaterializer(AlertService alertService, ThreadPoolTaskExecutor alertExecutor) {
+    this.alertService = alertService;
+    this.alertExecutor = alertExecutor;
+  }
+
+  public void onUserDataChanged(UUID userId) {
+    if (userId == null) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      requestRefresh(List.of(userId));
+      return;
+    }
+    TransactionChanges changes =
+        (TransactionChanges) TransactionSynchronizationManager.getResource(this);
+    if (changes == null) {
+      changes = new TransactionChanges();
+      TransactionSynchronizationManager.bindResource(this, changes);
+      TransactionSynchronizationManager.registerSynchronization(changes);
+    }
+    changes.userIds.add(userId);
+  }
+
+  @Scheduled(cron = "${alerts.refresh-cron:-}")
+  public void refreshAllAlerts() {
+    Set<UUID> userIds = alertService.getUserIdsToRefresh();
+    log.info(
+        "[AlertMaterializer.refreshAllAlerts] - Refreshing alerts of {} users", userIds.size());
+    requestRefresh(userIds);
+  }
+
+  private void requestRefresh(Collection<UUID> userIds) {
+    pendingUserIds.addAll(userIds);
+    scheduleRefresh();
+  }
+
+  private void scheduleRefresh() {
+    if (pendingUserIds.isEmpty() || !refreshScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      alertExecutor.execute(this::refreshPendingUsers);
+    } catch (TaskRejectedException e) {
+      // The users are kept as pending, for the next change or tick
+      refreshScheduled.set(false);
+      log.warn("[AlertMaterializer.scheduleRefresh] - Refresh rejected: {}", e.getMessage());
+    }
+  }
+
+  private void refreshPendingUsers() {
+    try {
+      List<UUID> userIds = new ArrayList<>(pendingUserIds);
+      while (!userIds.isEmpty()) {
+        for (UUID userId : userIds) {
+          // Removed before the refresh, so a change committed meanwhile refreshes it again
+          pendingUserIds.remove(userId);
+          try {
+            alertService.refreshUserAlerts(userId);
+          } catch (Exception e) {
+            log.error(
+                "[AlertMaterializer.refreshPendingUsers] - Alerts of user {} not refreshed: {}",
+                userId,
+                e.getMessage());
+          }
+        }
+        userIds = new ArrayList<>(pendingUserIds);
+      }
+    } finally {
+      refreshScheduled.set(false);
+      // A user reported between the last check and the release of the flag
+      scheduleRefresh();
+    }
+  }
+
+  private class TransactionChanges implements TransactionSynchronization {
+    final Set<UUID> userIds = new HashSet<>();
+
+    // A transaction started inside this one (REQUIRES_NEW) gets its own changes
+    @Override
+    public void suspend() {
+      TransactionSynchronizationManager.unbindResource(AlertMaterializer.this);
+    }
+
+    @Override
+    public void resume() {
+      TransactionSynchronizationManager.bindResource(AlertMaterializer.this, this);
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(AlertMaterializer.this);
+      if (status == STATUS_COMMITTED) {
+        requestRefresh(userIds);
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.viladevcorp.hosteo.service;
+
+import com.viladevcorp.hosteo.model.EventAlert;
+import com.viladevcorp.hosteo.model.dto.AlertDto;
+import com.viladevcorp.hosteo.model.dto.EventSchedulerDto;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.repository.EventAlertRepository;
+import com.viladevcorp.hosteo.repository.EventRepository;
+import com.viladevcorp.hosteo.repository.UserRepository;
+import com.viladevcorp.hosteo.utils.AuthUtils;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Alert feed of the users: the pending events at risk, stored in the event_alerts table. The feed
+ * of a user is rebuilt by the {@link AlertMaterializer} when the user data changes and
+ * periodically, as the alert limits move with the time.
+ */
+@Slf4j
+@Service
+@Transactional(rollbackFor = Exception.class)
+public class AlertService {
+
+  private final EventAlertRepository eventAlertRepository;
+  private final EventRepository eventRepository;
+  private final UserRepository userRepository;
+  private final WorkflowService workflowService;
+  private final Clock clock;
+
+  @Autowired
+  public AlertService(
+      EventAlertRepository eventAlertRepository,
+      EventRepository eventRepository,
+      UserRepository userRepository,
+      WorkflowService workflowService,
+      Clock clock) {
+    this.eventAlertRepository = eventAlertRepository;
+    this.eventRepository = eventRepository;
+    this.userRepository = userRepository;
+    this.workflowService = workflowService;
+    this.clock = clock;
+  }
+
+  @Transactional(readOnly = true, rollbackFor = Exception.class)
+  public List<AlertDto> getAlerts() {
+    return eventAlertRepository.findFeed(AuthUtils.getUserId());
+  }
+
+  // Replaces the feed of the user with the alerts at this moment
+  public void refreshUserAlerts(UUID userId) {
+    if (!userRepository.existsById(userId)) {
+      return;
+    }
+    Instant now = Instant.now(clock);
+    List<EventSchedulerDto> alertEvents = workflowService.getAlertEvents(userId, now);
+    eventAlertRepository.deleteByUserId(userId);
+    eventAlertRepository.saveAll(
+        alertEvents.stream()
+            .map(
+                event ->
+                    EventAlert.builder()
+                        .event(eventRepository.getReferenceById(event.getId()))
+                        .user(userRepository.getReferenceById(userId))
+                        .alert(event.getAlert())
+                        .startDate(event.getStartDate())
+                        .computedAt(now)
+                        .build())
+            .collect(Collectors.toList()));
+    log.debug(
+        "[AlertService.refreshUserAlerts] - {} alerts stored for user {}",
+        alertEvents.size(),
+        userId);
+  }
+
+  // The users that can have alerts now, and the ones that had them (they can be gone)
+  @Transactional(readOnly = true, rollbackFor = Exception.class)
+  public Set<UUID> getUserIdsToRefresh() {
+    Instant yellowAlertLimit =
+        Instant.now(clock).plus(Duration.ofDays(WorkflowService.YELLOW_ALERT_DAYS));
+    Set<UUID> userIds =
+        new HashSet<>(
+            eventRepository.findUserIdsWithStateBefore(EventState.PENDING, yellowAlertLimit));
+    userIds.addAll(eventAlertRepository.findUserIds());
+    return userIds;
+  }
+}
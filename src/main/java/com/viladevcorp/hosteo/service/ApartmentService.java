@@ -6,6 +6,7 @@ import com.viladevcorp.hosteo.model.forms.ApartmentCreateForm;
 import com.viladevcorp.hosteo.model.forms.ApartmentSearchForm;
 import com.viladevcorp.hosteo.model.forms.ApartmentUpdateForm;
 import com.viladevcorp.hosteo.model.types.ApartmentState;
+import com.viladevcorp.hosteo.model.dto.ApartmentDto;
 import com.viladevcorp.hosteo.repository.ApartmentRepository;
 import com.viladevcorp.hosteo.utils.AuthUtils;
 import com.viladevcorp.hosteo.utils.ServiceUtils;
@@ -14,6 +15,7 @@ import java.util.Optional;
 import java.util.UUID;
 import javax.management.InstanceNotFoundException;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
@@ -26,10 +28,14 @@ import org.springframework.transaction.annotation.Transactional;
 public class ApartmentService {
 
   private final ApartmentRepository apartmentRepository;
+  private final SearchCountService searchCountService;
 
   @Autowired
-  public ApartmentService(ApartmentRepository apartmentRepository) {
+  public ApartmentService(
+      ApartmentRepository apartmentRepository,
+      SearchCountService searchCountService) {
     this.apartmentRepository = apartmentRepository;
+    this.searchCountService = searchCountService;
   }
 
   public Apartment createApartment(ApartmentCreateForm form) {
@@ -53,15 +59,17 @@ public class ApartmentService {
   }
 
   public Apartment getApartmentById(UUID id) throws InstanceNotFoundException {
-    Optional<Apartment> result = apartmentRepository.findById(id, AuthUtils.getUsername());
+    Optional<Apartment> result = apartmentRepository.findCachedById(id, AuthUtils.getUserId());
     if (result.isEmpty()) {
       throw new InstanceNotFoundException("Apartment not found with id: " + id);
     } else {
+      // The tasks are read after the transaction, from the collection cache when it is warm
+      Hibernate.initialize(result.get().getTasks());
       return result.get();
     }
   }
 
-  public List<Apartment> findApartments(ApartmentSearchForm form) {
+  public List<ApartmentDto> findApartments(ApartmentSearchForm form) {
     String apartmentName =
         form.getName() == null || form.getName().isEmpty()
             ? null
@@ -69,8 +77,17 @@ public class ApartmentService {
 
     PageRequest pageRequest =
         ServiceUtils.createPageRequest(form.getPageNumber(), form.getPageSize());
+    if (form.isRanked() && apartmentName != null) {
+      return apartmentRepository.rankedSearch(
+          AuthUtils.getUserId(),
+          apartmentName,
+          form.getName().toLowerCase(),
+          form.getStates(),
+          null,
+          pageRequest);
+    }
     return apartmentRepository.advancedSearch(
-        AuthUtils.getUsername(), apartmentName, form.getStates(), null, pageRequest);
+        AuthUtils.getUserId(), apartmentName, form.getStates(), null, pageRequest);
   }
 
   public PageMetadata getApartmentsMetadata(ApartmentSearchForm form) {
@@ -78,9 +95,11 @@ public class ApartmentService {
         form.getName() == null || form.getName().isEmpty()
             ? null
             : "%" + form.getName().toLowerCase() + "%";
+    UUID userId = AuthUtils.getUserId();
     int totalRows =
-        apartmentRepository.advancedCount(
-            AuthUtils.getUsername(), apartmentName, form.getStates(), null);
+        apartmentName == null && (form.getStates() == null || !form.getStates().isEmpty())
+            ? searchCountService.countApartments(userId, form.getStates())
+            : apartmentRepository.advancedCount(userId, apartmentName, form.getStates(), null);
     int totalPages = ServiceUtils.calculateTotalPages(form.getPageSize(), totalRows);
     return new PageMetadata(totalPages, totalRows);
   }
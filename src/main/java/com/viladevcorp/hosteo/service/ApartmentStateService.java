@@ -0,0 +1,478 @@
+package com.viladevcorp.hosteo.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.Task;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
+import com.viladevcorp.hosteo.model.types.AssignmentState;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.types.TaskType;
+import com.viladevcorp.hosteo.repository.ApartmentRepository;
+import com.viladevcorp.hosteo.repository.AssignmentRepository;
+import com.viladevcorp.hosteo.repository.EventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.management.InstanceNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the state of the apartments up to date incrementally. For each apartment it holds what the
+ * state depends on (events in progress, mandatory tasks and the assignments of the last finished
+ * event), updated from the changes reported by {@link
+ * com.viladevcorp.hosteo.model.listeners.EntityChangeListener}, so the state is calculated without
+ * querying the database. The full recalculation of {@link WorkflowService} is kept to verify and
+ * repair the stored states.
+ *
+ * <p>Changes are applied to a copy of the apartment data bound to the transaction, which replaces
+ * the shared one after commit. The data is kept for at most {@code
+ * workflow.apartment-state.max-size} apartments and dropped when not used for a while, to be loaded
+ * again when needed.
+ */
+@Slf4j
+@Service
+@Transactional(rollbackFor = Exception.class)
+public class ApartmentStateService {
+
+  private final ApartmentRepository apartmentRepository;
+  private final EventRepository eventRepository;
+  private final AssignmentRepository assignmentRepository;
+  private final WorkflowService workflowService;
+  private final EntityManager entityManager;
+  private final MeterRegistry meterRegistry;
+
+  private final Map<UUID, ApartmentWorkflow> workflows;
+
+  // Bumped on every commit that changes an apartment, so data loaded or copied before it is not
+  // published
+  private final Map<UUID, AtomicLong> generations;
+
+  @Autowired
+  public ApartmentStateService(
+      ApartmentRepository apartmentRepository,
+      EventRepository eventRepository,
+      AssignmentRepository assignmentRepository,
+      WorkflowService workflowService,
+      EntityManager entityManager,
+      MeterRegistry meterRegistry,
+      @Value("${workflow.apartment-state.max-size}") long maxSize,
+      @Value("${workflow.apartment-state.ttl-seconds}") long ttlSeconds) {
+    this.apartmentRepository = apartmentRepository;
+    this.eventRepository = eventRepository;
+    this.assignmentRepository = assignmentRepository;
+    this.workflowService = workflowService;
+    this.entityManager = entityManager;
+    this.meterRegistry = meterRegistry;
+    this.workflows =
+        Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterAccess(Duration.ofSeconds(ttlSeconds))
+            .<UUID, ApartmentWorkflow>build()
+            .asMap();
+    this.generations =
+        Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofSeconds(ttlSeconds))
+            .<UUID, AtomicLong>build()
+            .asMap();
+  }
+
+  public static final String APARTMENT_STATE_REFRESH_TIMER = "hosteo.apartment.state.refresh";
+
+  /**
+   * Sets the state of the apartment from the changes made so far. Pending changes are flushed
+   * first, so the listeners have reported them.
+   */
+  public void refreshApartmentState(UUID apartmentId) throws InstanceNotFoundException {
+    // Timed by the resulting state, the flush included
+    Timer.Sample sample = Timer.start(meterRegistry);
+    entityManager.flush();
+    Apartment apartment = apartmentRepository.findById(apartmentId).orElse(null);
+    if (apartment == null) {
+      throw new InstanceNotFoundException("Apartment not found with id: " + apartmentId);
+    }
+    ApartmentState state = getWorkflow(apartment).state();
+    if (apartment.getState() != state) {
+      apartment.setState(state);
+    }
+    sample.stop(meterRegistry.timer(APARTMENT_STATE_REFRESH_TIMER, "state", state.name()));
+  }
+
+  // Used after bulk updates, which do not go through the entity lifecycle
+  public void onEventsStateUpdated(Collection<Event> events, EventState state) {
+    for (Event event : events) {
+      applyChange(
+          event.getApartment().getId(),
+          workflow -> workflow.upsertEvent(event.getId(), state, event.getEndDate()));
+    }
+  }
+
+  public void onAssignmentsStateUpdated(Collection<Assignment> assignments, AssignmentState state) {
+    for (Assignment assignment : assignments) {
+      applyChange(
+          assignment.getTask().getApartment().getId(),
+          workflow ->
+              workflow.upsertAssignment(
+                  assignment.getId(),
+                  assignment.getEvent() == null ? null : assignment.getEvent().getId(),
+                  assignment.getTask().getId(),
+                  state));
+    }
+  }
+
+  public void onEventSaved(UUID eventId, UUID apartmentId, EventState state, Instant endDate) {
+    applyChange(apartmentId, workflow -> workflow.upsertEvent(eventId, state, endDate));
+  }
+
+  public void onEventRemoved(UUID eventId, UUID apartmentId) {
+    applyChange(apartmentId, workflow -> workflow.removeEvent(eventId));
+  }
+
+  public void onAssignmentSaved(
+      UUID assignmentId, UUID apartmentId, UUID eventId, UUID taskId, AssignmentState state) {
+    applyChange(
+        apartmentId, workflow -> workflow.upsertAssignment(assignmentId, eventId, taskId, state));
+  }
+
+  public void onAssignmentRemoved(UUID assignmentId, UUID apartmentId) {
+    applyChange(apartmentId, workflow -> workflow.removeAssignment(assignmentId));
+  }
+
+  public void onTaskSaved(UUID taskId, UUID apartmentId, TaskType type) {
+    applyChange(apartmentId, workflow -> workflow.upsertTask(taskId, type));
+  }
+
+  public void onApartmentRemoved(UUID apartmentId) {
+    applyChange(apartmentId, ApartmentWorkflow::markStale);
+    TransactionChanges changes = currentChanges();
+    if (changes == null) {
+      removeApartment(apartmentId);
+    } else {
+      changes.removedApartmentIds.add(apartmentId);
+    }
+  }
+
+  // The assignments of a removed task are removed by ON DELETE CASCADE, out of the entity lifecycle
+  public void onTaskRemoved(UUID taskId, UUID apartmentId) {
+    applyChange(apartmentId, workflow -> workflow.removeTask(taskId));
+  }
+
+  // Called before the worker is removed, while its assignments (removed by ON DELETE CASCADE) can
+  // still be found
+  public void onWorkerRemoved(UUID workerId) {
+    for (UUID apartmentId : assignmentRepository.findApartmentIdsByWorkerId(workerId)) {
+      applyChange(apartmentId, ApartmentWorkflow::markStale);
+    }
+  }
+
+  /**
+   * Recalculates the state of every apartment from the database, repairing the stored ones that
+   * differ. The cached data of those apartments is dropped.
+   */
+  @Scheduled(cron = "${workflow.apartment-state.verify-cron:-}")
+  public void verifyApartmentStates() {
+    int repaired = 0;
+    for (Apartment apartment : apartmentRepository.findAll()) {
+      ApartmentState state = workflowService.computeApartmentState(apartment);
+      ApartmentWorkflow cached = workflows.get(apartment.getId());
+      if (cached != null && cached.state() != state) {
+        evictApartment(apartment.getId());
+      }
+      if (apartment.getState() != state) {
+        log.warn(
+            "[ApartmentStateService.verifyApartmentStates] - Apartment id: {} stored as {} but is {}, repairing",
+            apartment.getId(),
+            apartment.getState(),
+            state);
+        apartment.setState(state);
+        evictApartment(apartment.getId());
+        repaired++;
+      }
+    }
+    log.info(
+        "[ApartmentStateService.verifyApartmentStates] - Verification finished, {} apartments repaired",
+        repaired);
+  }
+
+  public void evictApartment(UUID apartmentId) {
+    workflows.compute(
+        apartmentId,
+        (id, workflow) -> {
+          generation(id).incrementAndGet();
+          return null;
+        });
+  }
+
+  private ApartmentWorkflow getWorkflow(Apartment apartment) {
+    TransactionChanges changes = currentChanges();
+    ApartmentWorkflow workflow = changes == null ? null : changes.workflows.get(apartment.getId());
+    if (workflow == null) {
+      ApartmentWorkflow shared = workflows.get(apartment.getId());
+      workflow = shared == null ? null : shared.copy();
+    }
+    if (workflow == null || workflow.stale) {
+      workflow = loadWorkflow(apartment);
+    }
+    if (changes != null) {
+      changes.workflows.put(apartment.getId(), workflow);
+    }
+    return workflow;
+  }
+
+  private ApartmentWorkflow loadWorkflow(Apartment apartment) {
+    long generation = generation(apartment.getId()).get();
+    ApartmentWorkflow workflow = new ApartmentWorkflow(generation);
+    eventRepository
+        .findIdsByApartmentIdAndState(apartment.getId(), EventState.IN_PROGRESS)
+        .forEach(workflow.inProgressEventIds::add);
+    for (Task task : apartment.getTasks()) {
+      workflow.upsertTask(task.getId(), task.getType());
+    }
+    eventRepository
+        .findFirstByApartmentIdAndStateOrderByEndDateDesc(apartment.getId(), EventState.FINISHED)
+        .ifPresent(
+            lastFinishedEvent -> {
+              workflow.lastFinishedEventId = lastFinishedEvent.getId();
+              workflow.lastFinishedEndDate = lastFinishedEvent.getEndDate();
+              // Queried, the event collection misses the assignments saved in this transaction
+              for (Assignment assignment :
+                  assignmentRepository.findByEventIdWithTask(lastFinishedEvent.getId())) {
+                workflow.lastFinishedAssignments.put(
+                    assignment.getId(),
+                    new AssignmentInfo(assignment.getTask().getId(), assignment.getState()));
+              }
+            });
+    return workflow;
+  }
+
+  private void applyChange(UUID apartmentId, Consumer<ApartmentWorkflow> change) {
+    if (apartmentId == null) {
+      return;
+    }
+    TransactionChanges changes = currentChanges();
+    if (changes == null) {
+      evictApartment(apartmentId);
+      return;
+    }
+    changes.changedApartmentIds.add(apartmentId);
+    ApartmentWorkflow workflow = changes.workflows.get(apartmentId);
+    if (workflow == null) {
+      ApartmentWorkflow shared = workflows.get(apartmentId);
+      // Nothing loaded for the apartment, it will be loaded (with this change) when needed
+      workflow =
+          shared == null ? new ApartmentWorkflow(generation(apartmentId).get()) : shared.copy();
+      if (shared == null) {
+        workflow.markStale();
+      }
+      changes.workflows.put(apartmentId, workflow);
+    }
+    change.accept(workflow);
+  }
+
+  private void publish(TransactionChanges changes) {
+    changes.workflows.forEach(
+        (apartmentId, workflow) ->
+            workflows.compute(
+                apartmentId,
+                (id, shared) -> {
+                  AtomicLong generation = generation(id);
+                  if (workflow.stale || generation.get() != workflow.generation) {
+                    generation.incrementAndGet();
+                    return null;
+                  }
+                  if (!changes.changedApartmentIds.contains(id)) {
+                    return shared == null ? workflow : shared;
+                  }
+                  workflow.generation = generation.incrementAndGet();
+                  return workflow;
+                }));
+    // Changes to apartments not loaded still make concurrent loads outdated
+    changes.changedApartmentIds.stream()
+        .filter(apartmentId -> !changes.workflows.containsKey(apartmentId))
+        .forEach(this::evictApartment);
+    changes.removedApartmentIds.forEach(this::removeApartment);
+  }
+
+  // Nothing is kept for a removed apartment, once the changes bound to it are published
+  private void removeApartment(UUID apartmentId) {
+    workflows.remove(apartmentId);
+    generations.remove(apartmentId);
+  }
+
+  private AtomicLong generation(UUID apartmentId) {
+    return generations.computeIfAbsent(apartmentId, id -> new AtomicLong());
+  }
+
+  // Changes of the current transaction, bound to it on first use. Outside of a transaction there
+  // is nothing to bind them to and the affected data is evicted instead
+  private TransactionChanges currentChanges() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return null;
+    }
+    TransactionChanges changes =
+        (TransactionChanges) TransactionSynchronizationManager.getResource(this);
+    if (changes == null) {
+      changes = new TransactionChanges();
+      TransactionSynchronizationManager.bindResource(this, changes);
+      TransactionSynchronizationManager.registerSynchronization(changes);
+    }
+    return changes;
+  }
+
+  private class TransactionChanges implements TransactionSynchronization {
+    final Map<UUID, ApartmentWorkflow> workflows = new HashMap<>();
+    final Set<UUID> changedApartmentIds = new HashSet<>();
+    final Set<UUID> removedApartmentIds = new HashSet<>();
+
+    // A transaction started inside this one (REQUIRES_NEW) gets its own changes
+    @Override
+    public void suspend() {
+      TransactionSynchronizationManager.unbindResource(ApartmentStateService.this);
+    }
+
+    @Override
+    public void resume() {
+      TransactionSynchronizationManager.bindResource(ApartmentStateService.this, this);
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(ApartmentStateService.this);
+      if (status == STATUS_COMMITTED) {
+        publish(this);
+      }
+    }
+  }
+
+  private record AssignmentInfo(UUID taskId, AssignmentState state) {}
+
+  /**
+   * What the state of an apartment depends on. The state is OCCUPIED while an event is in progress.
+   * Otherwise it is USED if the last finished event has pending assignments or mandatory tasks
+   * without a finished assignment, and READY if not (or if there is no finished event).
+   */
+  static class ApartmentWorkflow {
+    long generation;
+    // Set when the data cannot be updated from a change and has to be loaded again
+    boolean stale;
+
+    final Set<UUID> inProgressEventIds = new HashSet<>();
+    final Set<UUID> taskIds = new HashSet<>();
+    final Set<UUID> mandatoryTaskIds = new HashSet<>();
+    UUID lastFinishedEventId;
+    Instant lastFinishedEndDate;
+    final Map<UUID, AssignmentInfo> lastFinishedAssignments = new HashMap<>();
+
+    ApartmentWorkflow(long generation) {
+      this.generation = generation;
+    }
+
+    ApartmentWorkflow copy() {
+      ApartmentWorkflow copy = new ApartmentWorkflow(generation);
+      copy.stale = stale;
+      copy.inProgressEventIds.addAll(inProgressEventIds);
+      copy.taskIds.addAll(taskIds);
+      copy.mandatoryTaskIds.addAll(mandatoryTaskIds);
+      copy.lastFinishedEventId = lastFinishedEventId;
+      copy.lastFinishedEndDate = lastFinishedEndDate;
+      copy.lastFinishedAssignments.putAll(lastFinishedAssignments);
+      return copy;
+    }
+
+    void markStale() {
+      stale = true;
+    }
+
+    void upsertEvent(UUID eventId, EventState state, Instant endDate) {
+      if (state == EventState.IN_PROGRESS) {
+        inProgressEventIds.add(eventId);
+      } else {
+        inProgressEventIds.remove(eventId);
+      }
+      boolean isLastFinished = eventId.equals(lastFinishedEventId);
+      if (state == EventState.FINISHED) {
+        if (isLastFinished && !endDate.isBefore(lastFinishedEndDate)) {
+          lastFinishedEndDate = endDate;
+        } else if (isLastFinished
+            || lastFinishedEndDate == null
+            || endDate.isAfter(lastFinishedEndDate)) {
+          // Another event becomes the last finished one, its assignments are not known
+          markStale();
+        }
+      } else if (isLastFinished) {
+        markStale();
+      }
+    }
+
+    void removeEvent(UUID eventId) {
+      inProgressEventIds.remove(eventId);
+      if (eventId.equals(lastFinishedEventId)) {
+        markStale();
+      }
+    }
+
+    void upsertAssignment(UUID assignmentId, UUID eventId, UUID taskId, AssignmentState state) {
+      if (eventId != null && eventId.equals(lastFinishedEventId)) {
+        lastFinishedAssignments.put(assignmentId, new AssignmentInfo(taskId, state));
+      } else {
+        lastFinishedAssignments.remove(assignmentId);
+      }
+    }
+
+    void removeAssignment(UUID assignmentId) {
+      lastFinishedAssignments.remove(assignmentId);
+    }
+
+    void upsertTask(UUID taskId, TaskType type) {
+      taskIds.add(taskId);
+      if (type == TaskType.MANDATORY) {
+        mandatoryTaskIds.add(taskId);
+      } else {
+        mandatoryTaskIds.remove(taskId);
+      }
+    }
+
+    void removeTask(UUID taskId) {
+      taskIds.remove(taskId);
+      mandatoryTaskIds.remove(taskId);
+      lastFinishedAssignments.values().removeIf(assignment -> assignment.taskId().equals(taskId));
+    }
+
+    Set<UUID> outstandingMandatoryTaskIds() {
+      Set<UUID> outstanding = new HashSet<>(mandatoryTaskIds);
+      lastFinishedAssignments.values().stream()
+          .filter(assignment -> assignment.state() == AssignmentState.FINISHED)
+          .forEach(assignment -> outstanding.remove(assignment.taskId()));
+      return outstanding;
+    }
+
+    ApartmentState state() {
+      if (!inProgressEventIds.isEmpty()) {
+        return ApartmentState.OCCUPIED;
+      }
+      if (taskIds.isEmpty() || lastFinishedEventId == null) {
+        return ApartmentState.READY;
+      }
+      boolean pendingAssignments =
+          lastFinishedAssignments.values().stream()
+              .anyMatch(assignment -> assignment.state() == AssignmentState.PENDING);
+      if (pendingAssignments || !outstandingMandatoryTaskIds().isEmpty()) {
+        return ApartmentState.USED;
+      }
+      return ApartmentState.READY;
+    }
+  }
+}
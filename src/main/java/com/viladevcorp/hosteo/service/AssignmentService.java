@@ -8,6 +8,7 @@ import com.viladevcorp.hosteo.model.forms.AssignmentSearchForm;
 import com.viladevcorp.hosteo.model.forms.AssignmentUpdateForm;
 import com.viladevcorp.hosteo.model.types.AssignmentState;
 import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.dto.AssignmentDto;
 import com.viladevcorp.hosteo.repository.AssignmentRepository;
 import com.viladevcorp.hosteo.repository.EventRepository;
 import com.viladevcorp.hosteo.repository.TaskRepository;
@@ -16,14 +17,16 @@ import com.viladevcorp.hosteo.utils.CodeErrors;
 import com.viladevcorp.hosteo.utils.ServiceUtils;
 import java.time.Instant;
 import java.util.*;
+import java.util.function.Function;
 import javax.management.InstanceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.antlr.v4.runtime.misc.Pair;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
@@ -33,25 +36,40 @@ import org.springframework.transaction.interceptor.TransactionAspectSupport;
 public class AssignmentService {
 
   private final AssignmentRepository assignmentRepository;
-  private final WorkflowService workflowService;
+  private final ApartmentStateService apartmentStateService;
   private final WorkerService workerService;
   private final EventRepository eventRepository;
   private final TaskRepository taskRepository;
+  private final ScheduleIndexService scheduleIndexService;
+  private final AlertMaterializer alertMaterializer;
+  private final SearchCountService searchCountService;
+  private final MeterRegistry meterRegistry;
 
   @Autowired
   public AssignmentService(
       AssignmentRepository assignmentRepository,
-      WorkflowService workflowService,
+      ApartmentStateService apartmentStateService,
       WorkerService workerService,
       EventRepository eventRepository,
-      TaskRepository taskRepository) {
+      TaskRepository taskRepository,
+      ScheduleIndexService scheduleIndexService,
+      AlertMaterializer alertMaterializer,
+      SearchCountService searchCountService,
+      MeterRegistry meterRegistry) {
     this.assignmentRepository = assignmentRepository;
-    this.workflowService = workflowService;
+    this.apartmentStateService = apartmentStateService;
     this.workerService = workerService;
     this.eventRepository = eventRepository;
     this.taskRepository = taskRepository;
+    this.scheduleIndexService = scheduleIndexService;
+    this.alertMaterializer = alertMaterializer;
+    this.searchCountService = searchCountService;
+    this.meterRegistry = meterRegistry;
   }
 
+  public static final String VALIDATION_TIMER = "hosteo.assignment.validation";
+
+  // Timed by outcome, which is the name of the exception when the assignment is rejected
   private void validateAssignment(
       UUID assignmentId,
       UUID eventId,
@@ -66,19 +84,40 @@ public class AssignmentService {
           InstanceNotFoundException,
           AssignmentStartsBeforeEventEnds,
           AssignmentEndsAfterNextEventStarts {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = ServiceUtils.OUTCOME_VALID;
+    try {
+      checkAssignment(
+          assignmentId, eventId, startDate, endDate, assignmentState, task, worker);
+    } catch (Exception e) {
+      outcome = e.getClass().getSimpleName();
+      throw e;
+    } finally {
+      sample.stop(meterRegistry.timer(VALIDATION_TIMER, ServiceUtils.OUTCOME_TAG, outcome));
+    }
+  }
+
+  private void checkAssignment(
+      UUID assignmentId,
+      UUID eventId,
+      Instant startDate,
+      Instant endDate,
+      AssignmentState assignmentState,
+      Task task,
+      Worker worker)
+      throws DuplicatedEventForTaskException,
+          NotAvailableDatesException,
+          CompleteTaskOnNotFinishedEventException,
+          InstanceNotFoundException,
+          AssignmentStartsBeforeEventEnds,
+          AssignmentEndsAfterNextEventStarts {
 
     UUID apartmentId = task.getApartment().getId();
     // Validate that apartment is available in the selected dates (not events nor
     // assignments)
     Pair<Event, Assignment> conflicts =
-        ServiceUtils.getScheduleConflicts(
-            eventRepository,
-            assignmentRepository,
-            apartmentId,
-            startDate,
-            endDate,
-            null,
-            assignmentId);
+        scheduleIndexService.getScheduleConflicts(
+            apartmentId, startDate, endDate, null, assignmentId);
     if (conflicts.a != null || conflicts.b != null) {
       log.error(
           "[{}] - Apartment with id: {} is not available between {} and {}",
@@ -90,7 +129,7 @@ public class AssignmentService {
     }
     // Validate that worker is available in the selected dates
     if (assignmentRepository.checkWorkerAvailability(
-        AuthUtils.getUsername(), worker.getId(), startDate, endDate, assignmentId)) {
+        AuthUtils.getUserId(), worker.getId(), startDate, endDate, assignmentId)) {
       log.error(
           "[AssignmentService.validateAssignment] - Worker {} is not available between {} and {}",
           worker.getId(),
@@ -101,7 +140,7 @@ public class AssignmentService {
 
     // Get the event related to the assignment
     Optional<Event> eventOpt =
-        eventRepository.findEventByIdWithAssignments(eventId, AuthUtils.getUsername());
+        eventRepository.findEventByIdWithAssignments(eventId, AuthUtils.getUserId());
 
     if (eventOpt.isEmpty()) {
       throw new InstanceNotFoundException("Event not found with id: " + eventId);
@@ -140,14 +179,13 @@ public class AssignmentService {
         eventRepository.findFirstEventAfterDateWithState(
             AuthUtils.getAuthUser().getId(), apartmentId, event.getStartDate(), null);
     // Validate that the assignment endDate is not after the next event startDate
-    if (nextEventOpt.isPresent()) {
-      if (endDate.isAfter(nextEventOpt.get().getStartDate()))
-        log.error(
-            "[AssignmentService.validateAssignment] - The assignment ends after the next event starts. "
-                + "Event ID {} ends at {} and assignment starts at {}",
-            event.getId(),
-            event.getEndDate(),
-            startDate);
+    if (nextEventOpt.isPresent() && endDate.isAfter(nextEventOpt.get().getStartDate())) {
+      log.error(
+          "[AssignmentService.validateAssignment] - The assignment ends after the next event starts. "
+              + "Event ID {} ends at {} and assignment starts at {}",
+          event.getId(),
+          event.getEndDate(),
+          startDate);
       throw new AssignmentEndsAfterNextEventStarts(
           "An assignment cannot start before the next event starts");
     }
@@ -177,8 +215,8 @@ public class AssignmentService {
     }
     // We get the last finished event for the apartment
     Optional<Event> lastFinishedEventOpt =
-        eventRepository.findFirstByCreatedByUsernameAndApartmentIdAndStateOrderByEndDateDesc(
-            AuthUtils.getUsername(), apartmentId, EventState.FINISHED);
+        eventRepository.findFirstByCreatedByIdAndApartmentIdAndStateOrderByEndDateDesc(
+            AuthUtils.getUserId(), apartmentId, EventState.FINISHED);
     // If there is no last finished event, we can modify the assignments (the event to modify has to
     // be pending or in progress)
     if (lastFinishedEventOpt.isEmpty()) {
@@ -223,13 +261,13 @@ public class AssignmentService {
           AssignChangeLastFinishedEventWhenAnotherEventInProgress,
           AssignmentEndsAfterNextEventStarts,
           AssignmentStartsBeforeEventEnds {
-    Optional<Task> taskOpt = taskRepository.findById(form.getTaskId(), AuthUtils.getUsername());
+    Optional<Task> taskOpt = taskRepository.findById(form.getTaskId(), AuthUtils.getUserId());
     if (taskOpt.isEmpty()) {
       throw new InstanceNotFoundException("Task not found with id: " + form.getTaskId());
     }
     Task task = taskOpt.get();
 
-    Optional<Event> eventOpt = eventRepository.findById(form.getEventId(), AuthUtils.getUsername());
+    Optional<Event> eventOpt = eventRepository.findById(form.getEventId(), AuthUtils.getUserId());
     if (eventOpt.isEmpty()) {
       throw new InstanceNotFoundException("Event not found with id: " + form.getEventId());
     }
@@ -257,7 +295,7 @@ public class AssignmentService {
             .state(form.getState())
             .build();
     assignment = assignmentRepository.save(assignment);
-    workflowService.calculateApartmentState(task.getApartment().getId());
+    apartmentStateService.refreshApartmentState(task.getApartment().getId());
     return assignment;
   }
 
@@ -288,7 +326,7 @@ public class AssignmentService {
     BeanUtils.copyProperties(form, assignment, "id");
     assignment.setWorker(worker);
     Assignment result = assignmentRepository.save(assignment);
-    workflowService.calculateApartmentState(task.getApartment().getId());
+    apartmentStateService.refreshApartmentState(task.getApartment().getId());
     return result;
   }
 
@@ -307,7 +345,7 @@ public class AssignmentService {
     assignment.setState(newState);
 
     Assignment result = assignmentRepository.save(assignment);
-    workflowService.calculateApartmentState(assignment.getTask().getApartment().getId());
+    apartmentStateService.refreshApartmentState(assignment.getTask().getApartment().getId());
     try {
       validateAssignment(
           assignment.getId(),
@@ -337,71 +375,220 @@ public class AssignmentService {
     return executeUpdateAssignmentState(assignment, newState);
   }
 
-  @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
-  public Assignment updateAssignmentStateInNewTransaction(
-      Assignment assignment, AssignmentState newState)
-      throws InstanceNotFoundException,
-          DuplicatedEventForTaskException,
-          NotAvailableDatesException,
-          CompleteTaskOnNotFinishedEventException,
-          ChangeInAssignmentsOfPastEventException,
-          AssignChangeLastFinishedEventWhenAnotherEventInProgress,
-          AssignmentEndsAfterNextEventStarts,
-          AssignmentStartsBeforeEventEnds {
-    // This method is called from the bulk update to ensure each update runs
-    // in its own transaction.
-    return executeUpdateAssignmentState(assignment, newState);
-  }
-
+  /**
+   * Updates the state of the assignments validating them in memory. What the validations need (the
+   * events of the apartments, the assignments of the events and the ones of the apartments and
+   * workers around the dates) is loaded with a few queries. None of it depends on the states being
+   * changed, so each assignment is validated on its own. The valid ones are written with a single
+   * UPDATE and each apartment state is recalculated once.
+   */
   public List<AssignmentUpdateError> updateBulkAssignmentsState(
       Set<UUID> assignmentIds, AssignmentState newState) {
 
     List<AssignmentUpdateError> errors = new ArrayList<>();
+    if (assignmentIds == null || assignmentIds.isEmpty()) {
+      return errors;
+    }
 
-    // Retrieve the assignments from DB
-    List<Assignment> assignments = null;
-    assignments =
-        assignmentRepository.findInIdsAndCreatedByUsername(assignmentIds, AuthUtils.getUsername());
+    UUID userId = AuthUtils.getUserId();
+    List<Assignment> assignments =
+        assignmentRepository.findInIdsWithDetails(assignmentIds, userId);
+    if (assignments.isEmpty()) {
+      return errors;
+    }
 
-    // Now process the assignments
+    Set<UUID> apartmentIds = new HashSet<>();
+    Set<UUID> eventIds = new HashSet<>();
+    Set<UUID> workerIds = new HashSet<>();
+    Instant windowStart = assignments.get(0).getStartDate();
+    Instant windowEnd = assignments.get(0).getEndDate();
     for (Assignment assignment : assignments) {
+      apartmentIds.add(assignment.getTask().getApartment().getId());
+      workerIds.add(assignment.getWorker().getId());
+      if (assignment.getEvent() != null) {
+        eventIds.add(assignment.getEvent().getId());
+      }
+      if (assignment.getEndDate().isAfter(windowEnd)) {
+        windowEnd = assignment.getEndDate();
+      }
+    }
+
+    Map<UUID, List<Event>> eventsByApartment =
+        groupBy(
+            eventRepository.findInApartments(userId, apartmentIds),
+            event -> event.getApartment().getId());
+    Map<UUID, List<Assignment>> assignmentsByEvent =
+        eventIds.isEmpty()
+            ? Map.of()
+            : groupBy(
+                assignmentRepository.findByEventIds(eventIds, userId),
+                assignment -> assignment.getEvent().getId());
+    Map<UUID, List<Assignment>> assignmentsByApartment =
+        groupBy(
+            assignmentRepository.findAssignmentsBetweenInApartments(
+                userId, apartmentIds, windowStart, windowEnd),
+            assignment -> assignment.getTask().getApartment().getId());
+    Map<UUID, List<Assignment>> assignmentsByWorker =
+        groupBy(
+            assignmentRepository.findWorkersAssignmentsBetween(
+                userId, workerIds, windowStart, windowEnd),
+            assignment -> assignment.getWorker().getId());
+
+    Set<UUID> updatedAssignmentIds = new HashSet<>();
+    List<Assignment> updatedAssignments = new ArrayList<>();
+    Set<UUID> updatedApartmentIds = new LinkedHashSet<>();
+    for (Assignment assignment : assignments) {
+      UUID apartmentId = assignment.getTask().getApartment().getId();
+      Event event = assignment.getEvent();
+      String error =
+          validateAssignmentStateInMemory(
+              assignment,
+              newState,
+              eventsByApartment.getOrDefault(apartmentId, List.of()),
+              assignmentsByApartment.getOrDefault(apartmentId, List.of()),
+              assignmentsByWorker.getOrDefault(assignment.getWorker().getId(), List.of()),
+              event == null
+                  ? List.of()
+                  : assignmentsByEvent.getOrDefault(event.getId(), List.of()));
+      if (error != null) {
+        errors.add(new AssignmentUpdateError(assignment, error));
+        continue;
+      }
+      updatedAssignmentIds.add(assignment.getId());
+      updatedAssignments.add(assignment);
+      updatedApartmentIds.add(apartmentId);
+    }
+
+    if (!updatedAssignmentIds.isEmpty()) {
+      assignmentRepository.updateStateInIds(updatedAssignmentIds, newState);
+      // The bulk update skips the entity listeners
+      apartmentStateService.onAssignmentsStateUpdated(updatedAssignments, newState);
+      alertMaterializer.onUserDataChanged(AuthUtils.getUserId());
+      searchCountService.onBulkUpdate(updatedAssignments, newState, AuthUtils.getUserId());
+    }
+    for (UUID apartmentId : updatedApartmentIds) {
       try {
-        // Call the method that starts a new transaction for each assignment.
-        updateAssignmentStateInNewTransaction(assignment, newState);
+        apartmentStateService.refreshApartmentState(apartmentId);
       } catch (InstanceNotFoundException e) {
-        errors.add(new AssignmentUpdateError(assignment, e.getMessage()));
-      } catch (DuplicatedEventForTaskException e) {
-        errors.add(new AssignmentUpdateError(assignment, CodeErrors.DUPLICATED_EVENT_FOR_TASK));
-      } catch (NotAvailableDatesException e) {
-        errors.add(new AssignmentUpdateError(assignment, CodeErrors.NOT_AVAILABLE_DATES));
-      } catch (CompleteTaskOnNotFinishedEventException e) {
-        errors.add(
-            new AssignmentUpdateError(assignment, CodeErrors.COMPLETE_TASK_ON_NOT_FINISHED_EVENT));
-      } catch (ChangeInAssignmentsOfPastEventException e) {
-        errors.add(
-            new AssignmentUpdateError(assignment, CodeErrors.CHANGE_IN_ASSIGNMENTS_OF_PAST_EVENT));
-      } catch (AssignChangeLastFinishedEventWhenAnotherEventInProgress e) {
-        errors.add(
-            new AssignmentUpdateError(
-                assignment,
-                CodeErrors.ASSIGN_CHANGE_LAST_FINISHED_EVENT_ANOTHER_EVENT_IN_PROGRESS));
-      } catch (AssignmentEndsAfterNextEventStarts e) {
-        errors.add(
-            new AssignmentUpdateError(
-                assignment, CodeErrors.ASSIGNMENT_ENDS_AFTER_NEXT_EVENT_STARTS));
-      } catch (AssignmentStartsBeforeEventEnds e) {
-        errors.add(
-            new AssignmentUpdateError(assignment, CodeErrors.ASSIGNMENT_STARTS_BEFORE_EVENT_ENDS));
-      } catch (Exception e) {
-        // Catch any other exception to prevent the main loop from stopping.
-        errors.add(new AssignmentUpdateError(assignment, e.getMessage()));
+        log.error(
+            "[AssignmentService.updateBulkAssignmentsState] - Apartment state not calculated: {}",
+            e.getMessage());
+        // Reported on each assignment of the apartment, as when they were updated one by one
+        for (Assignment assignment : updatedAssignments) {
+          if (assignment.getTask().getApartment().getId().equals(apartmentId)) {
+            errors.add(new AssignmentUpdateError(assignment, e.getMessage()));
+          }
+        }
       }
     }
+    log.info(
+        "[AssignmentService.updateBulkAssignmentsState] - Updated {} assignments of {} apartments, {} errors",
+        updatedAssignmentIds.size(),
+        updatedApartmentIds.size(),
+        errors.size());
     return errors;
   }
 
+  // Same checks, in the same order, as checkWhetherEventAssignmentsCanBeAltered and
+  // validateAssignment over the preloaded data. Returns the error code, or null if valid
+  private static String validateAssignmentStateInMemory(
+      Assignment assignment,
+      AssignmentState newState,
+      List<Event> apartmentEvents,
+      List<Assignment> apartmentAssignments,
+      List<Assignment> workerAssignments,
+      List<Assignment> eventAssignments) {
+    Event event = assignment.getEvent();
+    if (event == null) {
+      return "Event not found with id: null";
+    }
+    Instant startDate = assignment.getStartDate();
+    Instant endDate = assignment.getEndDate();
+
+    if (event.getState().isFinished()) {
+      Event lastFinishedEvent = null;
+      for (Event apartmentEvent : apartmentEvents) {
+        if (apartmentEvent.getState().isFinished()
+            && (lastFinishedEvent == null
+                || apartmentEvent.getEndDate().isAfter(lastFinishedEvent.getEndDate()))) {
+          lastFinishedEvent = apartmentEvent;
+        }
+      }
+      if (lastFinishedEvent != null) {
+        if (event.getId().equals(lastFinishedEvent.getId())) {
+          return CodeErrors.CHANGE_IN_ASSIGNMENTS_OF_PAST_EVENT;
+        }
+        for (Event apartmentEvent : apartmentEvents) {
+          if (apartmentEvent.getState().isInProgress()
+              && apartmentEvent.getStartDate().isAfter(event.getStartDate())) {
+            return CodeErrors.ASSIGN_CHANGE_LAST_FINISHED_EVENT_ANOTHER_EVENT_IN_PROGRESS;
+          }
+        }
+      }
+    }
+
+    for (Event apartmentEvent : apartmentEvents) {
+      if (overlaps(
+          apartmentEvent.getStartDate(), apartmentEvent.getEndDate(), startDate, endDate)) {
+        return CodeErrors.NOT_AVAILABLE_DATES;
+      }
+    }
+    for (Assignment other : apartmentAssignments) {
+      if (!other.getId().equals(assignment.getId())
+          && overlaps(other.getStartDate(), other.getEndDate(), startDate, endDate)) {
+        return CodeErrors.NOT_AVAILABLE_DATES;
+      }
+    }
+    for (Assignment other : workerAssignments) {
+      if (!other.getId().equals(assignment.getId())
+          && overlaps(other.getStartDate(), other.getEndDate(), startDate, endDate)) {
+        return CodeErrors.NOT_AVAILABLE_DATES;
+      }
+    }
+
+    for (Assignment other : eventAssignments) {
+      if (!other.getId().equals(assignment.getId())
+          && other.getTask().getId().equals(assignment.getTask().getId())) {
+        return CodeErrors.DUPLICATED_EVENT_FOR_TASK;
+      }
+    }
+    if (startDate.isBefore(event.getEndDate())) {
+      return CodeErrors.ASSIGNMENT_STARTS_BEFORE_EVENT_ENDS;
+    }
+    // Next event as in findFirstEventAfterDateWithState: the first to end among the ones starting
+    // after the event
+    Event nextEvent = null;
+    for (Event apartmentEvent : apartmentEvents) {
+      if (apartmentEvent.getStartDate().isAfter(event.getStartDate())
+          && (nextEvent == null || apartmentEvent.getEndDate().isBefore(nextEvent.getEndDate()))) {
+        nextEvent = apartmentEvent;
+      }
+    }
+    if (nextEvent != null && endDate.isAfter(nextEvent.getStartDate())) {
+      return CodeErrors.ASSIGNMENT_ENDS_AFTER_NEXT_EVENT_STARTS;
+    }
+    if (event.getState() != EventState.FINISHED && newState == AssignmentState.FINISHED) {
+      return CodeErrors.COMPLETE_TASK_ON_NOT_FINISHED_EVENT;
+    }
+    return null;
+  }
+
+  // Strict overlap, as in the schedule conflicts and worker availability queries
+  private static boolean overlaps(
+      Instant startDate, Instant endDate, Instant otherStartDate, Instant otherEndDate) {
+    return startDate.isBefore(otherEndDate) && endDate.isAfter(otherStartDate);
+  }
+
+  private static <T> Map<UUID, List<T>> groupBy(List<T> entities, Function<T, UUID> keyGetter) {
+    Map<UUID, List<T>> grouped = new HashMap<>();
+    for (T entity : entities) {
+      grouped.computeIfAbsent(keyGetter.apply(entity), key -> new ArrayList<>()).add(entity);
+    }
+    return grouped;
+  }
+
   public Assignment getAssignmentById(UUID id) throws InstanceNotFoundException {
-    Optional<Assignment> result = assignmentRepository.findById(id, AuthUtils.getUsername());
+    Optional<Assignment> result = assignmentRepository.findDetailById(id, AuthUtils.getUserId());
     if (result.isEmpty()) {
       throw new InstanceNotFoundException("Assignment not found with id: " + id);
     } else {
@@ -409,15 +596,24 @@ public class AssignmentService {
     }
   }
 
-  public List<Assignment> findAssignments(AssignmentSearchForm form) {
+  public List<AssignmentDto> findAssignments(AssignmentSearchForm form)
+      throws InvalidCursorException {
     String taskName =
         form.getTaskName() == null || form.getTaskName().isEmpty()
             ? null
             : "%" + form.getTaskName().toLowerCase() + "%";
+    // With a cursor the page starts right after it, not at an offset
+    PageCursor cursor = PageCursor.decode(form.getCursor());
     PageRequest pageRequest =
-        ServiceUtils.createPageRequest(form.getPageNumber(), form.getPageSize());
+        ServiceUtils.createPageRequest(
+            cursor == null ? form.getPageNumber() : 0, form.getPageSize());
     return assignmentRepository.advancedSearch(
-        AuthUtils.getUsername(), taskName, form.getState(), pageRequest);
+        AuthUtils.getUserId(),
+        taskName,
+        form.getState(),
+        cursor == null ? null : cursor.getPosition(),
+        cursor == null ? null : cursor.getId(),
+        pageRequest);
   }
 
   public PageMetadata getAssignmentsMetadata(AssignmentSearchForm form) {
@@ -425,8 +621,11 @@ public class AssignmentService {
         form.getTaskName() == null || form.getTaskName().isEmpty()
             ? null
             : "%" + form.getTaskName().toLowerCase() + "%";
+    UUID userId = AuthUtils.getUserId();
     int totalRows =
-        assignmentRepository.advancedCount(AuthUtils.getUsername(), taskName, form.getState());
+        taskName == null
+            ? searchCountService.countAssignments(userId, form.getState())
+            : assignmentRepository.advancedCount(userId, taskName, form.getState());
     int totalPages = ServiceUtils.calculateTotalPages(form.getPageSize(), totalRows);
     return new PageMetadata(totalPages, totalRows);
   }
@@ -440,6 +639,6 @@ public class AssignmentService {
     checkWhetherEventAssignmentsCanBeAltered(event);
     Apartment apartment = assignment.getTask().getApartment();
     assignmentRepository.delete(assignment);
-    workflowService.calculateApartmentState(apartment.getId());
+    apartmentStateService.refreshApartmentState(apartment.getId());
   }
 }
@@ -324,9 +324,8 @@ public class AuthService {
 
   public AuthResult refreshToken(String refreshToken)
       throws InvalidJwtException, TokenAlreadyUsedException {
-    Authentication auth = jwtUtils.validateToken(refreshToken);
-    User user = userRepository.findByUsername(auth.getName());
-    Claims claims = jwtUtils.extractClaims(refreshToken);
+    Claims claims = jwtUtils.validateTokenClaims(refreshToken);
+    User user = userRepository.findByUsername(claims.get("username", String.class));
     UUID tokenSessionId = UUID.fromString(claims.get("sessionId", String.class));
     UserSession tokenSession = sessionRepository.findById(tokenSessionId).orElse(null);
     Instant tenSecondsAgo = Instant.now(clock).minusSeconds(10);
@@ -337,6 +336,7 @@ public class AuthService {
         || tokenSession.getDeletedAt() != null
             && tokenSession.getDeletedAt().isBefore(tenSecondsAgo)) {
       sessionRepository.deleteByUserId(user.getId());
+      jwtUtils.evictUser(user.getUsername());
       throw new TokenAlreadyUsedException("Refresh token already used");
     }
     // If the session has been deleted less than 10 seconds ago we keep the usual
@@ -346,6 +346,7 @@ public class AuthService {
     // and we end up creating two new sessions. (Not a big deal)
     tokenSession.setDeletedAt(Instant.now(clock));
     sessionRepository.save(tokenSession);
+    jwtUtils.evictSession(tokenSessionId);
 
     // We remove all the sessions that have been created more than 30 days ago (to
     // reduce the size of the table)
@@ -395,5 +396,6 @@ public class AuthService {
     }
     currentSession.setDeletedAt(Instant.now(clock));
     sessionRepository.save(currentSession);
+    jwtUtils.evictSession(currentSessionId);
   }
 }
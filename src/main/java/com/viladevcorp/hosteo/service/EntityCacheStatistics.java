@@ -0,0 +1,122 @@
+package com.viladevcorp.hosteo.service;
+
+import com.viladevcorp.hosteo.EntityCacheConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import javax.cache.CacheManager;
+import javax.cache.management.CacheStatisticsMXBean;
+import javax.management.JMX;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Hits and misses of the regions of the second-level cache, used to tune their size and TTL. They
+ * come from the standard JCache statistics beans, which are also published through JMX. They are
+ * logged periodically, and bound as counters of the metrics registry, tagged by region.
+ */
+@Slf4j
+@Service
+public class EntityCacheStatistics implements MeterBinder {
+
+  public static final String METRIC_PREFIX = "hosteo.cache.entities.";
+
+  private final CacheManager entityCacheManager;
+
+  public record RegionStatistics(
+      String region, long hits, long misses, long puts, long evictions, float hitPercentage) {}
+
+  @Autowired
+  public EntityCacheStatistics(CacheManager entityCacheManager) {
+    this.entityCacheManager = entityCacheManager;
+  }
+
+  public List<RegionStatistics> getStatistics() {
+    List<RegionStatistics> statistics = new ArrayList<>();
+    for (String region : EntityCacheConfig.REGIONS) {
+      CacheStatisticsMXBean bean = getStatisticsBean(region);
+      statistics.add(
+          new RegionStatistics(
+              region,
+              bean.getCacheHits(),
+              bean.getCacheMisses(),
+              bean.getCachePuts(),
+              bean.getCacheEvictions(),
+              bean.getCacheHitPercentage()));
+    }
+    return statistics;
+  }
+
+  public RegionStatistics getStatistics(String region) {
+    return getStatistics().stream()
+        .filter(statistics -> statistics.region().equals(region))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("No cache region " + region));
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    for (String region : EntityCacheConfig.REGIONS) {
+      bindCounter(registry, region, "hits", CacheStatisticsMXBean::getCacheHits);
+      bindCounter(registry, region, "misses", CacheStatisticsMXBean::getCacheMisses);
+      bindCounter(registry, region, "puts", CacheStatisticsMXBean::getCachePuts);
+      bindCounter(registry, region, "evictions", CacheStatisticsMXBean::getCacheEvictions);
+    }
+  }
+
+  private void bindCounter(
+      MeterRegistry registry,
+      String region,
+      String name,
+      ToDoubleFunction<CacheStatisticsMXBean> value) {
+    // Counters hold their object weakly, so they read the bean through this service
+    FunctionCounter.builder(
+            METRIC_PREFIX + name,
+            this,
+            statistics -> value.applyAsDouble(statistics.getStatisticsBean(region)))
+        .tag("region", region)
+        .register(registry);
+  }
+
+  @Scheduled(cron = "${cache.entities.stats-log-cron:-}")
+  public void logStatistics() {
+    for (RegionStatistics statistics : getStatistics()) {
+      log.info(
+          "[EntityCacheStatistics.logStatistics] - {}: {} hits, {} misses ({}% hits), {} puts, {} evictions",
+          statistics.region(),
+          statistics.hits(),
+          statistics.misses(),
+          statistics.hitPercentage(),
+          statistics.puts(),
+          statistics.evictions());
+    }
+  }
+
+  // Registered by the provider under the names the JCache specification defines
+  private CacheStatisticsMXBean getStatisticsBean(String region) {
+    try {
+      ObjectName name =
+          new ObjectName(
+              "javax.cache:type=CacheStatistics,CacheManager="
+                  + sanitize(entityCacheManager.getURI().toString())
+                  + ",Cache="
+                  + sanitize(region));
+      return JMX.newMXBeanProxy(
+          ManagementFactory.getPlatformMBeanServer(), name, CacheStatisticsMXBean.class);
+    } catch (MalformedObjectNameException e) {
+      throw new IllegalStateException("Invalid cache region name: " + region, e);
+    }
+  }
+
+  private static String sanitize(String name) {
+    return name.replaceAll("[,:=\n]", ".");
+  }
+}
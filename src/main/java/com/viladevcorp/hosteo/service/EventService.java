@@ -8,6 +8,7 @@ import com.viladevcorp.hosteo.model.forms.EventCreateForm;
 import com.viladevcorp.hosteo.model.forms.EventSearchForm;
 import com.viladevcorp.hosteo.model.forms.EventUpdateForm;
 import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.dto.EventDto;
 import com.viladevcorp.hosteo.repository.ApartmentRepository;
 import com.viladevcorp.hosteo.repository.AssignmentRepository;
 import com.viladevcorp.hosteo.repository.EventRepository;
@@ -18,6 +19,8 @@ import java.time.Instant;
 import java.util.*;
 import javax.management.InstanceNotFoundException;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.antlr.v4.runtime.misc.Pair;
 import org.springframework.beans.BeanUtils;
@@ -35,26 +38,58 @@ public class EventService {
 
   private final EventRepository eventRepository;
   private final AssignmentRepository assignmentRepository;
-  private final WorkflowService workflowService;
+  private final ApartmentStateService apartmentStateService;
   private final ApartmentRepository apartmentRepository;
+  private final ScheduleIndexService scheduleIndexService;
+  private final AlertMaterializer alertMaterializer;
+  private final SearchCountService searchCountService;
+  private final MeterRegistry meterRegistry;
 
   @Autowired
   public EventService(
       EventRepository eventRepository,
-      WorkflowService workflowService,
+      ApartmentStateService apartmentStateService,
       AssignmentRepository assignmentRepository,
-      ApartmentRepository apartmentRepository) {
+      ApartmentRepository apartmentRepository,
+      ScheduleIndexService scheduleIndexService,
+      AlertMaterializer alertMaterializer,
+      SearchCountService searchCountService,
+      MeterRegistry meterRegistry) {
     this.eventRepository = eventRepository;
-    this.workflowService = workflowService;
+    this.apartmentStateService = apartmentStateService;
     this.assignmentRepository = assignmentRepository;
     this.apartmentRepository = apartmentRepository;
+    this.scheduleIndexService = scheduleIndexService;
+    this.alertMaterializer = alertMaterializer;
+    this.searchCountService = searchCountService;
+    this.meterRegistry = meterRegistry;
   }
 
+  public static final String STATE_VALIDATION_TIMER = "hosteo.event.state.validation";
+
+  // Timed by outcome, which is the name of the exception when the state is rejected
   private void validateEventState(UUID apartmentId, EventState state, Instant startDate)
       throws NextOfPendingCannotBeInprogressOrFinished,
           PrevOfInProgressCannotBePendingOrInProgress,
           PrevOfFinishedCannotBeNotPendingOrInProgress,
           NextOfInProgressCannotBeFinishedOrInProgress {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = ServiceUtils.OUTCOME_VALID;
+    try {
+      checkEventState(apartmentId, state, startDate);
+    } catch (Exception e) {
+      outcome = e.getClass().getSimpleName();
+      throw e;
+    } finally {
+      sample.stop(meterRegistry.timer(STATE_VALIDATION_TIMER, ServiceUtils.OUTCOME_TAG, outcome));
+    }
+  }
+
+  private void checkEventState(UUID apartmentId, EventState state, Instant startDate)
+      throws NextOfPendingCannotBeInprogressOrFinished,
+          PrevOfInProgressCannotBePendingOrInProgress,
+          PrevOfFinishedCannotBeNotPendingOrInProgress,
+          NextOfInProgressCannotBeFinishedOrInProgress {
     // If the state is pending we cannot have IN PROGRESS or FINISHED events after (if the next ones
     // have finished this one should have too)
     if (state.isPending()) {
@@ -117,20 +152,14 @@ public class EventService {
           NextOfPendingCannotBeInprogressOrFinished,
           NextOfInProgressCannotBeFinishedOrInProgress {
     Optional<Apartment> apartmentOpt =
-        apartmentRepository.findById(form.getApartmentId(), AuthUtils.getUsername());
+        apartmentRepository.findById(form.getApartmentId(), AuthUtils.getUserId());
     if (apartmentOpt.isEmpty()) {
       throw new InstanceNotFoundException("Apartment not found with id: " + form.getApartmentId());
     }
     Apartment apartment = apartmentOpt.get();
     Pair<Event, Assignment> conflicts =
-        ServiceUtils.getScheduleConflicts(
-            eventRepository,
-            assignmentRepository,
-            form.getApartmentId(),
-            form.getStartDate(),
-            form.getEndDate(),
-            null,
-            null);
+        scheduleIndexService.getScheduleConflicts(
+            form.getApartmentId(), form.getStartDate(), form.getEndDate(), null, null);
 
     if (conflicts.a != null || conflicts.b != null) {
       log.error(
@@ -154,7 +183,7 @@ public class EventService {
             .build();
 
     Event result = eventRepository.save(event);
-    workflowService.calculateApartmentState(form.getApartmentId());
+    apartmentStateService.refreshApartmentState(form.getApartmentId());
     validateEventState(form.getApartmentId(), form.getState(), form.getStartDate());
     return result;
   }
@@ -191,14 +220,8 @@ public class EventService {
     UUID apartmentId = event.getApartment().getId();
 
     Pair<Event, Assignment> conflicts =
-        ServiceUtils.getScheduleConflicts(
-            eventRepository,
-            assignmentRepository,
-            apartmentId,
-            form.getStartDate(),
-            form.getEndDate(),
-            form.getId(),
-            null);
+        scheduleIndexService.getScheduleConflicts(
+            apartmentId, form.getStartDate(), form.getEndDate(), form.getId(), null);
 
     if (conflicts.a != null || conflicts.b != null) {
       log.error(
@@ -213,7 +236,7 @@ public class EventService {
     BeanUtils.copyProperties(form, event, "id");
 
     Event result = eventRepository.save(event);
-    workflowService.calculateApartmentState(result.getApartment().getId());
+    apartmentStateService.refreshApartmentState(result.getApartment().getId());
     validateEventState(apartmentId, form.getState(), form.getStartDate());
 
     return result;
@@ -230,7 +253,7 @@ public class EventService {
     event.setState(state);
     Event result = eventRepository.save(event);
     try {
-      workflowService.calculateApartmentState(result.getApartment().getId());
+      apartmentStateService.refreshApartmentState(result.getApartment().getId());
       validateEventState(apartmentId, state, event.getStartDate());
     } catch (Exception e) {
       TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
@@ -258,47 +281,168 @@ public class EventService {
     return executeUpdateStateLogic(eventId, state);
   }
 
+  /**
+   * Updates the state of the events as if they were updated one by one in start date order, but
+   * validating them in memory against the timelines of their apartments (loaded with one query).
+   * The valid ones are written with a single UPDATE and each apartment state is recalculated once.
+   */
   public List<EventUpdateError> updateBulkEventState(Set<UUID> eventIds, EventState state) {
 
     List<EventUpdateError> errors = new ArrayList<>();
+    if (eventIds == null || eventIds.isEmpty()) {
+      return errors;
+    }
 
-    // Retrieve the events from DB
+    // Events of the affected apartments sorted by start date
     List<Event> events =
-        eventRepository.findInIdsAndCreatedByUsername(eventIds, AuthUtils.getUsername());
+        eventRepository.findApartmentTimelinesOfIds(eventIds, AuthUtils.getUserId());
+    Map<UUID, List<Event>> timelines = new HashMap<>();
+    Map<UUID, EventState> states = new HashMap<>();
+    for (Event event : events) {
+      timelines.computeIfAbsent(event.getApartment().getId(), id -> new ArrayList<>()).add(event);
+      states.put(event.getId(), event.getState());
+    }
 
-    // Now process the events
+    // The neighbours only depend on the dates, so they are found once. Only the states change as
+    // the events are processed
+    Map<UUID, Event> previousEvents = new HashMap<>();
+    Map<UUID, Event> nextEvents = new HashMap<>();
+    timelines.values().forEach(timeline -> findNeighbours(timeline, previousEvents, nextEvents));
+
+    Set<UUID> updatedEventIds = new HashSet<>();
+    List<Event> updatedEvents = new ArrayList<>();
+    Set<UUID> updatedApartmentIds = new LinkedHashSet<>();
     for (Event event : events) {
+      if (!eventIds.contains(event.getId())) {
+        continue;
+      }
+      String error =
+          validateEventStateInTimeline(
+              state, previousEvents.get(event.getId()), nextEvents.get(event.getId()), states);
+      if (error != null) {
+        errors.add(new EventUpdateError(event, error));
+        continue;
+      }
+      states.put(event.getId(), state);
+      updatedEventIds.add(event.getId());
+      updatedEvents.add(event);
+      updatedApartmentIds.add(event.getApartment().getId());
+    }
+
+    if (!updatedEventIds.isEmpty()) {
+      eventRepository.updateStateInIds(updatedEventIds, state);
+      // The bulk update skips the entity listeners
+      apartmentStateService.onEventsStateUpdated(updatedEvents, state);
+      alertMaterializer.onUserDataChanged(AuthUtils.getUserId());
+      searchCountService.onBulkUpdate(updatedEvents, state, AuthUtils.getUserId());
+    }
+    for (UUID apartmentId : updatedApartmentIds) {
       try {
-        // Call the method that starts a new transaction for each event.
-        updateEventStateInNewTransaction(event.getId(), state);
-      } catch (NextOfInProgressCannotBeFinishedOrInProgress e) {
-        errors.add(
-            new EventUpdateError(
-                event, CodeErrors.NEXT_OF_INPROGRESS_CANNOT_BE_FINISHED_OR_INPROGRESS));
-      } catch (PrevOfFinishedCannotBeNotPendingOrInProgress e) {
-        errors.add(
-            new EventUpdateError(
-                event, CodeErrors.PREV_OF_FINISHED_CANNOT_BE_NOT_PENDING_OR_INPROGRESS));
-      } catch (PrevOfInProgressCannotBePendingOrInProgress e) {
-        errors.add(
-            new EventUpdateError(
-                event, CodeErrors.PREV_OF_INPROGRESS_CANNOT_BE_PENDING_OR_INPROGRESS));
-      } catch (NextOfPendingCannotBeInprogressOrFinished e) {
-        errors.add(
-            new EventUpdateError(
-                event, CodeErrors.NEXT_OF_PENDING_CANNOT_BE_INPROGRESS_OR_FINISHED));
+        apartmentStateService.refreshApartmentState(apartmentId);
       } catch (InstanceNotFoundException e) {
-        errors.add(new EventUpdateError(event, e.getMessage()));
-      } catch (Exception e) {
-        // Catch any other exception to prevent the main loop from stopping.
-        errors.add(new EventUpdateError(event, e.getMessage()));
+        log.error(
+            "[EventService.updateBulkEventState] - Apartment state not calculated: {}",
+            e.getMessage());
+        // Reported on each event of the apartment, as when they were updated one by one
+        for (Event event : updatedEvents) {
+          if (event.getApartment().getId().equals(apartmentId)) {
+            errors.add(new EventUpdateError(event, e.getMessage()));
+          }
+        }
       }
     }
+    log.info(
+        "[EventService.updateBulkEventState] - Updated {} events of {} apartments, {} errors",
+        updatedEventIds.size(),
+        updatedApartmentIds.size(),
+        errors.size());
     return errors;
   }
 
+  // Same rules as validateEventState, returning the error code instead of throwing
+  private static String validateEventStateInTimeline(
+      EventState state, Event previousEvent, Event nextEvent, Map<UUID, EventState> states) {
+    EventState previousState = previousEvent == null ? null : states.get(previousEvent.getId());
+    EventState nextState = nextEvent == null ? null : states.get(nextEvent.getId());
+    if (state.isPending()
+        && nextState != null
+        && (nextState.isInProgress() || nextState.isFinished())) {
+      return CodeErrors.NEXT_OF_PENDING_CANNOT_BE_INPROGRESS_OR_FINISHED;
+    }
+    if (state.isInProgress()) {
+      if (previousState != null && (previousState.isPending() || previousState.isInProgress())) {
+        return CodeErrors.PREV_OF_INPROGRESS_CANNOT_BE_PENDING_OR_INPROGRESS;
+      }
+      if (nextState != null && (nextState.isInProgress() || nextState.isFinished())) {
+        return CodeErrors.NEXT_OF_INPROGRESS_CANNOT_BE_FINISHED_OR_INPROGRESS;
+      }
+    }
+    if (state.isFinished()
+        && previousState != null
+        && (previousState.isPending() || previousState.isInProgress())) {
+      return CodeErrors.PREV_OF_FINISHED_CANNOT_BE_NOT_PENDING_OR_INPROGRESS;
+    }
+    return null;
+  }
+
+  /**
+   * For a timeline sorted by start date, finds the neighbours with the criteria of
+   * findFirstEventBeforeDateWithState and findFirstEventAfterDateWithState: the previous event is
+   * the last one to end among the ones starting before, and the next one the first one to end among
+   * the ones starting after.
+   */
+  private static void findNeighbours(
+      List<Event> timeline, Map<UUID, Event> previousEvents, Map<UUID, Event> nextEvents) {
+    Event lastToEnd = null;
+    int i = 0;
+    while (i < timeline.size()) {
+      int groupEnd = endOfSameStart(timeline, i, 1);
+      for (int j = i; j < groupEnd; j++) {
+        if (lastToEnd != null) {
+          previousEvents.put(timeline.get(j).getId(), lastToEnd);
+        }
+      }
+      for (int j = i; j < groupEnd; j++) {
+        if (lastToEnd == null || timeline.get(j).getEndDate().isAfter(lastToEnd.getEndDate())) {
+          lastToEnd = timeline.get(j);
+        }
+      }
+      i = groupEnd;
+    }
+
+    Event firstToEnd = null;
+    i = timeline.size() - 1;
+    while (i >= 0) {
+      int groupEnd = endOfSameStart(timeline, i, -1);
+      for (int j = i; j > groupEnd; j--) {
+        if (firstToEnd != null) {
+          nextEvents.put(timeline.get(j).getId(), firstToEnd);
+        }
+      }
+      for (int j = i; j > groupEnd; j--) {
+        if (firstToEnd == null || timeline.get(j).getEndDate().isBefore(firstToEnd.getEndDate())) {
+          firstToEnd = timeline.get(j);
+        }
+      }
+      i = groupEnd;
+    }
+  }
+
+  // Index after the last event (in the given direction) starting at the same date as the one at
+  // the given index
+  private static int endOfSameStart(List<Event> timeline, int index, int direction) {
+    Instant startDate = timeline.get(index).getStartDate();
+    int end = index;
+    while (end >= 0
+        && end < timeline.size()
+        && timeline.get(end).getStartDate().equals(startDate)) {
+      end += direction;
+    }
+    return end;
+  }
+
   public Event getEventById(UUID id) throws InstanceNotFoundException {
-    Optional<Event> resultOpt = eventRepository.findById(id, AuthUtils.getUsername());
+    Optional<Event> resultOpt = eventRepository.findById(id, AuthUtils.getUserId());
     if (resultOpt.isEmpty()) {
       throw new InstanceNotFoundException("Event not found with id: " + id);
     } else {
@@ -309,27 +453,32 @@ public class EventService {
   public EventWithAssignmentsDto getEventByIdWithAssigments(UUID id)
       throws InstanceNotFoundException {
     Optional<Event> resultOpt =
-        eventRepository.findEventByIdWithAssignments(id, AuthUtils.getUsername());
+        eventRepository.findEventByIdWithAssignments(id, AuthUtils.getUserId());
     if (resultOpt.isEmpty()) {
       throw new InstanceNotFoundException("Event not found with id: " + id);
     }
     return new EventWithAssignmentsDto(resultOpt.get());
   }
 
-  public List<Event> findEvents(EventSearchForm form) {
+  public List<EventDto> findEvents(EventSearchForm form) throws InvalidCursorException {
     String apartmentName =
         form.getApartmentName() == null || form.getApartmentName().isEmpty()
             ? null
             : "%" + form.getApartmentName().toLowerCase() + "%";
+    // With a cursor the page starts right after it, not at an offset
+    PageCursor cursor = PageCursor.decode(form.getCursor());
     PageRequest pageRequest =
-        ServiceUtils.createPageRequest(form.getPageNumber(), form.getPageSize());
+        ServiceUtils.createPageRequest(
+            cursor == null ? form.getPageNumber() : 0, form.getPageSize());
     return eventRepository.advancedSearch(
-        AuthUtils.getUsername(),
+        AuthUtils.getUserId(),
         apartmentName,
         form.getStates(),
         form.getTypes(),
         form.getStartDate(),
         form.getEndDate(),
+        cursor == null ? null : cursor.getPosition(),
+        cursor == null ? null : cursor.getId(),
         pageRequest);
   }
 
@@ -338,14 +487,24 @@ public class EventService {
         form.getApartmentName() == null || form.getApartmentName().isEmpty()
             ? null
             : "%" + form.getApartmentName().toLowerCase() + "%";
+    UUID userId = AuthUtils.getUserId();
+    // The counts are kept by state, the other filters need the COUNT query
+    boolean countedByState =
+        apartmentName == null
+            && form.getTypes() == null
+            && form.getStartDate() == null
+            && form.getEndDate() == null
+            && (form.getStates() == null || !form.getStates().isEmpty());
     int totalRows =
-        eventRepository.advancedCount(
-            AuthUtils.getUsername(),
-            apartmentName,
-            form.getStates(),
-            form.getTypes(),
-            form.getStartDate(),
-            form.getEndDate());
+        countedByState
+            ? searchCountService.countEvents(userId, form.getStates())
+            : eventRepository.advancedCount(
+                userId,
+                apartmentName,
+                form.getStates(),
+                form.getTypes(),
+                form.getStartDate(),
+                form.getEndDate());
     int totalPages = ServiceUtils.calculateTotalPages(form.getPageSize(), totalRows);
     return new PageMetadata(totalPages, totalRows);
   }
@@ -353,6 +512,6 @@ public class EventService {
   public void deleteEvent(UUID id) throws InstanceNotFoundException {
     Event event = getEventById(id);
     eventRepository.delete(event);
-    workflowService.calculateApartmentState(event.getApartment().getId());
+    apartmentStateService.refreshApartmentState(event.getApartment().getId());
   }
 }
@@ -0,0 +1,219 @@
+package com.viladevcorp.hosteo.service;
+
+import com.viladevcorp.hosteo.model.*;
+import com.viladevcorp.hosteo.model.types.ConflictType;
+import com.viladevcorp.hosteo.repository.AssignmentRepository;
+import com.viladevcorp.hosteo.repository.EventRepository;
+import com.viladevcorp.hosteo.repository.ImpBookingRepository;
+import com.viladevcorp.hosteo.utils.AuthUtils;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Resolves the conflicts of all the rows of an import file at once. The occupancy of the affected
+ * apartments is loaded with one query per table for the date window of the file, and the overlaps
+ * are found with a sweep over the rows sorted by start date.
+ */
+@Slf4j
+@Service
+@Transactional(rollbackFor = Exception.class)
+public class ImportConflictService {
+
+  private final EventRepository eventRepository;
+  private final AssignmentRepository assignmentRepository;
+  private final ImpBookingRepository impBookingRepository;
+
+  @Autowired
+  public ImportConflictService(
+      EventRepository eventRepository,
+      AssignmentRepository assignmentRepository,
+      ImpBookingRepository impBookingRepository) {
+    this.eventRepository = eventRepository;
+    this.assignmentRepository = assignmentRepository;
+    this.impBookingRepository = impBookingRepository;
+  }
+
+  /**
+   * Returns, for each row (in the same order), the entity it conflicts with or null. The precedence
+   * is the one of the row by row check: events, then assignments, then imported bookings (the ones
+   * of previous imports first, then the previous rows of the same file).
+   */
+  public List<BaseEntity> findConflicts(List<ImpBooking> impBookings) {
+    BaseEntity[] conflicts = new BaseEntity[impBookings.size()];
+    if (impBookings.isEmpty()) {
+      return Arrays.asList(conflicts);
+    }
+
+    // The rank of each row is its position in the file
+    Map<UUID, List<Slot>> rowsByApartment =
+        groupByApartment(impBookings, impBooking -> impBooking.getApartment().getId());
+    Instant windowStart =
+        impBookings.stream().map(ImpBooking::getStartDate).min(Comparator.naturalOrder()).get();
+    Instant windowEnd =
+        impBookings.stream().map(ImpBooking::getEndDate).max(Comparator.naturalOrder()).get();
+
+    UUID userId = AuthUtils.getUserId();
+    Set<UUID> apartmentIds = rowsByApartment.keySet();
+
+    List<Event> events =
+        eventRepository.findEventsBetweenInApartments(
+            userId, apartmentIds, windowStart, windowEnd);
+    Map<UUID, List<Slot>> eventsByApartment =
+        groupByApartment(events, event -> event.getApartment().getId());
+    sweepAll(rowsByApartment, eventsByApartment, false, false, conflicts);
+
+    List<Assignment> assignments =
+        assignmentRepository.findAssignmentsBetweenInApartments(
+            userId, apartmentIds, windowStart, windowEnd);
+    Map<UUID, List<Slot>> assignmentsByApartment =
+        groupByApartment(assignments, assignment -> assignment.getTask().getApartment().getId());
+    sweepAll(rowsByApartment, assignmentsByApartment, false, false, conflicts);
+
+    List<ImpBooking> previousImpBookings =
+        impBookingRepository.getImpBookingsInRangeDateInApartments(
+            userId, apartmentIds, windowEnd, windowStart);
+    Map<UUID, List<Slot>> previousByApartment =
+        groupByApartment(previousImpBookings, impBooking -> impBooking.getApartment().getId());
+    sweepAll(rowsByApartment, previousByApartment, true, false, conflicts);
+
+    // Rows of the same file, only against the ones before them as they used to be saved one by one
+    sweepAll(rowsByApartment, rowsByApartment, true, true, conflicts);
+
+    log.info(
+        "[ImportConflictService.findConflicts] - Resolved {} rows for {} apartments against {} events, {} assignments and {} imported bookings",
+        impBookings.size(),
+        apartmentIds.size(),
+        events.size(),
+        assignments.size(),
+        previousImpBookings.size());
+    return Arrays.asList(conflicts);
+  }
+
+  public static Conflict toConflict(BaseEntity conflictEntity) {
+    if (conflictEntity instanceof Event) {
+      return new Conflict(ConflictType.EVENT_CONFLICT, conflictEntity.toDto());
+    } else if (conflictEntity instanceof Assignment) {
+      return new Conflict(ConflictType.ASSIGNMENT_CONFLICT, conflictEntity.toDto());
+    } else if (conflictEntity instanceof ImpBooking) {
+      return new Conflict(ConflictType.IMPORT_BOOKING_CONFLICT, conflictEntity.toDto());
+    }
+    return null;
+  }
+
+  private <T extends BaseEntity> Map<UUID, List<Slot>> groupByApartment(
+      List<T> entities, Function<T, UUID> apartmentIdGetter) {
+    Map<UUID, List<Slot>> byApartment = new HashMap<>();
+    for (int i = 0; i < entities.size(); i++) {
+      T entity = entities.get(i);
+      byApartment
+          .computeIfAbsent(apartmentIdGetter.apply(entity), id -> new ArrayList<>())
+          .add(new Slot(entity, startDateOf(entity), endDateOf(entity), i));
+    }
+    byApartment.values().forEach(slots -> slots.sort(Slot.BY_START));
+    return byApartment;
+  }
+
+  private void sweepAll(
+      Map<UUID, List<Slot>> rowsByApartment,
+      Map<UUID, List<Slot>> candidatesByApartment,
+      boolean inclusive,
+      boolean onlyPrevious,
+      BaseEntity[] conflicts) {
+    rowsByApartment.forEach(
+        (apartmentId, rows) -> {
+          List<Slot> candidates = candidatesByApartment.get(apartmentId);
+          if (candidates != null) {
+            sweep(rows, candidates, inclusive, onlyPrevious, conflicts);
+          }
+        });
+  }
+
+  /**
+   * Both lists sorted by start date. Candidates that started before a row and have not ended are
+   * kept in an active list (dropped as soon as they end, as the next rows start later), the ones
+   * starting during the row are scanned from the current position. Each row takes the overlapping
+   * candidate with the lowest rank, unless it already has a conflict of higher precedence.
+   */
+  private static void sweep(
+      List<Slot> rows,
+      List<Slot> candidates,
+      boolean inclusive,
+      boolean onlyPrevious,
+      BaseEntity[] conflicts) {
+    List<Slot> active = new ArrayList<>();
+    int next = 0;
+    for (Slot row : rows) {
+      while (next < candidates.size()
+          && !candidates.get(next).startDate().isAfter(row.startDate())) {
+        active.add(candidates.get(next++));
+      }
+      active.removeIf(candidate -> !endsAfter(candidate.endDate(), row.startDate(), inclusive));
+      if (conflicts[row.rank()] != null) {
+        continue;
+      }
+
+      Slot best = null;
+      for (Slot candidate : active) {
+        if (overlaps(candidate, row, inclusive)
+            && (!onlyPrevious || candidate.rank() < row.rank())
+            && (best == null || candidate.rank() < best.rank())) {
+          best = candidate;
+        }
+      }
+      for (int i = next;
+          i < candidates.size()
+              && endsAfter(row.endDate(), candidates.get(i).startDate(), inclusive);
+          i++) {
+        Slot candidate = candidates.get(i);
+        if (overlaps(candidate, row, inclusive)
+            && (!onlyPrevious || candidate.rank() < row.rank())
+            && (best == null || candidate.rank() < best.rank())) {
+          best = candidate;
+        }
+      }
+      if (best != null) {
+        conflicts[row.rank()] = best.entity();
+      }
+    }
+  }
+
+  // Events and assignments overlap strictly (as in the schedule conflicts queries), imported
+  // bookings also when they only touch
+  private static boolean overlaps(Slot candidate, Slot row, boolean inclusive) {
+    return endsAfter(row.endDate(), candidate.startDate(), inclusive)
+        && endsAfter(candidate.endDate(), row.startDate(), inclusive);
+  }
+
+  private static boolean endsAfter(Instant endDate, Instant startDate, boolean inclusive) {
+    return inclusive ? !endDate.isBefore(startDate) : endDate.isAfter(startDate);
+  }
+
+  private static Instant startDateOf(BaseEntity entity) {
+    if (entity instanceof Event event) {
+      return event.getStartDate();
+    } else if (entity instanceof Assignment assignment) {
+      return assignment.getStartDate();
+    }
+    return ((ImpBooking) entity).getStartDate();
+  }
+
+  private static Instant endDateOf(BaseEntity entity) {
+    if (entity instanceof Event event) {
+      return event.getEndDate();
+    } else if (entity instanceof Assignment assignment) {
+      return assignment.getEndDate();
+    }
+    return ((ImpBooking) entity).getEndDate();
+  }
+
+  // Interval of an entity with its position in the order the conflicts are chosen
+  private record Slot(BaseEntity entity, Instant startDate, Instant endDate, int rank) {
+    static final Comparator<Slot> BY_START =
+        Comparator.comparing(Slot::startDate).thenComparingInt(Slot::rank);
+  }
+}
@@ -0,0 +1,121 @@
+package com.viladevcorp.hosteo.service;
+
+import com.viladevcorp.hosteo.exceptions.ImportJobInProgressException;
+import com.viladevcorp.hosteo.model.ImportJob;
+import com.viladevcorp.hosteo.model.dto.ImportJobDto;
+import com.viladevcorp.hosteo.model.types.ImportJobState;
+import com.viladevcorp.hosteo.utils.AuthUtils;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.InstanceNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs the execution of the imported bookings in the background, so it does not depend on the
+ * request that submitted it. Jobs are kept in memory until some time after they finish, and a user
+ * can only have one job queued or running.
+ */
+@Slf4j
+@Service
+public class ImportJobService {
+
+  private final ImportService importService;
+  private final ThreadPoolTaskExecutor importJobExecutor;
+  private final Clock clock;
+
+  private final Map<UUID, ImportJob> jobs = new ConcurrentHashMap<>();
+  private final Map<UUID, ImportJob> activeJobsByUser = new ConcurrentHashMap<>();
+
+  @Value("${import.job.retention-minutes}")
+  private long retentionMinutes;
+
+  @Autowired
+  public ImportJobService(
+      ImportService importService, ThreadPoolTaskExecutor importJobExecutor, Clock clock) {
+    this.importService = importService;
+    this.importJobExecutor = importJobExecutor;
+    this.clock = clock;
+  }
+
+  public ImportJobDto submitImportJob() throws ImportJobInProgressException {
+    removeExpiredJobs();
+    UUID userId = AuthUtils.getUserId();
+    ImportJob job = new ImportJob(userId, Instant.now(clock));
+    ImportJob activeJob = activeJobsByUser.putIfAbsent(userId, job);
+    if (activeJob != null) {
+      throw new ImportJobInProgressException(
+          "There is already an import job in progress with id: " + activeJob.getId());
+    }
+    jobs.put(job.getId(), job);
+    try {
+      // The job runs as the user that submitted it, as the services filter by the logged user
+      importJobExecutor.execute(
+          new DelegatingSecurityContextRunnable(
+              () -> runImportJob(job), SecurityContextHolder.getContext()));
+    } catch (TaskRejectedException e) {
+      jobs.remove(job.getId());
+      activeJobsByUser.remove(userId, job);
+      throw e;
+    }
+    log.info(
+        "[ImportJobService.submitImportJob] - Import job {} submitted by user {}",
+        job.getId(),
+        userId);
+    return new ImportJobDto(job, Instant.now(clock));
+  }
+
+  public ImportJobDto getImportJob(UUID id) throws InstanceNotFoundException {
+    ImportJob job = jobs.get(id);
+    if (job == null || !job.getUserId().equals(AuthUtils.getUserId())) {
+      throw new InstanceNotFoundException("Import job not found with id: " + id);
+    }
+    return new ImportJobDto(job, Instant.now(clock));
+  }
+
+  private void runImportJob(ImportJob job) {
+    job.setStartedAt(Instant.now(clock));
+    job.setState(ImportJobState.RUNNING);
+    ImportJobState finalState = ImportJobState.FINISHED;
+    try {
+      importService.executeImportBookings(job);
+    } catch (Exception e) {
+      log.error(
+          "[ImportJobService.runImportJob] - Import job {} failed: {}",
+          job.getId(),
+          e.getMessage());
+      job.setError(e.getMessage());
+      finalState = ImportJobState.FAILED;
+    } finally {
+      // Released before publishing the final state, so the user can submit again once it is seen
+      job.setFinishedAt(Instant.now(clock));
+      activeJobsByUser.remove(job.getUserId(), job);
+      job.setState(finalState);
+      log.info(
+          "[ImportJobService.runImportJob] - Import job {} done. Imported: {}, failed: {}",
+          job.getId(),
+          job.getImported().get(),
+          job.getFailed().get());
+    }
+  }
+
+  private void removeExpiredJobs() {
+    Instant expiration = Instant.now(clock).minus(Duration.ofMinutes(retentionMinutes));
+    jobs.values()
+        .removeIf(
+            job ->
+                job.getState().isDone()
+                    && job.getFinishedAt() != null
+                    && job.getFinishedAt().isBefore(expiration));
+  }
+}
@@ -7,6 +7,7 @@ import com.opencsv.CSVReaderBuilder;
 import com.opencsv.exceptions.CsvException;
 import com.viladevcorp.hosteo.exceptions.*;
 import com.viladevcorp.hosteo.model.*;
+import com.viladevcorp.hosteo.model.dto.ImportFileResultDto;
 import com.viladevcorp.hosteo.model.dto.ImportResultDto;
 import com.viladevcorp.hosteo.model.forms.EventCreateForm;
 import com.viladevcorp.hosteo.model.types.EventSource;
@@ -18,13 +19,18 @@ import com.viladevcorp.hosteo.utils.AuthUtils;
 import com.viladevcorp.hosteo.utils.CodeErrors;
 import com.viladevcorp.hosteo.utils.ServiceUtils;
 
+import jakarta.persistence.EntityManager;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.antlr.v4.runtime.misc.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,6 +48,10 @@ public class ImportService {
   private final AssignmentRepository assignmentRepository;
   private final ApartmentRepository apartmentRepository;
   private final EventService eventService;
+  private final ScheduleIndexService scheduleIndexService;
+  private final ImportConflictService importConflictService;
+  private final EntityManager entityManager;
+  private final MeterRegistry meterRegistry;
 
   @Autowired
   public ImportService(
@@ -49,12 +59,20 @@ public class ImportService {
       EventRepository eventRepository,
       AssignmentRepository assignmentRepository,
       ApartmentRepository apartmentRepository,
-      EventService eventService) {
+      EventService eventService,
+      ScheduleIndexService scheduleIndexService,
+      ImportConflictService importConflictService,
+      EntityManager entityManager,
+      MeterRegistry meterRegistry) {
     this.apartmentRepository = apartmentRepository;
     this.eventRepository = eventRepository;
     this.impBookingRepository = impBookingRepository;
     this.assignmentRepository = assignmentRepository;
     this.eventService = eventService;
+    this.scheduleIndexService = scheduleIndexService;
+    this.importConflictService = importConflictService;
+    this.entityManager = entityManager;
+    this.meterRegistry = meterRegistry;
   }
 
   public static final int AIRBNB_START_DATE_POSITION = 4;
@@ -80,22 +98,29 @@ public class ImportService {
   public static final char BOOKING_SEPARATOR = ';';
 
   public static final int PAGE_SIZE = 15;
+  public static final int IMPORT_CHUNK_SIZE = 500;
+
+  // Timer of each phase: the whole file (read with the conflicts and saves of its chunks), finding
+  // the conflicts and saving each chunk, and executing the import. Counter of the executed bookings,
+  // by outcome
+  public static final String PHASE_TIMER = "hosteo.import.phase";
+  public static final String BOOKINGS_COUNTER = "hosteo.import.bookings";
 
   public boolean existsImportInProgress() {
-    return impBookingRepository.existsByCreatedByUsername(AuthUtils.getUsername());
+    return impBookingRepository.existsByCreatedById(AuthUtils.getUserId());
   }
 
   public List<ImpBooking> searchUserImpBookings(int pageNumber) {
     PageRequest pageRequest = ServiceUtils.createPageRequest(pageNumber, PAGE_SIZE);
     List<ImpBooking> impBookings =
-        impBookingRepository.getUserImpBookings(AuthUtils.getUsername(), pageRequest);
+        impBookingRepository.getUserImpBookings(AuthUtils.getUserId(), pageRequest);
     impBookings = impBookings.stream().map(this::checkImportConflict).toList();
     return impBookings;
   }
 
   public PageMetadata getImpBookingsMetadata() {
 
-    int totalRows = impBookingRepository.countUserImpBookings(AuthUtils.getUsername());
+    int totalRows = impBookingRepository.countUserImpBookings(AuthUtils.getUserId());
     int totalPages = ServiceUtils.calculateTotalPages(PAGE_SIZE, totalRows);
     return new PageMetadata(totalPages, totalRows);
   }
@@ -104,7 +129,7 @@ public class ImportService {
       UUID apartmentId, Instant startDate, Instant endDate, UUID excludeImpBookingId) {
     return impBookingRepository
         .getImpBookingsInRangeDate(
-            AuthUtils.getUsername(), apartmentId, endDate, startDate, excludeImpBookingId)
+            AuthUtils.getUserId(), apartmentId, endDate, startDate, excludeImpBookingId)
         .stream()
         .findFirst()
         .orElse(null);
@@ -114,9 +139,7 @@ public class ImportService {
     Conflict conflict;
 
     Pair<Event, Assignment> conflicts =
-        ServiceUtils.getScheduleConflicts(
-            eventRepository,
-            assignmentRepository,
+        scheduleIndexService.getScheduleConflicts(
             impBooking.getApartment().getId(),
             impBooking.getStartDate(),
             impBooking.getEndDate(),
@@ -146,124 +169,170 @@ public class ImportService {
     return impBooking;
   }
 
-  public List<ImpBooking> importAirbnbBookings(File importFile) throws IOException, CsvException {
-    try (BufferedReader br = new BufferedReader(new FileReader(importFile))) {
-      CSVParser parser = new CSVParserBuilder().withSeparator(AIRBNB_SEPARATOR).build();
-      try (CSVReader csvReader =
-          new CSVReaderBuilder(br).withSkipLines(1).withCSVParser(parser).build(); ) {
-        Map<String, Apartment> apartmentCache = new HashMap<>();
-        DateTimeFormatter dateFormatter =
-            DateTimeFormatter.ofPattern(AIRBNB_DATE_FORMAT).withZone(ZoneOffset.UTC);
-
-        return csvReader.readAll().stream()
-            .map(
-                line -> {
-                  Apartment apartment =
-                      apartmentCache.computeIfAbsent(
-                          line[AIRBNB_APARTMENT_POSITION],
-                          airbnbId ->
-                              apartmentRepository
-                                  .findByAirbnbIdAndCreatedByUsername(
-                                      airbnbId, AuthUtils.getUsername())
-                                  .orElse(null));
-                  if (apartment == null) {
-                    return null;
-                  }
-
-                  Instant startDate =
-                      Instant.from(
-                          dateFormatter.parse(
-                              line[AIRBNB_START_DATE_POSITION] + " " + AIRBNB_CHECKIN_TIME));
-                  Instant endDate =
-                      Instant.from(
-                          dateFormatter.parse(
-                              line[AIRBNB_END_DATE_POSITION] + " " + AIRBNB_CHECKOUT_TIME));
-
-                  ImpBooking impBooking =
-                      ImpBooking.builder()
-                          .apartment(apartment)
-                          .source(EventSource.AIRBNB)
-                          .startDate(startDate)
-                          .endDate(endDate)
-                          .name(line[AIRBNB_GUEST_POSITION])
-                          .build();
-                  checkImportConflict(impBooking);
-                  return impBookingRepository.save(impBooking);
-                })
-            .filter(Objects::nonNull)
-            .toList();
-      } catch (IOException | CsvException e) {
-        log.error("Error reading import file: {}", e.getMessage());
-        throw e;
-      }
-    }
+  // Conflicts are resolved for the whole chunk at once and set right before each row is persisted,
+  // so a conflict with a previous row already carries its id. Inserts are sent in JDBC batches on
+  // flush (hibernate.jdbc.batch_size), and the persistence context is cleared afterwards to keep it
+  // bounded to one chunk. Returns the number of conflicting rows
+  private int saveImpBookings(List<ImpBooking> impBookings) {
+    List<BaseEntity> conflicts =
+        phaseTimer("conflicts").record(() -> importConflictService.findConflicts(impBookings));
+    phaseTimer("save")
+        .record(
+            () -> {
+              for (int i = 0; i < impBookings.size(); i++) {
+                ImpBooking impBooking = impBookings.get(i);
+                impBooking.setConflict(ImportConflictService.toConflict(conflicts.get(i)));
+                entityManager.persist(impBooking);
+              }
+              entityManager.flush();
+              entityManager.clear();
+            });
+    return (int) conflicts.stream().filter(Objects::nonNull).count();
   }
 
-  public List<ImpBooking> importBookingBookings(File importFile) throws IOException, CsvException {
-    try (BufferedReader br = new BufferedReader(new FileReader(importFile))) {
-      CSVParser parser = new CSVParserBuilder().withSeparator(BOOKING_SEPARATOR).build();
-      try (CSVReader csvReader =
-          new CSVReaderBuilder(br).withSkipLines(1).withCSVParser(parser).build(); ) {
-        Map<String, Apartment> apartmentCache = new HashMap<>();
-        DateTimeFormatter dateFormatter =
-            DateTimeFormatter.ofPattern(BOOKING_DATE_FORMAT)
-                .withZone(ZoneOffset.UTC)
-                .withLocale(Locale.ENGLISH);
-        return csvReader.readAll().stream()
-            .map(
-                line -> {
-                  if (line[BOOKING_STATUS_POSITION].equalsIgnoreCase("Cancelled")) {
-                    return null;
-                  }
-                  Apartment apartment =
-                      apartmentCache.computeIfAbsent(
-                          line[BOOKING_APARTMENT_POSITION],
-                          bookingId ->
-                              apartmentRepository
-                                  .findByBookingIdAndCreatedByUsername(
-                                      bookingId, AuthUtils.getUsername())
-                                  .orElse(null));
-                  if (apartment == null) {
-                    return null;
-                  }
-                  Instant startDate =
-                      Instant.from(
-                          dateFormatter.parse(
-                              line[BOOKING_START_DATE_POSITION] + " " + BOOKING_CHECKIN_TIME));
-                  Instant endDate =
-                      Instant.from(
-                          dateFormatter.parse(
-                              line[BOOKING_END_DATE_POSITION] + " " + BOOKING_CHECKOUT_TIME));
-
-                  ImpBooking impBooking =
-                      ImpBooking.builder()
-                          .apartment(apartment)
-                          .source(EventSource.BOOKING)
-                          .startDate(startDate)
-                          .endDate(endDate)
-                          .name(line[BOOKING_GUEST_POSITION])
-                          .build();
-                  checkImportConflict(impBooking);
-                  return impBookingRepository.save(impBooking);
-                })
-            .filter(Objects::nonNull)
-            .toList();
+  private Timer phaseTimer(String phase) {
+    return meterRegistry.timer(PHASE_TIMER, "phase", phase);
+  }
+
+  // Reads the file row by row and saves the bookings in chunks, so only one chunk of rows is held
+  // at a time. Rows of previous chunks are already flushed, so they are found as imported bookings.
+  // Only the totals are kept, the rows are read back a page at a time
+  private ImportFileResultDto importBookings(
+      InputStream importStream, char separator, Function<String[], ImpBooking> lineMapper)
+      throws IOException, CsvException {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    CSVParser parser = new CSVParserBuilder().withSeparator(separator).build();
+    try (CSVReader csvReader =
+        new CSVReaderBuilder(
+                new BufferedReader(new InputStreamReader(importStream, StandardCharsets.UTF_8)))
+            .withSkipLines(1)
+            .withCSVParser(parser)
+            .build()) {
+      int importedCount = 0;
+      int conflictCount = 0;
+      List<ImpBooking> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+      String[] line;
+      while ((line = csvReader.readNext()) != null) {
+        ImpBooking impBooking = lineMapper.apply(line);
+        if (impBooking == null) {
+          continue;
+        }
+        chunk.add(impBooking);
+        if (chunk.size() == IMPORT_CHUNK_SIZE) {
+          conflictCount += saveImpBookings(chunk);
+          importedCount += chunk.size();
+          chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        }
+      }
+      if (!chunk.isEmpty()) {
+        conflictCount += saveImpBookings(chunk);
+        importedCount += chunk.size();
       }
+      return new ImportFileResultDto(importedCount, conflictCount);
     } catch (IOException | CsvException e) {
       log.error("Error reading import file: {}", e.getMessage());
       throw e;
+    } finally {
+      sample.stop(phaseTimer("total"));
     }
   }
 
-  public ImportResultDto executeImportBookings() {
+  public ImportFileResultDto importAirbnbBookings(InputStream importStream)
+      throws IOException, CsvException {
+    Map<String, Apartment> apartmentCache = new HashMap<>();
+    DateTimeFormatter dateFormatter =
+        DateTimeFormatter.ofPattern(AIRBNB_DATE_FORMAT).withZone(ZoneOffset.UTC);
+
+    return importBookings(
+        importStream,
+        AIRBNB_SEPARATOR,
+        line -> {
+          Apartment apartment =
+              apartmentCache.computeIfAbsent(
+                  line[AIRBNB_APARTMENT_POSITION],
+                  airbnbId ->
+                      apartmentRepository
+                          .findByAirbnbIdAndCreatedById(airbnbId, AuthUtils.getUserId())
+                          .orElse(null));
+          if (apartment == null) {
+            return null;
+          }
+
+          Instant startDate =
+              Instant.from(
+                  dateFormatter.parse(
+                      line[AIRBNB_START_DATE_POSITION] + " " + AIRBNB_CHECKIN_TIME));
+          Instant endDate =
+              Instant.from(
+                  dateFormatter.parse(line[AIRBNB_END_DATE_POSITION] + " " + AIRBNB_CHECKOUT_TIME));
+
+          return ImpBooking.builder()
+              .apartment(apartment)
+              .source(EventSource.AIRBNB)
+              .startDate(startDate)
+              .endDate(endDate)
+              .name(line[AIRBNB_GUEST_POSITION])
+              .build();
+        });
+  }
+
+  public ImportFileResultDto importBookingBookings(InputStream importStream)
+      throws IOException, CsvException {
+    Map<String, Apartment> apartmentCache = new HashMap<>();
+    DateTimeFormatter dateFormatter =
+        DateTimeFormatter.ofPattern(BOOKING_DATE_FORMAT)
+            .withZone(ZoneOffset.UTC)
+            .withLocale(Locale.ENGLISH);
+
+    return importBookings(
+        importStream,
+        BOOKING_SEPARATOR,
+        line -> {
+          if (line[BOOKING_STATUS_POSITION].equalsIgnoreCase("Cancelled")) {
+            return null;
+          }
+          Apartment apartment =
+              apartmentCache.computeIfAbsent(
+                  line[BOOKING_APARTMENT_POSITION],
+                  bookingId ->
+                      apartmentRepository
+                          .findByBookingIdAndCreatedById(bookingId, AuthUtils.getUserId())
+                          .orElse(null));
+          if (apartment == null) {
+            return null;
+          }
+          Instant startDate =
+              Instant.from(
+                  dateFormatter.parse(
+                      line[BOOKING_START_DATE_POSITION] + " " + BOOKING_CHECKIN_TIME));
+          Instant endDate =
+              Instant.from(
+                  dateFormatter.parse(
+                      line[BOOKING_END_DATE_POSITION] + " " + BOOKING_CHECKOUT_TIME));
+
+          return ImpBooking.builder()
+              .apartment(apartment)
+              .source(EventSource.BOOKING)
+              .startDate(startDate)
+              .endDate(endDate)
+              .name(line[BOOKING_GUEST_POSITION])
+              .build();
+        });
+  }
+
+  // Progress is reported to the job as each booking is processed
+  public ImportResultDto executeImportBookings(ImportJob job) {
+    Timer.Sample sample = Timer.start(meterRegistry);
     List<ImpBooking> impBookings =
-        impBookingRepository.getUserImpBookings(AuthUtils.getUsername(), null);
+        impBookingRepository.getUserImpBookings(AuthUtils.getUserId(), null);
+    job.setTotal(impBookings.size());
     Set<UUID> importedBookingIds = new HashSet<>();
     AtomicInteger importErrorNumber = new AtomicInteger();
     impBookings.forEach(
         impBooking -> {
           if (impBooking.getConflict() != null) {
             importErrorNumber.getAndIncrement();
+            job.addFailed();
             return;
           }
           EventCreateForm bookingForm =
@@ -280,6 +349,7 @@ public class ImportService {
           try {
             eventService.createEventInNewTransaction(bookingForm);
             importedBookingIds.add(impBooking.getId());
+            job.addImported();
             return;
           } catch (NotAvailableDatesException e) {
             createError = CodeErrors.NOT_AVAILABLE_DATES;
@@ -298,15 +368,23 @@ public class ImportService {
           impBooking.setCreationError(createError);
           impBookingRepository.save(impBooking);
           importErrorNumber.getAndIncrement();
+          job.addFailed();
         });
-    impBookingRepository.deleteAllById(importedBookingIds);
+    // One statement per chunk of ids, instead of a select and a delete per booking
+    List<UUID> importedIds = new ArrayList<>(importedBookingIds);
+    for (int i = 0; i < importedIds.size(); i += IMPORT_CHUNK_SIZE) {
+      impBookingRepository.deleteByIdsAndCreatedById(
+          importedIds.subList(i, Math.min(i + IMPORT_CHUNK_SIZE, importedIds.size())),
+          AuthUtils.getUserId());
+    }
+    meterRegistry.counter(BOOKINGS_COUNTER, ServiceUtils.OUTCOME_TAG, "imported").increment(importedIds.size());
+    meterRegistry.counter(BOOKINGS_COUNTER, ServiceUtils.OUTCOME_TAG, "failed").increment(importErrorNumber.get());
+    sample.stop(phaseTimer("execute"));
     return new ImportResultDto(importedBookingIds.size(), importErrorNumber.get());
   }
 
   public void deleteUserImpBookings() {
-    List<ImpBooking> impBookings =
-        impBookingRepository.getUserImpBookings(AuthUtils.getUsername(), null);
-    impBookingRepository.deleteAll(impBookings);
+    impBookingRepository.deleteByCreatedById(AuthUtils.getUserId());
   }
 
   public void deleteImpBookingById(UUID id) {
@@ -0,0 +1,484 @@
+package com.viladevcorp.hosteo.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.OccupancySlot;
+import com.viladevcorp.hosteo.model.types.ScheduleIndexMode;
+import com.viladevcorp.hosteo.repository.AssignmentRepository;
+import com.viladevcorp.hosteo.repository.EventRepository;
+import com.viladevcorp.hosteo.utils.AuthUtils;
+import com.viladevcorp.hosteo.utils.ServiceUtils;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.misc.Pair;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory occupancy index (events and assignments) per apartment, used to answer schedule
+ * conflicts without querying the database. Timelines are loaded lazily on first use and kept in
+ * sync after commit by {@link com.viladevcorp.hosteo.model.listeners.EntityChangeListener}.
+ *
+ * <p>A timeline only holds what ends within the last {@code schedule.index.history-days}, and
+ * conflicts starting before that are looked up in the database. The timelines are bounded in number
+ * and expire some time after they are loaded or changed, so changes the listener does not see
+ * (other instances, SQL run on the database) are not kept stale forever.
+ */
+@Slf4j
+@Service
+@Transactional(rollbackFor = Exception.class)
+public class ScheduleIndexService {
+
+  private final EventRepository eventRepository;
+  private final AssignmentRepository assignmentRepository;
+  private final MeterRegistry meterRegistry;
+
+  private final Clock clock;
+
+  private final Map<UUID, ApartmentTimeline> timelines;
+
+  // Bumped on every change applied to an apartment, so a timeline loaded concurrently with a
+  // commit is not cached (it could be missing that change). Kept while the apartment is in use,
+  // much longer than a load takes
+  private final Map<UUID, AtomicLong> generations;
+
+  private final Duration history;
+
+  @Value("${schedule.index.mode:MEMORY}")
+  private ScheduleIndexMode mode;
+
+  @Autowired
+  public ScheduleIndexService(
+      EventRepository eventRepository,
+      AssignmentRepository assignmentRepository,
+      MeterRegistry meterRegistry,
+      Clock clock,
+      @Value("${schedule.index.max-size}") long maxSize,
+      @Value("${schedule.index.ttl-seconds}") long ttlSeconds,
+      @Value("${schedule.index.history-days}") long historyDays) {
+    this.eventRepository = eventRepository;
+    this.assignmentRepository = assignmentRepository;
+    this.meterRegistry = meterRegistry;
+    this.clock = clock;
+    this.timelines =
+        Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .<UUID, ApartmentTimeline>build()
+            .asMap();
+    this.generations =
+        Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofSeconds(ttlSeconds))
+            .<UUID, AtomicLong>build()
+            .asMap();
+    this.history = Duration.ofDays(historyDays);
+  }
+
+  public static final String CONFLICTS_TIMER = "hosteo.schedule.conflicts";
+  public static final String INDEX_MISMATCH_COUNTER = "hosteo.schedule.index.mismatches";
+
+  public ScheduleIndexMode getMode() {
+    return mode;
+  }
+
+  // Timed by index mode and by whether a conflict was found
+  public Pair<Event, Assignment> getScheduleConflicts(
+      UUID apartmentId,
+      Instant startDate,
+      Instant endDate,
+      UUID excludeEventId,
+      UUID excludeAssignmentId) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    Pair<Event, Assignment> conflicts =
+        findScheduleConflicts(
+            apartmentId, startDate, endDate, excludeEventId, excludeAssignmentId);
+    sample.stop(
+        meterRegistry.timer(
+            CONFLICTS_TIMER,
+            "mode",
+            mode.name(),
+            "conflict",
+            String.valueOf(conflicts.a != null || conflicts.b != null)));
+    return conflicts;
+  }
+
+  private Pair<Event, Assignment> findScheduleConflicts(
+      UUID apartmentId,
+      Instant startDate,
+      Instant endDate,
+      UUID excludeEventId,
+      UUID excludeAssignmentId) {
+    if (mode == ScheduleIndexMode.DATABASE) {
+      return ServiceUtils.getScheduleConflicts(
+          eventRepository,
+          assignmentRepository,
+          apartmentId,
+          startDate,
+          endDate,
+          excludeEventId,
+          excludeAssignmentId);
+    }
+
+    // Older than what the timelines hold
+    if (startDate.isBefore(historyStart())) {
+      return ServiceUtils.getScheduleConflicts(
+          eventRepository,
+          assignmentRepository,
+          apartmentId,
+          startDate,
+          endDate,
+          excludeEventId,
+          excludeAssignmentId);
+    }
+
+    ApartmentTimeline timeline = getTimeline(apartmentId);
+    UUID eventConflictId = timeline.events.firstOverlap(startDate, endDate, excludeEventId);
+    UUID assignmentConflictId =
+        timeline.assignments.firstOverlap(startDate, endDate, excludeAssignmentId);
+
+    if (mode == ScheduleIndexMode.VERIFY) {
+      Pair<Event, Assignment> dbConflicts =
+          ServiceUtils.getScheduleConflicts(
+              eventRepository,
+              assignmentRepository,
+              apartmentId,
+              startDate,
+              endDate,
+              excludeEventId,
+              excludeAssignmentId);
+      UUID dbEventConflictId = dbConflicts.a == null ? null : dbConflicts.a.getId();
+      // Assignments query has no ordering, so only the presence of a conflict is comparable
+      if (!Objects.equals(eventConflictId, dbEventConflictId)
+          || (assignmentConflictId == null) != (dbConflicts.b == null)) {
+        log.warn(
+            "[ScheduleIndexService.getScheduleConflicts] - Index mismatch for apartment id: {} between {} and {}. "
+                + "Index: event {} / assignment {}. Database: event {} / assignment {}",
+            apartmentId,
+            startDate,
+            endDate,
+            eventConflictId,
+            assignmentConflictId,
+            dbEventConflictId,
+            dbConflicts.b == null ? null : dbConflicts.b.getId());
+        meterRegistry.counter(INDEX_MISMATCH_COUNTER).increment();
+        evictApartment(apartmentId);
+      }
+      return dbConflicts;
+    }
+
+    Event eventConflict =
+        eventConflictId == null
+            ? null
+            : eventRepository.findById(eventConflictId, AuthUtils.getUserId()).orElse(null);
+    Assignment assignmentConflict =
+        assignmentConflictId == null
+            ? null
+            : assignmentRepository
+                .findById(assignmentConflictId, AuthUtils.getUserId())
+                .orElse(null);
+    return new Pair<>(eventConflict, assignmentConflict);
+  }
+
+  // Compares the cached timeline of the apartment with the database and drops it if they differ.
+  // Returns true when the index was consistent (or not loaded)
+  public boolean verifyApartment(UUID apartmentId) {
+    ApartmentTimeline cached = timelines.get(apartmentId);
+    if (cached == null) {
+      return true;
+    }
+    ApartmentTimeline fresh = loadTimeline(apartmentId, cached.from);
+    if (cached.events.sameSlots(fresh.events) && cached.assignments.sameSlots(fresh.assignments)) {
+      return true;
+    }
+    log.warn(
+        "[ScheduleIndexService.verifyApartment] - Index out of sync for apartment id: {}, evicting",
+        apartmentId);
+    meterRegistry.counter(INDEX_MISMATCH_COUNTER).increment();
+    evictApartment(apartmentId);
+    return false;
+  }
+
+  public void onEventSaved(UUID eventId, UUID apartmentId, Instant startDate, Instant endDate) {
+    applyAfterCommit(apartmentId, timeline -> timeline.withEvent(eventId, startDate, endDate));
+  }
+
+  public void onEventRemoved(UUID eventId, UUID apartmentId) {
+    applyAfterCommit(apartmentId, timeline -> timeline.withoutEvent(eventId));
+  }
+
+  public void onAssignmentSaved(
+      UUID assignmentId, UUID apartmentId, Instant startDate, Instant endDate) {
+    applyAfterCommit(
+        apartmentId, timeline -> timeline.withAssignment(assignmentId, startDate, endDate));
+  }
+
+  public void onAssignmentRemoved(UUID assignmentId, UUID apartmentId) {
+    applyAfterCommit(apartmentId, timeline -> timeline.withoutAssignment(assignmentId));
+  }
+
+  public void onApartmentRemoved(UUID apartmentId) {
+    evictApartment(apartmentId);
+    runAfterCommit(() -> evictApartment(apartmentId));
+  }
+
+  // The assignments of a removed task are removed by ON DELETE CASCADE, out of the entity lifecycle
+  public void onTaskRemoved(UUID apartmentId) {
+    if (apartmentId != null) {
+      onApartmentRemoved(apartmentId);
+    }
+  }
+
+  // Called before the worker is removed, while its assignments (removed by ON DELETE CASCADE) can
+  // still be found
+  public void onWorkerRemoved(UUID workerId) {
+    for (UUID apartmentId : assignmentRepository.findApartmentIdsByWorkerId(workerId)) {
+      onApartmentRemoved(apartmentId);
+    }
+  }
+
+  public void evictApartment(UUID apartmentId) {
+    generation(apartmentId).incrementAndGet();
+    timelines.remove(apartmentId);
+  }
+
+  private ApartmentTimeline getTimeline(UUID apartmentId) {
+    ApartmentTimeline timeline = timelines.get(apartmentId);
+    if (timeline != null) {
+      return timeline;
+    }
+    long generation = generation(apartmentId).get();
+    timeline = loadTimeline(apartmentId, historyStart());
+    if (generation(apartmentId).get() == generation) {
+      ApartmentTimeline previous = timelines.putIfAbsent(apartmentId, timeline);
+      if (previous != null) {
+        return previous;
+      }
+      // The load may include changes not committed yet by the current transaction
+      if (TransactionSynchronizationManager.isSynchronizationActive()) {
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+              @Override
+              public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                  evictApartment(apartmentId);
+                }
+              }
+            });
+      }
+    }
+    return timeline;
+  }
+
+  private ApartmentTimeline loadTimeline(UUID apartmentId, Instant from) {
+    return new ApartmentTimeline(
+        from,
+        IntervalTimeline.of(eventRepository.findOccupancyByApartmentId(apartmentId, from)),
+        IntervalTimeline.of(assignmentRepository.findOccupancyByApartmentId(apartmentId, from)));
+  }
+
+  // Same precision as the timestamp columns, so the slots kept match what a load returns
+  private Instant historyStart() {
+    return clock.instant().minus(history).truncatedTo(ChronoUnit.MICROS);
+  }
+
+  private AtomicLong generation(UUID apartmentId) {
+    return generations.computeIfAbsent(apartmentId, id -> new AtomicLong());
+  }
+
+  private void applyAfterCommit(UUID apartmentId, UnaryOperator<ApartmentTimeline> change) {
+    if (mode == ScheduleIndexMode.DATABASE || apartmentId == null) {
+      return;
+    }
+    runAfterCommit(
+        () -> {
+          generation(apartmentId).incrementAndGet();
+          // Only loaded timelines are updated, the rest will be loaded from DB when needed
+          timelines.computeIfPresent(apartmentId, (id, timeline) -> change.apply(timeline));
+        });
+  }
+
+  private void runAfterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              action.run();
+            }
+          });
+    } else {
+      action.run();
+    }
+  }
+
+  // Slots ending after the start of the timeline, the ones moved before it are dropped as a load
+  // would
+  private static class ApartmentTimeline {
+    final Instant from;
+    final IntervalTimeline events;
+    final IntervalTimeline assignments;
+
+    ApartmentTimeline(Instant from, IntervalTimeline events, IntervalTimeline assignments) {
+      this.from = from;
+      this.events = events;
+      this.assignments = assignments;
+    }
+
+    ApartmentTimeline withEvent(UUID id, Instant startDate, Instant endDate) {
+      return new ApartmentTimeline(from, put(events, id, startDate, endDate), assignments);
+    }
+
+    ApartmentTimeline withoutEvent(UUID id) {
+      return new ApartmentTimeline(from, events.remove(id), assignments);
+    }
+
+    ApartmentTimeline withAssignment(UUID id, Instant startDate, Instant endDate) {
+      return new ApartmentTimeline(from, events, put(assignments, id, startDate, endDate));
+    }
+
+    ApartmentTimeline withoutAssignment(UUID id) {
+      return new ApartmentTimeline(from, events, assignments.remove(id));
+    }
+
+    private IntervalTimeline put(
+        IntervalTimeline timeline, UUID id, Instant startDate, Instant endDate) {
+      return endDate.truncatedTo(ChronoUnit.MICROS).isAfter(from)
+          ? timeline.upsert(id, startDate, endDate)
+          : timeline.remove(id);
+    }
+  }
+
+  /**
+   * Immutable list of intervals sorted by start date, with the running maximum of the end dates. As
+   * that maximum never decreases, the first interval ending after a date is found with a binary
+   * search. Changes copy the arrays (O(n)), reads need no locking.
+   */
+  static class IntervalTimeline {
+
+    private static final IntervalTimeline EMPTY =
+        new IntervalTimeline(new UUID[0], new Instant[0], new Instant[0]);
+
+    private final UUID[] ids;
+    private final Instant[] starts;
+    private final Instant[] ends;
+    private final Instant[] maxEnds;
+
+    private IntervalTimeline(UUID[] ids, Instant[] starts, Instant[] ends) {
+      this.ids = ids;
+      this.starts = starts;
+      this.ends = ends;
+      this.maxEnds = new Instant[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        maxEnds[i] = i == 0 || ends[i].isAfter(maxEnds[i - 1]) ? ends[i] : maxEnds[i - 1];
+      }
+    }
+
+    static IntervalTimeline of(List<OccupancySlot> slots) {
+      if (slots.isEmpty()) {
+        return EMPTY;
+      }
+      List<OccupancySlot> sorted = new ArrayList<>(slots);
+      sorted.sort(
+          Comparator.comparing(OccupancySlot::getStartDate).thenComparing(OccupancySlot::getId));
+      UUID[] ids = new UUID[sorted.size()];
+      Instant[] starts = new Instant[sorted.size()];
+      Instant[] ends = new Instant[sorted.size()];
+      for (int i = 0; i < sorted.size(); i++) {
+        ids[i] = sorted.get(i).getId();
+        starts[i] = sorted.get(i).getStartDate();
+        ends[i] = sorted.get(i).getEndDate();
+      }
+      return new IntervalTimeline(ids, starts, ends);
+    }
+
+    // First interval (by start date) with start < endDate and end > startDate
+    UUID firstOverlap(Instant startDate, Instant endDate, UUID excludeId) {
+      int low = 0;
+      int high = ids.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (maxEnds[mid].isAfter(startDate)) {
+          high = mid;
+        } else {
+          low = mid + 1;
+        }
+      }
+      for (int i = low; i < ids.length && starts[i].isBefore(endDate); i++) {
+        if (ends[i].isAfter(startDate) && !ids[i].equals(excludeId)) {
+          return ids[i];
+        }
+      }
+      return null;
+    }
+
+    IntervalTimeline upsert(UUID id, Instant startDate, Instant endDate) {
+      // Same precision as the timestamp columns, so the index matches what a reload would return
+      startDate = startDate.truncatedTo(ChronoUnit.MICROS);
+      endDate = endDate.truncatedTo(ChronoUnit.MICROS);
+      IntervalTimeline base = remove(id);
+      int size = base.ids.length;
+      int position = 0;
+      while (position < size
+          && (base.starts[position].isBefore(startDate)
+              || base.starts[position].equals(startDate) && base.ids[position].compareTo(id) < 0)) {
+        position++;
+      }
+      UUID[] newIds = new UUID[size + 1];
+      Instant[] newStarts = new Instant[size + 1];
+      Instant[] newEnds = new Instant[size + 1];
+      System.arraycopy(base.ids, 0, newIds, 0, position);
+      System.arraycopy(base.starts, 0, newStarts, 0, position);
+      System.arraycopy(base.ends, 0, newEnds, 0, position);
+      newIds[position] = id;
+      newStarts[position] = startDate;
+      newEnds[position] = endDate;
+      System.arraycopy(base.ids, position, newIds, position + 1, size - position);
+      System.arraycopy(base.starts, position, newStarts, position + 1, size - position);
+      System.arraycopy(base.ends, position, newEnds, position + 1, size - position);
+      return new IntervalTimeline(newIds, newStarts, newEnds);
+    }
+
+    IntervalTimeline remove(UUID id) {
+      int position = -1;
+      for (int i = 0; i < ids.length; i++) {
+        if (ids[i].equals(id)) {
+          position = i;
+          break;
+        }
+      }
+      if (position < 0) {
+        return this;
+      }
+      int size = ids.length - 1;
+      UUID[] newIds = new UUID[size];
+      Instant[] newStarts = new Instant[size];
+      Instant[] newEnds = new Instant[size];
+      System.arraycopy(ids, 0, newIds, 0, position);
+      System.arraycopy(starts, 0, newStarts, 0, position);
+      System.arraycopy(ends, 0, newEnds, 0, position);
+      System.arraycopy(ids, position + 1, newIds, position, size - position);
+      System.arraycopy(starts, position + 1, newStarts, position, size - position);
+      System.arraycopy(ends, position + 1, newEnds, position, size - position);
+      return new IntervalTimeline(newIds, newStarts, newEnds);
+    }
+
+    boolean sameSlots(IntervalTimeline other) {
+      return Arrays.equals(ids, other.ids)
+          && Arrays.equals(starts, other.starts)
+          && Arrays.equals(ends, other.ends);
+    }
+  }
+}
@@ -0,0 +1,431 @@
+package com.viladevcorp.hosteo.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.BaseEntity;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.Task;
+import com.viladevcorp.hosteo.model.Template;
+import com.viladevcorp.hosteo.model.Worker;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
+import com.viladevcorp.hosteo.model.types.AssignmentState;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.types.TaskType;
+import com.viladevcorp.hosteo.repository.ApartmentRepository;
+import com.viladevcorp.hosteo.repository.AssignmentRepository;
+import com.viladevcorp.hosteo.repository.EventRepository;
+import com.viladevcorp.hosteo.repository.TaskRepository;
+import com.viladevcorp.hosteo.repository.TemplateRepository;
+import com.viladevcorp.hosteo.repository.WorkerRepository;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps how many entities of each type a user has, grouped by the value the searches filter them by
+ * (the state of events, assignments and apartments, the type of tasks and the visibility of
+ * workers), so the metadata of the searches without a text or date filter is calculated without a
+ * COUNT query. The counts of a user are loaded with one grouped query per type and kept up to date
+ * from the changes reported by {@link com.viladevcorp.hosteo.model.listeners.EntityChangeListener}
+ * and by the bulk updates, applied after commit. An update moves the entity from the value it was
+ * loaded with, recorded on load, to its new one. The database cascades and the updates of entities
+ * whose loaded value is not known drop the counts instead.
+ *
+ * <p>The counts of the users not searched for a while are dropped, up to {@code
+ * search.counts.max-size} keys are kept. They are compared with the database periodically,
+ * repairing the ones that drifted.
+ */
+@Slf4j
+@Service
+public class SearchCountService {
+
+  // Bucket of the entities that are counted without grouping
+  private static final String ALL = "ALL";
+
+  private final EventRepository eventRepository;
+  private final AssignmentRepository assignmentRepository;
+  private final TaskRepository taskRepository;
+  private final WorkerRepository workerRepository;
+  private final ApartmentRepository apartmentRepository;
+  private final TemplateRepository templateRepository;
+
+  private final Map<CountKey, Map<Object, Long>> counts;
+
+  // Keys being loaded. Their generation is bumped on every commit that changes their counts, so a
+  // load that started before it is not published. A key is dropped when its last load ends
+  private final Map<CountKey, KeyLoads> loads = new ConcurrentHashMap<>();
+
+  @Autowired
+  public SearchCountService(
+      EventRepository eventRepository,
+      AssignmentRepository assignmentRepository,
+      TaskRepository taskRepository,
+      WorkerRepository workerRepository,
+      ApartmentRepository apartmentRepository,
+      TemplateRepository templateRepository,
+      @Value("${search.counts.max-size}") long maxSize,
+      @Value("${search.counts.ttl-seconds}") long ttlSeconds) {
+    this.eventRepository = eventRepository;
+    this.assignmentRepository = assignmentRepository;
+    this.taskRepository = taskRepository;
+    this.workerRepository = workerRepository;
+    this.apartmentRepository = apartmentRepository;
+    this.templateRepository = templateRepository;
+    this.counts =
+        Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterAccess(Duration.ofSeconds(ttlSeconds))
+            .<CountKey, Map<Object, Long>>build()
+            .asMap();
+  }
+
+  public int countEvents(UUID userId, Set<EventState> states) {
+    return count(Event.class, userId, state -> states == null || states.contains(state));
+  }
+
+  public int countAssignments(UUID userId, AssignmentState state) {
+    return count(Assignment.class, userId, bucket -> state == null || state == bucket);
+  }
+
+  public int countTasks(UUID userId, TaskType type) {
+    return count(Task.class, userId, bucket -> type == null || type == bucket);
+  }
+
+  public int countWorkers(UUID userId, Boolean visible) {
+    return count(Worker.class, userId, bucket -> visible == null || visible.equals(bucket));
+  }
+
+  public int countApartments(UUID userId, Set<ApartmentState> states) {
+    return count(Apartment.class, userId, state -> states == null || states.contains(state));
+  }
+
+  public int countTemplates(UUID userId) {
+    return count(Template.class, userId, bucket -> true);
+  }
+
+  public void onEntityLoaded(Object entity) {
+    ((BaseEntity) entity).setSearchCountBucket(bucketOf(entity));
+  }
+
+  public void onEntityInserted(Object entity, UUID userId) {
+    applyDelta(entity.getClass(), userId, bucketOf(entity), 1);
+    onEntityLoaded(entity);
+  }
+
+  // An entity merged without being loaded in the session has no loaded value to move it from
+  public void onEntityUpdated(Object entity, UUID userId) {
+    BaseEntity baseEntity = (BaseEntity) entity;
+    Object previous = baseEntity.getSearchCountBucket();
+    Object current = bucketOf(entity);
+    baseEntity.setSearchCountBucket(current);
+    if (previous == null) {
+      evict(entity.getClass(), userId);
+    } else if (!previous.equals(current)) {
+      applyDelta(entity.getClass(), userId, previous, -1);
+      applyDelta(entity.getClass(), userId, current, 1);
+    }
+  }
+
+  public void onEntityRemoved(Object entity, UUID userId) {
+    // The stored value, the entity may have been changed without flushing it
+    Object stored = ((BaseEntity) entity).getSearchCountBucket();
+    applyDelta(entity.getClass(), userId, stored != null ? stored : bucketOf(entity), -1);
+    // Rows removed by the database cascades are not reported
+    if (entity instanceof Apartment) {
+      evict(Event.class, userId);
+      evict(Task.class, userId);
+      evict(Assignment.class, userId);
+    } else if (entity instanceof Task || entity instanceof Worker) {
+      evict(Assignment.class, userId);
+    }
+  }
+
+  // Used after bulk updates, which do not go through the entity lifecycle. The entities still hold
+  // the value they had before the update
+  public void onBulkUpdate(Collection<? extends BaseEntity> entities, Object bucket, UUID userId) {
+    for (BaseEntity entity : entities) {
+      Object previous = bucketOf(entity);
+      if (!previous.equals(bucket)) {
+        applyDelta(entity.getClass(), userId, previous, -1);
+        applyDelta(entity.getClass(), userId, bucket, 1);
+      }
+    }
+  }
+
+  /**
+   * Loads again the counts held in memory, repairing the ones that differ from the database.
+   * Returns how many of them had drifted.
+   */
+  @Scheduled(cron = "${search.counts.reconcile-cron:-}")
+  public int reconcileCounts() {
+    int drifted = 0;
+    for (CountKey key : new ArrayList<>(counts.keySet())) {
+      long generation = startLoad(key);
+      Map<Object, Long> loaded;
+      boolean unchanged;
+      try {
+        loaded = load(key);
+      } finally {
+        unchanged = finishLoad(key, generation, null);
+      }
+      Map<Object, Long> cached = counts.get(key);
+      // Changed while loading, the changes keep it up to date
+      if (!unchanged || cached == null || cached.equals(loaded)) {
+        continue;
+      }
+      log.warn(
+          "[SearchCountService.reconcileCounts] - Counts of {} for user id: {} were {} but are {}, repairing",
+          key.type().getSimpleName(),
+          key.userId(),
+          cached,
+          loaded);
+      evictKey(key);
+      drifted++;
+    }
+    log.info(
+        "[SearchCountService.reconcileCounts] - Reconciliation finished, {} counts repaired",
+        drifted);
+    return drifted;
+  }
+
+  public void evictAll() {
+    counts.keySet().forEach(this::evictKey);
+  }
+
+  private int count(Class<?> type, UUID userId, Predicate<Object> bucketFilter) {
+    long total =
+        getCounts(new CountKey(type, userId)).entrySet().stream()
+            .filter(entry -> bucketFilter.test(entry.getKey()))
+            .mapToLong(Map.Entry::getValue)
+            .sum();
+    return (int) total;
+  }
+
+  private Map<Object, Long> getCounts(CountKey key) {
+    Map<Object, Long> cached = counts.get(key);
+    if (cached != null && !hasPendingChanges(key)) {
+      return cached;
+    }
+    long generation = startLoad(key);
+    Map<Object, Long> loaded = null;
+    try {
+      loaded = load(key);
+    } finally {
+      // Counts that include changes not committed yet are only valid for this transaction. The
+      // query can flush them, so it is checked after loading
+      finishLoad(key, generation, loaded == null || hasPendingChanges(key) ? null : loaded);
+    }
+    return loaded;
+  }
+
+  private long startLoad(CountKey key) {
+    long[] generation = new long[1];
+    loads.compute(
+        key,
+        (k, keyLoads) -> {
+          KeyLoads updated = keyLoads == null ? new KeyLoads() : keyLoads;
+          updated.inFlight++;
+          generation[0] = updated.generation;
+          return updated;
+        });
+    return generation[0];
+  }
+
+  // Publishes the loaded counts, if any, unless the key changed since the load started. Returns
+  // whether it did not change
+  private boolean finishLoad(CountKey key, long generation, Map<Object, Long> loaded) {
+    boolean[] unchanged = new boolean[1];
+    loads.compute(
+        key,
+        (k, keyLoads) -> {
+          unchanged[0] = keyLoads != null && keyLoads.generation == generation;
+          if (unchanged[0] && loaded != null) {
+            counts.put(k, loaded);
+          }
+          if (keyLoads == null || --keyLoads.inFlight == 0) {
+            return null;
+          }
+          return keyLoads;
+        });
+    return unchanged[0];
+  }
+
+  private Map<Object, Long> load(CountKey key) {
+    UUID userId = key.userId();
+    Class<?> type = key.type();
+    Map<Object, Long> loaded = new HashMap<>();
+    if (type == Template.class) {
+      long total = templateRepository.countByCreatedById(userId);
+      if (total > 0) {
+        loaded.put(ALL, total);
+      }
+      return loaded;
+    }
+    List<Object[]> rows;
+    if (type == Event.class) {
+      rows = eventRepository.countByState(userId);
+    } else if (type == Assignment.class) {
+      rows = assignmentRepository.countByState(userId);
+    } else if (type == Task.class) {
+      rows = taskRepository.countByType(userId);
+    } else if (type == Worker.class) {
+      rows = workerRepository.countByVisible(userId);
+    } else if (type == Apartment.class) {
+      rows = apartmentRepository.countByState(userId);
+    } else {
+      throw new IllegalArgumentException("No search counts for " + type.getSimpleName());
+    }
+    for (Object[] row : rows) {
+      loaded.put(row[0], (Long) row[1]);
+    }
+    return loaded;
+  }
+
+  private Object bucketOf(Object entity) {
+    if (entity instanceof Event event) {
+      return event.getState();
+    } else if (entity instanceof Assignment assignment) {
+      return assignment.getState();
+    } else if (entity instanceof Task task) {
+      return task.getType();
+    } else if (entity instanceof Worker worker) {
+      return worker.isVisible();
+    } else if (entity instanceof Apartment apartment) {
+      return apartment.getState();
+    }
+    return ALL;
+  }
+
+  private void applyDelta(Class<?> type, UUID userId, Object bucket, long delta) {
+    if (userId == null) {
+      return;
+    }
+    CountKey key = new CountKey(type, userId);
+    TransactionChanges changes = currentChanges();
+    if (changes == null) {
+      evictKey(key);
+      return;
+    }
+    changes.deltas.computeIfAbsent(key, k -> new HashMap<>()).merge(bucket, delta, Long::sum);
+  }
+
+  private void evict(Class<?> type, UUID userId) {
+    if (userId == null) {
+      return;
+    }
+    CountKey key = new CountKey(type, userId);
+    TransactionChanges changes = currentChanges();
+    if (changes == null) {
+      evictKey(key);
+      return;
+    }
+    changes.evictedKeys.add(key);
+  }
+
+  private void publish(TransactionChanges changes) {
+    changes.evictedKeys.forEach(this::evictKey);
+    changes.deltas.forEach(
+        (key, deltas) -> {
+          if (changes.evictedKeys.contains(key)) {
+            return;
+          }
+          // Only loaded counts are updated, the rest will be loaded when needed
+          changeKey(
+              key,
+              () ->
+                  counts.computeIfPresent(
+                      key,
+                      (k, current) -> {
+                        Map<Object, Long> updated = new HashMap<>(current);
+                        // Empty buckets are dropped, as the grouped query does not return them
+                        deltas.forEach(
+                            (bucket, delta) ->
+                                updated.merge(
+                                    bucket,
+                                    delta,
+                                    (count, change) ->
+                                        count + change == 0 ? null : count + change));
+                        return updated;
+                      }));
+        });
+  }
+
+  private void evictKey(CountKey key) {
+    changeKey(key, () -> counts.remove(key));
+  }
+
+  // Applies a change to the counts of a key, making the loads in flight of it outdated
+  private void changeKey(CountKey key, Runnable change) {
+    loads.compute(
+        key,
+        (k, keyLoads) -> {
+          change.run();
+          if (keyLoads != null) {
+            keyLoads.generation++;
+          }
+          return keyLoads;
+        });
+  }
+
+  private boolean hasPendingChanges(CountKey key) {
+    TransactionChanges changes = currentChanges();
+    return changes != null
+        && (changes.deltas.containsKey(key) || changes.evictedKeys.contains(key));
+  }
+
+  // Changes of the current transaction, bound to it on first use. Outside of a transaction there
+  // is nothing to bind them to and the affected counts are evicted instead
+  private TransactionChanges currentChanges() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return null;
+    }
+    TransactionChanges changes =
+        (TransactionChanges) TransactionSynchronizationManager.getResource(this);
+    if (changes == null) {
+      changes = new TransactionChanges();
+      TransactionSynchronizationManager.bindResource(this, changes);
+      TransactionSynchronizationManager.registerSynchronization(changes);
+    }
+    return changes;
+  }
+
+  private record CountKey(Class<?> type, UUID userId) {}
+
+  private static class KeyLoads {
+    long generation;
+    int inFlight;
+  }
+
+  private class TransactionChanges implements TransactionSynchronization {
+    final Map<CountKey, Map<Object, Long>> deltas = new HashMap<>();
+    final Set<CountKey> evictedKeys = new HashSet<>();
+
+    // A transaction started inside this one (REQUIRES_NEW) gets its own changes
+    @Override
+    public void suspend() {
+      TransactionSynchronizationManager.unbindResource(SearchCountService.this);
+    }
+
+    @Override
+    public void resume() {
+      TransactionSynchronizationManager.bindResource(SearchCountService.this, this);
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(SearchCountService.this);
+      if (status == STATUS_COMMITTED) {
+        publish(this);
+      }
+    }
+  }
+}
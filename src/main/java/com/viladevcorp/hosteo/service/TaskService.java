@@ -1,12 +1,15 @@
 package com.viladevcorp.hosteo.service;
 
+import com.viladevcorp.hosteo.exceptions.InvalidCursorException;
 import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.PageCursor;
 import com.viladevcorp.hosteo.model.PageMetadata;
 import com.viladevcorp.hosteo.model.Task;
 import com.viladevcorp.hosteo.model.forms.TaskCreateForm;
 import com.viladevcorp.hosteo.model.forms.TaskSearchForm;
 import com.viladevcorp.hosteo.model.forms.TaskUpdateForm;
 import com.viladevcorp.hosteo.model.types.TaskType;
+import com.viladevcorp.hosteo.model.dto.TaskDto;
 import com.viladevcorp.hosteo.repository.ApartmentRepository;
 import com.viladevcorp.hosteo.repository.TaskRepository;
 import com.viladevcorp.hosteo.utils.AuthUtils;
@@ -28,23 +31,26 @@ import org.springframework.transaction.annotation.Transactional;
 public class TaskService {
 
   private final TaskRepository taskRepository;
-  private final WorkflowService workflowService;
+  private final ApartmentStateService apartmentStateService;
   private final ApartmentRepository apartmentRepository;
+  private final SearchCountService searchCountService;
 
   @Autowired
   public TaskService(
       TaskRepository taskRepository,
-      WorkflowService workflowService,
-      ApartmentRepository apartmentRepository) {
+      ApartmentStateService apartmentStateService,
+      ApartmentRepository apartmentRepository,
+      SearchCountService searchCountService) {
     this.taskRepository = taskRepository;
-    this.workflowService = workflowService;
+    this.apartmentStateService = apartmentStateService;
     this.apartmentRepository = apartmentRepository;
+    this.searchCountService = searchCountService;
   }
 
   public Task createTask(TaskCreateForm form) throws InstanceNotFoundException {
 
     Optional<Apartment> apartmentOpt =
-        apartmentRepository.findById(form.getApartmentId(), AuthUtils.getUsername());
+        apartmentRepository.findById(form.getApartmentId(), AuthUtils.getUserId());
     if (apartmentOpt.isEmpty()) {
       throw new InstanceNotFoundException("Apartment not found with id: " + form.getApartmentId());
     }
@@ -60,7 +66,7 @@ public class TaskService {
             .build();
 
     apartment.addTask(task);
-    workflowService.calculateApartmentState(apartment.getId());
+    apartmentStateService.refreshApartmentState(apartment.getId());
     return task;
   }
 
@@ -70,13 +76,13 @@ public class TaskService {
     BeanUtils.copyProperties(form, task, "id");
     task = taskRepository.save(task);
     if (oldTaskType != task.getType()) {
-      workflowService.calculateApartmentState(task.getApartment().getId());
+      apartmentStateService.refreshApartmentState(task.getApartment().getId());
     }
     return task;
   }
 
   public Task getTaskById(UUID id) throws InstanceNotFoundException {
-    Optional<Task> resultOpt = taskRepository.findById(id, AuthUtils.getUsername());
+    Optional<Task> resultOpt = taskRepository.findCachedById(id, AuthUtils.getUserId());
     if (resultOpt.isEmpty()) {
       throw new InstanceNotFoundException("Task not found with id: " + id);
     } else {
@@ -84,15 +90,32 @@ public class TaskService {
     }
   }
 
-  public List<Task> findTasks(TaskSearchForm form) {
+  public List<TaskDto> findTasks(TaskSearchForm form) throws InvalidCursorException {
     String name =
         form.getName() == null || form.getName().isEmpty()
             ? null
             : "%" + form.getName().toLowerCase() + "%";
 
+    if (form.isRanked() && name != null) {
+      return taskRepository.rankedSearch(
+          AuthUtils.getUserId(),
+          name,
+          form.getName().toLowerCase(),
+          null,
+          ServiceUtils.createPageRequest(form.getPageNumber(), form.getPageSize()));
+    }
+    // With a cursor the page starts right after it, not at an offset
+    PageCursor cursor = PageCursor.decode(form.getCursor());
     PageRequest pageRequest =
-        ServiceUtils.createPageRequest(form.getPageNumber(), form.getPageSize());
-    return taskRepository.advancedSearch(AuthUtils.getUsername(), name, null, pageRequest);
+        ServiceUtils.createPageRequest(
+            cursor == null ? form.getPageNumber() : 0, form.getPageSize());
+    return taskRepository.advancedSearch(
+        AuthUtils.getUserId(),
+        name,
+        null,
+        cursor == null ? null : cursor.getPosition(),
+        cursor == null ? null : cursor.getId(),
+        pageRequest);
   }
 
   public PageMetadata getTasksMetadata(TaskSearchForm form) {
@@ -100,7 +123,11 @@ public class TaskService {
         form.getName() == null || form.getName().isEmpty()
             ? null
             : "%" + form.getName().toLowerCase() + "%";
-    int totalRows = taskRepository.advancedCount(AuthUtils.getUsername(), name, null);
+    UUID userId = AuthUtils.getUserId();
+    int totalRows =
+        name == null
+            ? searchCountService.countTasks(userId, null)
+            : taskRepository.advancedCount(userId, name, null);
     int totalPages = ServiceUtils.calculateTotalPages(form.getPageSize(), totalRows);
     return new PageMetadata(totalPages, totalRows);
   }
@@ -108,8 +135,9 @@ public class TaskService {
   public void deleteTask(UUID id) throws InstanceNotFoundException {
     Task task = getTaskById(id);
     Apartment apartment = task.getApartment();
-    apartment.removeTask(task);
+    // The task keeps its apartment, the listeners read it on removal
+    apartment.getTasks().remove(task);
     taskRepository.delete(task);
-    workflowService.calculateApartmentState(apartment.getId());
+    apartmentStateService.refreshApartmentState(apartment.getId());
   }
 }
@@ -25,10 +25,14 @@ import org.springframework.transaction.annotation.Transactional;
 public class TemplateService {
 
   private final TemplateRepository templateRepository;
+  private final SearchCountService searchCountService;
 
   @Autowired
-  public TemplateService(TemplateRepository templateRepository) {
+  public TemplateService(
+      TemplateRepository templateRepository,
+      SearchCountService searchCountService) {
     this.templateRepository = templateRepository;
+    this.searchCountService = searchCountService;
   }
 
   public Template createTemplate(TemplateCreateForm form) {
@@ -51,7 +55,7 @@ public class TemplateService {
   }
 
   public Template getTemplateById(UUID id) throws InstanceNotFoundException {
-    Optional<Template> template = templateRepository.findById(id, AuthUtils.getUsername());
+    Optional<Template> template = templateRepository.findCachedById(id, AuthUtils.getUserId());
     if (template.isEmpty()) {
       throw new InstanceNotFoundException("Template not found with id: " + id);
     }
@@ -65,7 +69,11 @@ public class TemplateService {
             : "%" + form.getName().toLowerCase() + "%";
     PageRequest pageRequest =
         ServiceUtils.createPageRequest(form.getPageNumber(), form.getPageSize());
-    return templateRepository.advancedSearch(AuthUtils.getUsername(), name, pageRequest);
+    if (form.isRanked() && name != null) {
+      return templateRepository.rankedSearch(
+          AuthUtils.getUserId(), name, form.getName().toLowerCase(), pageRequest);
+    }
+    return templateRepository.advancedSearch(AuthUtils.getUserId(), name, pageRequest);
   }
 
   public PageMetadata getTemplatesMetadata(TemplateSearchForm form) {
@@ -73,7 +81,11 @@ public class TemplateService {
         form.getName() == null || form.getName().isEmpty()
             ? null
             : "%" + form.getName().toLowerCase() + "%";
-    int totalRows = templateRepository.advancedCount(AuthUtils.getUsername(), name);
+    UUID userId = AuthUtils.getUserId();
+    int totalRows =
+        name == null
+            ? searchCountService.countTemplates(userId)
+            : templateRepository.advancedCount(userId, name);
     int totalPages = ServiceUtils.calculateTotalPages(form.getPageSize(), totalRows);
     return new PageMetadata(totalPages, totalRows);
   }
@@ -5,6 +5,7 @@ import com.viladevcorp.hosteo.model.Worker;
 import com.viladevcorp.hosteo.model.forms.WorkerCreateForm;
 import com.viladevcorp.hosteo.model.forms.WorkerSearchForm;
 import com.viladevcorp.hosteo.model.forms.WorkerUpdateForm;
+import com.viladevcorp.hosteo.model.dto.WorkerDto;
 import com.viladevcorp.hosteo.repository.WorkerRepository;
 import com.viladevcorp.hosteo.utils.AuthUtils;
 import com.viladevcorp.hosteo.utils.ServiceUtils;
@@ -25,10 +26,12 @@ import org.springframework.transaction.annotation.Transactional;
 public class WorkerService {
 
   private final WorkerRepository workerRepository;
+  private final SearchCountService searchCountService;
 
   @Autowired
-  public WorkerService(WorkerRepository workerRepository) {
+  public WorkerService(WorkerRepository workerRepository, SearchCountService searchCountService) {
     this.workerRepository = workerRepository;
+    this.searchCountService = searchCountService;
   }
 
   public Worker createWorker(WorkerCreateForm form) {
@@ -48,7 +51,7 @@ public class WorkerService {
   }
 
   public Worker getWorkerById(UUID id) throws InstanceNotFoundException {
-    Optional<Worker> result = workerRepository.findById(id, AuthUtils.getUsername());
+    Optional<Worker> result = workerRepository.findCachedById(id, AuthUtils.getUserId());
     if (result.isEmpty()) {
       throw new InstanceNotFoundException("Worker not found with id: " + id);
     } else {
@@ -56,7 +59,7 @@ public class WorkerService {
     }
   }
 
-  public List<Worker> findWorkers(WorkerSearchForm form) {
+  public List<WorkerDto> findWorkers(WorkerSearchForm form) {
     String workerName =
         form.getName() == null || form.getName().isEmpty()
             ? null
@@ -64,8 +67,16 @@ public class WorkerService {
 
     PageRequest pageRequest =
         ServiceUtils.createPageRequest(form.getPageNumber(), form.getPageSize());
+    if (form.isRanked() && workerName != null) {
+      return workerRepository.rankedSearch(
+          AuthUtils.getUserId(),
+          workerName,
+          form.getName().toLowerCase(),
+          form.getVisible(),
+          pageRequest);
+    }
     return workerRepository.advancedSearch(
-        AuthUtils.getUsername(), workerName, form.getVisible(), pageRequest);
+        AuthUtils.getUserId(), workerName, form.getVisible(), pageRequest);
   }
 
   public PageMetadata getWorkersMetadata(WorkerSearchForm form) {
@@ -73,8 +84,11 @@ public class WorkerService {
         form.getName() == null || form.getName().isEmpty()
             ? null
             : "%" + form.getName().toLowerCase() + "%";
+    UUID userId = AuthUtils.getUserId();
     int totalRows =
-        workerRepository.advancedCount(AuthUtils.getUsername(), workerName, form.getVisible());
+        workerName == null
+            ? searchCountService.countWorkers(userId, form.getVisible())
+            : workerRepository.advancedCount(userId, workerName, form.getVisible());
     int totalPages = ServiceUtils.calculateTotalPages(form.getPageSize(), totalRows);
     return new PageMetadata(totalPages, totalRows);
   }
@@ -6,16 +6,17 @@ import com.viladevcorp.hosteo.model.types.Alert;
 import com.viladevcorp.hosteo.model.types.ApartmentState;
 import com.viladevcorp.hosteo.model.types.EventState;
 import com.viladevcorp.hosteo.model.types.TaskType;
-import com.viladevcorp.hosteo.repository.ApartmentRepository;
 import com.viladevcorp.hosteo.repository.AssignmentRepository;
 import com.viladevcorp.hosteo.repository.EventRepository;
 import com.viladevcorp.hosteo.repository.TaskRepository;
 import com.viladevcorp.hosteo.utils.AuthUtils;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
-import javax.management.InstanceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -26,47 +27,53 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional(rollbackFor = Exception.class)
 public class WorkflowService {
 
-  private final ApartmentRepository apartmentRepository;
   private final EventRepository eventRepository;
   private final AssignmentRepository assignmentRepository;
   private final TaskRepository taskRepository;
   private final Clock clock;
+  private final MeterRegistry meterRegistry;
 
   @Autowired
   public WorkflowService(
-      ApartmentRepository apartmentRepository,
       EventRepository eventRepository,
       AssignmentRepository assignmentRepository,
       TaskRepository taskRepository,
-      Clock clock) {
-    this.apartmentRepository = apartmentRepository;
+      Clock clock,
+      MeterRegistry meterRegistry) {
     this.eventRepository = eventRepository;
     this.assignmentRepository = assignmentRepository;
     this.taskRepository = taskRepository;
     this.clock = clock;
+    this.meterRegistry = meterRegistry;
   }
 
-  public void calculateApartmentState(UUID id) throws InstanceNotFoundException {
+  public static final String APARTMENT_STATE_TIMER = "hosteo.apartment.state.calculation";
 
-    Optional<Apartment> apartmentOpt = apartmentRepository.findById(id, AuthUtils.getUsername());
-    if (apartmentOpt.isEmpty()) {
-      throw new InstanceNotFoundException("Apartment not found with id: " + id);
-    }
-    Apartment apartment = apartmentOpt.get();
+  public static final int RED_ALERT_DAYS = 2;
+  public static final int YELLOW_ALERT_DAYS = 5;
+
+  // Timed by the resulting state. Only run by the nightly
+  // ApartmentStateService.verifyApartmentStates,
+  // the changes are applied by ApartmentStateService.refreshApartmentState
+  public ApartmentState computeApartmentState(Apartment apartment) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    ApartmentState state = resolveApartmentState(apartment);
+    sample.stop(meterRegistry.timer(APARTMENT_STATE_TIMER, "state", state.name()));
+    return state;
+  }
+
+  private ApartmentState resolveApartmentState(Apartment apartment) {
+    UUID id = apartment.getId();
 
     // If the apartment has an event in progress, is occupied
     if (eventRepository.existsEventByApartmentIdAndState(id, EventState.IN_PROGRESS)) {
-      apartment.setState(ApartmentState.OCCUPIED);
-      apartmentRepository.save(apartment);
-      return;
+      return ApartmentState.OCCUPIED;
     }
 
     List<Task> apartmentTasks = apartment.getTasks();
     // If the apartment has no tasks, its ready (nothing to do)
     if (apartmentTasks.isEmpty()) {
-      apartment.setState(ApartmentState.READY);
-      apartmentRepository.save(apartment);
-      return;
+      return ApartmentState.READY;
     }
 
     // We index by taskId the tasks (faster access)
@@ -80,14 +87,12 @@ public class WorkflowService {
 
     // Get the last finished event of the apartment
     Optional<Event> lastFinishedEvent =
-        eventRepository.findFirstByCreatedByUsernameAndApartmentIdAndStateOrderByEndDateDesc(
-            AuthUtils.getUsername(), id, EventState.FINISHED);
+        eventRepository.findFirstByCreatedByIdAndApartmentIdAndStateOrderByEndDateDesc(
+            apartment.getCreatedBy().getId(), id, EventState.FINISHED);
 
     // If not finished event found, the apartment is ready
     if (lastFinishedEvent.isEmpty()) {
-      apartment.setState(ApartmentState.READY);
-      apartmentRepository.save(apartment);
-      return;
+      return ApartmentState.READY;
     }
 
     // We loop through the assignments of that last finished event
@@ -95,9 +100,7 @@ public class WorkflowService {
     for (Assignment assignment : eventAssignments) {
       // If one of the assignments is not completed, the apartment is still USED
       if (assignment.getState().isPending()) {
-        apartment.setState(ApartmentState.USED);
-        apartmentRepository.save(apartment);
-        return;
+        return ApartmentState.USED;
       }
       // If the finished task is one of the mandatory, we remove it from the map
       if (assignment.getTask().getType() == TaskType.MANDATORY) {
@@ -107,266 +110,280 @@ public class WorkflowService {
 
     // At the end, if the map is empty (all mandatory tasks completed) we can set to ready the
     // apartment
-    if (mandatoryTasksMap.isEmpty()) {
-      apartment.setState(ApartmentState.READY);
+    return mandatoryTasksMap.isEmpty() ? ApartmentState.READY : ApartmentState.USED;
+  }
+
+  /**
+   * Builds the scheduler of the given range with a fixed number of queries, whatever the number of
+   * events. It loads the events of the range, and the ones of the pending events that can raise an
+   * alert, with the event before and after them in each apartment. Then the assignments of all of
+   * them and of the range, and the mandatory tasks of their apartments. The links, unassigned tasks
+   * and alerts are found in one pass over the timeline of each apartment.
+   */
+  // Read only, so the loaded entities are not kept for dirty checking
+  @Transactional(readOnly = true, rollbackFor = Exception.class)
+  public SchedulerInfo getSchedulerInfo(Instant startDate, Instant endDate) {
+    UUID userId = AuthUtils.getUserId();
+    Instant now = Instant.now(clock);
+    Instant redAlertLimit = now.plus(Duration.ofDays(RED_ALERT_DAYS));
+    Instant yellowAlertLimit = now.plus(Duration.ofDays(YELLOW_ALERT_DAYS));
+
+    // Pending events starting before the yellow limit can raise an alert. Their range is loaded
+    // with the one of the scheduler when they touch
+    Map<UUID, Event> eventsById = new HashMap<>();
+    Instant firstAlertStart =
+        eventRepository.findFirstStartDateWithStateBefore(
+            userId, EventState.PENDING, yellowAlertLimit);
+    if (firstAlertStart == null) {
+      loadEventsAround(userId, startDate, endDate, eventsById);
+    } else if (firstAlertStart.isAfter(endDate) || yellowAlertLimit.isBefore(startDate)) {
+      loadEventsAround(userId, startDate, endDate, eventsById);
+      loadEventsAround(userId, firstAlertStart, yellowAlertLimit, eventsById);
     } else {
-      apartment.setState(ApartmentState.USED);
+      loadEventsAround(
+          userId,
+          firstAlertStart.isBefore(startDate) ? firstAlertStart : startDate,
+          yellowAlertLimit.isAfter(endDate) ? yellowAlertLimit : endDate,
+          eventsById);
+    }
+
+    List<Assignment> assignments =
+        assignmentRepository.findByEventIdsOrBetween(
+            userId, eventsById.keySet(), startDate, endDate);
+    Map<UUID, List<EventSchedulerDto>> schedulerTimelines =
+        buildTimelines(userId, eventsById.values(), assignments, redAlertLimit, yellowAlertLimit);
+
+    SchedulerInfo schedulerInfo = new SchedulerInfo();
+    for (List<EventSchedulerDto> schedulerTimeline : schedulerTimelines.values()) {
+      for (EventSchedulerDto event : schedulerTimeline) {
+        if (!event.getEndDate().isBefore(startDate) && event.getStartDate().isBefore(endDate)) {
+          schedulerInfo.getEvents().add(event);
+        }
+        if (event.getAlert() == Alert.DAYS_LEFT_5_UNASSIGNED) {
+          schedulerInfo.getYellowAlertEvents().add(event);
+        } else if (event.getAlert() != null) {
+          schedulerInfo.getRedAlertEvents().add(event);
+        }
+      }
+    }
+    Comparator<EventSchedulerDto> byStartDate =
+        Comparator.comparing(EventSchedulerDto::getStartDate);
+    schedulerInfo.getEvents().sort(byStartDate);
+    schedulerInfo.getRedAlertEvents().sort(byStartDate);
+    schedulerInfo.getYellowAlertEvents().sort(byStartDate);
+
+    // The assignments of the range, with the events before and after them (they are sorted by start
+    // date, so each timeline is walked once)
+    Map<UUID, Integer> timelinePositions = new HashMap<>();
+    for (Assignment assignment : assignments) {
+      if (assignment.getEndDate().isBefore(startDate)
+          || !assignment.getStartDate().isBefore(endDate)) {
+        continue;
+      }
+      UUID apartmentId = assignment.getTask().getApartment().getId();
+      List<EventSchedulerDto> schedulerTimeline =
+          schedulerTimelines.getOrDefault(apartmentId, List.of());
+      int position = timelinePositions.getOrDefault(apartmentId, 0);
+      while (position < schedulerTimeline.size()
+          && schedulerTimeline.get(position).getStartDate().isBefore(assignment.getStartDate())) {
+        position++;
+      }
+      timelinePositions.put(apartmentId, position);
+      int next = position;
+      while (next < schedulerTimeline.size()
+          && !schedulerTimeline.get(next).getStartDate().isAfter(assignment.getStartDate())) {
+        next++;
+      }
+      schedulerInfo
+          .getAssignments()
+          .add(
+              new AssignmentForSchedulerDto(
+                  assignment,
+                  position > 0
+                      ? new SimpleEventSchedulerDto(schedulerTimeline.get(position - 1))
+                      : null,
+                  next < schedulerTimeline.size()
+                      ? new SimpleEventSchedulerDto(schedulerTimeline.get(next))
+                      : null));
+    }
+
+    schedulerInfo.setExtraTasks(
+        taskRepository.findNotAssignedWithType(userId, TaskType.EXTRA).stream()
+            .map(TaskDto::new)
+            .collect(Collectors.toList()));
+    log.info(
+        "[WorkflowService.getSchedulerInfo] - Scheduler built with {} events, {} alerts and {} assignments",
+        schedulerInfo.getEvents().size(),
+        schedulerInfo.getRedAlertEvents().size() + schedulerInfo.getYellowAlertEvents().size(),
+        schedulerInfo.getAssignments().size());
+    return schedulerInfo;
+  }
+
+  /**
+   * Finds the pending events of the user that raise an alert at the given time, sorted by start
+   * date. The same as the alerts of the scheduler, with the data of the alert range only.
+   */
+  @Transactional(readOnly = true, rollbackFor = Exception.class)
+  public List<EventSchedulerDto> getAlertEvents(UUID userId, Instant now) {
+    Instant redAlertLimit = now.plus(Duration.ofDays(RED_ALERT_DAYS));
+    Instant yellowAlertLimit = now.plus(Duration.ofDays(YELLOW_ALERT_DAYS));
+    Instant firstAlertStart =
+        eventRepository.findFirstStartDateWithStateBefore(
+            userId, EventState.PENDING, yellowAlertLimit);
+    if (firstAlertStart == null) {
+      return new ArrayList<>();
     }
-    apartmentRepository.save(apartment);
+    Map<UUID, Event> eventsById = new HashMap<>();
+    loadEventsAround(userId, firstAlertStart, yellowAlertLimit, eventsById);
+    List<Assignment> assignments =
+        assignmentRepository.findByEventIdsWithDetails(userId, eventsById.keySet());
+    return buildTimelines(userId, eventsById.values(), assignments, redAlertLimit, yellowAlertLimit)
+        .values()
+        .stream()
+        .flatMap(List::stream)
+        .filter(event -> event.getAlert() != null)
+        .sorted(Comparator.comparing(EventSchedulerDto::getStartDate))
+        .collect(Collectors.toList());
   }
 
-  private static class ApartmentInfo {
-    List<TaskDto> tasks;
-    Event nextPendingEvent;
-    ApartmentState state;
+  // The timeline of each apartment of the events, with the mandatory tasks of the apartment and the
+  // assignments of its events
+  private Map<UUID, List<EventSchedulerDto>> buildTimelines(
+      UUID userId,
+      Collection<Event> events,
+      List<Assignment> assignments,
+      Instant redAlertLimit,
+      Instant yellowAlertLimit) {
+    Set<UUID> apartmentIds = new HashSet<>();
+    events.forEach(event -> apartmentIds.add(event.getApartment().getId()));
+    assignments.forEach(
+        assignment -> apartmentIds.add(assignment.getTask().getApartment().getId()));
+    Map<UUID, List<Task>> mandatoryTasksByApartment = new HashMap<>();
+    if (!apartmentIds.isEmpty()) {
+      taskRepository
+          .findByApartmentIdsAndType(userId, apartmentIds, TaskType.MANDATORY)
+          .forEach(
+              task ->
+                  mandatoryTasksByApartment
+                      .computeIfAbsent(task.getApartment().getId(), id -> new ArrayList<>())
+                      .add(task));
+    }
+    Map<UUID, List<Assignment>> assignmentsByEvent = new HashMap<>();
+    assignments.stream()
+        .filter(assignment -> assignment.getEvent() != null)
+        .forEach(
+            assignment ->
+                assignmentsByEvent
+                    .computeIfAbsent(assignment.getEvent().getId(), id -> new ArrayList<>())
+                    .add(assignment));
+
+    Map<UUID, List<Event>> timelines = new HashMap<>();
+    events.forEach(
+        event ->
+            timelines
+                .computeIfAbsent(event.getApartment().getId(), id -> new ArrayList<>())
+                .add(event));
 
-    public ApartmentInfo(List<TaskDto> tasks, Event nextPendingEvent, ApartmentState state) {
-      this.tasks = tasks;
-      this.nextPendingEvent = nextPendingEvent;
-      this.state = state;
+    Map<UUID, List<EventSchedulerDto>> schedulerTimelines = new HashMap<>();
+    for (Map.Entry<UUID, List<Event>> entry : timelines.entrySet()) {
+      List<Event> timeline = entry.getValue();
+      timeline.sort(Comparator.comparing(Event::getStartDate));
+      schedulerTimelines.put(
+          entry.getKey(),
+          processTimeline(
+              timeline,
+              mandatoryTasksByApartment.getOrDefault(entry.getKey(), List.of()),
+              assignmentsByEvent,
+              redAlertLimit,
+              yellowAlertLimit));
     }
+    return schedulerTimelines;
+  }
+
+  // Events of the range, plus the one before and the one after it in each apartment
+  private void loadEventsAround(
+      UUID userId, Instant startDate, Instant endDate, Map<UUID, Event> eventsById) {
+    eventRepository
+        .findEventsBetweenWithApartment(userId, startDate, endDate)
+        .forEach(event -> eventsById.putIfAbsent(event.getId(), event));
+    eventRepository
+        .findLastEventsEndingBefore(userId, startDate)
+        .forEach(event -> eventsById.putIfAbsent(event.getId(), event));
+    eventRepository
+        .findFirstEventsStartingFrom(userId, endDate)
+        .forEach(event -> eventsById.putIfAbsent(event.getId(), event));
   }
 
-  //  private ApartmentInfo processApartment(
-  //      Apartment apartment, Map<UUID, ApartmentInfo> apartmentInfoMap) {
-  //    UUID apartmentId = apartment.getId();
-  //    if (!apartmentInfoMap.containsKey(apartmentId)) {
-  //      List<TaskDto> apartmentTasks =
-  //          taskRepository
-  //              .findNonExtraTasksByApartmentId(AuthUtils.getUsername(), apartmentId)
-  //              .stream()
-  //              .map(TaskDto::new)
-  //              .collect(Collectors.toList());
-  //      Event nextPendingEvent =
-  //          eventRepository
-  //              .findFirstByCreatedByUsernameAndApartmentIdAndStateOrderByEndDateAsc(
-  //                  AuthUtils.getUsername(), apartmentId, EventState.PENDING)
-  //              .orElse(null);
-  //      ApartmentInfo aptInfo =
-  //          new ApartmentInfo(apartmentTasks, nextPendingEvent, apartment.getState());
-  //      apartmentInfoMap.put(apartmentId, aptInfo);
-  //      return aptInfo;
-  //    } else {
-  //      return apartmentInfoMap.get(apartmentId);
-  //    }
-  //  }
-  //
-  //  private EventSchedulerDto processEventForScheduler(
-  //      Event event, Map<UUID, ApartmentInfo> apartmentInfoMap, Map<UUID, EventSchedulerDto>
-  // eventMap)
-  //      throws InstanceNotFoundException {
-  //    if (event == null) {
-  //      return null;
-  //    }
-  //    if (eventMap.containsKey(event.getId())) {
-  //      return eventMap.get(event.getId());
-  //    }
-  //    Set<Assignment> eventAssignments = getAssigmentsRelatedToEvent(event.getId());
-  //    EventSchedulerDto eventDto = new EventSchedulerDto();
-  //    eventDto.setEvent(new EventDto(event));
-  //    ApartmentInfo apartmentInfo = processApartment(event.getApartment(), apartmentInfoMap);
-  //    List<TaskDto> apartmentTasks = apartmentInfo.tasks;
-  //    Set<UUID> assignedTaskIds =
-  //        eventAssignments.stream()
-  //            .map(assignment -> assignment.getTask().getId())
-  //            .collect(Collectors.toSet());
-  //    List<TaskDto> tasksToRemove = new ArrayList<>();
-  //    for (TaskDto taskDto : apartmentTasks) {
-  //      if (assignedTaskIds.contains(taskDto.getId())) {
-  //        eventDto.getAssignedTasks().add(taskDto);
-  //        tasksToRemove.add(taskDto);
-  //      }
-  //    }
-  //    apartmentTasks.removeAll(tasksToRemove);
-  //    eventDto.getUnassignedTasks().addAll(apartmentTasks);
-  //    eventDto.setHasUnfinishedTasks(
-  //        eventAssignments.stream()
-  //            .anyMatch(
-  //                assignment ->
-  //                    assignment.getState()
-  //                        == com.viladevcorp.hosteo.model.types.AssignmentState.PENDING));
-  //
-  //    if (!eventMap.containsKey(event.getId())) {
-  //      eventMap.put(event.getId(), eventDto);
-  //    }
-  //    Event previousEvent =
-  //        eventRepository
-  //            .findFirstEventBeforeDateWithState(
-  //                AuthUtils.getAuthUser().getId(),
-  //                event.getApartment().getId(),
-  //                event.getStartDate(),
-  //                null)
-  //            .orElse(null);
-  //    eventDto.setPrevEvent(new SimpleEventSchedulerDto(previousEvent));
-  //
-  //    return eventDto;
-  //  }
-  //
-  //  private void passAlertsToRangeEvent(
-  //      List<EventSchedulerDto> rangeEvents, EventSchedulerDto eventWithAlert) {
-  //    EventSchedulerDto rangeEventSched =
-  //        rangeEvents.stream()
-  //            .filter(event -> event.getEvent().getId().equals(eventWithAlert.getEvent().getId()))
-  //            .findFirst()
-  //            .orElse(null);
-  //    if (rangeEventSched != null) {
-  //      rangeEventSched.setAlert(eventWithAlert.getAlert());
-  //    }
-  //  }
-  //
-  //  public SchedulerInfo getSchedulerInfo(Instant startDate, Instant endDate)
-  //      throws InstanceNotFoundException {
-  //    SchedulerInfo schedulerInfo = new SchedulerInfo();
-  //    List<Event> eventsOnRange =
-  //        eventRepository.findEventsByDateRange(AuthUtils.getUsername(), startDate, endDate);
-  //    List<EventSchedulerDto> rangeEvents = new ArrayList<>();
-  //    List<EventSchedulerDto> redAlertEvents = new ArrayList<>();
-  //    List<EventSchedulerDto> yellowAlertEvents = new ArrayList<>();
-  //    Map<UUID, ApartmentInfo> apartmentInfoMap = new HashMap<>();
-  //    Map<UUID, EventSchedulerDto> eventMap = new HashMap<>();
-  //    // With this we got all events inside the range of the scheduler
-  //    for (Event event : eventsOnRange) {
-  //      rangeEvents.add(processEventForScheduler(event, apartmentInfoMap, eventMap));
-  //    }
-  //
-  //    // Now we get the pending events until 5 days from now to check for alerts
-  //    List<Event> alertEvents =
-  //        eventRepository.advancedSearch(
-  //            AuthUtils.getUsername(),
-  //            null,
-  //            List.of(EventState.PENDING),
-  //            null,
-  //            Instant.now(clock).plusSeconds(5 * 24 * 3600),
-  //            null);
-  //
-  //    // Group by apartment in the alertEventsMap, processing them for the scheduler
-  //    Map<UUID, List<EventSchedulerDto>> alertEventsMap = new HashMap<>();
-  //
-  //    for (Event event : alertEvents) {
-  //      if (!alertEventsMap.containsKey(event.getApartment().getId())) {
-  //        alertEventsMap.put(event.getApartment().getId(), new ArrayList<>());
-  //      }
-  //      alertEventsMap
-  //          .get(event.getApartment().getId())
-  //          .add(processEventForScheduler(event, apartmentInfoMap, eventMap));
-  //    }
-  //
-  //    for (UUID apartmentId : alertEventsMap.keySet()) {
-  //      List<EventSchedulerDto> aptEvents = alertEventsMap.get(apartmentId);
-  //      aptEvents.sort(Comparator.comparing(b -> b.getEvent().getStartDate()));
-  //      for (int i = 0; i < aptEvents.size(); i++) {
-  //        EventSchedulerDto previousEventSched;
-  //        EventSchedulerDto currentEventSched = aptEvents.get(i);
-  //        // If its the next pending event and the apartment is ready, we dont care about cleaning
-  //        // tasks (override)
-  //        if (currentEventSched
-  //                .getEvent()
-  //                .getId()
-  //                .equals(apartmentInfoMap.get(apartmentId).nextPendingEvent.getId())
-  //            && apartmentInfoMap.get(apartmentId).state == ApartmentState.READY) {
-  //          aptEvents.get(i).setApartmentReady(true);
-  //          continue;
-  //        }
-  //        // If the event is the first in the alertEvents of the apartment, we check for a
-  //        // previous event in DB
-  //        if (i == 0) {
-  //          previousEventSched =
-  //              processEventForScheduler(
-  //                  eventRepository
-  //                      .findFirstEventBeforeDateWithState(
-  //                          AuthUtils.getAuthUser().getId(),
-  //                          apartmentId,
-  //                          currentEventSched.getEvent().getStartDate(),
-  //                          null)
-  //                      .orElse(null),
-  //                  apartmentInfoMap,
-  //                  eventMap);
-  //          // If its not the first one, we can get the previous event from the alert list (we
-  //          // already retrieved it)
-  //        } else {
-  //          previousEventSched = aptEvents.get(i - 1);
-  //        }
-  //
-  //        final Instant RED_FLAG_LIMIT = Instant.now(clock).plusSeconds(2 * 24 * 3600);
-  //        if (currentEventSched.getEvent().getStartDate().isBefore(RED_FLAG_LIMIT)) {
-  //          // if the event is the first one of the apartment, but the apartment is dirty, we
-  // assume
-  //          // that the
-  //          if (previousEventSched == null) {}
-  //
-  //          if (!previousEventSched.getUnassignedTasks().isEmpty()) {
-  //            currentEventSched.setAlert(Alert.DAYS_LEFT_2_UNASSIGNED);
-  //            passAlertsToRangeEvent(rangeEvents, currentEventSched);
-  //            redAlertEvents.add(currentEventSched);
-  //            continue;
-  //          }
-  //          if (previousEventSched.isHasUnfinishedTasks()) {
-  //            currentEventSched.setAlert(Alert.DAYS_LEFT_2_NOT_COMPLETED);
-  //            passAlertsToRangeEvent(rangeEvents, currentEventSched);
-  //            redAlertEvents.add(currentEventSched);
-  //            continue;
-  //          }
-  //        }
-  //        Instant YELLOW_FLAG_LIMIT = Instant.now(clock).plusSeconds(5 * 24 * 3600);
-  //        if (currentEventSched.getEvent().getStartDate().isBefore(YELLOW_FLAG_LIMIT)) {
-  //          if (!previousEventSched.getUnassignedTasks().isEmpty()) {
-  //            currentEventSched.setAlert(Alert.DAYS_LEFT_5_UNASSIGNED);
-  //            passAlertsToRangeEvent(rangeEvents, currentEventSched);
-  //            yellowAlertEvents.add(currentEventSched);
-  //          }
-  //        }
-  //      }
-  //    }
-  //
-  //    schedulerInfo.setEvents(rangeEvents);
-  //    schedulerInfo.setRedAlertEvents(redAlertEvents);
-  //    schedulerInfo.setYellowAlertEvents(yellowAlertEvents);
-  //
-  //    // We get the assignments and for each one, we calculate the limit dates (previous event end
-  //    // and next event start)
-  //    schedulerInfo.setAssignments(
-  //        assignmentRepository
-  //            .findByApartmentAndStateAndDateRangeAndExtra(
-  //                AuthUtils.getUsername(), null, null, startDate, endDate, null)
-  //            .stream()
-  //            .map(
-  //                assignment -> {
-  //                  SimpleEventSchedulerDto previousEvent =
-  //                      new SimpleEventSchedulerDto(
-  //                          eventRepository
-  //                              .findFirstEventBeforeDateWithState(
-  //                                  AuthUtils.getAuthUser().getId(),
-  //                                  assignment.getTask().getApartment().getId(),
-  //                                  assignment.getStartDate(),
-  //                                  null)
-  //                              .orElse(null));
-  //
-  //                  Event nextEvent =
-  //                      eventRepository
-  //                          .findFirstEventAfterDateWithState(
-  //                              AuthUtils.getAuthUser().getId(),
-  //                              assignment.getTask().getApartment().getId(),
-  //                              assignment.getStartDate(),
-  //                              null)
-  //                          .orElse(null);
-  //                  SimpleEventSchedulerDto nextEventDto = null;
-  //
-  //                  if (nextEvent != null) {
-  //                    if (eventMap.get(nextEvent.getId()) != null) {
-  //                      nextEventDto = new
-  // SimpleEventSchedulerDto(eventMap.get(nextEvent.getId()));
-  //                    } else {
-  //                      nextEventDto = new SimpleEventSchedulerDto(nextEvent);
-  //                    }
-  //                  }
-  //
-  //                  return new AssignmentForSchedulerDto(assignment, previousEvent, nextEventDto);
-  //                })
-  //            .collect(Collectors.toSet()));
-  //    schedulerInfo.setExtraTasks(
-  //        taskRepository.findExtraTasksNotAssigned(AuthUtils.getUsername()).stream()
-  //            .map(TaskDto::new)
-  //            .collect(Collectors.toList()));
-  //    return schedulerInfo;
-  //  }
+  /**
+   * Links the events of the timeline of an apartment (sorted by start date) and finds their tasks
+   * and alerts. The tasks of an event are the mandatory tasks of the apartment, assigned or not to
+   * the event. A pending event raises an alert when the previous one has unassigned tasks (or
+   * unfinished tasks, if it starts before the red limit), unless it is the next pending event of an
+   * apartment that is already ready.
+   */
+  static List<EventSchedulerDto> processTimeline(
+      List<Event> timeline,
+      List<Task> mandatoryTasks,
+      Map<UUID, List<Assignment>> assignmentsByEvent,
+      Instant redAlertLimit,
+      Instant yellowAlertLimit) {
+    List<EventSchedulerDto> schedulerTimeline = new ArrayList<>(timeline.size());
+    EventSchedulerDto previous = null;
+    boolean pendingFound = false;
+    for (Event event : timeline) {
+      EventSchedulerDto current = new EventSchedulerDto(event, null);
+      List<Assignment> eventAssignments = assignmentsByEvent.getOrDefault(event.getId(), List.of());
+      Set<UUID> assignedTaskIds = new HashSet<>();
+      for (Assignment assignment : eventAssignments) {
+        if (assignedTaskIds.add(assignment.getTask().getId())) {
+          current.getAssignedTasks().add(new TaskDto(assignment.getTask()));
+        }
+        if (assignment.getState().isPending()) {
+          current.setHasUnfinishedTasks(true);
+        }
+      }
+      for (Task task : mandatoryTasks) {
+        if (!assignedTaskIds.contains(task.getId())) {
+          current.getUnassignedTasks().add(new TaskDto(task));
+        }
+      }
+
+      if (event.getState() == EventState.PENDING) {
+        if (!pendingFound && event.getApartment().getState() == ApartmentState.READY) {
+          current.setApartmentReady(true);
+        } else if (previous != null) {
+          current.setAlert(getAlert(current, previous, redAlertLimit, yellowAlertLimit));
+        }
+        pendingFound = true;
+      }
+
+      if (previous != null) {
+        current.setPrevEvent(new SimpleEventSchedulerDto(previous));
+        previous.setNextEvent(new SimpleEventSchedulerDto(current));
+      }
+      schedulerTimeline.add(current);
+      previous = current;
+    }
+    return schedulerTimeline;
+  }
+
+  private static Alert getAlert(
+      EventSchedulerDto event,
+      EventSchedulerDto previous,
+      Instant redAlertLimit,
+      Instant yellowAlertLimit) {
+    if (event.getStartDate().isBefore(redAlertLimit)) {
+      if (!previous.getUnassignedTasks().isEmpty()) {
+        return Alert.DAYS_LEFT_2_UNASSIGNED;
+      }
+      if (previous.isHasUnfinishedTasks()) {
+        return Alert.DAYS_LEFT_2_NOT_COMPLETED;
+      }
+    }
+    if (event.getStartDate().isBefore(yellowAlertLimit)
+        && !previous.getUnassignedTasks().isEmpty()) {
+      return Alert.DAYS_LEFT_5_UNASSIGNED;
+    }
+    return null;
+  }
 }
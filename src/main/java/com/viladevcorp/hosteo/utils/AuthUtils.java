@@ -24,7 +24,7 @@ public class AuthUtils {
   }
 
   public static boolean checkIfLoggedUser(User user) {
-    return user.getUsername().equals(getUsername());
+    return user.getId().equals(getUserId());
   }
 
   public static String getUsername() {
@@ -35,6 +35,16 @@ public class AuthUtils {
     return auth.getName();
   }
 
+  /**
+   * Id of the logged user, taken from the principal that {@link
+   * com.viladevcorp.hosteo.auth.JwtFilter} resolves once per request. Repositories filter by it
+   * instead of the username, so their queries do not join the users table.
+   */
+  public static UUID getUserId() {
+    User user = getAuthUser();
+    return user == null ? null : user.getId();
+  }
+
   public static User getAuthUser() {
     Authentication auth = SecurityContextHolder.getContext().getAuthentication();
     if (!isAuth(auth)) {
@@ -39,5 +39,10 @@ public class CodeErrors {
   public static final String ASSIGNMENT_STARTS_BEFORE_EVENT_ENDS =
       "ASSIGNMENT_STARTS_BEFORE_EVENT_ENDS";
 
+  public static final String IMPORT_JOB_IN_PROGRESS = "IMPORT_JOB_IN_PROGRESS";
+  public static final String IMPORT_JOB_QUEUE_FULL = "IMPORT_JOB_QUEUE_FULL";
+
+  public static final String INVALID_CURSOR = "INVALID_CURSOR";
+
   public static final String UNEXPECTED_ERROR = "UNEXPECTED_ERROR";
 }
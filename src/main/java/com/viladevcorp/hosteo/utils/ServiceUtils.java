@@ -13,6 +13,12 @@ import java.util.UUID;
 
 @Slf4j
 public class ServiceUtils {
+
+  // Tag of the outcome in the timers and counters, for the validations the name of the rejecting
+  // exception or valid
+  public static final String OUTCOME_TAG = "outcome";
+  public static final String OUTCOME_VALID = "valid";
+
   public static int calculateTotalPages(int pageSize, long totalRows) {
     return pageSize > 0 ? ((Double) Math.ceil((double) totalRows / pageSize)).intValue() : 1;
   }
@@ -37,14 +43,14 @@ public class ServiceUtils {
     Event eventConflict =
         eventRepository
             .findEventsBetween(
-                AuthUtils.getUsername(), apartmentId, startDate, endDate, excludeEventId)
+                AuthUtils.getUserId(), apartmentId, startDate, endDate, excludeEventId)
             .stream()
             .findFirst()
             .orElse(null);
     Assignment assignmentConflict =
         assignmentRepository
             .findAssignmentsBetween(
-                AuthUtils.getUsername(), apartmentId, startDate, endDate, excludeAssignmentId)
+                AuthUtils.getUserId(), apartmentId, startDate, endDate, excludeAssignmentId)
             .stream()
             .findFirst()
             .orElse(null);
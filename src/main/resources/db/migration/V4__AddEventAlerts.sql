@@ -0,0 +1,16 @@
+-- V4 Alert feed
+
+-- Pending events at risk, materialized per user by the AlertService. There is no foreign key to the
+-- events, so the refresh of a feed does not lock the events deleted meanwhile. The feed is read
+-- joined with them, the rows of a deleted event are gone at the next refresh
+CREATE TABLE event_alerts (
+    id UUID PRIMARY KEY,
+    event_id UUID NOT NULL,
+    user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    alert VARCHAR(255) NOT NULL,
+    start_date TIMESTAMP NOT NULL,
+    computed_at TIMESTAMP NOT NULL
+);
+
+-- Critical: The feed of a user is read in start date order
+CREATE INDEX idx_event_alerts_user_id_start_date ON event_alerts(user_id, start_date);
@@ -0,0 +1,39 @@
+-- V5 Composite indexes for the tenant scoped access paths
+
+-- The queries filter by the creator (joined by username) and an apartment or a date range, so the
+-- creator leads the indexes. The single column indexes they make redundant are dropped
+
+-- Event
+-- Apartment timelines and schedule conflicts of a user
+CREATE INDEX idx_events_created_by_apartment_id_start_date ON events(created_by, apartment_id, start_date);
+-- Searches and date ranges of a user, sorted by start date
+CREATE INDEX idx_events_created_by_start_date ON events(created_by, start_date);
+-- First pending event of a user (alerts)
+CREATE INDEX idx_events_created_by_state_start_date ON events(created_by, state, start_date);
+-- Occupancy of an apartment and events before or after a date, without the creator
+CREATE INDEX idx_events_apartment_id_start_date ON events(apartment_id, start_date);
+-- Last event of an apartment with a state (apartment state)
+CREATE INDEX idx_events_apartment_id_state_end_date ON events(apartment_id, state, end_date);
+DROP INDEX idx_events_apartment_id;
+DROP INDEX idx_events_start_date;
+
+-- Assignment
+-- Searches and date ranges of a user, sorted by start date
+CREATE INDEX idx_assignments_created_by_start_date ON assignments(created_by, start_date);
+-- Assignments of the tasks of an apartment in a date range
+CREATE INDEX idx_assignments_task_id_start_date ON assignments(task_id, start_date);
+-- Availability of a worker in a date range
+CREATE INDEX idx_assignments_worker_id_start_date ON assignments(worker_id, start_date);
+-- Assignments of an event (it had no index)
+CREATE INDEX idx_assignments_event_id ON assignments(event_id);
+DROP INDEX idx_assignments_task_id;
+DROP INDEX idx_assignments_worker_id;
+DROP INDEX idx_assignments_start_date;
+
+-- Lists of a user
+CREATE INDEX idx_apartments_created_by ON apartments(created_by);
+CREATE INDEX idx_tasks_created_by_apartment_id ON tasks(created_by, apartment_id);
+CREATE INDEX idx_workers_created_by ON workers(created_by);
+CREATE INDEX idx_templates_created_by ON templates(created_by);
+-- V2 created it on the bookings table by mistake
+CREATE INDEX idx_imp_bookings_created_by ON imp_bookings(created_by);
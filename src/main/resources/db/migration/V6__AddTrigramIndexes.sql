@@ -0,0 +1,12 @@
+-- V6 Trigram indexes for the name filters
+
+-- The searches filter by LOWER(name) LIKE '%term%', which a B-tree index cannot serve. The pg_trgm
+-- GIN indexes on the same expression can, and also give the similarity used to rank the results
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Searches of apartments, and of events by the name of their apartment
+CREATE INDEX idx_apartments_name_trgm ON apartments USING gin (LOWER(name) gin_trgm_ops);
+-- Searches of tasks, and of assignments by the name of their task
+CREATE INDEX idx_tasks_name_trgm ON tasks USING gin (LOWER(name) gin_trgm_ops);
+CREATE INDEX idx_workers_name_trgm ON workers USING gin (LOWER(name) gin_trgm_ops);
+CREATE INDEX idx_templates_name_trgm ON templates USING gin (LOWER(name) gin_trgm_ops);
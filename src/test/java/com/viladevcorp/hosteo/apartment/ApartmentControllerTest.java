@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.UUID;
 
 import com.viladevcorp.hosteo.model.dto.ApartmentWithTasksDto;
+import com.viladevcorp.hosteo.model.dto.TaskDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -23,6 +24,7 @@ import com.viladevcorp.hosteo.model.Page;
 import com.viladevcorp.hosteo.model.forms.ApartmentCreateForm;
 import com.viladevcorp.hosteo.model.forms.ApartmentSearchForm;
 import com.viladevcorp.hosteo.model.forms.ApartmentUpdateForm;
+import com.viladevcorp.hosteo.model.forms.TaskCreateForm;
 import com.viladevcorp.hosteo.repository.ApartmentRepository;
 import com.viladevcorp.hosteo.repository.UserRepository;
 import com.viladevcorp.hosteo.utils.ApiResponse;
@@ -408,4 +410,49 @@ class ApartmentControllerTest extends BaseControllerTest {
           .andExpect(status().isNotFound());
     }
   }
+
+  @Nested
+  @DisplayName("Apartment cache")
+  class ApartmentCache {
+    private ApartmentWithTasksDto getApartment(UUID id) throws Exception {
+      String resultString =
+          mockMvc
+              .perform(get("/api/apartment/" + id))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      return objectMapper
+          .readValue(
+              resultString, new TypeReference<ApiResponse<ApartmentWithTasksDto>>() {})
+          .getData();
+    }
+
+    @Test
+    void When_TaskCreatedForCachedApartment_TaskRead() throws Exception {
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+      UUID apartmentId = testSetupHelper.getTestApartments().get(0).getId();
+      int tasks = getApartment(apartmentId).getTasks().size();
+
+      // The task is only linked from its side, the cached collection is evicted anyway
+      TaskCreateForm form = new TaskCreateForm();
+      form.setApartmentId(apartmentId);
+      form.setName(NEW_TASK_NAME_1);
+      form.setType(NEW_TASK_TYPE_1);
+      form.setCategory(NEW_TASK_CATEGORY_1);
+      form.setDuration(NEW_TASK_DURATION_1);
+      form.setSteps(NEW_TASK_STEPS_1);
+      mockMvc
+          .perform(
+              post("/api/task")
+                  .contentType("application/json")
+                  .content(objectMapper.writeValueAsString(form)))
+          .andExpect(status().isOk());
+
+      List<TaskDto> apartmentTasks = getApartment(apartmentId).getTasks();
+      assertEquals(tasks + 1, apartmentTasks.size());
+      assertTrue(
+          apartmentTasks.stream().anyMatch(task -> NEW_TASK_NAME_1.equals(task.getName())));
+    }
+  }
 }
@@ -8,7 +8,10 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import com.viladevcorp.hosteo.model.*;
@@ -28,6 +31,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.viladevcorp.hosteo.common.BaseControllerTest;
 import com.viladevcorp.hosteo.common.TestUtils;
 import com.viladevcorp.hosteo.model.dto.AssignmentDto;
+import com.viladevcorp.hosteo.model.dto.AssignmentUpdateError;
 import com.viladevcorp.hosteo.model.types.AssignmentState;
 import com.viladevcorp.hosteo.utils.ApiResponse;
 import com.viladevcorp.hosteo.utils.CodeErrors;
@@ -910,6 +914,84 @@ class AssignmentControllerTest extends BaseControllerTest {
         assertTrue(assignment.getTask().getName().toLowerCase().contains("maintenance"));
       }
     }
+
+    private Page<AssignmentDto> searchAssignmentsPage(AssignmentSearchForm searchFormObj)
+        throws Exception {
+      String resultString =
+          mockMvc
+              .perform(
+                  post("/api/assignment/search")
+                      .contentType("application/json")
+                      .content(objectMapper.writeValueAsString(searchFormObj)))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      return objectMapper
+          .readValue(resultString, new TypeReference<ApiResponse<Page<AssignmentDto>>>() {})
+          .getData();
+    }
+
+    @Test
+    void When_SearchAssignmentsWithCursor_SameStartDatePagedInOrder() throws Exception {
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+
+      // Three assignments share the start date, only the id orders them
+      Instant sharedStartDate = testSetupHelper.getTestAssignments().get(0).getStartDate();
+      for (Assignment testAssignment : testSetupHelper.getTestAssignments().subList(1, 4)) {
+        Assignment assignment = assignmentRepository.findById(testAssignment.getId()).get();
+        assignment.setStartDate(sharedStartDate);
+        assignment.setEndDate(sharedStartDate.plusSeconds(3600));
+        assignmentRepository.save(assignment);
+      }
+
+      AssignmentSearchForm searchFormObj = new AssignmentSearchForm();
+      searchFormObj.setPageSize(2);
+      searchFormObj.setIncludeTotal(false);
+      List<UUID> pagedIds = new ArrayList<>();
+      Page<AssignmentDto> returnedPage = searchAssignmentsPage(searchFormObj);
+      pagedIds.addAll(returnedPage.getContent().stream().map(AssignmentDto::getId).toList());
+      while (returnedPage.getNextCursor() != null) {
+        searchFormObj.setCursor(returnedPage.getNextCursor());
+        returnedPage = searchAssignmentsPage(searchFormObj);
+        pagedIds.addAll(returnedPage.getContent().stream().map(AssignmentDto::getId).toList());
+      }
+      // The last page is not full and has no cursor
+      assertEquals(1, returnedPage.getContent().size());
+
+      // The same rows and order as without pagination
+      searchFormObj = new AssignmentSearchForm();
+      searchFormObj.setPageSize(0);
+      List<AssignmentDto> all = searchAssignmentsPage(searchFormObj).getContent();
+      List<UUID> allIds = all.stream().map(AssignmentDto::getId).toList();
+      assertEquals(5, new HashSet<>(pagedIds).size());
+      assertEquals(allIds, pagedIds);
+      for (int i = 1; i < all.size(); i++) {
+        assertFalse(all.get(i - 1).getStartDate().isBefore(all.get(i).getStartDate()));
+      }
+    }
+
+    @Test
+    void When_SearchAssignmentsWithInvalidCursor_BadRequest() throws Exception {
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+
+      AssignmentSearchForm searchFormObj = new AssignmentSearchForm();
+      searchFormObj.setPageSize(2);
+      searchFormObj.setCursor("not-a-cursor");
+      String resultString =
+          mockMvc
+              .perform(
+                  post("/api/assignment/search")
+                      .contentType("application/json")
+                      .content(objectMapper.writeValueAsString(searchFormObj)))
+              .andExpect(status().isBadRequest())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      ApiResponse<Void> result =
+          objectMapper.readValue(resultString, new TypeReference<ApiResponse<Void>>() {});
+      assertEquals(CodeErrors.INVALID_CURSOR, result.getErrorCode());
+    }
   }
 
   @Nested
@@ -1130,4 +1212,88 @@ class AssignmentControllerTest extends BaseControllerTest {
               .orElseThrow(InstanceNotFoundException::new);
     }
   }
+
+  @Nested
+  @DisplayName("Update bulk assignments state")
+  class UpdateBulkAssignmentsState {
+
+    private List<AssignmentUpdateError> updateAssignmentsState(
+        Set<UUID> assignmentIds, AssignmentState state) throws Exception {
+      String resultString =
+          mockMvc
+              .perform(
+                  patch("/api/assignments/state/" + state)
+                      .contentType("application/json")
+                      .content(objectMapper.writeValueAsString(assignmentIds)))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      return objectMapper
+          .readValue(resultString, new TypeReference<ApiResponse<List<AssignmentUpdateError>>>() {})
+          .getData();
+    }
+
+    private Assignment linkToEvent(Assignment assignment, Event event) {
+      assignment.setEvent(event);
+      return assignmentRepository.save(assignment);
+    }
+
+    @Test
+    void When_UpdateAssignmentsOfFinishedEvent_Ok() throws Exception {
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+      // The event is no longer the last finished one of the apartment
+      Event laterEvent = testSetupHelper.getTestEvents().get(2);
+      laterEvent.setState(EventState.FINISHED);
+      eventRepository.save(laterEvent);
+      Event event = testSetupHelper.getTestEvents().get(0);
+      Assignment assignment1 = linkToEvent(testSetupHelper.getTestAssignments().get(0), event);
+      Assignment assignment2 = linkToEvent(testSetupHelper.getTestAssignments().get(1), event);
+
+      List<AssignmentUpdateError> errors =
+          updateAssignmentsState(
+              Set.of(assignment1.getId(), assignment2.getId()), AssignmentState.PENDING);
+      assertTrue(errors.isEmpty());
+      assertEquals(
+          AssignmentState.PENDING,
+          assignmentRepository.findById(assignment1.getId()).orElseThrow().getState());
+      assertEquals(
+          AssignmentState.PENDING,
+          assignmentRepository.findById(assignment2.getId()).orElseThrow().getState());
+    }
+
+    @Test
+    void When_UpdateInvalidAssignments_ErrorsReturned() throws Exception {
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+      Assignment pastAssignment =
+          linkToEvent(
+              testSetupHelper.getTestAssignments().get(0), testSetupHelper.getTestEvents().get(0));
+      Task task = testSetupHelper.getTestTasks().get(NEW_ASSIGNMENT_TASK_POSITION);
+      Assignment pendingEventAssignment =
+          assignmentRepository.save(
+              Assignment.builder()
+                  .task(task)
+                  .event(testSetupHelper.getTestEvents().get(2))
+                  .worker(testSetupHelper.getTestWorkers().get(NEW_ASSIGNMENT_WORKER_POSITION))
+                  .startDate(TestUtils.dateStrToInstant(NEW_ASSIGNMENT_START_DATE))
+                  .endDate(
+                      TestUtils.dateStrToInstant(NEW_ASSIGNMENT_START_DATE)
+                          .plusSeconds(task.getDuration() * 60L))
+                  .state(AssignmentState.PENDING)
+                  .build());
+
+      List<AssignmentUpdateError> errors =
+          updateAssignmentsState(
+              Set.of(pastAssignment.getId(), pendingEventAssignment.getId()),
+              AssignmentState.FINISHED);
+      assertEquals(2, errors.size());
+      assertEquals(pastAssignment.getId(), errors.get(0).getAssignment().getId());
+      assertEquals(CodeErrors.CHANGE_IN_ASSIGNMENTS_OF_PAST_EVENT, errors.get(0).getError());
+      assertEquals(pendingEventAssignment.getId(), errors.get(1).getAssignment().getId());
+      assertEquals(CodeErrors.COMPLETE_TASK_ON_NOT_FINISHED_EVENT, errors.get(1).getError());
+      assertEquals(
+          AssignmentState.PENDING,
+          assignmentRepository.findById(pendingEventAssignment.getId()).orElseThrow().getState());
+    }
+  }
 }
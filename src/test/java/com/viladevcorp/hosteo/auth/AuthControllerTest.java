@@ -13,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
@@ -20,6 +21,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.viladevcorp.hosteo.common.BaseControllerTest;
 import com.viladevcorp.hosteo.common.TestUtils;
+import com.viladevcorp.hosteo.exceptions.InvalidJwtException;
 import com.viladevcorp.hosteo.model.User;
 import com.viladevcorp.hosteo.model.UserSession;
 import com.viladevcorp.hosteo.model.ValidationCode;
@@ -299,6 +301,67 @@ class AuthControllerTest extends BaseControllerTest {
     }
   }
 
+  @Nested
+  @DisplayName("Token cache")
+  class TokenCache {
+    private MockHttpServletResponse login() throws Exception {
+      LoginForm form = new LoginForm(ACTIVE_USER_USERNAME_1, ACTIVE_USER_PASSWORD_1, false);
+      return mockMvc
+          .perform(
+              post("/api/public/login")
+                  .contentType("application/json")
+                  .content(objectMapper.writeValueAsString(form)))
+          .andExpect(status().isOk())
+          .andReturn()
+          .getResponse();
+    }
+
+    private AuthResultDto getAuthResult(MockHttpServletResponse response) throws Exception {
+      return objectMapper
+          .readValue(
+              response.getContentAsString(),
+              new TypeReference<ApiResponse<AuthResultDto>>() {})
+          .getData();
+    }
+
+    @Test
+    void When_TokenValidatedTwice_SessionNotReloaded() throws Exception {
+      AuthResultDto authResult = getAuthResult(login());
+      jwtUtils.validateToken(authResult.getAuthToken());
+
+      // Removed without the eviction hook, the cached token is still accepted
+      userSessionRepository.deleteById(authResult.getSessionId());
+      Authentication auth = jwtUtils.validateToken(authResult.getAuthToken());
+      assertEquals(ACTIVE_USER_USERNAME_1, auth.getName());
+      assertEquals(authResult.getSessionId().toString(), auth.getDetails());
+    }
+
+    @Test
+    void When_Logout_CachedTokenRejected() throws Exception {
+      AuthResultDto authResult = getAuthResult(login());
+      Authentication auth = jwtUtils.validateToken(authResult.getAuthToken());
+      SecurityContextHolder.getContext().setAuthentication(auth);
+
+      mockMvc.perform(post("/api/logout")).andExpect(status().isOk());
+      assertThrows(
+          InvalidJwtException.class, () -> jwtUtils.validateToken(authResult.getAuthToken()));
+    }
+
+    @Test
+    void When_RefreshToken_CachedTokenRejected() throws Exception {
+      MockHttpServletResponse loginResponse = login();
+      AuthResultDto authResult = getAuthResult(loginResponse);
+      jwtUtils.validateToken(authResult.getAuthToken());
+
+      mockMvc
+          .perform(
+              post("/api/public/refresh-token").cookie(loginResponse.getCookie("REFRESH_TOKEN")))
+          .andExpect(status().isOk());
+      assertThrows(
+          InvalidJwtException.class, () -> jwtUtils.validateToken(authResult.getAuthToken()));
+    }
+  }
+
   @Nested
   @DisplayName("Account validation")
   class AccountValidation {
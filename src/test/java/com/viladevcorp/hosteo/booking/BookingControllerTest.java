@@ -0,0 +1,294 @@
+package com.viladevcorp.hosteo.booking;
+
+import static com.viladevcorp.hosteo.common.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.StatementCounter;
+import com.viladevcorp.hosteo.common.TestUtils;
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.exceptions.InvalidCursorException;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.Page;
+import com.viladevcorp.hosteo.model.dto.EventDto;
+import com.viladevcorp.hosteo.model.dto.EventUpdateError;
+import com.viladevcorp.hosteo.model.forms.EventSearchForm;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.types.EventType;
+import com.viladevcorp.hosteo.repository.ApartmentRepository;
+import com.viladevcorp.hosteo.repository.EventRepository;
+import com.viladevcorp.hosteo.repository.UserRepository;
+import com.viladevcorp.hosteo.service.ApartmentStateService;
+import com.viladevcorp.hosteo.service.EventService;
+import com.viladevcorp.hosteo.service.SearchCountService;
+import com.viladevcorp.hosteo.utils.ApiResponse;
+import com.viladevcorp.hosteo.utils.AuthUtils;
+import com.viladevcorp.hosteo.utils.CodeErrors;
+import jakarta.persistence.EntityManager;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class BookingControllerTest extends BaseControllerTest {
+
+  @Autowired private UserRepository userRepository;
+  @Autowired private EventRepository eventRepository;
+  @Autowired private ApartmentRepository apartmentRepository;
+  @Autowired private ApartmentStateService apartmentStateService;
+  @Autowired private MockMvc mockMvc;
+  @Autowired private ObjectMapper objectMapper;
+  @Autowired private EventService eventService;
+  @Autowired private TransactionTemplate transactionTemplate;
+  @Autowired private EntityManager entityManager;
+  @Autowired private SearchCountService searchCountService;
+  @Autowired private StatementCounter statementCounter;
+
+  @BeforeEach
+  void setup() throws Exception {
+    TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+    testSetupHelper.resetTestEvents();
+  }
+
+  private List<EventUpdateError> updateEventsState(Set<UUID> eventIds, EventState state)
+      throws Exception {
+    String resultString =
+        mockMvc
+            .perform(
+                patch("/api/events/state/" + state)
+                    .contentType("application/json")
+                    .content(objectMapper.writeValueAsString(eventIds)))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    return objectMapper
+        .readValue(resultString, new TypeReference<ApiResponse<List<EventUpdateError>>>() {})
+        .getData();
+  }
+
+  private EventState getState(Event event) {
+    return eventRepository.findById(event.getId()).orElseThrow().getState();
+  }
+
+  private ApartmentState getApartmentState(Event event) {
+    return apartmentRepository.findById(event.getApartment().getId()).orElseThrow().getState();
+  }
+
+  @Nested
+  @DisplayName("Update events state")
+  class UpdateEventsState {
+    @Test
+    void When_FinishConsecutiveEvents_Ok() throws Exception {
+      Event event3 = testSetupHelper.getTestEvents().get(2);
+      Event event5 = testSetupHelper.getTestEvents().get(4);
+
+      // The second one is valid because the first one is finished in the same request
+      List<EventUpdateError> errors =
+          updateEventsState(Set.of(event3.getId(), event5.getId()), EventState.FINISHED);
+      assertTrue(errors.isEmpty());
+      assertEquals(EventState.FINISHED, getState(event3));
+      assertEquals(EventState.FINISHED, getState(event5));
+    }
+
+    @Test
+    void When_FinishEvents_CountsMovedWithoutReload() throws Throwable {
+      UUID userId = AuthUtils.getUserId();
+      int finished = searchCountService.countEvents(userId, Set.of(EventState.FINISHED));
+      int total = searchCountService.countEvents(userId, null);
+      Event event3 = testSetupHelper.getTestEvents().get(2);
+      Event event5 = testSetupHelper.getTestEvents().get(4);
+
+      assertTrue(
+          updateEventsState(Set.of(event3.getId(), event5.getId()), EventState.FINISHED).isEmpty());
+      // Moved from the states the events had before the bulk update
+      assertEquals(
+          0,
+          statementCounter.count(
+              () -> {
+                assertEquals(
+                    finished + 2,
+                    searchCountService.countEvents(userId, Set.of(EventState.FINISHED)));
+                assertEquals(total, searchCountService.countEvents(userId, null));
+              }));
+    }
+
+    @Test
+    void When_PreviousEventNotFinished_Error() throws Exception {
+      Event event5 = testSetupHelper.getTestEvents().get(4);
+
+      List<EventUpdateError> errors =
+          updateEventsState(Set.of(event5.getId()), EventState.FINISHED);
+      assertEquals(1, errors.size());
+      assertEquals(event5.getId(), errors.get(0).getEvent().getId());
+      assertEquals(
+          CodeErrors.PREV_OF_FINISHED_CANNOT_BE_NOT_PENDING_OR_INPROGRESS,
+          errors.get(0).getError());
+      assertEquals(EventState.PENDING, getState(event5));
+    }
+
+    @Test
+    void When_StartEventsOfSeveralApartments_OnlyValidUpdated() throws Exception {
+      Event event3 = testSetupHelper.getTestEvents().get(2);
+      Event event4 = testSetupHelper.getTestEvents().get(3);
+
+      List<EventUpdateError> errors =
+          updateEventsState(Set.of(event3.getId(), event4.getId()), EventState.IN_PROGRESS);
+      assertEquals(1, errors.size());
+      assertEquals(event4.getId(), errors.get(0).getEvent().getId());
+      assertEquals(
+          CodeErrors.PREV_OF_INPROGRESS_CANNOT_BE_PENDING_OR_INPROGRESS, errors.get(0).getError());
+      assertEquals(EventState.IN_PROGRESS, getState(event3));
+      assertEquals(EventState.PENDING, getState(event4));
+      assertEquals(ApartmentState.OCCUPIED, getApartmentState(event3));
+    }
+
+    @Test
+    void When_FinishEventInProgress_ApartmentReady() throws Exception {
+      Event event3 = testSetupHelper.getTestEvents().get(2);
+
+      assertTrue(updateEventsState(Set.of(event3.getId()), EventState.IN_PROGRESS).isEmpty());
+      assertEquals(ApartmentState.OCCUPIED, getApartmentState(event3));
+      assertTrue(updateEventsState(Set.of(event3.getId()), EventState.FINISHED).isEmpty());
+      assertEquals(ApartmentState.READY, getApartmentState(event3));
+    }
+  }
+
+  @Nested
+  @DisplayName("Search events")
+  class SearchEvents {
+    @Test
+    void When_SearchEvents_NoEntitiesLoaded() throws Exception {
+      EventSearchForm form = new EventSearchForm();
+      form.setPageSize(0);
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            List<EventDto> events;
+            try {
+              events = eventService.findEvents(form);
+            } catch (InvalidCursorException e) {
+              throw new IllegalStateException(e);
+            }
+            assertFalse(events.isEmpty());
+            for (EventDto event : events) {
+              assertNotNull(event.getStartDate());
+              assertNotNull(event.getApartment().getName());
+            }
+            // The rows are read into the DTOs, nothing is added to the persistence context
+            assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+          });
+    }
+
+    private Page<EventDto> searchEventsPage(EventSearchForm form) throws Exception {
+      String resultString =
+          mockMvc
+              .perform(
+                  post("/api/event/search")
+                      .contentType("application/json")
+                      .content(objectMapper.writeValueAsString(form)))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      return objectMapper
+          .readValue(resultString, new TypeReference<ApiResponse<Page<EventDto>>>() {})
+          .getData();
+    }
+
+    @Test
+    void When_SearchEventsWithCursor_SameStartDatePagedInOrder() throws Exception {
+      // Events sharing the start date, only the id orders them
+      Event testEvent = testSetupHelper.getTestEvents().get(0);
+      Instant sharedStartDate = testEvent.getStartDate();
+      Set<UUID> sharedIds = new HashSet<>();
+      for (int i = 0; i < 4; i++) {
+        Event event =
+            eventRepository.save(
+                Event.builder()
+                    .name(CREATED_EVENT_NAME_1)
+                    .type(EventType.BOOKING)
+                    .state(EventState.PENDING)
+                    .apartment(testEvent.getApartment())
+                    .startDate(sharedStartDate)
+                    .endDate(sharedStartDate.plusSeconds(3600L * (i + 1)))
+                    .build());
+        sharedIds.add(event.getId());
+      }
+
+      EventSearchForm form = new EventSearchForm();
+      form.setPageSize(2);
+      form.setIncludeTotal(false);
+      List<UUID> pagedIds = new ArrayList<>();
+      Page<EventDto> returnedPage = searchEventsPage(form);
+      pagedIds.addAll(returnedPage.getContent().stream().map(EventDto::getId).toList());
+      while (returnedPage.getNextCursor() != null) {
+        form.setCursor(returnedPage.getNextCursor());
+        returnedPage = searchEventsPage(form);
+        pagedIds.addAll(returnedPage.getContent().stream().map(EventDto::getId).toList());
+      }
+      assertTrue(returnedPage.getContent().size() < 2);
+
+      // The same rows and order as without pagination
+      form = new EventSearchForm();
+      form.setPageSize(0);
+      List<EventDto> all = searchEventsPage(form).getContent();
+      assertEquals(all.stream().map(EventDto::getId).toList(), pagedIds);
+      assertEquals(pagedIds.size(), new HashSet<>(pagedIds).size());
+      assertTrue(pagedIds.containsAll(sharedIds));
+      for (int i = 1; i < all.size(); i++) {
+        assertFalse(all.get(i - 1).getStartDate().isBefore(all.get(i).getStartDate()));
+      }
+    }
+
+    @Test
+    void When_SearchEventsWithInvalidCursor_BadRequest() throws Exception {
+      EventSearchForm form = new EventSearchForm();
+      form.setPageSize(2);
+      form.setCursor("not-a-cursor");
+      String resultString =
+          mockMvc
+              .perform(
+                  post("/api/event/search")
+                      .contentType("application/json")
+                      .content(objectMapper.writeValueAsString(form)))
+              .andExpect(status().isBadRequest())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      ApiResponse<Void> result =
+          objectMapper.readValue(resultString, new TypeReference<ApiResponse<Void>>() {});
+      assertEquals(CodeErrors.INVALID_CURSOR, result.getErrorCode());
+    }
+  }
+
+  @Nested
+  @DisplayName("Verify apartment states")
+  class VerifyApartmentStates {
+    @Test
+    void When_StoredStateWrong_Repaired() throws Exception {
+      Event event3 = testSetupHelper.getTestEvents().get(2);
+      Apartment apartment = apartmentRepository.findById(event3.getApartment().getId()).get();
+      apartment.setState(ApartmentState.OCCUPIED);
+      apartmentRepository.save(apartment);
+
+      apartmentStateService.verifyApartmentStates();
+      assertEquals(ApartmentState.READY, getApartmentState(event3));
+    }
+  }
+}
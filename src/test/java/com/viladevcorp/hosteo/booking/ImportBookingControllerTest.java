@@ -0,0 +1,300 @@
+package com.viladevcorp.hosteo.booking;
+
+import static com.viladevcorp.hosteo.common.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.TestSetupHelper;
+import com.viladevcorp.hosteo.common.TestUtils;
+import com.viladevcorp.hosteo.model.dto.ImpBookingDto;
+import com.viladevcorp.hosteo.model.dto.ImportFileResultDto;
+import com.viladevcorp.hosteo.model.dto.ImportJobDto;
+import com.viladevcorp.hosteo.model.types.ConflictType;
+import com.viladevcorp.hosteo.model.types.ImportJobState;
+import com.viladevcorp.hosteo.repository.ImpBookingRepository;
+import com.viladevcorp.hosteo.repository.UserRepository;
+import com.viladevcorp.hosteo.service.ImportService;
+import com.viladevcorp.hosteo.utils.ApiResponse;
+import com.viladevcorp.hosteo.utils.AuthUtils;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ImportBookingControllerTest extends BaseControllerTest {
+
+  @Autowired private UserRepository userRepository;
+  @Autowired private MockMvc mockMvc;
+  @Autowired private TestSetupHelper testSetupHelper;
+  @Autowired private ObjectMapper objectMapper;
+  @Autowired private ImpBookingRepository impBookingRepository;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  private ImportFileResultDto importFile(String url, String fileName) throws Exception {
+    return importFile(
+        url,
+        new MockMultipartFile(
+            "file", fileName, "text/csv", new ClassPathResource(fileName).getInputStream()));
+  }
+
+  private ImportFileResultDto importFile(String url, MockMultipartFile file) throws Exception {
+    String resultString =
+        mockMvc
+            .perform(multipart(url).file(file))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    ApiResponse<ImportFileResultDto> result = null;
+    TypeReference<ApiResponse<ImportFileResultDto>> typeReference =
+        new TypeReference<ApiResponse<ImportFileResultDto>>() {};
+    try {
+      result = objectMapper.readValue(resultString, typeReference);
+    } catch (Exception e) {
+      fail("Error parsing response");
+    }
+    return result.getData();
+  }
+
+  // The rows with the conflicts stored by the import, the response only has the totals
+  private List<ImpBookingDto> importedBookings() {
+    return transactionTemplate.execute(
+        status ->
+            impBookingRepository.getUserImpBookings(AuthUtils.getUserId(), null).stream()
+                .map(ImpBookingDto::new)
+                .toList());
+  }
+
+  private ImpBookingDto findByName(List<ImpBookingDto> impBookings, String name) {
+    return impBookings.stream()
+        .filter(impBooking -> impBooking.getName().equals(name))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  @Nested
+  @DisplayName("Import Airbnb bookings")
+  class ImportAirbnbBookings {
+    @Test
+    void When_ImportAirbnbWithConflicts_ConflictsResolved() throws Exception {
+      testSetupHelper.resetImportConflicts(true);
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+
+      ImportFileResultDto result =
+          importFile("/api/event/import/airbnb", "import_airbnb_with_conflicts.csv");
+      assertEquals(EVENT_COUNT_AIRBNB_AFTER_IMPORT, result.getImportedCount());
+      assertEquals(3, result.getConflictCount());
+      List<ImpBookingDto> impBookings = importedBookings();
+      assertEquals(EVENT_COUNT_AIRBNB_AFTER_IMPORT, impBookings.size());
+
+      ImpBookingDto eventConflict = findByName(impBookings, CONFLICTED_EVENT_AIRBNB_NAME);
+      assertEquals(ConflictType.EVENT_CONFLICT, eventConflict.getConflict().getType());
+      assertEquals(
+          testSetupHelper.getConflictEvent().getId(),
+          eventConflict.getConflict().getConflictEntity().getId());
+
+      ImpBookingDto assignmentConflict = findByName(impBookings, CONFLICTED_EVENT_AIRBNB_NAME_2);
+      assertEquals(ConflictType.ASSIGNMENT_CONFLICT, assignmentConflict.getConflict().getType());
+      assertEquals(
+          testSetupHelper.getConflictAssignment().getId(),
+          assignmentConflict.getConflict().getConflictEntity().getId());
+
+      // Conflict with a previous row of the same file
+      ImpBookingDto importConflict = findByName(impBookings, CONFLICTED_EVENT_AIRBNB_NAME_3);
+      assertEquals(ConflictType.IMPORT_BOOKING_CONFLICT, importConflict.getConflict().getType());
+      ImpBookingDto conflictedImpBooking =
+          (ImpBookingDto) importConflict.getConflict().getConflictEntity();
+      assertEquals(CONFLICT_IMPORT_EVENT_AIRBNB_NAME, conflictedImpBooking.getName());
+      assertEquals(
+          findByName(impBookings, CONFLICT_IMPORT_EVENT_AIRBNB_NAME).getId(),
+          conflictedImpBooking.getId());
+      assertNull(findByName(impBookings, CONFLICT_IMPORT_EVENT_AIRBNB_NAME).getConflict());
+
+      long withoutConflict =
+          impBookings.stream().filter(impBooking -> impBooking.getConflict() == null).count();
+      assertEquals(EVENT_COUNT_AIRBNB_AFTER_IMPORT - 3, withoutConflict);
+    }
+  }
+
+  @Nested
+  @DisplayName("Import in chunks")
+  class ImportInChunks {
+    @Test
+    void When_ConflictWithRowOfPreviousChunk_ConflictResolved() throws Exception {
+      testSetupHelper.resetImportConflicts(true);
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+
+      // One night per row. The last row, alone in the second chunk, repeats the night of the first
+      // one
+      int rows = ImportService.IMPORT_CHUNK_SIZE + 1;
+      DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+      LocalDate firstNight = LocalDate.of(2020, 1, 1);
+      StringBuilder csv =
+          new StringBuilder(
+              "Date,Type,Confirmation code,Booking date,Start date,End date,Nights,Guest,Listing\n");
+      for (int i = 0; i < rows; i++) {
+        LocalDate night = i == rows - 1 ? firstNight : firstNight.plusDays(i);
+        csv.append(
+            String.join(
+                ",",
+                "",
+                "Reservation",
+                "",
+                "",
+                night.format(formatter),
+                night.plusDays(1).format(formatter),
+                "1",
+                "Guest " + i,
+                CREATED_IMPORT_APARTMENT_AIRBNB_ID_1));
+        csv.append("\n");
+      }
+
+      ImportFileResultDto result =
+          importFile(
+              "/api/event/import/airbnb",
+              new MockMultipartFile(
+                  "file",
+                  "import.csv",
+                  "text/csv",
+                  csv.toString().getBytes(StandardCharsets.UTF_8)));
+      assertEquals(rows, result.getImportedCount());
+      assertEquals(1, result.getConflictCount());
+      List<ImpBookingDto> impBookings = importedBookings();
+      assertEquals(rows, impBookings.size());
+      assertEquals(
+          1, impBookings.stream().filter(impBooking -> impBooking.getConflict() != null).count());
+      ImpBookingDto lastRow = findByName(impBookings, "Guest " + (rows - 1));
+      assertEquals(ConflictType.IMPORT_BOOKING_CONFLICT, lastRow.getConflict().getType());
+      assertEquals(
+          findByName(impBookings, "Guest 0").getId(),
+          lastRow.getConflict().getConflictEntity().getId());
+    }
+  }
+
+  @Nested
+  @DisplayName("Import Booking bookings")
+  class ImportBookingBookings {
+    @Test
+    void When_ImportBookingWithConflicts_ConflictsResolved() throws Exception {
+      testSetupHelper.resetImportConflicts(false);
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+
+      ImportFileResultDto result =
+          importFile("/api/event/import/event", "import_booking_with_conflicts.csv");
+      assertEquals(EVENT_COUNT_BOOKING_AFTER_IMPORT, result.getImportedCount());
+      assertEquals(3, result.getConflictCount());
+      List<ImpBookingDto> impBookings = importedBookings();
+      assertEquals(EVENT_COUNT_BOOKING_AFTER_IMPORT, impBookings.size());
+
+      ImpBookingDto eventConflict = findByName(impBookings, CONFLICTED_EVENT_BOOKING_NAME);
+      assertEquals(ConflictType.EVENT_CONFLICT, eventConflict.getConflict().getType());
+
+      ImpBookingDto assignmentConflict = findByName(impBookings, CONFLICTED_EVENT_BOOKING_NAME_2);
+      assertEquals(ConflictType.ASSIGNMENT_CONFLICT, assignmentConflict.getConflict().getType());
+
+      ImpBookingDto importConflict = findByName(impBookings, CONFLICTED_EVENT_BOOKING_NAME_3);
+      assertEquals(ConflictType.IMPORT_BOOKING_CONFLICT, importConflict.getConflict().getType());
+      ImpBookingDto conflictedImpBooking =
+          (ImpBookingDto) importConflict.getConflict().getConflictEntity();
+      ImpBookingDto conflictedRow =
+          impBookings.stream()
+              .filter(impBooking -> impBooking.getId().equals(conflictedImpBooking.getId()))
+              .findFirst()
+              .orElseThrow();
+      assertEquals(conflictedRow.getName(), conflictedImpBooking.getName());
+      assertNull(conflictedRow.getConflict());
+    }
+  }
+
+  @Nested
+  @DisplayName("Import jobs")
+  class ImportJobs {
+    private ImportJobDto getJob(UUID id) throws Exception {
+      String resultString =
+          mockMvc
+              .perform(get("/api/event/import/job/" + id))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      return objectMapper
+          .readValue(resultString, new TypeReference<ApiResponse<ImportJobDto>>() {})
+          .getData();
+    }
+
+    private ImportJobDto submitJob() throws Exception {
+      String resultString =
+          mockMvc
+              .perform(post("/api/event/import/execute"))
+              .andExpect(status().isAccepted())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      return objectMapper
+          .readValue(resultString, new TypeReference<ApiResponse<ImportJobDto>>() {})
+          .getData();
+    }
+
+    private ImportJobDto waitForJob(ImportJobDto job) throws Exception {
+      Instant timeout = Instant.now().plusSeconds(30);
+      while (!job.getState().isDone() && Instant.now().isBefore(timeout)) {
+        Thread.sleep(100);
+        job = getJob(job.getId());
+      }
+      return job;
+    }
+
+    @Test
+    void When_ExecuteImport_JobFinished() throws Exception {
+      testSetupHelper.resetImportConflicts(true);
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+      ImportFileResultDto result =
+          importFile("/api/event/import/airbnb", "import_airbnb_with_conflicts.csv");
+
+      ImportJobDto job = submitJob();
+      assertNotNull(job.getId());
+
+      job = waitForJob(job);
+      assertEquals(ImportJobState.FINISHED, job.getState());
+      assertEquals(result.getImportedCount(), job.getTotal());
+      assertEquals(result.getImportedCount(), job.getProcessed());
+      // At least the rows with conflicts, every row counted once
+      assertTrue(job.getFailed() >= 3);
+      assertEquals(job.getProcessed(), job.getImported() + job.getFailed());
+    }
+
+    @Test
+    void When_GetJobOfAnotherUser_NotFound() throws Exception {
+      testSetupHelper.resetImportConflicts(true);
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+      importFile("/api/event/import/airbnb", "import_airbnb_with_conflicts.csv");
+      ImportJobDto job = waitForJob(submitJob());
+
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_2, userRepository);
+      mockMvc.perform(get("/api/event/import/job/" + job.getId())).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void When_ExecuteWithoutImport_NotFound() throws Exception {
+      testSetupHelper.resetImportConflicts(true);
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+      mockMvc.perform(post("/api/event/import/execute")).andExpect(status().isNotFound());
+    }
+  }
+}
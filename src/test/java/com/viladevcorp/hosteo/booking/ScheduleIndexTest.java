@@ -0,0 +1,257 @@
+package com.viladevcorp.hosteo.booking;
+
+import static com.viladevcorp.hosteo.common.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.TestUtils;
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.Task;
+import com.viladevcorp.hosteo.model.Worker;
+import com.viladevcorp.hosteo.model.types.AssignmentState;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.types.EventType;
+import com.viladevcorp.hosteo.model.types.ScheduleIndexMode;
+import com.viladevcorp.hosteo.model.types.TaskType;
+import com.viladevcorp.hosteo.repository.ApartmentRepository;
+import com.viladevcorp.hosteo.repository.AssignmentRepository;
+import com.viladevcorp.hosteo.repository.EventRepository;
+import com.viladevcorp.hosteo.repository.TaskRepository;
+import com.viladevcorp.hosteo.repository.UserRepository;
+import com.viladevcorp.hosteo.repository.WorkerRepository;
+import com.viladevcorp.hosteo.service.ScheduleIndexService;
+import com.viladevcorp.hosteo.service.TaskService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import org.antlr.v4.runtime.misc.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Checks that the occupancy index follows the changes made through the entities, and what it does
+ * with the changes it does not see: rows moved with SQL, as another instance would.
+ */
+class ScheduleIndexTest extends BaseControllerTest {
+
+  @Autowired private UserRepository userRepository;
+  @Autowired private ApartmentRepository apartmentRepository;
+  @Autowired private EventRepository eventRepository;
+  @Autowired private TaskRepository taskRepository;
+  @Autowired private WorkerRepository workerRepository;
+  @Autowired private AssignmentRepository assignmentRepository;
+  @Autowired private ScheduleIndexService scheduleIndexService;
+  @Autowired private TaskService taskService;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private MeterRegistry meterRegistry;
+
+  private Instant now;
+  private Apartment apartment;
+  private Apartment otherApartment;
+  private Task task;
+  private Task otherTask;
+  private Worker worker;
+  private Event event;
+  private Event otherEvent;
+
+  // Two apartments with an event each, the first one with an assignment of the worker
+  @BeforeEach
+  void setup() {
+    testSetupHelper.deleteTestAssignments();
+    TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+    now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    apartment =
+        apartmentRepository.save(Apartment.builder().name(CREATED_APARTMENT_NAME_1).build());
+    otherApartment =
+        apartmentRepository.save(Apartment.builder().name(CREATED_APARTMENT_NAME_2).build());
+    task = createTask(apartment);
+    otherTask = createTask(otherApartment);
+    worker = workerRepository.save(Worker.builder().name(CREATED_WORKER_NAME_1).build());
+    event = createEvent(apartment, days(1), days(3));
+    otherEvent = createEvent(otherApartment, days(1), days(3));
+    assignmentRepository.save(
+        Assignment.builder()
+            .task(task)
+            .worker(worker)
+            .startDate(days(3))
+            .endDate(days(3).plus(Duration.ofHours(2)))
+            .state(AssignmentState.PENDING)
+            .build());
+    // Loads both timelines
+    conflicts(apartment, days(0), days(1));
+    conflicts(otherApartment, days(0), days(1));
+  }
+
+  private Instant days(int days) {
+    return now.plus(Duration.ofDays(days));
+  }
+
+  private Task createTask(Apartment apartment) {
+    return taskRepository.save(
+        Task.builder()
+            .name(CREATED_TASK_NAME_1)
+            .type(TaskType.MANDATORY)
+            .category(CREATED_TASK_CATEGORY_1)
+            .duration(CREATED_TASK_DURATION_1)
+            .apartment(apartment)
+            .build());
+  }
+
+  private Event createEvent(Apartment apartment, Instant startDate, Instant endDate) {
+    return eventRepository.save(
+        Event.builder()
+            .name(CREATED_EVENT_NAME_1)
+            .type(EventType.BOOKING)
+            .state(EventState.PENDING)
+            .apartment(apartment)
+            .startDate(startDate)
+            .endDate(endDate)
+            .build());
+  }
+
+  private Pair<Event, Assignment> conflicts(
+      Apartment apartment, Instant startDate, Instant endDate) {
+    return scheduleIndexService.getScheduleConflicts(
+        apartment.getId(), startDate, endDate, null, null);
+  }
+
+  private UUID eventConflictId(Apartment apartment, Instant startDate, Instant endDate) {
+    Event conflict = conflicts(apartment, startDate, endDate).a;
+    return conflict == null ? null : conflict.getId();
+  }
+
+  // Moves the event without going through the entity, so the index does not see it
+  private void moveEventWithSql(Event event, Instant startDate, Instant endDate) {
+    jdbcTemplate.update(
+        "UPDATE events SET start_date = ?, end_date = ? WHERE id = ?",
+        Timestamp.from(startDate),
+        Timestamp.from(endDate),
+        event.getId());
+  }
+
+  @Nested
+  @DisplayName("Listener sync")
+  class ListenerSync {
+
+    @Test
+    void When_EventSaved_ConflictFound() {
+      Event created = createEvent(apartment, days(10), days(12));
+      assertEquals(created.getId(), eventConflictId(apartment, days(11), days(13)));
+    }
+
+    @Test
+    void When_EventMoved_ConflictMoved() {
+      event.setStartDate(days(20));
+      event.setEndDate(days(22));
+      eventRepository.save(event);
+      assertNull(eventConflictId(apartment, days(1), days(3)));
+      assertEquals(event.getId(), eventConflictId(apartment, days(21), days(23)));
+    }
+
+    @Test
+    void When_EventRemoved_NoConflict() {
+      eventRepository.delete(event);
+      assertNull(eventConflictId(apartment, days(1), days(3)));
+    }
+
+    @Test
+    void When_AssignmentSaved_ConflictFound() {
+      Assignment assignment =
+          assignmentRepository.save(
+              Assignment.builder()
+                  .task(otherTask)
+                  .worker(worker)
+                  .startDate(days(5))
+                  .endDate(days(6))
+                  .state(AssignmentState.PENDING)
+                  .build());
+      assertEquals(assignment.getId(), conflicts(otherApartment, days(5), days(7)).b.getId());
+    }
+
+    @Test
+    void When_WorkerRemoved_OnlyItsApartmentsEvicted() {
+      moveEventWithSql(event, days(30), days(32));
+      moveEventWithSql(otherEvent, days(30), days(32));
+      workerRepository.delete(worker);
+      // Reloaded without the assignment removed by the database, and with the moved event
+      assertNull(conflicts(apartment, days(3), days(4)).b);
+      assertEquals(event.getId(), eventConflictId(apartment, days(30), days(31)));
+      // Not reloaded, the other apartment still has the event where it was
+      assertEquals(otherEvent.getId(), eventConflictId(otherApartment, days(1), days(3)));
+    }
+
+    @Test
+    void When_TaskRemoved_OnlyItsApartmentEvicted() throws Exception {
+      moveEventWithSql(event, days(30), days(32));
+      moveEventWithSql(otherEvent, days(30), days(32));
+      taskService.deleteTask(task.getId());
+      assertNull(conflicts(apartment, days(3), days(4)).b);
+      assertEquals(event.getId(), eventConflictId(apartment, days(30), days(31)));
+      assertEquals(otherEvent.getId(), eventConflictId(otherApartment, days(1), days(3)));
+    }
+  }
+
+  @Nested
+  @DisplayName("Changes out of the index")
+  class OutOfIndex {
+
+    @Test
+    void When_MovedWithSql_VerifyApartmentEvicts() {
+      moveEventWithSql(event, days(30), days(32));
+      assertFalse(scheduleIndexService.verifyApartment(apartment.getId()));
+      assertEquals(event.getId(), eventConflictId(apartment, days(30), days(31)));
+      assertTrue(scheduleIndexService.verifyApartment(apartment.getId()));
+    }
+
+    @Test
+    void When_VerifyModeMismatch_DatabaseAnswersAndIndexEvicted() {
+      moveEventWithSql(event, days(30), days(32));
+      double mismatches =
+          meterRegistry.counter(ScheduleIndexService.INDEX_MISMATCH_COUNTER).count();
+      ReflectionTestUtils.setField(scheduleIndexService, "mode", ScheduleIndexMode.VERIFY);
+      try {
+        assertEquals(event.getId(), eventConflictId(apartment, days(30), days(31)));
+      } finally {
+        ReflectionTestUtils.setField(scheduleIndexService, "mode", ScheduleIndexMode.MEMORY);
+      }
+      assertEquals(
+          mismatches + 1,
+          meterRegistry.counter(ScheduleIndexService.INDEX_MISMATCH_COUNTER).count());
+      // Loaded again from the database
+      assertEquals(event.getId(), eventConflictId(apartment, days(30), days(31)));
+    }
+
+    @Test
+    void When_VerifyModeMatch_NoMismatch() {
+      double mismatches =
+          meterRegistry.counter(ScheduleIndexService.INDEX_MISMATCH_COUNTER).count();
+      ReflectionTestUtils.setField(scheduleIndexService, "mode", ScheduleIndexMode.VERIFY);
+      try {
+        assertEquals(event.getId(), eventConflictId(apartment, days(1), days(2)));
+        assertNull(eventConflictId(apartment, days(10), days(11)));
+      } finally {
+        ReflectionTestUtils.setField(scheduleIndexService, "mode", ScheduleIndexMode.MEMORY);
+      }
+      assertEquals(
+          mismatches, meterRegistry.counter(ScheduleIndexService.INDEX_MISMATCH_COUNTER).count());
+    }
+
+    @Test
+    void When_BeforeHistory_FoundInDatabase() {
+      // Out of the loaded timelines, which only keep the last days
+      Event past = createEvent(apartment, days(-400), days(-398));
+      assertEquals(past.getId(), eventConflictId(apartment, days(-399), days(-397)));
+      assertTrue(scheduleIndexService.verifyApartment(apartment.getId()));
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.viladevcorp.hosteo.common;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the statements Hibernate prepares while running a call, from the statistics of the session
+ * factory (enabled in the test profile). The statistics are shared by every thread, so it waits for
+ * the background work of the application executors (like the alert refreshes started by the test
+ * data) to finish before counting.
+ */
+@Component
+public class StatementCounter {
+
+  private static final long IDLE_TIMEOUT_MILLIS = 10_000;
+
+  private final Statistics statistics;
+  private final List<ThreadPoolTaskExecutor> executors;
+
+  @Autowired
+  public StatementCounter(
+      EntityManagerFactory entityManagerFactory, List<ThreadPoolTaskExecutor> executors) {
+    this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    this.executors = executors;
+  }
+
+  public long count(Executable call) throws Throwable {
+    awaitExecutorsIdle();
+    statistics.clear();
+    call.execute();
+    return statistics.getPrepareStatementCount();
+  }
+
+  public void assertMaxStatements(long max, Executable call) throws Throwable {
+    long count = count(call);
+    assertTrue(count <= max, "Expected at most " + max + " statements but " + count + " were run");
+  }
+
+  private void awaitExecutorsIdle() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + IDLE_TIMEOUT_MILLIS;
+    while (executors.stream()
+        .anyMatch(
+            executor ->
+                executor.getActiveCount() > 0
+                    || !executor.getThreadPoolExecutor().getQueue().isEmpty())) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new IllegalStateException("Background tasks still running");
+      }
+      Thread.sleep(50);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package com.viladevcorp.hosteo.common;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+
+/**
+ * Records the prepared statements executed through a data source with their parameters, so they can
+ * be replayed later (with EXPLAIN, for example). Statements are only recorded by the thread that
+ * started the recording.
+ */
+public class StatementRecorder {
+
+  private static final ThreadLocal<List<RecordedStatement>> recording = new ThreadLocal<>();
+
+  public record Binding(Method method, Object[] args) {}
+
+  public record RecordedStatement(String sql, List<Binding> bindings) {
+
+    // Prepares the statement with the given prefix and binds the recorded parameters
+    public PreparedStatement prepare(Connection connection, String prefix) throws SQLException {
+      PreparedStatement statement = connection.prepareStatement(prefix + sql);
+      try {
+        for (Binding binding : bindings) {
+          binding.method().invoke(statement, binding.args());
+        }
+      } catch (IllegalAccessException | InvocationTargetException e) {
+        statement.close();
+        throw new SQLException("Parameter not bound: " + e.getMessage(), e);
+      }
+      return statement;
+    }
+  }
+
+  public static void start() {
+    recording.set(new ArrayList<>());
+  }
+
+  public static List<RecordedStatement> stop() {
+    List<RecordedStatement> statements = recording.get();
+    recording.remove();
+    return statements == null ? List.of() : statements;
+  }
+
+  public static DataSource wrap(DataSource dataSource) {
+    return proxy(
+        DataSource.class,
+        dataSource,
+        (method, result, args) ->
+            method.getName().equals("getConnection") ? wrap((Connection) result) : result);
+  }
+
+  private static Connection wrap(Connection connection) {
+    return proxy(
+        Connection.class,
+        connection,
+        (method, result, args) ->
+            method.getName().equals("prepareStatement")
+                ? wrap((PreparedStatement) result, (String) args[0])
+                : result);
+  }
+
+  private static PreparedStatement wrap(PreparedStatement statement, String sql) {
+    List<Binding> bindings = new ArrayList<>();
+    return proxy(
+        PreparedStatement.class,
+        statement,
+        (method, result, args) -> {
+          String name = method.getName();
+          if (name.startsWith("set")
+              && args != null
+              && args.length >= 2
+              && args[0] instanceof Integer) {
+            bindings.add(new Binding(method, args.clone()));
+          } else if (name.equals("clearParameters")) {
+            bindings.clear();
+          } else if (name.equals("executeQuery") && args == null && recording.get() != null) {
+            recording.get().add(new RecordedStatement(sql, List.copyOf(bindings)));
+          }
+          return result;
+        });
+  }
+
+  private interface ResultHandler {
+    Object handle(Method method, Object result, Object[] args);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(Class<T> type, T target, ResultHandler handler) {
+    return (T)
+        Proxy.newProxyInstance(
+            StatementRecorder.class.getClassLoader(),
+            new Class<?>[] {type},
+            (proxy, method, args) -> {
+              Object result;
+              try {
+                result = method.invoke(target, args);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+              return handler.handle(method, result, args);
+            });
+  }
+}
@@ -14,6 +14,7 @@ import com.viladevcorp.hosteo.model.Task;
 import com.viladevcorp.hosteo.model.Template;
 import com.viladevcorp.hosteo.model.User;
 import com.viladevcorp.hosteo.model.Worker;
+import com.viladevcorp.hosteo.model.types.EventType;
 import com.viladevcorp.hosteo.service.AuthService;
 
 import lombok.Getter;
@@ -179,6 +180,8 @@ public class TestSetupHelper {
     Event ev1 =
         eventRepository.save(
             Event.builder()
+                .name(CREATED_EVENT_NAME_1)
+                .type(EventType.BOOKING)
                 .apartment(testApartments.get(CREATED_EVENT_APARTMENT_POSITION_1))
                 .startDate(TestUtils.dateStrToInstant(CREATED_EVENT_START_DATE_1))
                 .endDate(TestUtils.dateStrToInstant(CREATED_EVENT_END_DATE_1))
@@ -188,6 +191,8 @@ public class TestSetupHelper {
     Event ev2 =
         eventRepository.save(
             Event.builder()
+                .name(CREATED_EVENT_NAME_2)
+                .type(EventType.BOOKING)
                 .apartment(testApartments.get(CREATED_EVENT_APARTMENT_POSITION_2))
                 .startDate(TestUtils.dateStrToInstant(CREATED_EVENT_START_DATE_2))
                 .endDate(TestUtils.dateStrToInstant(CREATED_EVENT_END_DATE_2))
@@ -197,6 +202,8 @@ public class TestSetupHelper {
     Event ev3 =
         eventRepository.save(
             Event.builder()
+                .name(CREATED_EVENT_NAME_3)
+                .type(EventType.BOOKING)
                 .apartment(testApartments.get(CREATED_EVENT_APARTMENT_POSITION_3))
                 .startDate(TestUtils.dateStrToInstant(CREATED_EVENT_START_DATE_3))
                 .endDate(TestUtils.dateStrToInstant(CREATED_EVENT_END_DATE_3))
@@ -206,6 +213,8 @@ public class TestSetupHelper {
     Event ev4 =
         eventRepository.save(
             Event.builder()
+                .name(CREATED_EVENT_NAME_4)
+                .type(EventType.BOOKING)
                 .apartment(testApartments.get(CREATED_EVENT_APARTMENT_POSITION_4))
                 .startDate(TestUtils.dateStrToInstant(CREATED_EVENT_START_DATE_4))
                 .endDate(TestUtils.dateStrToInstant(CREATED_EVENT_END_DATE_4))
@@ -215,6 +224,8 @@ public class TestSetupHelper {
     Event ev5 =
         eventRepository.save(
             Event.builder()
+                .name(CREATED_EVENT_NAME_5)
+                .type(EventType.BOOKING)
                 .apartment(testApartments.get(CREATED_EVENT_APARTMENT_POSITION_5))
                 .startDate(TestUtils.dateStrToInstant(CREATED_EVENT_START_DATE_5))
                 .endDate(TestUtils.dateStrToInstant(CREATED_EVENT_END_DATE_5))
@@ -492,6 +503,8 @@ public class TestSetupHelper {
       // Create airbnb conflicts before import
       Event conflictedEvent =
           Event.builder()
+              .name(CREATED_EVENT_CONFLICT_NAME_1)
+              .type(EventType.BOOKING)
               .state(CREATED_EVENT_CONFLICT_STATE_1)
               .apartment(testApartments.get(CREATED_EVENT_CONFLICT_APARTMENT_POSITION_1))
               .startDate(TestUtils.dateStrToInstant(CREATED_EVENT_AIRBNB_CONFLICT_START_DATE_1))
@@ -517,6 +530,8 @@ public class TestSetupHelper {
       // Create booking conflicts before import
       Event conflictedEvent =
           Event.builder()
+              .name(CREATED_EVENT_CONFLICT_NAME_1)
+              .type(EventType.BOOKING)
               .state(CREATED_EVENT_CONFLICT_STATE_1)
               .apartment(testApartments.get(CREATED_EVENT_CONFLICT_APARTMENT_POSITION_1))
               .startDate(TestUtils.dateStrToInstant(CREATED_EVENT_BOOKING_CONFLICT_START_DATE_1))
@@ -0,0 +1,138 @@
+package com.viladevcorp.hosteo.metrics;
+
+import static com.viladevcorp.hosteo.common.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.TestUtils;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.repository.UserRepository;
+import com.viladevcorp.hosteo.service.EventService;
+import com.viladevcorp.hosteo.utils.ServiceUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+
+// Served, as in production, on the management port, apart from the API port
+@SpringBootTest(
+    webEnvironment = WebEnvironment.RANDOM_PORT,
+    properties = "management.server.port=0")
+class MetricsEndpointTest extends BaseControllerTest {
+
+  @Autowired private UserRepository userRepository;
+  @Autowired private MockMvc mockMvc;
+  @Autowired private MeterRegistry meterRegistry;
+  @Autowired private WebApplicationContext webApplicationContext;
+  @Autowired private TestRestTemplate restTemplate;
+
+  @LocalServerPort private int serverPort;
+  @LocalManagementPort private int managementPort;
+
+  @Autowired private FilterRegistrationBean<ServerHttpObservationFilter> webMvcObservationFilter;
+
+  // The endpoint latencies are recorded by the observation filter, left out of the shared MockMvc
+  private MockMvc observedMockMvc;
+
+  @BeforeAll
+  void createMockMvc() {
+    observedMockMvc =
+        MockMvcBuilders.webAppContextSetup(webApplicationContext)
+            .addFilters(webMvcObservationFilter.getFilter())
+            .build();
+  }
+
+  @BeforeEach
+  void setup() throws Exception {
+    TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+    testSetupHelper.resetTestEvents();
+  }
+
+  private double stateValidations(String outcome) {
+    return meterRegistry
+        .timer(EventService.STATE_VALIDATION_TIMER, ServiceUtils.OUTCOME_TAG, outcome)
+        .count();
+  }
+
+  // Without authentication, as the monitoring reads it
+  private ResponseEntity<String> getWithoutAuth(int port, String path) {
+    return restTemplate.getForEntity("http://localhost:" + port + path, String.class);
+  }
+
+  private String scrape() {
+    ResponseEntity<String> response = getWithoutAuth(managementPort, "/actuator/prometheus");
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    return response.getBody();
+  }
+
+  @Nested
+  @DisplayName("Service timers")
+  class ServiceTimers {
+    @Test
+    void When_EventStateRejected_TimedByOutcome() throws Exception {
+      Event event5 = testSetupHelper.getTestEvents().get(4);
+      double rejected = stateValidations("PrevOfFinishedCannotBeNotPendingOrInProgress");
+
+      mockMvc
+          .perform(patch("/api/event/" + event5.getId() + "/state/" + EventState.FINISHED))
+          .andExpect(status().isConflict());
+
+      assertEquals(rejected + 1, stateValidations("PrevOfFinishedCannotBeNotPendingOrInProgress"));
+    }
+  }
+
+  @Nested
+  @DisplayName("Prometheus scrape")
+  class PrometheusScrape {
+    @Test
+    void When_Scrape_MetricsExported() throws Exception {
+      Event event = testSetupHelper.getTestEvents().get(0);
+      observedMockMvc.perform(get("/api/event/" + event.getId())).andExpect(status().isOk());
+
+      String metrics = scrape();
+      // Endpoint latencies with their histogram buckets
+      assertTrue(metrics.contains("http_server_requests_seconds_bucket{"));
+      assertTrue(metrics.contains("uri=\"/api/event/{id}\""));
+      // Pool, Hibernate and second-level cache gauges and counters
+      assertTrue(metrics.contains("hikaricp_connections_active{"));
+      assertTrue(metrics.contains("hibernate_statements_total{"));
+      assertTrue(metrics.contains("hosteo_cache_entities_hits_total{"));
+      assertTrue(metrics.contains("region=\"com.viladevcorp.hosteo.model.Worker\""));
+    }
+
+    @Test
+    void When_HealthOnManagementPort_Reported() {
+      // Up or down (the mail server is not reached in the tests), but not refused
+      ResponseEntity<String> response = getWithoutAuth(managementPort, "/actuator/health");
+      assertFalse(response.getStatusCode().is4xxClientError());
+      assertTrue(response.getBody().contains("\"status\""));
+    }
+
+    @Test
+    void When_ScrapeOnApiPort_NotServed() {
+      ResponseEntity<String> response = getWithoutAuth(serverPort, "/actuator/prometheus");
+      assertTrue(response.getStatusCode().is4xxClientError());
+      assertFalse(response.getBody() != null && response.getBody().contains("hikaricp"));
+      assertTrue(getWithoutAuth(serverPort, "/actuator/health").getStatusCode().is4xxClientError());
+    }
+  }
+}
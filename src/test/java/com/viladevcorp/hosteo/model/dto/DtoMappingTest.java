@@ -0,0 +1,98 @@
+package com.viladevcorp.hosteo.model.dto;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
+import com.viladevcorp.hosteo.model.types.EventSource;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.types.EventType;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+
+/**
+ * Checks that the explicit field copies of the DTO constructors give the same fields as the
+ * reflective copy they replaced. Their speed is compared in the DtoBenchmark of the benchmarks.
+ */
+class DtoMappingTest {
+
+  private static final int EVENTS = 10;
+  private static final int APARTMENTS = 3;
+
+  private List<Event> generateEvents() {
+    List<Apartment> apartments = new ArrayList<>();
+    for (int i = 0; i < APARTMENTS; i++) {
+      Apartment apartment =
+          Apartment.builder()
+              .name("Apartment " + i)
+              .airbnbId("airbnb-" + i)
+              .state(ApartmentState.READY)
+              .visible(true)
+              .build();
+      apartment.setId(UUID.randomUUID());
+      apartment.setCreatedAt(Instant.now());
+      apartments.add(apartment);
+    }
+    Instant start = Instant.now().truncatedTo(ChronoUnit.DAYS);
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < EVENTS; i++) {
+      Event event =
+          Event.builder()
+              .type(EventType.BOOKING)
+              .name("Booking " + i)
+              .source(EventSource.AIRBNB)
+              .state(EventState.PENDING)
+              .apartment(apartments.get(i % APARTMENTS))
+              .startDate(start.plus(i, ChronoUnit.DAYS))
+              .endDate(start.plus(i + 2, ChronoUnit.DAYS))
+              .build();
+      event.setId(UUID.randomUUID());
+      event.setCreatedAt(Instant.now());
+      events.add(event);
+    }
+    return events;
+  }
+
+  // The mapping of the constructors before the explicit copies
+  private EventDto reflectiveCopy(Event event) {
+    EventDto dto = new EventDto();
+    BeanUtils.copyProperties(event, dto, "apartment");
+    ApartmentDto apartment = new ApartmentDto();
+    BeanUtils.copyProperties(event.getApartment(), apartment);
+    dto.setApartment(apartment);
+    return dto;
+  }
+
+  @Nested
+  @DisplayName("Event mapping")
+  class EventMapping {
+    @Test
+    void When_MapEvents_SameFieldsAsReflectiveCopy() {
+      for (Event event : generateEvents()) {
+        EventDto explicit = new EventDto(event);
+        EventDto reflective = reflectiveCopy(event);
+        assertEquals(reflective.getId(), explicit.getId());
+        assertEquals(reflective.getCreatedAt(), explicit.getCreatedAt());
+        assertEquals(reflective.getType(), explicit.getType());
+        assertEquals(reflective.getSource(), explicit.getSource());
+        assertEquals(reflective.getState(), explicit.getState());
+        assertEquals(reflective.getStartDate(), explicit.getStartDate());
+        assertEquals(reflective.getEndDate(), explicit.getEndDate());
+        ApartmentDto apartment = explicit.getApartment();
+        assertEquals(reflective.getApartment().getId(), apartment.getId());
+        assertEquals(reflective.getApartment().getName(), apartment.getName());
+        assertEquals(reflective.getApartment().getAirbnbId(), apartment.getAirbnbId());
+        assertEquals(reflective.getApartment().getState(), apartment.getState());
+        assertEquals(reflective.getApartment().isVisible(), apartment.isVisible());
+      }
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package com.viladevcorp.hosteo.repository;
+
+import static com.viladevcorp.hosteo.common.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.StatementCounter;
+import com.viladevcorp.hosteo.common.TestUtils;
+import com.viladevcorp.hosteo.model.ImpBooking;
+import com.viladevcorp.hosteo.service.ImportService;
+import com.viladevcorp.hosteo.utils.AuthUtils;
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares the statements per imported booking with the JDBC batching of the configuration and
+ * without it (as the imports ran before it was configured), for a generated Airbnb file. The
+ * bookings are saved by the import service and deleted with the bulk delete, against the delete by
+ * id of the repository it replaced. Everything runs in a transaction that is rolled back.
+ */
+@Slf4j
+class ImportWriteBenchmarkTest extends BaseControllerTest {
+
+  private static final int BOOKINGS = 1_000;
+  private static final List<String> LISTINGS =
+      List.of(
+          CREATED_IMPORT_APARTMENT_AIRBNB_ID_1,
+          CREATED_IMPORT_APARTMENT_AIRBNB_ID_2,
+          CREATED_IMPORT_APARTMENT_AIRBNB_ID_3);
+  private static final DateTimeFormatter CSV_DATE_FORMAT =
+      DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+  @Autowired private UserRepository userRepository;
+  @Autowired private ImpBookingRepository impBookingRepository;
+  @Autowired private ImportService importService;
+  @Autowired private StatementCounter statementCounter;
+  @Autowired private TransactionTemplate transactionTemplate;
+  @Autowired private EntityManager entityManager;
+
+  private byte[] importFile;
+
+  @BeforeAll
+  void createData() {
+    testSetupHelper.resetImportApartments();
+    importFile = generateImportFile();
+  }
+
+  @BeforeEach
+  void setup() {
+    TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+  }
+
+  // One night stays, one after the other on each apartment
+  private byte[] generateImportFile() {
+    StringBuilder csv =
+        new StringBuilder(
+            "Date,Type,Confirmation code,Booking date,Start date,End date,Nights,Guest,Listing,"
+                + "Details,Reference code,Currency,Amount,Service fee,Cleaning fee,Gross earnings,"
+                + "Occupancy taxes,Earnings year\n");
+    LocalDate firstDate = LocalDate.of(2030, 1, 1);
+    for (int i = 0; i < BOOKINGS; i++) {
+      LocalDate startDate = firstDate.plusDays(2L * (i / LISTINGS.size()));
+      String start = startDate.format(CSV_DATE_FORMAT);
+      String end = startDate.plusDays(1).format(CSV_DATE_FORMAT);
+      csv.append(end)
+          .append(",Reservation,CODE")
+          .append(i)
+          .append(",")
+          .append(start)
+          .append(",")
+          .append(start)
+          .append(",")
+          .append(end)
+          .append(",1,Guest ")
+          .append(i)
+          .append(",")
+          .append(LISTINGS.get(i % LISTINGS.size()))
+          .append(",,,EUR,58.20,1.80,0.00,60.00,7.00,\n");
+    }
+    return csv.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private record WriteCounts(long importStatements, long deleteStatements) {}
+
+  private WriteCounts countWrites(boolean batched) {
+    return transactionTemplate.execute(
+        status -> {
+          status.setRollbackOnly();
+          Session session = entityManager.unwrap(Session.class);
+          if (!batched) {
+            session.setJdbcBatchSize(1);
+          }
+          try {
+            long importStatements =
+                statementCounter.count(
+                    () -> importService.importAirbnbBookings(new ByteArrayInputStream(importFile)));
+            List<ImpBooking> bookings =
+                impBookingRepository.getUserImpBookings(AuthUtils.getUserId(), null);
+            assertEquals(BOOKINGS, bookings.size());
+            List<UUID> ids = bookings.stream().map(ImpBooking::getId).toList();
+            long deleteStatements =
+                statementCounter.count(
+                    () -> {
+                      if (batched) {
+                        impBookingRepository.deleteByIdsAndCreatedById(ids, AuthUtils.getUserId());
+                      } else {
+                        impBookingRepository.deleteAllById(ids);
+                      }
+                      entityManager.flush();
+                    });
+            assertEquals(0, impBookingRepository.countUserImpBookings(AuthUtils.getUserId()));
+            return new WriteCounts(importStatements, deleteStatements);
+          } catch (Throwable e) {
+            throw new IllegalStateException(e);
+          }
+        });
+  }
+
+  @Nested
+  @DisplayName("Import write benchmark")
+  class ImportWriteBenchmark {
+    @Test
+    void When_ImportBookings_FewerStatementsPerBooking() {
+      WriteCounts unbatched = countWrites(false);
+      WriteCounts batched = countWrites(true);
+      log.info(
+          "[ImportWriteBenchmarkTest] - {} bookings, statements per booking: import {} -> {}, delete {} -> {}",
+          BOOKINGS,
+          (double) unbatched.importStatements() / BOOKINGS,
+          (double) batched.importStatements() / BOOKINGS,
+          (double) unbatched.deleteStatements() / BOOKINGS,
+          (double) batched.deleteStatements() / BOOKINGS);
+      assertTrue(batched.importStatements() < unbatched.importStatements());
+      assertTrue(batched.deleteStatements() < unbatched.deleteStatements());
+      // The inserts of each chunk go in batches, the rest are the conflict queries per chunk
+      assertTrue(batched.importStatements() < BOOKINGS / 10);
+      assertEquals(1, batched.deleteStatements());
+    }
+  }
+}
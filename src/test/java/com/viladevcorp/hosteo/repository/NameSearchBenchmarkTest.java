@@ -0,0 +1,206 @@
+package com.viladevcorp.hosteo.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.StatementRecorder;
+import com.viladevcorp.hosteo.common.StatementRecorder.RecordedStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Checks that the apartment name searches use the trigram index, and compares their latency with
+ * the index and without it (as they ran before it was added), on a generated tenant. The dataset is
+ * created in a transaction that is rolled back at the end, and the index is dropped inside it. The
+ * latency comparison, on 100k apartments, only runs with -Pbenchmark.
+ */
+@Slf4j
+@Import(QueryPlanTest.RecordingConfig.class)
+class NameSearchBenchmarkTest extends BaseControllerTest {
+
+  // Around 20k apartments the sequential scan is still cheaper, and chosen by the planner
+  private static final int PLAN_APARTMENTS = 50_000;
+  private static final int BENCHMARK_APARTMENTS = 100_000;
+  private static final int WARMUP_RUNS = 3;
+  private static final int RUNS = 15;
+  private static final String TRIGRAM_INDEX = "idx_apartments_name_trgm";
+  // Matches a single apartment of each dataset
+  private static final String TERM = "12345";
+  private static final String ANALYZE_TABLES = "ANALYZE users, apartments";
+
+  @Autowired private ApartmentRepository apartmentRepository;
+  @Autowired private DataSource dataSource;
+
+  // The statement executed by the repository call
+  private RecordedStatement record(Runnable call) {
+    StatementRecorder.start();
+    List<RecordedStatement> recorded;
+    try {
+      call.run();
+    } finally {
+      recorded = StatementRecorder.stop();
+    }
+    assertFalse(recorded.isEmpty(), "No statement executed");
+    return recorded.get(recorded.size() - 1);
+  }
+
+  private Map<String, RecordedStatement> recordSearches(UUID userId) {
+    String name = "%" + TERM + "%";
+    PageRequest page = PageRequest.of(0, 20);
+    Map<String, RecordedStatement> statements = new LinkedHashMap<>();
+    statements.put(
+        "advancedSearch",
+        record(() -> apartmentRepository.advancedSearch(userId, name, null, null, page)));
+    statements.put(
+        "advancedCount", record(() -> apartmentRepository.advancedCount(userId, name, null, null)));
+    statements.put(
+        "rankedSearch",
+        record(() -> apartmentRepository.rankedSearch(userId, name, TERM, null, null, page)));
+    return statements;
+  }
+
+  // A user with the apartments, named after their number
+  private UUID generateDataset(Connection connection, int apartments) throws Exception {
+    UUID userId = UUID.randomUUID();
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(
+          "INSERT INTO users (id, email, username, password, validated, created_at) VALUES ('"
+              + userId
+              + "', 'benchmark@hosteo.com', 'benchmark-user', 'password', true, now())");
+      statement.execute(
+          "INSERT INTO apartments (id, name, state, visible, created_at, created_by) "
+              + "SELECT gen_random_uuid(), 'Apartment ' || a || ' ' || "
+              + "(ARRAY['Sea view', 'Old town', 'Harbor', 'Downtown'])[1 + a % 4], 'READY', true, "
+              + "now(), '"
+              + userId
+              + "' FROM generate_series(1, "
+              + apartments
+              + ") a");
+      statement.execute(ANALYZE_TABLES);
+    }
+    return userId;
+  }
+
+  private String explain(Connection connection, RecordedStatement recorded) throws Exception {
+    StringBuilder plan = new StringBuilder();
+    try (PreparedStatement statement = recorded.prepare(connection, "EXPLAIN ");
+        ResultSet resultSet = statement.executeQuery()) {
+      while (resultSet.next()) {
+        plan.append(resultSet.getString(1)).append("\n");
+      }
+    }
+    return plan.toString();
+  }
+
+  // Median latency in microseconds
+  private long measure(Connection connection, RecordedStatement recorded) throws Exception {
+    List<Long> latencies = new ArrayList<>();
+    for (int run = 0; run < WARMUP_RUNS + RUNS; run++) {
+      long start = System.nanoTime();
+      try (PreparedStatement statement = recorded.prepare(connection, "");
+          ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          // Read every row, as the application does
+        }
+      }
+      if (run >= WARMUP_RUNS) {
+        latencies.add((System.nanoTime() - start) / 1000);
+      }
+    }
+    latencies.sort(null);
+    return latencies.get(latencies.size() / 2);
+  }
+
+  // Runs the check on a generated dataset that is rolled back at the end
+  private void withDataset(int apartments, DatasetCheck check) throws Exception {
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        UUID userId = generateDataset(connection, apartments);
+        check.run(connection, recordSearches(userId));
+      } finally {
+        connection.rollback();
+        // ANALYZE updates the table sizes in place, they are not rolled back
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+          statement.execute(ANALYZE_TABLES);
+        }
+      }
+    }
+  }
+
+  private interface DatasetCheck {
+    void run(Connection connection, Map<String, RecordedStatement> statements) throws Exception;
+  }
+
+  private void assertTrigramIndexUsed(
+      Connection connection, String search, RecordedStatement recorded) throws Exception {
+    String plan = explain(connection, recorded);
+    assertTrue(plan.contains(TRIGRAM_INDEX), search + " does not use the trigram index:\n" + plan);
+  }
+
+  @Nested
+  @DisplayName("Name search plan")
+  class NameSearchPlan {
+    @Test
+    void When_SearchByName_TrigramIndexUsed() throws Exception {
+      withDataset(
+          PLAN_APARTMENTS,
+          (connection, statements) -> {
+            for (Map.Entry<String, RecordedStatement> entry : statements.entrySet()) {
+              assertTrigramIndexUsed(connection, entry.getKey(), entry.getValue());
+            }
+          });
+    }
+  }
+
+  @Nested
+  @Tag("benchmark")
+  @DisplayName("Name search benchmark")
+  class NameSearchBenchmark {
+    @Test
+    void When_SearchByName_TrigramIndexFaster() throws Exception {
+      withDataset(
+          BENCHMARK_APARTMENTS,
+          (connection, statements) -> {
+            Map<String, Long> indexed = new LinkedHashMap<>();
+            for (Map.Entry<String, RecordedStatement> entry : statements.entrySet()) {
+              assertTrigramIndexUsed(connection, entry.getKey(), entry.getValue());
+              indexed.put(entry.getKey(), measure(connection, entry.getValue()));
+            }
+
+            try (Statement statement = connection.createStatement()) {
+              statement.execute("DROP INDEX " + TRIGRAM_INDEX);
+            }
+            for (Map.Entry<String, RecordedStatement> entry : statements.entrySet()) {
+              long withoutIndex = measure(connection, entry.getValue());
+              log.info(
+                  "[NameSearchBenchmarkTest] - {} with {} apartments: {} us with the trigram index, {} us without it",
+                  entry.getKey(),
+                  BENCHMARK_APARTMENTS,
+                  indexed.get(entry.getKey()),
+                  withoutIndex);
+              assertTrue(
+                  indexed.get(entry.getKey()) < withoutIndex,
+                  entry.getKey() + " is not faster with the trigram index");
+            }
+          });
+    }
+  }
+}
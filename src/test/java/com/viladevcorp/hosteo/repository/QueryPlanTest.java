@@ -0,0 +1,346 @@
+package com.viladevcorp.hosteo.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.StatementRecorder;
+import com.viladevcorp.hosteo.common.StatementRecorder.RecordedStatement;
+import com.viladevcorp.hosteo.model.types.EventState;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Runs EXPLAIN on the key queries of the event and assignment repositories, with the parameters
+ * they are executed with, against a generated dataset of several tenants. The dataset is created
+ * and analyzed in a transaction that is rolled back at the end.
+ *
+ * <p>Only sequential scans of the tables that grow with time (events and assignments) are reported.
+ * The planner can still read the small ones (users, apartments, tasks) entirely when it is cheaper
+ * than looking them up by index.
+ */
+@Import(QueryPlanTest.RecordingConfig.class)
+class QueryPlanTest extends BaseControllerTest {
+
+  private static final int USERS = 200;
+  private static final int APARTMENTS_PER_USER = 10;
+  private static final int WORKERS_PER_USER = 5;
+  private static final int EVENTS_PER_APARTMENT = 50;
+  private static final String USERNAME_PREFIX = "plan-user-";
+  private static final String ANALYZE_TABLES =
+      "ANALYZE users, apartments, workers, tasks, events, assignments";
+  private static final List<String> TIMELINE_TABLES = List.of("events", "assignments");
+
+  @Autowired private EventRepository eventRepository;
+  @Autowired private AssignmentRepository assignmentRepository;
+  @Autowired private DataSource dataSource;
+
+  private Map<String, String> plans;
+
+  @TestConfiguration
+  static class RecordingConfig {
+    @Bean
+    static BeanPostProcessor statementRecordingPostProcessor() {
+      return new BeanPostProcessor() {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+          return bean instanceof DataSource source ? StatementRecorder.wrap(source) : bean;
+        }
+      };
+    }
+  }
+
+  // The statement executed by the repository call
+  private void record(Map<String, RecordedStatement> statements, String name, Runnable call) {
+    StatementRecorder.start();
+    List<RecordedStatement> recorded;
+    try {
+      call.run();
+    } finally {
+      recorded = StatementRecorder.stop();
+    }
+    assertFalse(recorded.isEmpty(), "No statement executed by " + name);
+    statements.put(name, recorded.get(recorded.size() - 1));
+  }
+
+  private Map<String, RecordedStatement> recordKeyQueries() {
+    Map<String, RecordedStatement> statements = new LinkedHashMap<>();
+    UUID userId = UUID.randomUUID();
+    UUID apartmentId = UUID.randomUUID();
+    UUID eventId = UUID.randomUUID();
+    UUID workerId = UUID.randomUUID();
+    Instant startDate = Instant.now();
+    Instant endDate = startDate.plus(Duration.ofDays(7));
+    PageRequest page = PageRequest.of(0, 20);
+
+    record(
+        statements,
+        "EventRepository.advancedSearch",
+        () ->
+            eventRepository.advancedSearch(userId, null, null, null, null, null, null, null, page));
+    record(
+        statements,
+        "EventRepository.advancedSearch after a cursor",
+        () ->
+            eventRepository.advancedSearch(
+                userId, null, null, null, null, null, startDate, eventId, page));
+    record(
+        statements,
+        "EventRepository.advancedCount",
+        () -> eventRepository.advancedCount(userId, null, null, null, null, null));
+    record(statements, "EventRepository.findById", () -> eventRepository.findById(eventId, userId));
+    record(
+        statements,
+        "EventRepository.findEventsBetween",
+        () -> eventRepository.findEventsBetween(userId, apartmentId, startDate, endDate, null));
+    record(
+        statements,
+        "EventRepository.findEventsBetweenInApartments",
+        () ->
+            eventRepository.findEventsBetweenInApartments(
+                userId, Set.of(apartmentId), startDate, endDate));
+    record(
+        statements,
+        "EventRepository.findInApartments",
+        () -> eventRepository.findInApartments(userId, Set.of(apartmentId)));
+    record(
+        statements,
+        "EventRepository.findOccupancyByApartmentId",
+        () -> eventRepository.findOccupancyByApartmentId(apartmentId, startDate));
+    record(
+        statements,
+        "EventRepository.existsEventByApartmentIdAndState",
+        () ->
+            eventRepository.existsEventByApartmentIdAndState(apartmentId, EventState.IN_PROGRESS));
+    record(
+        statements,
+        "EventRepository.findFirstByApartmentIdAndStateOrderByEndDateDesc",
+        () ->
+            eventRepository.findFirstByApartmentIdAndStateOrderByEndDateDesc(
+                apartmentId, EventState.FINISHED));
+    record(
+        statements,
+        "EventRepository.findFirstStartDateWithStateBefore",
+        () ->
+            eventRepository.findFirstStartDateWithStateBefore(userId, EventState.PENDING, endDate));
+    record(
+        statements,
+        "EventRepository.findEventsBetweenWithApartment",
+        () -> eventRepository.findEventsBetweenWithApartment(userId, startDate, endDate));
+    record(
+        statements,
+        "EventRepository.findLastEventsEndingBefore",
+        () -> eventRepository.findLastEventsEndingBefore(userId, startDate));
+    record(
+        statements,
+        "EventRepository.findFirstEventsStartingFrom",
+        () -> eventRepository.findFirstEventsStartingFrom(userId, endDate));
+
+    record(
+        statements,
+        "AssignmentRepository.advancedSearch",
+        () -> assignmentRepository.advancedSearch(userId, null, null, null, null, page));
+    record(
+        statements,
+        "AssignmentRepository.advancedCount",
+        () -> assignmentRepository.advancedCount(userId, null, null));
+    record(
+        statements,
+        "AssignmentRepository.findAssignmentsBetween",
+        () ->
+            assignmentRepository.findAssignmentsBetween(
+                userId, apartmentId, startDate, endDate, null));
+    record(
+        statements,
+        "AssignmentRepository.findAssignmentsBetweenInApartments",
+        () ->
+            assignmentRepository.findAssignmentsBetweenInApartments(
+                userId, Set.of(apartmentId), startDate, endDate));
+    record(
+        statements,
+        "AssignmentRepository.checkWorkerAvailability",
+        () ->
+            assignmentRepository.checkWorkerAvailability(
+                userId, workerId, startDate, endDate, null));
+    record(
+        statements,
+        "AssignmentRepository.findWorkersAssignmentsBetween",
+        () ->
+            assignmentRepository.findWorkersAssignmentsBetween(
+                userId, Set.of(workerId), startDate, endDate));
+    record(
+        statements,
+        "AssignmentRepository.findOccupancyByApartmentId",
+        () -> assignmentRepository.findOccupancyByApartmentId(apartmentId, startDate));
+    record(
+        statements,
+        "AssignmentRepository.findByEventIds",
+        () -> assignmentRepository.findByEventIds(Set.of(eventId), userId));
+    record(
+        statements,
+        "AssignmentRepository.findByEventIdsWithDetails",
+        () -> assignmentRepository.findByEventIdsWithDetails(userId, Set.of(eventId)));
+    record(
+        statements,
+        "AssignmentRepository.findByEventIdsOrBetween",
+        () ->
+            assignmentRepository.findByEventIdsOrBetween(
+                userId, Set.of(eventId), startDate, endDate));
+    return statements;
+  }
+
+  // Users with their apartments, a mandatory task per apartment, workers, and a timeline of one day
+  // events per apartment (the past ones finished), each one with an assignment
+  private void generateDataset(Connection connection) throws Exception {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(
+          "INSERT INTO users (id, email, username, password, validated, created_at) "
+              + "SELECT gen_random_uuid(), '"
+              + USERNAME_PREFIX
+              + "' || u || '@hosteo.com', '"
+              + USERNAME_PREFIX
+              + "' || u, 'password', true, now() "
+              + "FROM generate_series(0, "
+              + (USERS - 1)
+              + ") u");
+      String generatedUsers = "u.username LIKE '" + USERNAME_PREFIX + "%'";
+      statement.execute(
+          "INSERT INTO apartments (id, name, state, visible, created_at, created_by) "
+              + "SELECT gen_random_uuid(), u.username || '-apartment-' || a, 'READY', true, now(), u.id "
+              + "FROM users u, generate_series(1, "
+              + APARTMENTS_PER_USER
+              + ") a WHERE "
+              + generatedUsers);
+      statement.execute(
+          "INSERT INTO workers (id, name, language, salary, visible, created_at, created_by) "
+              + "SELECT gen_random_uuid(), u.username || '-worker-' || w, 'ES', 0, true, now(), u.id "
+              + "FROM users u, generate_series(1, "
+              + WORKERS_PER_USER
+              + ") w WHERE "
+              + generatedUsers);
+      statement.execute(
+          "INSERT INTO tasks (id, name, category, duration, type, apartment_id, created_at, created_by) "
+              + "SELECT gen_random_uuid(), ap.name || '-cleaning', 'CLEANING', 60, 'MANDATORY', ap.id, "
+              + "now(), ap.created_by FROM apartments ap JOIN users u ON u.id = ap.created_by WHERE "
+              + generatedUsers);
+      statement.execute(
+          "INSERT INTO events (id, type, name, source, state, apartment_id, start_date, end_date, "
+              + "created_at, created_by) "
+              + "SELECT gen_random_uuid(), 'BOOKING', ap.name || '-' || d, 'NONE', "
+              + "CASE WHEN d < "
+              + EVENTS_PER_APARTMENT / 2
+              + " THEN 'FINISHED' ELSE 'PENDING' END, ap.id, "
+              + "now() + (d - "
+              + EVENTS_PER_APARTMENT / 2
+              + ") * interval '1 day', "
+              + "now() + (d - "
+              + EVENTS_PER_APARTMENT / 2
+              + ") * interval '1 day' + interval '20 hours', now(), ap.created_by "
+              + "FROM apartments ap JOIN users u ON u.id = ap.created_by, "
+              + "generate_series(0, "
+              + (EVENTS_PER_APARTMENT - 1)
+              + ") d WHERE "
+              + generatedUsers);
+      statement.execute(
+          "INSERT INTO assignments (id, task_id, worker_id, event_id, start_date, end_date, state, "
+              + "created_at, created_by) "
+              + "SELECT gen_random_uuid(), t.id, "
+              + "(SELECT w.id FROM workers w WHERE w.created_by = e.created_by LIMIT 1), e.id, "
+              + "e.end_date + interval '1 hour', e.end_date + interval '3 hours', e.state, now(), "
+              + "e.created_by FROM events e JOIN tasks t ON t.apartment_id = e.apartment_id "
+              + "JOIN users u ON u.id = e.created_by WHERE "
+              + generatedUsers);
+      statement.execute(ANALYZE_TABLES);
+    }
+  }
+
+  private String explain(Connection connection, RecordedStatement recorded) throws Exception {
+    StringBuilder plan = new StringBuilder();
+    try (PreparedStatement statement = recorded.prepare(connection, "EXPLAIN ");
+        ResultSet resultSet = statement.executeQuery()) {
+      while (resultSet.next()) {
+        plan.append(resultSet.getString(1)).append("\n");
+      }
+    }
+    return plan.toString();
+  }
+
+  // Plans of the key queries, computed once for all the tests
+  private Map<String, String> getPlans() throws Exception {
+    if (plans != null) {
+      return plans;
+    }
+    Map<String, RecordedStatement> statements = recordKeyQueries();
+    Map<String, String> result = new LinkedHashMap<>();
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        generateDataset(connection);
+        for (Map.Entry<String, RecordedStatement> entry : statements.entrySet()) {
+          result.put(entry.getKey(), explain(connection, entry.getValue()));
+        }
+      } finally {
+        connection.rollback();
+        // ANALYZE updates the table sizes in place, they are not rolled back
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+          statement.execute(ANALYZE_TABLES);
+        }
+      }
+    }
+    plans = result;
+    return plans;
+  }
+
+  private List<String> findPlansContaining(List<String> nodes) throws Exception {
+    List<String> found = new ArrayList<>();
+    for (Map.Entry<String, String> entry : getPlans().entrySet()) {
+      if (nodes.stream().anyMatch(node -> entry.getValue().contains(node))) {
+        found.add(entry.getKey() + ":\n" + entry.getValue());
+      }
+    }
+    return found;
+  }
+
+  @Nested
+  @DisplayName("Query plans")
+  class QueryPlans {
+    @Test
+    void When_ExplainKeyQueries_NoSequentialScan() throws Exception {
+      List<String> sequentialScans =
+          findPlansContaining(
+              TIMELINE_TABLES.stream().map(table -> "Seq Scan on " + table + " ").toList());
+      assertTrue(
+          sequentialScans.isEmpty(),
+          "Queries with sequential scans:\n" + String.join("\n", sequentialScans));
+    }
+
+    @Test
+    void When_ExplainKeyQueries_UsersNotJoined() throws Exception {
+      // The queries filter by the created_by column, the users table is not needed
+      List<String> usersJoins = findPlansContaining(List.of(" on users "));
+      assertTrue(
+          usersJoins.isEmpty(),
+          "Queries joining the users table:\n" + String.join("\n", usersJoins));
+    }
+  }
+}
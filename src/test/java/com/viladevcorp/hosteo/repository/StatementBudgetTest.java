@@ -0,0 +1,216 @@
+package com.viladevcorp.hosteo.repository;
+
+import static com.viladevcorp.hosteo.common.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.StatementCounter;
+import com.viladevcorp.hosteo.common.TestUtils;
+import com.viladevcorp.hosteo.controller.StatementBudgetFilter;
+import com.viladevcorp.hosteo.utils.ApiResponse;
+import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.dto.EventWithAssignmentsDto;
+import com.viladevcorp.hosteo.model.forms.AssignmentSearchForm;
+import com.viladevcorp.hosteo.model.forms.EventSearchForm;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Checks the maximum number of statements run by the endpoints that read entities with their
+ * associations, so lazy and eager loads per row do not come back unnoticed. The test data has every
+ * test assignment linked to one event, so the budgets do not depend on how many there are.
+ */
+class StatementBudgetTest extends BaseControllerTest {
+
+  @Autowired private UserRepository userRepository;
+  @Autowired private AssignmentRepository assignmentRepository;
+  @Autowired private MockMvc mockMvc;
+  @Autowired private ObjectMapper objectMapper;
+  @Autowired private StatementCounter statementCounter;
+  @Autowired private MeterRegistry meterRegistry;
+  @Autowired private WebApplicationContext webApplicationContext;
+  @Autowired private StatementBudgetFilter statementBudgetFilter;
+
+  private Event event;
+
+  // The filters are left out of the shared MockMvc
+  private MockMvc countedMockMvc;
+
+  @BeforeAll
+  void createData() throws Exception {
+    TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+    testSetupHelper.resetAssignments();
+    event = testSetupHelper.getTestEvents().get(0);
+    for (Assignment assignment : testSetupHelper.getTestAssignments()) {
+      assignment.setEvent(event);
+      assignmentRepository.save(assignment);
+    }
+    countedMockMvc =
+        MockMvcBuilders.webAppContextSetup(webApplicationContext)
+            .addFilters(statementBudgetFilter)
+            .build();
+  }
+
+  @BeforeEach
+  void setup() {
+    TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+  }
+
+  private void assertMaxStatements(long max, RequestBuilder request) throws Throwable {
+    statementCounter.assertMaxStatements(
+        max, () -> mockMvc.perform(request).andExpect(status().isOk()));
+  }
+
+  @Nested
+  @DisplayName("Event endpoints")
+  class EventEndpoints {
+    @Test
+    void When_GetEventWithAssignments_WithinBudget() throws Throwable {
+      // The event with its assignments in a select, the tasks of the apartment in another
+      assertMaxStatements(2, get("/api/event/" + event.getId()));
+    }
+
+    @Test
+    void When_GetEventWithAssignments_NoDuplicates() throws Exception {
+      String resultString =
+          mockMvc
+              .perform(get("/api/event/" + event.getId()))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      EventWithAssignmentsDto result =
+          objectMapper
+              .readValue(resultString, new TypeReference<ApiResponse<EventWithAssignmentsDto>>() {})
+              .getData();
+      long apartmentTasks =
+          testSetupHelper.getTestTasks().stream()
+              .filter(task -> task.getApartment().getId().equals(event.getApartment().getId()))
+              .count();
+      // Both collections read together would give every task once per assignment
+      assertEquals(apartmentTasks, result.getApartment().getTasks().size());
+      assertEquals(testSetupHelper.getTestAssignments().size(), result.getAssignments().size());
+    }
+
+    @Test
+    void When_SearchEvents_WithinBudget() throws Throwable {
+      EventSearchForm form = new EventSearchForm();
+      form.setPageSize(20);
+      // The page and the counts of the total
+      assertMaxStatements(
+          2,
+          post("/api/event/search")
+              .contentType("application/json")
+              .content(objectMapper.writeValueAsString(form)));
+    }
+  }
+
+  @Nested
+  @DisplayName("Assignment endpoints")
+  class AssignmentEndpoints {
+    @Test
+    void When_GetAssignment_WithinBudget() throws Throwable {
+      Assignment assignment = testSetupHelper.getTestAssignments().get(0);
+      assertMaxStatements(1, get("/api/assignment/" + assignment.getId()));
+    }
+
+    @Test
+    void When_SearchAssignments_WithinBudget() throws Throwable {
+      AssignmentSearchForm form = new AssignmentSearchForm();
+      form.setPageSize(20);
+      // The page and the counts of the total
+      assertMaxStatements(
+          2,
+          post("/api/assignment/search")
+              .contentType("application/json")
+              .content(objectMapper.writeValueAsString(form)));
+    }
+  }
+
+  @Nested
+  @DisplayName("Request statement counter")
+  class RequestStatementCounter {
+    @Test
+    void When_GetEventWithAssignments_CountInHeader() throws Throwable {
+      double requests =
+          meterRegistry
+              .summary(
+                  StatementBudgetFilter.STATEMENTS_SUMMARY,
+                  "method",
+                  "GET",
+                  "uri",
+                  "/api/event/{id}")
+              .count();
+      MvcResult[] result = new MvcResult[1];
+      long statements =
+          statementCounter.count(
+              () ->
+                  result[0] =
+                      countedMockMvc
+                          .perform(get("/api/event/" + event.getId()))
+                          .andExpect(status().isOk())
+                          .andReturn());
+      assertEquals(
+          String.valueOf(statements),
+          result[0].getResponse().getHeader(StatementBudgetFilter.HEADER));
+      assertEquals(
+          requests + 1,
+          meterRegistry
+              .summary(
+                  StatementBudgetFilter.STATEMENTS_SUMMARY,
+                  "method",
+                  "GET",
+                  "uri",
+                  "/api/event/{id}")
+              .count());
+    }
+
+    @Test
+    void When_SearchEventsOverBudget_Counted() throws Exception {
+      // The budget of the event search is lowered in the test profile
+      double overBudget =
+          meterRegistry
+              .counter(
+                  StatementBudgetFilter.OVER_BUDGET_COUNTER,
+                  "method",
+                  "POST",
+                  "uri",
+                  "/api/event/search")
+              .count();
+      EventSearchForm form = new EventSearchForm();
+      form.setPageSize(20);
+      countedMockMvc
+          .perform(
+              post("/api/event/search")
+                  .contentType("application/json")
+                  .content(objectMapper.writeValueAsString(form)))
+          .andExpect(status().isOk());
+      assertEquals(
+          overBudget + 1,
+          meterRegistry
+              .counter(
+                  StatementBudgetFilter.OVER_BUDGET_COUNTER,
+                  "method",
+                  "POST",
+                  "uri",
+                  "/api/event/search")
+              .count());
+    }
+  }
+}
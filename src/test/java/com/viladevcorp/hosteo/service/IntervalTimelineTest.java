@@ -0,0 +1,149 @@
+package com.viladevcorp.hosteo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.viladevcorp.hosteo.model.OccupancySlot;
+import com.viladevcorp.hosteo.service.ScheduleIndexService.IntervalTimeline;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class IntervalTimelineTest {
+
+  private static final Instant ORIGIN = Instant.parse("2025-01-01T00:00:00Z");
+  private static final UUID APARTMENT_ID = UUID.randomUUID();
+
+  // Hours from the origin
+  private static Instant at(int hours) {
+    return ORIGIN.plusSeconds(hours * 3600L);
+  }
+
+  private static OccupancySlot slot(UUID id, int start, int end) {
+    return new OccupancySlot(id, APARTMENT_ID, at(start), at(end));
+  }
+
+  @Nested
+  @DisplayName("First overlap")
+  class FirstOverlap {
+
+    @Test
+    void When_Empty_NoOverlap() {
+      IntervalTimeline timeline = IntervalTimeline.of(List.of());
+      assertNull(timeline.firstOverlap(at(0), at(10), null));
+    }
+
+    @Test
+    void When_Overlapping_FirstByStartFound() {
+      UUID first = UUID.randomUUID();
+      UUID second = UUID.randomUUID();
+      IntervalTimeline timeline =
+          IntervalTimeline.of(List.of(slot(second, 15, 30), slot(first, 5, 20)));
+      assertEquals(first, timeline.firstOverlap(at(10), at(25), null));
+      assertEquals(second, timeline.firstOverlap(at(22), at(25), null));
+    }
+
+    @Test
+    void When_TouchingBounds_NoOverlap() {
+      IntervalTimeline timeline = IntervalTimeline.of(List.of(slot(UUID.randomUUID(), 10, 20)));
+      assertNull(timeline.firstOverlap(at(20), at(30), null));
+      assertNull(timeline.firstOverlap(at(0), at(10), null));
+      assertNotNull(timeline.firstOverlap(at(19), at(30), null));
+      assertNotNull(timeline.firstOverlap(at(0), at(11), null));
+    }
+
+    @Test
+    void When_Excluded_NextOverlapFound() {
+      UUID excluded = UUID.randomUUID();
+      UUID other = UUID.randomUUID();
+      IntervalTimeline timeline =
+          IntervalTimeline.of(List.of(slot(excluded, 0, 10), slot(other, 5, 15)));
+      assertEquals(other, timeline.firstOverlap(at(6), at(8), excluded));
+      assertNull(timeline.firstOverlap(at(0), at(4), excluded));
+    }
+
+    @Test
+    void When_LongSlotBeforeShortOnes_FoundByRunningMaxEnd() {
+      UUID longSlot = UUID.randomUUID();
+      // The short slots end before the query, the long one started before them still overlaps
+      IntervalTimeline timeline =
+          IntervalTimeline.of(
+              List.of(
+                  slot(longSlot, 0, 100),
+                  slot(UUID.randomUUID(), 10, 20),
+                  slot(UUID.randomUUID(), 30, 40)));
+      assertEquals(longSlot, timeline.firstOverlap(at(50), at(60), null));
+      assertNull(timeline.firstOverlap(at(100), at(110), null));
+    }
+
+    @Test
+    void When_ShortSlotBeforeLongOne_LongOneFound() {
+      UUID longSlot = UUID.randomUUID();
+      IntervalTimeline timeline =
+          IntervalTimeline.of(List.of(slot(UUID.randomUUID(), 0, 5), slot(longSlot, 1, 100)));
+      assertEquals(longSlot, timeline.firstOverlap(at(50), at(60), null));
+    }
+  }
+
+  @Nested
+  @DisplayName("Changes")
+  class Changes {
+
+    @Test
+    void When_Upsert_SameAsLoaded() {
+      UUID first = UUID.randomUUID();
+      UUID second = UUID.randomUUID();
+      UUID third = UUID.randomUUID();
+      IntervalTimeline timeline =
+          IntervalTimeline.of(List.of())
+              .upsert(third, at(30), at(40))
+              .upsert(first, at(0), at(10))
+              .upsert(second, at(10), at(20));
+      IntervalTimeline loaded =
+          IntervalTimeline.of(
+              List.of(slot(second, 10, 20), slot(third, 30, 40), slot(first, 0, 10)));
+      assertTrue(timeline.sameSlots(loaded));
+    }
+
+    @Test
+    void When_UpsertExisting_Moved() {
+      UUID moved = UUID.randomUUID();
+      UUID other = UUID.randomUUID();
+      IntervalTimeline timeline =
+          IntervalTimeline.of(List.of(slot(moved, 0, 10), slot(other, 20, 30)))
+              .upsert(moved, at(40), at(50));
+      assertNull(timeline.firstOverlap(at(0), at(10), null));
+      assertEquals(moved, timeline.firstOverlap(at(45), at(46), null));
+      assertTrue(
+          timeline.sameSlots(
+              IntervalTimeline.of(List.of(slot(other, 20, 30), slot(moved, 40, 50)))));
+    }
+
+    @Test
+    void When_UpsertSubMicros_TruncatedAsStored() {
+      UUID id = UUID.randomUUID();
+      IntervalTimeline timeline =
+          IntervalTimeline.of(List.of()).upsert(id, at(0).plusNanos(123), at(10).plusNanos(456));
+      assertTrue(timeline.sameSlots(IntervalTimeline.of(List.of(slot(id, 0, 10)))));
+    }
+
+    @Test
+    void When_Remove_RunningMaxEndRecalculated() {
+      UUID longSlot = UUID.randomUUID();
+      IntervalTimeline timeline =
+          IntervalTimeline.of(List.of(slot(longSlot, 0, 100), slot(UUID.randomUUID(), 10, 20)));
+      IntervalTimeline removed = timeline.remove(longSlot);
+      assertNull(removed.firstOverlap(at(50), at(60), null));
+      // The original is not changed
+      assertEquals(longSlot, timeline.firstOverlap(at(50), at(60), null));
+    }
+
+    @Test
+    void When_RemoveMissing_Unchanged() {
+      IntervalTimeline timeline = IntervalTimeline.of(List.of(slot(UUID.randomUUID(), 0, 10)));
+      assertSame(timeline, timeline.remove(UUID.randomUUID()));
+    }
+  }
+}
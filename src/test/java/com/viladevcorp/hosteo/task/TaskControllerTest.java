@@ -7,7 +7,9 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import com.viladevcorp.hosteo.model.forms.TaskCreateForm;
@@ -16,11 +18,14 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.StatementCounter;
 import com.viladevcorp.hosteo.common.TestSetupHelper;
 import com.viladevcorp.hosteo.common.TestUtils;
 import com.viladevcorp.hosteo.model.Page;
@@ -28,9 +33,12 @@ import com.viladevcorp.hosteo.model.Task;
 import com.viladevcorp.hosteo.model.dto.TaskDto;
 import com.viladevcorp.hosteo.model.forms.TaskSearchForm;
 import com.viladevcorp.hosteo.model.forms.TaskUpdateForm;
+import com.viladevcorp.hosteo.model.types.TaskType;
 import com.viladevcorp.hosteo.repository.TaskRepository;
 import com.viladevcorp.hosteo.repository.UserRepository;
+import com.viladevcorp.hosteo.service.SearchCountService;
 import com.viladevcorp.hosteo.utils.ApiResponse;
+import com.viladevcorp.hosteo.utils.AuthUtils;
 
 import static com.viladevcorp.hosteo.common.TestConstants.*;
 
@@ -46,6 +54,12 @@ class TaskControllerTest extends BaseControllerTest {
 
   @Autowired private ObjectMapper objectMapper;
 
+  @Autowired private SearchCountService searchCountService;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private StatementCounter statementCounter;
+
   @BeforeEach
   void setup() {
     testSetupHelper.resetTestTasks();
@@ -492,6 +506,166 @@ class TaskControllerTest extends BaseControllerTest {
         assertTrue(task.getName().toLowerCase().contains("maintenance"));
       }
     }
+
+    private Page<TaskDto> searchTasksPage(TaskSearchForm searchFormObj) throws Exception {
+      String resultString =
+          mockMvc
+              .perform(
+                  post("/api/task/search")
+                      .contentType("application/json")
+                      .content(objectMapper.writeValueAsString(searchFormObj)))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      return objectMapper
+          .readValue(resultString, new TypeReference<ApiResponse<Page<TaskDto>>>() {})
+          .getData();
+    }
+
+    @Test
+    void When_SearchTasksWithCursor_AllPagesInOrder() throws Exception {
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+
+      TaskSearchForm searchFormObj = new TaskSearchForm();
+      searchFormObj.setPageSize(2);
+      searchFormObj.setIncludeTotal(false);
+      List<UUID> pagedIds = new ArrayList<>();
+      Page<TaskDto> returnedPage = searchTasksPage(searchFormObj);
+      assertNull(returnedPage.getTotalRows());
+      pagedIds.addAll(returnedPage.getContent().stream().map(TaskDto::getId).toList());
+      while (returnedPage.getNextCursor() != null) {
+        searchFormObj.setCursor(returnedPage.getNextCursor());
+        returnedPage = searchTasksPage(searchFormObj);
+        pagedIds.addAll(returnedPage.getContent().stream().map(TaskDto::getId).toList());
+      }
+
+      // The same rows and order as without pagination
+      searchFormObj = new TaskSearchForm();
+      searchFormObj.setPageSize(0);
+      List<UUID> allIds =
+          searchTasksPage(searchFormObj).getContent().stream().map(TaskDto::getId).toList();
+      assertEquals(5, allIds.size());
+      assertEquals(allIds, pagedIds);
+    }
+
+    @Test
+    void When_SearchTasksRanked_MostSimilarFirst() throws Exception {
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+
+      TaskSearchForm searchFormObj = new TaskSearchForm();
+      searchFormObj.setName("Maintenance");
+      searchFormObj.setRanked(true);
+      searchFormObj.setPageSize(10);
+      Page<TaskDto> returnedPage = searchTasksPage(searchFormObj);
+      List<String> names = returnedPage.getContent().stream().map(TaskDto::getName).toList();
+
+      // The longest name is the least similar to the term
+      assertEquals(3, names.size());
+      assertEquals(CREATED_TASK_NAME_5, names.get(2));
+      assertEquals(3, returnedPage.getTotalRows());
+      assertNull(returnedPage.getNextCursor());
+    }
+
+    @Test
+    void When_SearchTasksWithInvalidCursor_BadRequest() throws Exception {
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+
+      TaskSearchForm searchFormObj = new TaskSearchForm();
+      searchFormObj.setPageSize(2);
+      searchFormObj.setCursor("not-a-cursor");
+      mockMvc
+          .perform(
+              post("/api/task/search")
+                  .contentType("application/json")
+                  .content(objectMapper.writeValueAsString(searchFormObj)))
+          .andExpect(status().isBadRequest());
+    }
+  }
+
+  @Nested
+  @DisplayName("Search counts")
+  class SearchCounts {
+    private long countTasks() throws Exception {
+      TaskSearchForm searchFormObj = new TaskSearchForm();
+      searchFormObj.setPageSize(2);
+      String resultString =
+          mockMvc
+              .perform(
+                  post("/api/task/search")
+                      .contentType("application/json")
+                      .content(objectMapper.writeValueAsString(searchFormObj)))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      return objectMapper
+          .readValue(resultString, new TypeReference<ApiResponse<Page<TaskDto>>>() {})
+          .getData()
+          .getTotalRows();
+    }
+
+    @Test
+    void When_DeleteTask_TotalUpdated() throws Exception {
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+      assertEquals(5, countTasks());
+
+      mockMvc
+          .perform(
+              delete("/api/task/" + testSetupHelper.getTestTasks().get(0).getId())
+                  .contentType("application/json"))
+          .andExpect(status().isOk());
+      assertEquals(4, countTasks());
+    }
+
+    @Test
+    void When_CountsDrift_Reconciled() throws Exception {
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+      assertEquals(5, countTasks());
+
+      // Removed without going through the entity lifecycle, the count is not updated
+      jdbcTemplate.update(
+          "DELETE FROM tasks WHERE id = ?", testSetupHelper.getTestTasks().get(0).getId());
+      assertEquals(5, countTasks());
+
+      assertTrue(searchCountService.reconcileCounts() >= 1);
+      assertEquals(4, countTasks());
+    }
+
+    @Test
+    void When_CountsLoadedAndEvicted_NothingLeft() throws Exception {
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+      assertEquals(5, countTasks());
+      searchCountService.evictAll();
+
+      // Nothing is kept for the keys without counts or loads in flight
+      Map<?, ?> loads = (Map<?, ?>) ReflectionTestUtils.getField(searchCountService, "loads");
+      assertTrue(loads.isEmpty());
+      assertEquals(5, countTasks());
+    }
+
+    @Test
+    void When_UpdateTaskType_CountsMovedWithoutReload() throws Throwable {
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+      UUID userId = AuthUtils.getUserId();
+      int mandatory = searchCountService.countTasks(userId, TaskType.MANDATORY);
+      int extra = searchCountService.countTasks(userId, TaskType.EXTRA);
+
+      Task task = taskRepository.findById(testSetupHelper.getTestTasks().get(0).getId()).get();
+      assertEquals(TaskType.MANDATORY, task.getType());
+      task.setType(TaskType.EXTRA);
+      taskRepository.save(task);
+
+      // Moved from the type the task was loaded with, the counts are not loaded again
+      assertEquals(
+          0,
+          statementCounter.count(
+              () -> {
+                assertEquals(
+                    mandatory - 1, searchCountService.countTasks(userId, TaskType.MANDATORY));
+                assertEquals(extra + 1, searchCountService.countTasks(userId, TaskType.EXTRA));
+              }));
+    }
   }
 
   @Nested
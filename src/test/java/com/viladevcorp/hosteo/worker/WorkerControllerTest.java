@@ -19,6 +19,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.viladevcorp.hosteo.model.Worker;
 import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.StatementCounter;
 import com.viladevcorp.hosteo.common.TestUtils;
 import com.viladevcorp.hosteo.model.Page;
 import com.viladevcorp.hosteo.model.forms.WorkerCreateForm;
@@ -26,6 +27,7 @@ import com.viladevcorp.hosteo.model.forms.WorkerSearchForm;
 import com.viladevcorp.hosteo.model.forms.WorkerUpdateForm;
 import com.viladevcorp.hosteo.repository.UserRepository;
 import com.viladevcorp.hosteo.repository.WorkerRepository;
+import com.viladevcorp.hosteo.service.EntityCacheStatistics;
 import com.viladevcorp.hosteo.utils.ApiResponse;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -40,6 +42,8 @@ class WorkerControllerTest extends BaseControllerTest {
   @Autowired private WorkerRepository workerRepository;
   @Autowired private MockMvc mockMvc;
   @Autowired private ObjectMapper objectMapper;
+  @Autowired private StatementCounter statementCounter;
+  @Autowired private EntityCacheStatistics entityCacheStatistics;
 
   @BeforeEach
   void setup() {
@@ -147,6 +151,60 @@ class WorkerControllerTest extends BaseControllerTest {
     }
   }
 
+  @Nested
+  @DisplayName("Worker cache")
+  class WorkerCache {
+    private final String workerRegion = Worker.class.getName();
+
+    @Test
+    void When_GetWorkerAgain_ReadFromCache() throws Throwable {
+      String workerUrl = "/api/worker/" + testSetupHelper.getTestWorkers().get(0).getId();
+      mockMvc.perform(get(workerUrl)).andExpect(status().isOk());
+      long hits = entityCacheStatistics.getStatistics(workerRegion).hits();
+
+      statementCounter.assertMaxStatements(
+          0, () -> mockMvc.perform(get(workerUrl)).andExpect(status().isOk()));
+      assertTrue(entityCacheStatistics.getStatistics(workerRegion).hits() > hits);
+    }
+
+    @Test
+    void When_GetCachedWorkerNotOwned_NotFound() throws Exception {
+      String workerUrl = "/api/worker/" + testSetupHelper.getTestWorkers().get(0).getId();
+      mockMvc.perform(get(workerUrl)).andExpect(status().isOk());
+
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_2, userRepository);
+      mockMvc.perform(get(workerUrl)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void When_UpdateCachedWorker_UpdatedValueRead() throws Exception {
+      Worker worker = testSetupHelper.getTestWorkers().get(0);
+      String workerUrl = "/api/worker/" + worker.getId();
+      mockMvc.perform(get(workerUrl)).andExpect(status().isOk());
+
+      WorkerUpdateForm form = new WorkerUpdateForm();
+      BeanUtils.copyProperties(workerRepository.findById(worker.getId()).get(), form);
+      form.setName(UPDATED_WORKER_NAME);
+      mockMvc
+          .perform(
+              patch("/api/worker")
+                  .contentType("application/json")
+                  .content(objectMapper.writeValueAsString(form)))
+          .andExpect(status().isOk());
+
+      String resultString =
+          mockMvc
+              .perform(get(workerUrl))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      ApiResponse<WorkerDto> result =
+          objectMapper.readValue(resultString, new TypeReference<ApiResponse<WorkerDto>>() {});
+      assertEquals(UPDATED_WORKER_NAME, result.getData().getName());
+    }
+  }
+
   @Nested
   @DisplayName("Update workers")
   class UpdateWorkers {
@@ -0,0 +1,290 @@
+package com.viladevcorp.hosteo.workflow;
+
+import static com.viladevcorp.hosteo.common.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.TestUtils;
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.Task;
+import com.viladevcorp.hosteo.model.Worker;
+import com.viladevcorp.hosteo.model.dto.AlertDto;
+import com.viladevcorp.hosteo.model.types.Alert;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
+import com.viladevcorp.hosteo.model.types.AssignmentState;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.types.EventType;
+import com.viladevcorp.hosteo.model.types.TaskType;
+import com.viladevcorp.hosteo.repository.ApartmentRepository;
+import com.viladevcorp.hosteo.repository.AssignmentRepository;
+import com.viladevcorp.hosteo.repository.EventAlertRepository;
+import com.viladevcorp.hosteo.repository.EventRepository;
+import com.viladevcorp.hosteo.repository.TaskRepository;
+import com.viladevcorp.hosteo.repository.UserRepository;
+import com.viladevcorp.hosteo.repository.WorkerRepository;
+import com.viladevcorp.hosteo.service.AlertMaterializer;
+import com.viladevcorp.hosteo.utils.ApiResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.web.servlet.MockMvc;
+
+class AlertControllerTest extends BaseControllerTest {
+
+  // The time of the services, moved by the tests to see the alerts change with it
+  @TestConfiguration
+  static class TestClockConfig {
+
+    @Bean
+    @Primary
+    TestClock testClock() {
+      return new TestClock();
+    }
+  }
+
+  // The system time, moved forward by an offset
+  static class TestClock extends Clock {
+
+    private volatile Duration offset = Duration.ZERO;
+
+    void advance(Duration duration) {
+      offset = offset.plus(duration);
+    }
+
+    void reset() {
+      offset = Duration.ZERO;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.now().plus(offset);
+    }
+  }
+
+  @Autowired private UserRepository userRepository;
+  @Autowired private ApartmentRepository apartmentRepository;
+  @Autowired private EventRepository eventRepository;
+  @Autowired private TaskRepository taskRepository;
+  @Autowired private WorkerRepository workerRepository;
+  @Autowired private AssignmentRepository assignmentRepository;
+  @Autowired private EventAlertRepository eventAlertRepository;
+  @Autowired private AlertMaterializer alertMaterializer;
+  @Autowired private MockMvc mockMvc;
+  @Autowired private ObjectMapper objectMapper;
+  @Autowired private TestClock testClock;
+
+  private Instant now;
+  private Task mandatoryTask;
+  private Event finished;
+  private Event redAlert;
+  private Event yellowAlert;
+
+  // A used apartment with an unassigned mandatory task, so its next two pending events raise alerts
+  @BeforeEach
+  void setup() {
+    testSetupHelper.deleteTestAssignments();
+    TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+    now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    Apartment apartment =
+        apartmentRepository.save(
+            Apartment.builder().name(CREATED_APARTMENT_NAME_1).state(ApartmentState.USED).build());
+    mandatoryTask =
+        taskRepository.save(
+            Task.builder()
+                .name(CREATED_TASK_NAME_1)
+                .type(TaskType.MANDATORY)
+                .category(CREATED_TASK_CATEGORY_1)
+                .duration(CREATED_TASK_DURATION_1)
+                .apartment(apartment)
+                .build());
+    finished =
+        createEvent(
+            CREATED_EVENT_NAME_1,
+            EventState.FINISHED,
+            apartment,
+            now.minus(Duration.ofDays(3)),
+            now.minus(Duration.ofDays(1)));
+    redAlert =
+        createEvent(
+            CREATED_EVENT_NAME_2,
+            EventState.PENDING,
+            apartment,
+            now.plus(Duration.ofDays(1)),
+            now.plus(Duration.ofDays(3)));
+    yellowAlert =
+        createEvent(
+            CREATED_EVENT_NAME_3,
+            EventState.PENDING,
+            apartment,
+            now.plus(Duration.ofDays(4)),
+            now.plus(Duration.ofDays(6)));
+  }
+
+  @AfterEach
+  void resetClock() {
+    testClock.reset();
+  }
+
+  private Event createEvent(
+      String name, EventState state, Apartment apartment, Instant startDate, Instant endDate) {
+    return eventRepository.save(
+        Event.builder()
+            .name(name)
+            .type(EventType.BOOKING)
+            .state(state)
+            .apartment(apartment)
+            .startDate(startDate)
+            .endDate(endDate)
+            .build());
+  }
+
+  private List<AlertDto> getAlerts() throws Exception {
+    String resultString =
+        mockMvc
+            .perform(get("/api/alerts"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    return objectMapper
+        .readValue(resultString, new TypeReference<ApiResponse<List<AlertDto>>>() {})
+        .getData();
+  }
+
+  // The feed is refreshed in the background after the changes are committed
+  private List<AlertDto> waitForAlerts(Predicate<List<AlertDto>> condition) throws Exception {
+    Instant timeout = Instant.now().plusSeconds(10);
+    List<AlertDto> alerts = getAlerts();
+    while (!condition.test(alerts) && Instant.now().isBefore(timeout)) {
+      Thread.sleep(100);
+      alerts = getAlerts();
+    }
+    return alerts;
+  }
+
+  @Nested
+  @DisplayName("Get alerts")
+  class GetAlerts {
+    @Test
+    void When_EventsAtRisk_AlertsInFeed() throws Exception {
+      List<AlertDto> alerts = waitForAlerts(feed -> feed.size() == 2);
+
+      assertEquals(2, alerts.size());
+      assertEquals(redAlert.getId(), alerts.get(0).getEventId());
+      assertEquals(Alert.DAYS_LEFT_2_UNASSIGNED, alerts.get(0).getAlert());
+      assertEquals(CREATED_APARTMENT_NAME_1, alerts.get(0).getApartmentName());
+      assertEquals(yellowAlert.getId(), alerts.get(1).getEventId());
+      assertEquals(Alert.DAYS_LEFT_5_UNASSIGNED, alerts.get(1).getAlert());
+    }
+
+    @Test
+    void When_TaskAssigned_AlertRemoved() throws Exception {
+      waitForAlerts(feed -> feed.size() == 2);
+      Worker worker =
+          workerRepository.save(
+              Worker.builder()
+                  .name(CREATED_WORKER_NAME_1)
+                  .language(CREATED_WORKER_LANGUAGE_1)
+                  .visible(true)
+                  .build());
+      assignmentRepository.save(
+          Assignment.builder()
+              .task(mandatoryTask)
+              .worker(worker)
+              .event(finished)
+              .state(AssignmentState.FINISHED)
+              .startDate(now.minus(Duration.ofDays(1)).plus(Duration.ofHours(1)))
+              .endDate(now.minus(Duration.ofDays(1)).plus(Duration.ofHours(3)))
+              .build());
+
+      // The yellow one stays, the task is still unassigned in the red one
+      List<AlertDto> alerts = waitForAlerts(feed -> feed.size() == 1);
+      assertEquals(1, alerts.size());
+      assertEquals(yellowAlert.getId(), alerts.get(0).getEventId());
+    }
+
+    @Test
+    void When_FeedLost_RebuiltByTick() throws Exception {
+      waitForAlerts(feed -> feed.size() == 2);
+      eventAlertRepository.deleteAll();
+      assertTrue(getAlerts().isEmpty());
+
+      alertMaterializer.refreshAllAlerts();
+      assertEquals(2, waitForAlerts(feed -> feed.size() == 2).size());
+    }
+
+    @Test
+    void When_TimePasses_YellowAlertTurnsRed() throws Exception {
+      waitForAlerts(feed -> feed.size() == 2);
+      // The yellow one starts in 4 days, so in less than 2 after this
+      testClock.advance(Duration.ofDays(2).plusHours(12));
+
+      alertMaterializer.refreshAllAlerts();
+      List<AlertDto> alerts =
+          waitForAlerts(
+              feed -> feed.stream().allMatch(a -> a.getAlert() == Alert.DAYS_LEFT_2_UNASSIGNED));
+      assertEquals(2, alerts.size());
+      assertEquals(redAlert.getId(), alerts.get(0).getEventId());
+      assertEquals(yellowAlert.getId(), alerts.get(1).getEventId());
+      assertEquals(Alert.DAYS_LEFT_2_UNASSIGNED, alerts.get(1).getAlert());
+    }
+
+    @Test
+    void When_TimePasses_LaterEventJoinsFeed() throws Exception {
+      Event later =
+          createEvent(
+              CREATED_EVENT_NAME_4,
+              EventState.PENDING,
+              redAlert.getApartment(),
+              now.plus(Duration.ofDays(8)),
+              now.plus(Duration.ofDays(10)));
+      waitForAlerts(feed -> feed.size() == 2);
+      assertEquals(2, getAlerts().size());
+      // It starts in 8 days, so in less than 5 after this
+      testClock.advance(Duration.ofDays(4));
+
+      alertMaterializer.refreshAllAlerts();
+      List<AlertDto> alerts = waitForAlerts(feed -> feed.size() == 3);
+      assertEquals(3, alerts.size());
+      assertEquals(later.getId(), alerts.get(2).getEventId());
+      assertEquals(Alert.DAYS_LEFT_5_UNASSIGNED, alerts.get(2).getAlert());
+    }
+
+    @Test
+    void When_GetAlertsOfAnotherUser_Empty() throws Exception {
+      waitForAlerts(feed -> feed.size() == 2);
+      TestUtils.injectUserSession(ACTIVE_USER_USERNAME_2, userRepository);
+      assertTrue(getAlerts().isEmpty());
+    }
+  }
+}
@@ -0,0 +1,450 @@
+package com.viladevcorp.hosteo.workflow;
+
+import static com.viladevcorp.hosteo.common.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.TestUtils;
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.Task;
+import com.viladevcorp.hosteo.model.Worker;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
+import com.viladevcorp.hosteo.model.types.AssignmentState;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.types.EventType;
+import com.viladevcorp.hosteo.model.types.TaskType;
+import com.viladevcorp.hosteo.repository.ApartmentRepository;
+import com.viladevcorp.hosteo.repository.AssignmentRepository;
+import com.viladevcorp.hosteo.repository.EventRepository;
+import com.viladevcorp.hosteo.repository.TaskRepository;
+import com.viladevcorp.hosteo.repository.UserRepository;
+import com.viladevcorp.hosteo.repository.WorkerRepository;
+import com.viladevcorp.hosteo.service.ApartmentStateService;
+import com.viladevcorp.hosteo.service.TaskService;
+import com.viladevcorp.hosteo.service.WorkflowService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Supplier;
+import javax.management.InstanceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Checks the states kept by the ApartmentStateService as the events, assignments, tasks and workers
+ * of an apartment change, and that they are the ones the full calculation of the WorkflowService
+ * gives. The changes are made as the services make them: in a transaction that refreshes the state
+ * of the apartment at the end.
+ */
+class ApartmentStateTest extends BaseControllerTest {
+
+  @Autowired private UserRepository userRepository;
+  @Autowired private ApartmentRepository apartmentRepository;
+  @Autowired private EventRepository eventRepository;
+  @Autowired private TaskRepository taskRepository;
+  @Autowired private WorkerRepository workerRepository;
+  @Autowired private AssignmentRepository assignmentRepository;
+  @Autowired private ApartmentStateService apartmentStateService;
+  @Autowired private WorkflowService workflowService;
+  @Autowired private TaskService taskService;
+  @Autowired private TransactionTemplate transactionTemplate;
+  @Autowired private MeterRegistry meterRegistry;
+
+  private Instant now;
+  private UUID apartmentId;
+  private UUID otherApartmentId;
+  private UUID workerId;
+  private UUID otherWorkerId;
+
+  @BeforeEach
+  void setup() {
+    testSetupHelper.deleteTestAssignments();
+    TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+    now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    apartmentId =
+        apartmentRepository
+            .save(
+                Apartment.builder()
+                    .name(CREATED_APARTMENT_NAME_1)
+                    .state(ApartmentState.READY)
+                    .build())
+            .getId();
+    otherApartmentId =
+        apartmentRepository
+            .save(
+                Apartment.builder()
+                    .name(CREATED_APARTMENT_NAME_2)
+                    .state(ApartmentState.READY)
+                    .build())
+            .getId();
+    workerId = workerRepository.save(Worker.builder().name(CREATED_WORKER_NAME_1).build()).getId();
+    otherWorkerId =
+        workerRepository.save(Worker.builder().name(CREATED_WORKER_NAME_2).build()).getId();
+  }
+
+  private Instant days(int days) {
+    return now.plus(Duration.ofDays(days));
+  }
+
+  // Runs the change and refreshes the state of the apartment, in one transaction
+  private <T> T write(UUID apartmentId, Supplier<T> change) {
+    return transactionTemplate.execute(
+        status -> {
+          T result = change.get();
+          try {
+            apartmentStateService.refreshApartmentState(apartmentId);
+          } catch (InstanceNotFoundException e) {
+            throw new IllegalStateException(e);
+          }
+          return result;
+        });
+  }
+
+  private void change(UUID apartmentId, Runnable change) {
+    write(
+        apartmentId,
+        () -> {
+          change.run();
+          return null;
+        });
+  }
+
+  private UUID createTask(UUID apartmentId, TaskType type) {
+    return write(
+        apartmentId,
+        () ->
+            taskRepository
+                .save(
+                    Task.builder()
+                        .name(CREATED_TASK_NAME_1)
+                        .type(type)
+                        .category(CREATED_TASK_CATEGORY_1)
+                        .duration(CREATED_TASK_DURATION_1)
+                        .apartment(apartmentRepository.findById(apartmentId).get())
+                        .build())
+                .getId());
+  }
+
+  private void setTaskType(UUID taskId, TaskType type) {
+    change(apartmentId, () -> taskRepository.findById(taskId).get().setType(type));
+  }
+
+  private void deleteTask(UUID taskId) {
+    change(
+        apartmentId,
+        () -> {
+          try {
+            taskService.deleteTask(taskId);
+          } catch (InstanceNotFoundException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+  }
+
+  // Events of the apartment are put one after the other, each one ending later than the previous
+  private UUID createEvent(UUID apartmentId, int slot, EventState state) {
+    return write(
+        apartmentId,
+        () ->
+            eventRepository
+                .save(
+                    Event.builder()
+                        .name(CREATED_EVENT_NAME_1)
+                        .type(EventType.BOOKING)
+                        .state(state)
+                        .apartment(apartmentRepository.findById(apartmentId).get())
+                        .startDate(days(slot * 3))
+                        .endDate(days(slot * 3 + 2))
+                        .build())
+                .getId());
+  }
+
+  private void setEventState(UUID eventId, EventState state) {
+    change(apartmentId, () -> eventRepository.findById(eventId).get().setState(state));
+  }
+
+  private void deleteEvent(UUID eventId) {
+    change(apartmentId, () -> eventRepository.deleteById(eventId));
+  }
+
+  private UUID createAssignment(UUID eventId, UUID taskId, UUID workerId, AssignmentState state) {
+    return write(
+        apartmentId,
+        () -> {
+          Event event = eventRepository.findById(eventId).get();
+          return assignmentRepository
+              .save(
+                  Assignment.builder()
+                      .event(event)
+                      .task(taskRepository.findById(taskId).get())
+                      .worker(workerRepository.findById(workerId).get())
+                      .startDate(event.getEndDate())
+                      .endDate(event.getEndDate().plus(Duration.ofHours(1)))
+                      .state(state)
+                      .build())
+              .getId();
+        });
+  }
+
+  private void setAssignmentState(UUID assignmentId, AssignmentState state) {
+    change(apartmentId, () -> assignmentRepository.findById(assignmentId).get().setState(state));
+  }
+
+  private void deleteAssignment(UUID assignmentId) {
+    change(apartmentId, () -> assignmentRepository.deleteById(assignmentId));
+  }
+
+  private ApartmentState storedState(UUID apartmentId) {
+    return apartmentRepository.findById(apartmentId).get().getState();
+  }
+
+  private ApartmentState fullCalculation(UUID apartmentId) {
+    return transactionTemplate.execute(
+        status ->
+            workflowService.computeApartmentState(apartmentRepository.findById(apartmentId).get()));
+  }
+
+  private void assertState(ApartmentState expected) {
+    assertEquals(expected, storedState(apartmentId));
+    assertEquals(expected, fullCalculation(apartmentId));
+  }
+
+  @Nested
+  @DisplayName("Mandatory tasks")
+  class MandatoryTasks {
+
+    @Test
+    void When_MandatoryTaskNotDone_UsedUntilAssignmentFinished() {
+      UUID mandatory = createTask(apartmentId, TaskType.MANDATORY);
+      UUID event = createEvent(apartmentId, 1, EventState.IN_PROGRESS);
+      assertState(ApartmentState.OCCUPIED);
+      setEventState(event, EventState.FINISHED);
+      assertState(ApartmentState.USED);
+      UUID assignment = createAssignment(event, mandatory, workerId, AssignmentState.PENDING);
+      assertState(ApartmentState.USED);
+      setAssignmentState(assignment, AssignmentState.FINISHED);
+      assertState(ApartmentState.READY);
+    }
+
+    @Test
+    void When_ExtraTaskNotDone_Ready() {
+      createTask(apartmentId, TaskType.EXTRA);
+      createEvent(apartmentId, 1, EventState.FINISHED);
+      assertState(ApartmentState.READY);
+    }
+
+    @Test
+    void When_MandatoryTaskAddedAndRemoved_StateFollows() {
+      createTask(apartmentId, TaskType.EXTRA);
+      createEvent(apartmentId, 1, EventState.FINISHED);
+      assertState(ApartmentState.READY);
+      UUID mandatory = createTask(apartmentId, TaskType.MANDATORY);
+      assertState(ApartmentState.USED);
+      setTaskType(mandatory, TaskType.EXTRA);
+      assertState(ApartmentState.READY);
+      setTaskType(mandatory, TaskType.MANDATORY);
+      assertState(ApartmentState.USED);
+      deleteTask(mandatory);
+      assertState(ApartmentState.READY);
+    }
+  }
+
+  @Nested
+  @DisplayName("Assignments and events")
+  class AssignmentsAndEvents {
+
+    @Test
+    void When_PendingAssignmentAddedAndRemoved_StateFollows() {
+      UUID extra = createTask(apartmentId, TaskType.EXTRA);
+      UUID event = createEvent(apartmentId, 1, EventState.FINISHED);
+      assertState(ApartmentState.READY);
+      UUID assignment = createAssignment(event, extra, workerId, AssignmentState.PENDING);
+      assertState(ApartmentState.USED);
+      deleteAssignment(assignment);
+      assertState(ApartmentState.READY);
+    }
+
+    @Test
+    void When_LastFinishedEventDeleted_PreviousOneUsed() {
+      UUID mandatory = createTask(apartmentId, TaskType.MANDATORY);
+      UUID first = createEvent(apartmentId, 1, EventState.FINISHED);
+      createAssignment(first, mandatory, workerId, AssignmentState.FINISHED);
+      assertState(ApartmentState.READY);
+      UUID second = createEvent(apartmentId, 2, EventState.FINISHED);
+      assertState(ApartmentState.USED);
+      deleteEvent(second);
+      assertState(ApartmentState.READY);
+    }
+
+    @Test
+    void When_FinishedTaskDeleted_AssignmentsGoneWithIt() {
+      UUID mandatory = createTask(apartmentId, TaskType.MANDATORY);
+      UUID extra = createTask(apartmentId, TaskType.EXTRA);
+      UUID event = createEvent(apartmentId, 1, EventState.FINISHED);
+      createAssignment(event, mandatory, workerId, AssignmentState.FINISHED);
+      createAssignment(event, extra, workerId, AssignmentState.PENDING);
+      assertState(ApartmentState.USED);
+      // Its pending assignment is removed by the database
+      deleteTask(extra);
+      assertState(ApartmentState.READY);
+    }
+
+    @Test
+    void When_WorkerDeleted_OnlyItsApartmentsRecalculated() {
+      UUID mandatory = createTask(apartmentId, TaskType.MANDATORY);
+      UUID otherMandatory = createTask(otherApartmentId, TaskType.MANDATORY);
+      UUID event = createEvent(apartmentId, 1, EventState.FINISHED);
+      UUID otherEvent = createEvent(otherApartmentId, 1, EventState.FINISHED);
+      createAssignment(event, mandatory, workerId, AssignmentState.FINISHED);
+      write(
+          otherApartmentId,
+          () ->
+              assignmentRepository.save(
+                  Assignment.builder()
+                      .event(eventRepository.findById(otherEvent).get())
+                      .task(taskRepository.findById(otherMandatory).get())
+                      .worker(workerRepository.findById(otherWorkerId).get())
+                      .startDate(days(5))
+                      .endDate(days(5).plus(Duration.ofHours(1)))
+                      .state(AssignmentState.FINISHED)
+                      .build()));
+      assertState(ApartmentState.READY);
+      assertEquals(ApartmentState.READY, storedState(otherApartmentId));
+
+      // The finished assignment of the mandatory task is removed by the database
+      change(apartmentId, () -> workerRepository.deleteById(workerId));
+      assertState(ApartmentState.USED);
+      change(otherApartmentId, () -> {});
+      assertEquals(ApartmentState.READY, storedState(otherApartmentId));
+      assertEquals(ApartmentState.READY, fullCalculation(otherApartmentId));
+    }
+  }
+
+  @Nested
+  @DisplayName("Refresh timer")
+  class RefreshTimer {
+
+    private long refreshes(ApartmentState state) {
+      return meterRegistry
+          .timer(ApartmentStateService.APARTMENT_STATE_REFRESH_TIMER, "state", state.name())
+          .count();
+    }
+
+    @Test
+    void When_Refreshed_TimedByState() {
+      long ready = refreshes(ApartmentState.READY);
+      long occupied = refreshes(ApartmentState.OCCUPIED);
+      createEvent(apartmentId, 1, EventState.IN_PROGRESS);
+      assertEquals(ready, refreshes(ApartmentState.READY));
+      assertEquals(occupied + 1, refreshes(ApartmentState.OCCUPIED));
+    }
+  }
+
+  @Nested
+  @DisplayName("Cached data")
+  class CachedData {
+
+    private Map<?, ?> cached(String name) {
+      return (Map<?, ?>) ReflectionTestUtils.getField(apartmentStateService, name);
+    }
+
+    @Test
+    void When_ApartmentDeleted_CachedDataRemoved() {
+      change(apartmentId, () -> {});
+      assertTrue(cached("workflows").containsKey(apartmentId));
+      assertTrue(cached("generations").containsKey(apartmentId));
+
+      transactionTemplate.executeWithoutResult(
+          status -> apartmentRepository.deleteById(apartmentId));
+      assertFalse(cached("workflows").containsKey(apartmentId));
+      assertFalse(cached("generations").containsKey(apartmentId));
+    }
+  }
+
+  @Nested
+  @DisplayName("Full calculation")
+  class FullCalculation {
+
+    // Random changes, each one checked against the full calculation. The events do not overlap and
+    // end in the order they are created, so the last finished one is never a tie
+    @Test
+    void When_RandomChanges_SameAsFullCalculation() {
+      Random random = new Random(42);
+      List<UUID> tasks = new ArrayList<>();
+      List<UUID> events = new ArrayList<>();
+      Map<UUID, UUID> assignmentEvents = new HashMap<>();
+      Map<UUID, UUID> assignmentTasks = new HashMap<>();
+      int slot = 0;
+      tasks.add(createTask(apartmentId, TaskType.MANDATORY));
+
+      for (int step = 0; step < 80; step++) {
+        int operation = random.nextInt(9);
+        if (operation == 0 || tasks.isEmpty()) {
+          tasks.add(
+              createTask(apartmentId, random.nextBoolean() ? TaskType.MANDATORY : TaskType.EXTRA));
+        } else if (operation == 1) {
+          setTaskType(
+              pick(random, tasks), random.nextBoolean() ? TaskType.MANDATORY : TaskType.EXTRA);
+        } else if (operation == 2 && tasks.size() > 1) {
+          UUID task = pick(random, tasks);
+          deleteTask(task);
+          tasks.remove(task);
+          assignmentTasks.entrySet().removeIf(entry -> entry.getValue().equals(task));
+          assignmentEvents.keySet().retainAll(assignmentTasks.keySet());
+        } else if (operation == 3 || events.isEmpty()) {
+          events.add(createEvent(apartmentId, ++slot, pick(random, EventState.values())));
+        } else if (operation == 4) {
+          setEventState(pick(random, events), pick(random, EventState.values()));
+        } else if (operation == 5) {
+          UUID event = pick(random, events);
+          if (!assignmentEvents.containsValue(event)) {
+            deleteEvent(event);
+            events.remove(event);
+          }
+        } else if (operation == 6) {
+          UUID event = pick(random, events);
+          UUID task = pick(random, tasks);
+          UUID assignment =
+              createAssignment(event, task, workerId, pick(random, AssignmentState.values()));
+          assignmentEvents.put(assignment, event);
+          assignmentTasks.put(assignment, task);
+        } else if (operation == 7 && !assignmentTasks.isEmpty()) {
+          setAssignmentState(
+              pick(random, new ArrayList<>(assignmentTasks.keySet())),
+              pick(random, AssignmentState.values()));
+        } else if (operation == 8 && !assignmentTasks.isEmpty()) {
+          UUID assignment = pick(random, new ArrayList<>(assignmentTasks.keySet()));
+          deleteAssignment(assignment);
+          assignmentTasks.remove(assignment);
+          assignmentEvents.remove(assignment);
+        }
+        assertEquals(
+            fullCalculation(apartmentId),
+            storedState(apartmentId),
+            "State differs after step " + step + " (operation " + operation + ")");
+      }
+    }
+
+    private <T> T pick(Random random, List<T> values) {
+      return values.get(random.nextInt(values.size()));
+    }
+
+    private <T> T pick(Random random, T[] values) {
+      return values[random.nextInt(values.length)];
+    }
+  }
+}
@@ -0,0 +1,352 @@
+package com.viladevcorp.hosteo.workflow;
+
+import static com.viladevcorp.hosteo.common.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viladevcorp.hosteo.common.BaseControllerTest;
+import com.viladevcorp.hosteo.common.StatementCounter;
+import com.viladevcorp.hosteo.common.TestUtils;
+import com.viladevcorp.hosteo.model.Apartment;
+import com.viladevcorp.hosteo.model.Assignment;
+import com.viladevcorp.hosteo.model.Event;
+import com.viladevcorp.hosteo.model.SchedulerInfo;
+import com.viladevcorp.hosteo.model.Task;
+import com.viladevcorp.hosteo.model.Worker;
+import com.viladevcorp.hosteo.model.dto.AssignmentForSchedulerDto;
+import com.viladevcorp.hosteo.model.dto.EventSchedulerDto;
+import com.viladevcorp.hosteo.model.types.Alert;
+import com.viladevcorp.hosteo.model.types.ApartmentState;
+import com.viladevcorp.hosteo.model.types.EventState;
+import com.viladevcorp.hosteo.model.types.EventType;
+import com.viladevcorp.hosteo.model.types.TaskType;
+import com.viladevcorp.hosteo.repository.ApartmentRepository;
+import com.viladevcorp.hosteo.repository.AssignmentRepository;
+import com.viladevcorp.hosteo.repository.EventRepository;
+import com.viladevcorp.hosteo.repository.TaskRepository;
+import com.viladevcorp.hosteo.repository.UserRepository;
+import com.viladevcorp.hosteo.repository.WorkerRepository;
+import com.viladevcorp.hosteo.utils.ApiResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@Slf4j
+class SchedulerControllerTest extends BaseControllerTest {
+
+  // The statements of the scheduler endpoint do not grow with the events of the week. Its latency
+  // for a week of 500 apartments is checked against the p99 target with -Pbenchmark, and measured
+  // over HTTP by the load test (scheduler operation)
+  private static final int LOAD_APARTMENTS = 100;
+  private static final int LOAD_DAYS = 7;
+  private static final long MAX_STATEMENTS = 10;
+  private static final int BENCHMARK_APARTMENTS = 500;
+  private static final int WARMUP_RUNS = 10;
+  private static final int RUNS = 100;
+  // On one CPU, most of it writing the JSON of the week
+  private static final long P99_TARGET_MS = 2500;
+
+  @Autowired private UserRepository userRepository;
+  @Autowired private ApartmentRepository apartmentRepository;
+  @Autowired private EventRepository eventRepository;
+  @Autowired private TaskRepository taskRepository;
+  @Autowired private WorkerRepository workerRepository;
+  @Autowired private AssignmentRepository assignmentRepository;
+  @Autowired private MockMvc mockMvc;
+  @Autowired private ObjectMapper objectMapper;
+  @Autowired private StatementCounter statementCounter;
+
+  private Instant now;
+
+  @BeforeEach
+  void setup() {
+    testSetupHelper.deleteTestAssignments();
+    TestUtils.injectUserSession(ACTIVE_USER_USERNAME_1, userRepository);
+    now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+  }
+
+  private MvcResult requestScheduler(LocalDate startDate) throws Exception {
+    return mockMvc
+        .perform(
+            get("/api/scheduler/" + startDate.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"))))
+        .andExpect(status().isOk())
+        .andReturn();
+  }
+
+  private SchedulerInfo getScheduler(LocalDate startDate) throws Exception {
+    String resultString = requestScheduler(startDate).getResponse().getContentAsString();
+    return objectMapper
+        .readValue(resultString, new TypeReference<ApiResponse<SchedulerInfo>>() {})
+        .getData();
+  }
+
+  private Apartment createApartment(String name, ApartmentState state) {
+    return apartmentRepository.save(Apartment.builder().name(name).state(state).build());
+  }
+
+  private Task createTask(String name, TaskType type, Apartment apartment) {
+    return taskRepository.save(
+        Task.builder()
+            .name(name)
+            .type(type)
+            .category(CREATED_TASK_CATEGORY_1)
+            .duration(CREATED_TASK_DURATION_1)
+            .apartment(apartment)
+            .build());
+  }
+
+  private Event createEvent(
+      String name, EventState state, Apartment apartment, Instant startDate, Instant endDate) {
+    return eventRepository.save(
+        Event.builder()
+            .name(name)
+            .type(EventType.BOOKING)
+            .state(state)
+            .apartment(apartment)
+            .startDate(startDate)
+            .endDate(endDate)
+            .build());
+  }
+
+  private EventSchedulerDto findEvent(List<EventSchedulerDto> events, UUID id) {
+    return events.stream().filter(event -> event.getId().equals(id)).findFirst().orElse(null);
+  }
+
+  // Apartments with a mandatory task and a one day stay per day of the week (and the day before),
+  // every other one with an assignment of the worker
+  private void createLoadedWeek(Worker worker, int apartmentCount, String name) {
+    Instant weekStart = today().atStartOfDay().toInstant(ZoneOffset.UTC);
+    List<Apartment> apartments = new ArrayList<>();
+    for (int i = 0; i < apartmentCount; i++) {
+      apartments.add(Apartment.builder().name(name + " " + i).build());
+    }
+    apartments = apartmentRepository.saveAll(apartments);
+    List<Task> tasks = new ArrayList<>();
+    List<Event> events = new ArrayList<>();
+    for (Apartment apartment : apartments) {
+      tasks.add(
+          Task.builder()
+              .name("Cleaning " + apartment.getName())
+              .type(TaskType.MANDATORY)
+              .category(CREATED_TASK_CATEGORY_1)
+              .duration(CREATED_TASK_DURATION_1)
+              .apartment(apartment)
+              .build());
+      for (int day = -1; day < LOAD_DAYS; day++) {
+        Instant startDate = weekStart.plus(Duration.ofDays(day)).plus(Duration.ofHours(15));
+        events.add(
+            Event.builder()
+                .name(apartment.getName() + " " + day)
+                .type(EventType.BOOKING)
+                .state(
+                    startDate.isBefore(now.minus(Duration.ofDays(1)))
+                        ? EventState.FINISHED
+                        : EventState.PENDING)
+                .apartment(apartment)
+                .startDate(startDate)
+                .endDate(startDate.plus(Duration.ofHours(20)))
+                .build());
+      }
+    }
+    tasks = taskRepository.saveAll(tasks);
+    events = eventRepository.saveAll(events);
+    List<Assignment> assignments = new ArrayList<>();
+    for (int i = 0; i < events.size(); i += 2) {
+      Event event = events.get(i);
+      assignments.add(
+          Assignment.builder()
+              .task(tasks.get(i / (LOAD_DAYS + 1)))
+              .worker(worker)
+              .event(event)
+              .startDate(event.getEndDate().plus(Duration.ofMinutes(30)))
+              .endDate(event.getEndDate().plus(Duration.ofMinutes(90)))
+              .build());
+    }
+    assignmentRepository.saveAll(assignments);
+  }
+
+  private LocalDate today() {
+    return LocalDate.ofInstant(now, ZoneOffset.UTC);
+  }
+
+  @Nested
+  @DisplayName("Get scheduler")
+  class GetScheduler {
+    @Test
+    void When_GetScheduler_EventsLinkedAndAlerts() throws Exception {
+      Worker worker =
+          workerRepository.save(
+              Worker.builder()
+                  .name(CREATED_WORKER_NAME_1)
+                  .language(CREATED_WORKER_LANGUAGE_1)
+                  .visible(true)
+                  .build());
+      Apartment usedApartment = createApartment(CREATED_APARTMENT_NAME_1, ApartmentState.USED);
+      Task mandatoryTask = createTask(CREATED_TASK_NAME_1, TaskType.MANDATORY, usedApartment);
+      Task extraTask = createTask(CREATED_TASK_NAME_2, TaskType.EXTRA, usedApartment);
+      Event finished =
+          createEvent(
+              CREATED_EVENT_NAME_1,
+              EventState.FINISHED,
+              usedApartment,
+              now.minus(Duration.ofDays(3)),
+              now.minus(Duration.ofDays(1)));
+      // Starts before the red limit after an event with an unassigned task
+      Event redAlert =
+          createEvent(
+              CREATED_EVENT_NAME_2,
+              EventState.PENDING,
+              usedApartment,
+              now.plus(Duration.ofDays(1)),
+              now.plus(Duration.ofDays(3)));
+      // Starts before the yellow limit after an event with an unassigned task
+      Event yellowAlert =
+          createEvent(
+              CREATED_EVENT_NAME_3,
+              EventState.PENDING,
+              usedApartment,
+              now.plus(Duration.ofDays(4)),
+              now.plus(Duration.ofDays(6)));
+      Assignment assignment =
+          assignmentRepository.save(
+              Assignment.builder()
+                  .task(mandatoryTask)
+                  .worker(worker)
+                  .startDate(now.plus(Duration.ofDays(3)).plus(Duration.ofHours(1)))
+                  .endDate(now.plus(Duration.ofDays(3)).plus(Duration.ofHours(3)))
+                  .build());
+
+      // The next pending event of a ready apartment does not raise alerts
+      Apartment readyApartment = createApartment(CREATED_APARTMENT_NAME_2, ApartmentState.READY);
+      createTask(CREATED_TASK_NAME_3, TaskType.MANDATORY, readyApartment);
+      createEvent(
+          CREATED_EVENT_NAME_4,
+          EventState.FINISHED,
+          readyApartment,
+          now.minus(Duration.ofDays(3)),
+          now.minus(Duration.ofDays(1)));
+      Event readyEvent =
+          createEvent(
+              CREATED_EVENT_NAME_5,
+              EventState.PENDING,
+              readyApartment,
+              now.plus(Duration.ofDays(1)),
+              now.plus(Duration.ofDays(2)));
+
+      SchedulerInfo info = getScheduler(today());
+
+      assertEquals(3, info.getEvents().size());
+      assertNull(findEvent(info.getEvents(), finished.getId()));
+
+      EventSchedulerDto redAlertDto = findEvent(info.getEvents(), redAlert.getId());
+      assertEquals(finished.getId(), redAlertDto.getPrevEvent().getId());
+      assertEquals(yellowAlert.getId(), redAlertDto.getNextEvent().getId());
+      assertEquals(1, redAlertDto.getUnassignedTasks().size());
+      assertEquals(mandatoryTask.getId(), redAlertDto.getUnassignedTasks().get(0).getId());
+      assertEquals(Alert.DAYS_LEFT_2_UNASSIGNED, redAlertDto.getAlert());
+      assertEquals(1, info.getRedAlertEvents().size());
+      assertEquals(redAlert.getId(), info.getRedAlertEvents().get(0).getId());
+
+      EventSchedulerDto yellowAlertDto = findEvent(info.getEvents(), yellowAlert.getId());
+      assertEquals(Alert.DAYS_LEFT_5_UNASSIGNED, yellowAlertDto.getAlert());
+      assertEquals(1, info.getYellowAlertEvents().size());
+      assertEquals(yellowAlert.getId(), info.getYellowAlertEvents().get(0).getId());
+
+      EventSchedulerDto readyEventDto = findEvent(info.getEvents(), readyEvent.getId());
+      assertTrue(readyEventDto.isApartmentReady());
+      assertNull(readyEventDto.getAlert());
+
+      assertEquals(1, info.getAssignments().size());
+      AssignmentForSchedulerDto assignmentDto = info.getAssignments().get(0);
+      assertEquals(assignment.getId(), assignmentDto.getId());
+      assertEquals(redAlert.getId(), assignmentDto.getPrevEvent().getId());
+      assertEquals(yellowAlert.getId(), assignmentDto.getNextEvent().getId());
+
+      assertEquals(1, info.getExtraTasks().size());
+      assertEquals(extraTask.getId(), info.getExtraTasks().get(0).getId());
+    }
+
+    @Test
+    void When_GetSchedulerWithInvalidDate_BadRequest() throws Exception {
+      mockMvc.perform(get("/api/scheduler/2025-01-01")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void When_GetSchedulerOfLoadedWeek_StatementsBounded() throws Throwable {
+      Worker worker =
+          workerRepository.save(
+              Worker.builder()
+                  .name(CREATED_WORKER_NAME_1)
+                  .language(CREATED_WORKER_LANGUAGE_1)
+                  .visible(true)
+                  .build());
+      createLoadedWeek(worker, 1, "Single apartment");
+      statementCounter.assertMaxStatements(MAX_STATEMENTS, () -> getScheduler(today()));
+
+      createLoadedWeek(worker, LOAD_APARTMENTS, "Load apartment");
+      List<SchedulerInfo> loaded = new ArrayList<>();
+      statementCounter.assertMaxStatements(MAX_STATEMENTS, () -> loaded.add(getScheduler(today())));
+      assertEquals((LOAD_APARTMENTS + 1) * (LOAD_DAYS + 1), loaded.get(0).getEvents().size());
+    }
+  }
+
+  @Nested
+  @Tag("benchmark")
+  @DisplayName("Get scheduler benchmark")
+  class GetSchedulerBenchmark {
+    @Test
+    void When_GetSchedulerOfLargeWeek_P99WithinTarget() throws Exception {
+      Worker worker =
+          workerRepository.save(
+              Worker.builder()
+                  .name(CREATED_WORKER_NAME_1)
+                  .language(CREATED_WORKER_LANGUAGE_1)
+                  .visible(true)
+                  .build());
+      createLoadedWeek(worker, BENCHMARK_APARTMENTS, "Benchmark apartment");
+
+      List<Long> latencies = new ArrayList<>();
+      int responseBytes = 0;
+      for (int run = 0; run < WARMUP_RUNS + RUNS; run++) {
+        long start = System.nanoTime();
+        // The response is written, not read back
+        responseBytes = requestScheduler(today()).getResponse().getContentAsByteArray().length;
+        if (run >= WARMUP_RUNS) {
+          latencies.add((System.nanoTime() - start) / 1_000_000);
+        }
+      }
+      latencies.sort(null);
+      long p50 = latencies.get(RUNS / 2);
+      long p99 = latencies.get(RUNS * 99 / 100 - 1);
+      log.info(
+          "[SchedulerControllerTest] - Scheduler of {} apartments x {} days ({} KB): p50 {} ms, p99 {} ms, target p99 {} ms",
+          BENCHMARK_APARTMENTS,
+          LOAD_DAYS,
+          responseBytes / 1024,
+          p50,
+          p99,
+          P99_TARGET_MS);
+      assertTrue(
+          p99 <= P99_TARGET_MS,
+          "Scheduler p99 of " + p99 + " ms over the target of " + P99_TARGET_MS + " ms");
+    }
+  }
+}